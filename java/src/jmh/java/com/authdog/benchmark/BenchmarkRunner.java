@@ -0,0 +1,74 @@
+package com.authdog.benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Runs the JMH benchmarks from surefire, as wired into the moon
+ * {@code benchmark} task.
+ *
+ * <p>Every benchmark is measured twice: once for throughput (ops/s) and once
+ * for sampled latency (percentiles in microseconds), each with the GC profiler
+ * reporting allocation rates. Results are written to
+ * {@code target/surefire-reports/jmh-throughput.json} and
+ * {@code jmh-latency.json}. Runs can be narrowed or shortened with system
+ * properties:</p>
+ *
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=BenchmarkRunner \
+ *     -Djmh.include=UserInfoDeserialization -Djmh.iterations=3
+ * </pre>
+ */
+class BenchmarkRunner {
+
+    private static final File REPORTS_DIR = new File("target/surefire-reports");
+
+    @Test
+    void runThroughputBenchmarks() throws RunnerException {
+        run(Mode.Throughput, TimeUnit.SECONDS, "jmh-throughput.json");
+    }
+
+    @Test
+    void runLatencyBenchmarks() throws RunnerException {
+        run(Mode.SampleTime, TimeUnit.MICROSECONDS, "jmh-latency.json");
+    }
+
+    private static void run(Mode mode, TimeUnit timeUnit, String resultName) throws RunnerException {
+        REPORTS_DIR.mkdirs();
+        int seconds = Integer.getInteger("jmh.time", 1);
+
+        OptionsBuilder builder = new OptionsBuilder();
+        if (Runtime.version().feature() < 21) {
+            // VirtualThreadScalingBenchmark can only compare against virtual threads on JDK 21+
+            builder.param("threads", "platform");
+        }
+
+        Options options = builder
+                .include(System.getProperty("jmh.include", BenchmarkRunner.class.getPackage().getName() + "\\..*"))
+                .mode(mode)
+                .timeUnit(timeUnit)
+                .forks(Integer.getInteger("jmh.forks", 1))
+                .warmupIterations(Integer.getInteger("jmh.warmupIterations", 3))
+                .warmupTime(TimeValue.seconds(seconds))
+                .measurementIterations(Integer.getInteger("jmh.iterations", 5))
+                .measurementTime(TimeValue.seconds(seconds))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(new File(REPORTS_DIR, resultName).getPath())
+                .build();
+
+        assertFalse(new Runner(options).run().isEmpty(), "No benchmarks were run");
+    }
+}
@@ -0,0 +1,74 @@
+package com.authdog.benchmark;
+
+import com.authdog.AuthdogClient;
+import com.authdog.exceptions.AuthdogException;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+
+/**
+ * Cost of the failure paths of {@link AuthdogClient#getUserInfo(String)}:
+ * 401 responses and 500 responses carrying a GraphQL error.
+ */
+@State(Scope.Benchmark)
+public class ErrorPathBenchmark {
+
+    private static final String UNAUTHORIZED_TOKEN = "unauthorized";
+
+    private MockWebServer server;
+
+    private AuthdogClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (("Bearer " + UNAUTHORIZED_TOKEN).equals(request.getHeader("Authorization"))) {
+                    return new MockResponse().setResponseCode(401).setBody("Unauthorized");
+                }
+                return new MockResponse()
+                        .setResponseCode(500)
+                        .setHeader("Content-Type", "application/json")
+                        .setBody(Payloads.GRAPHQL_ERROR);
+            }
+        });
+        server.start();
+        client = new AuthdogClient(server.url("/").toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        server.shutdown();
+    }
+
+    @Benchmark
+    public AuthdogException unauthorized() {
+        return call(UNAUTHORIZED_TOKEN);
+    }
+
+    @Benchmark
+    public AuthdogException graphQlError() {
+        return call("graphql-error");
+    }
+
+    private AuthdogException call(String token) {
+        try {
+            client.getUserInfo(token);
+        } catch (AuthdogException e) {
+            return e;
+        }
+        throw new IllegalStateException("Expected getUserInfo to fail");
+    }
+}
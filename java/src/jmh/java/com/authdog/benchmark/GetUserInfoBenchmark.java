@@ -0,0 +1,61 @@
+package com.authdog.benchmark;
+
+import com.authdog.AuthdogClient;
+import com.authdog.types.UserInfoResponse;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+
+/**
+ * Full {@link AuthdogClient#getUserInfo(String)} round-trip against an
+ * in-process {@link MockWebServer}.
+ */
+@State(Scope.Benchmark)
+public class GetUserInfoBenchmark {
+
+    @Param({"small", "large"})
+    public String payloadSize;
+
+    private MockWebServer server;
+
+    private AuthdogClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[] payload = Payloads.userInfo(payloadSize);
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse()
+                        .setResponseCode(200)
+                        .setHeader("Content-Type", "application/json")
+                        .setBody(new Buffer().write(payload));
+            }
+        });
+        server.start();
+        client = new AuthdogClient(server.url("/").toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        server.shutdown();
+    }
+
+    @Benchmark
+    public UserInfoResponse getUserInfo() {
+        return client.getUserInfo("benchmark-token");
+    }
+}
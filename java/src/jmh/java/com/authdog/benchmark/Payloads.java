@@ -0,0 +1,112 @@
+package com.authdog.benchmark;
+
+import com.authdog.types.Email;
+import com.authdog.types.Meta;
+import com.authdog.types.Names;
+import com.authdog.types.Photo;
+import com.authdog.types.Session;
+import com.authdog.types.User;
+import com.authdog.types.UserInfoResponse;
+import com.authdog.types.Verification;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Userinfo payload fixtures shared by the benchmarks.
+ */
+final class Payloads {
+
+    static final String GRAPHQL_ERROR = "{\"error\":\"GraphQL query failed\"}";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private Payloads() {
+    }
+
+    /**
+     * Serialized userinfo response.
+     *
+     * @param size "small" (identity only), "medium" (typical profile) or
+     *             "large" (profile with many emails, photos and verifications)
+     */
+    static byte[] userInfo(String size) {
+        try {
+            return MAPPER.writeValueAsBytes(response(size));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static UserInfoResponse response(String size) {
+        switch (size) {
+            case "small":
+                return response(0, false);
+            case "medium":
+                return response(2, true);
+            case "large":
+                return response(50, true);
+            default:
+                throw new IllegalArgumentException("Unknown payload size: " + size);
+        }
+    }
+
+    private static UserInfoResponse response(int collectionSize, boolean profile) {
+        UserInfoResponse response = new UserInfoResponse();
+        response.setMeta(new Meta(200, "OK"));
+        response.setSession(new Session(3600));
+
+        User user = new User();
+        user.setId("6f1c2f3a-7b1e-4c55-9a0d-1f2e3d4c5b6a");
+        user.setEnvironmentId("0d9e8f7a-6b5c-4d3e-2f1a-0b9c8d7e6f5a");
+        user.setActive(true);
+        if (profile) {
+            user.setExternalId("ext-123456");
+            user.setUserName("jane.doe");
+            user.setDisplayName("Jane Doe");
+            user.setNickName("jane");
+            user.setProfileUrl("https://example.com/users/jane.doe");
+            user.setTitle("Engineer");
+            user.setUserType("employee");
+            user.setPreferredLanguage("en");
+            user.setLocale("en-US");
+            user.setTimezone("Europe/Paris");
+            user.setProvider("google-oauth2");
+            user.setCreatedAt("2024-01-01T00:00:00.000Z");
+            user.setUpdatedAt("2024-06-01T12:34:56.789Z");
+
+            Names names = new Names();
+            names.setId("names-1");
+            names.setFormatted("Jane Q. Doe");
+            names.setGivenName("Jane");
+            names.setMiddleName("Q.");
+            names.setFamilyName("Doe");
+            user.setNames(names);
+        }
+
+        List<Email> emails = new ArrayList<>();
+        List<Photo> photos = new ArrayList<>();
+        List<Verification> verifications = new ArrayList<>();
+        for (int i = 0; i < collectionSize; i++) {
+            emails.add(new Email("email-" + i, "jane.doe+" + i + "@example.com", "work"));
+            photos.add(new Photo("photo-" + i, "https://cdn.example.com/avatars/" + i + ".png", "avatar"));
+            Verification verification = new Verification();
+            verification.setId("verification-" + i);
+            verification.setEmail("jane.doe+" + i + "@example.com");
+            verification.setVerified(i % 2 == 0);
+            verification.setCreatedAt("2024-01-01T00:00:00.000Z");
+            verification.setUpdatedAt("2024-06-01T12:34:56.789Z");
+            verifications.add(verification);
+        }
+        user.setEmails(emails);
+        user.setPhotos(photos);
+        user.setVerifications(verifications);
+        user.setPhoneNumbers(new ArrayList<>());
+        user.setAddresses(new ArrayList<>());
+
+        response.setUser(user);
+        return response;
+    }
+}
@@ -0,0 +1,79 @@
+package com.authdog.benchmark;
+
+import com.authdog.types.UserFields;
+import com.authdog.types.UserInfoParser;
+import com.authdog.types.UserInfoResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Deserialization cost of {@link UserInfoResponse} by payload size.
+ */
+@State(Scope.Benchmark)
+public class UserInfoDeserializationBenchmark {
+
+    @Param({"small", "medium", "large"})
+    public String payloadSize;
+
+    private ObjectReader reader;
+
+    private UserInfoParser lazyParser;
+
+    private final Set<UserFields> identityFields = EnumSet.of(UserFields.SESSION, UserFields.IDENTITY);
+
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper mapper = new ObjectMapper();
+        reader = mapper.readerFor(UserInfoResponse.class);
+        lazyParser = new UserInfoParser(mapper);
+        payload = Payloads.userInfo(payloadSize);
+    }
+
+    @Benchmark
+    public UserInfoResponse readFromBytes() throws IOException {
+        return reader.readValue(payload);
+    }
+
+    @Benchmark
+    public UserInfoResponse readFromStream() throws IOException {
+        return reader.readValue(new ByteArrayInputStream(payload));
+    }
+
+    /** Lazy mode, reading only the identity fields most services need. */
+    @Benchmark
+    public String readLazilyIdentityOnly() throws IOException {
+        UserInfoResponse response = lazyParser.parseLazily(payload);
+        return response.getUser().getId() + response.getUser().getEnvironmentId();
+    }
+
+    /** Projection onto the session and identity, as used by an edge gateway. */
+    @Benchmark
+    public UserInfoResponse readProjectedIdentity() throws IOException {
+        return lazyParser.parse(new ByteArrayInputStream(payload), identityFields);
+    }
+
+    /** Lazy mode, then touching every nested field. */
+    @Benchmark
+    public UserInfoResponse readLazilyFullyMaterialized() throws IOException {
+        UserInfoResponse response = lazyParser.parseLazily(payload);
+        response.getUser().getNames();
+        response.getUser().getPhotos();
+        response.getUser().getPhoneNumbers();
+        response.getUser().getAddresses();
+        response.getUser().getEmails();
+        response.getUser().getVerifications();
+        return response;
+    }
+}
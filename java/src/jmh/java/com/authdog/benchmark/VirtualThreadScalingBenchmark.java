@@ -0,0 +1,131 @@
+package com.authdog.benchmark;
+
+import com.authdog.AuthdogClient;
+import com.authdog.exceptions.AuthdogException;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of {@value #CALLERS} concurrent callers blocking in
+ * {@link AuthdogClient#getUserInfo(String)}, each on its own platform thread
+ * or its own virtual thread.
+ *
+ * <p>Calls are multiplexed over a single cleartext HTTP/2 connection so the
+ * comparison measures the caller threads rather than socket limits. The
+ * {@code virtual} mode requires JDK 21; {@link BenchmarkRunner} only selects
+ * it on runtimes that support it.</p>
+ */
+@State(Scope.Benchmark)
+public class VirtualThreadScalingBenchmark {
+
+    static final int CALLERS = 10_000;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    /** Simulated server latency, where blocking callers pile up. */
+    @Param({"0", "20"})
+    public int serverDelayMs;
+
+    private MockWebServer server;
+
+    private AuthdogClient client;
+
+    private String[] tokens;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[] payload = Payloads.userInfo("small");
+        server = new MockWebServer();
+        server.setProtocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE));
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse()
+                        .setResponseCode(200)
+                        .setBody(new Buffer().write(payload))
+                        .setHeadersDelay(serverDelayMs, TimeUnit.MILLISECONDS);
+            }
+        });
+        server.start();
+        client = AuthdogClient.builder(server.url("/").toString())
+                .protocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE))
+                // Queueing behind thousands of streams must not read as a timeout
+                .timeoutMs(TimeUnit.MINUTES.toMillis(2))
+                .virtualThreads("virtual".equals(threads))
+                .build();
+
+        // Distinct tokens so that calls are not coalesced
+        tokens = new String[CALLERS];
+        for (int i = 0; i < CALLERS; i++) {
+            tokens[i] = "token-" + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        server.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLERS)
+    public void blockingCallers() throws InterruptedException {
+        ExecutorService callers = "virtual".equals(threads)
+                ? newVirtualThreadPerTaskExecutor()
+                : Executors.newCachedThreadPool();
+        CountDownLatch done = new CountDownLatch(CALLERS);
+        AtomicInteger failures = new AtomicInteger();
+        try {
+            for (String token : tokens) {
+                callers.execute(() -> {
+                    try {
+                        client.getUserInfo(token);
+                    } catch (AuthdogException e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            if (!done.await(5, TimeUnit.MINUTES)) {
+                throw new IllegalStateException("Callers did not finish");
+            }
+            if (failures.get() > 0) {
+                throw new IllegalStateException(failures.get() + " calls failed");
+            }
+        } finally {
+            callers.shutdown();
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads require JDK 21", e);
+        }
+    }
+}
@@ -1,16 +1,56 @@
 package com.authdog;
 
+import com.authdog.cache.RejectedTokenCache;
+import com.authdog.cache.UserInfoCache;
+import com.authdog.circuit.CircuitBreaker;
+import com.authdog.exceptions.ApiErrorCategory;
 import com.authdog.exceptions.AuthenticationException;
 import com.authdog.exceptions.ApiException;
+import com.authdog.exceptions.AuthdogException;
+import com.authdog.exceptions.CircuitOpenException;
+import com.authdog.exceptions.LimitExceededException;
+import com.authdog.hedge.HedgingPolicy;
+import com.authdog.retry.RetryPolicy;
+import com.authdog.jwt.JwtClaims;
+import com.authdog.jwt.JwtVerifier;
+import com.authdog.limit.AdaptiveConcurrencyLimiter;
+import com.authdog.limit.Bulkhead;
+import com.authdog.limit.RateLimiter;
+import com.authdog.metrics.MetricsSnapshot;
+import com.authdog.metrics.Outcome;
+import com.authdog.types.UserFields;
+import com.authdog.types.UserInfoParser;
 import com.authdog.types.UserInfoResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * Main client for interacting with Authdog API.
@@ -21,6 +61,41 @@ public class AuthdogClient implements AutoCloseable {
      */
     private static final int DEFAULT_TIMEOUT_MS = 10000;
 
+    /**
+     * Default JWKS refresh interval in milliseconds.
+     */
+    private static final long DEFAULT_JWKS_REFRESH_MS =
+            TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * Default maximum number of error response bytes read.
+     */
+    private static final int DEFAULT_MAX_ERROR_BODY_BYTES = 4096;
+
+    /**
+     * Parts of the userinfo response needed to verify a token remotely.
+     */
+    private static final Set<UserFields> VERIFY_FIELDS =
+            Collections.unmodifiableSet(EnumSet.of(UserFields.SESSION,
+                    UserFields.IDENTITY));
+
+    /**
+     * Path of the userinfo endpoint.
+     */
+    private static final String USERINFO_PATH = "/v1/userinfo";
+
+    /**
+     * Headers sent with every userinfo request.
+     */
+    private static final Headers BASE_HEADERS = Headers.of(
+            "Content-Type", "application/json",
+            "User-Agent", "authdog-java-sdk/0.1.0");
+
+    /**
+     * Prefix of the Authorization header value.
+     */
+    private static final String BEARER = "Bearer ";
+
     /**
      * HTTP 200 status code.
      */
@@ -32,9 +107,55 @@ public class AuthdogClient implements AutoCloseable {
     private static final int HTTP_UNAUTHORIZED = 401;
 
     /**
-     * HTTP 500 status code.
+     * HTTP 502 status code.
+     */
+    private static final int HTTP_BAD_GATEWAY = 502;
+
+    /**
+     * HTTP 503 status code.
+     */
+    private static final int HTTP_SERVICE_UNAVAILABLE = 503;
+
+    /**
+     * HTTP 504 status code.
+     */
+    private static final int HTTP_GATEWAY_TIMEOUT = 504;
+
+    /**
+     * Error message for rejected credentials.
+     */
+    private static final String UNAUTHORIZED =
+            "Unauthorized - invalid or expired token";
+
+    /**
+     * Error message for requests shed by the concurrency limiter.
      */
-    private static final int HTTP_INTERNAL_SERVER_ERROR = 500;
+    private static final String LIMIT_EXCEEDED =
+            "Too many userinfo requests in flight";
+
+    /**
+     * Error message for requests shed by the rate limiter.
+     */
+    private static final String RATE_EXCEEDED =
+            "Userinfo request rate limit exceeded";
+
+    /**
+     * Error message for requests rejected by the open circuit breaker.
+     */
+    private static final String CIRCUIT_OPEN =
+            "Circuit breaker open - userinfo requests are failing";
+
+    /**
+     * Error message for attempts started after the call's deadline.
+     */
+    private static final String DEADLINE_EXCEEDED =
+            "Deadline exceeded before the request was sent";
+
+    /**
+     * Error message for calls whose deadline passed before the response.
+     */
+    private static final String DEADLINE_PASSED =
+            "Deadline exceeded before the response arrived";
 
     /**
      * HTTP client.
@@ -42,9 +163,27 @@ public class AuthdogClient implements AutoCloseable {
     private final OkHttpClient httpClient;
 
     /**
-     * Base URL.
+     * Default number of batch lookups in flight: the configured limit of
+     * async requests to the API host.
+     */
+    private final int batchConcurrency;
+
+    /**
+     * URL of the userinfo endpoint as configured.
      */
-    private final String baseUrl;
+    private final String userInfoUrl;
+
+    /**
+     * Parsed URL of the userinfo endpoint, null when it is invalid so
+     * that each request reports the error.
+     */
+    private final HttpUrl parsedUserInfoUrl;
+
+    /**
+     * The userinfo request in API-key mode, identical on every call; null
+     * without an API key.
+     */
+    private final Request apiKeyRequest;
 
     /**
      * API key.
@@ -56,6 +195,98 @@ public class AuthdogClient implements AutoCloseable {
      */
     private final ObjectMapper objectMapper;
 
+    /**
+     * Reader pre-resolved for userinfo responses.
+     */
+    private final ObjectReader userInfoReader;
+
+    /**
+     * Streaming parser for lazy and projected responses.
+     */
+    private final UserInfoParser userInfoParser;
+
+    /**
+     * Whether nested user fields are decoded on first access.
+     */
+    private final boolean lazyParsing;
+
+    /**
+     * Maps error responses to their exception.
+     */
+    private final ErrorResponseReader errorResponses;
+
+    /**
+     * Optional userinfo cache, null when caching is disabled.
+     */
+    private final UserInfoCache cache;
+
+    /**
+     * Optional cache of rejected access tokens, null when disabled.
+     */
+    private final RejectedTokenCache rejectedTokens;
+
+    /**
+     * Whether async calls run on virtual threads.
+     */
+    private final boolean virtualThreads;
+
+    /**
+     * Optional local verifier of JWT access tokens, null when disabled.
+     */
+    private final JwtVerifier jwtVerifier;
+
+    /**
+     * Optional limiter of requests in flight, null when disabled.
+     */
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    /**
+     * Optional circuit breaker, null when disabled.
+     */
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * Optional hedging policy, null when requests are not hedged.
+     */
+    private final HedgingPolicy hedging;
+
+    /**
+     * Optional retry policy, null when requests are not retried.
+     */
+    private final RetryPolicy retry;
+
+    /**
+     * Optional limiter of the request rate, null when disabled.
+     */
+    private final RateLimiter rateLimiter;
+
+    /**
+     * Optional partitioned concurrency limits, null when disabled.
+     */
+    private final Bulkhead bulkhead;
+
+    /**
+     * Picks the bulkhead partition of requests, null without a bulkhead.
+     */
+    private final PartitionResolver partitions;
+
+    /**
+     * Userinfo requests in flight, by access token.
+     */
+    private final SingleFlight<String, UserInfoResponse> inFlight =
+            new SingleFlight<>();
+
+    /**
+     * Access tokens whose cached response is being refreshed ahead of
+     * expiry.
+     */
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Latency and outcome metrics of userinfo requests.
+     */
+    private final RequestMetrics metrics = new RequestMetrics();
+
     /**
      * Initialize the Authdog client.
      * @param baseUrlParam The base URL of the Authdog API
@@ -81,20 +312,100 @@ public class AuthdogClient implements AutoCloseable {
      */
     public AuthdogClient(final String baseUrlParam, final String apiKeyParam,
                         final int timeoutMsParam) {
-        this.baseUrl = baseUrlParam.endsWith("/")
-                ? baseUrlParam.substring(0, baseUrlParam.length() - 1)
-                : baseUrlParam;
-        this.apiKey = apiKeyParam;
+        this(baseUrlParam, apiKeyParam, timeoutMsParam, null);
+    }
+
+    /**
+     * Initialize the Authdog client with a userinfo cache.
+     * @param baseUrlParam The base URL of the Authdog API
+     * @param apiKeyParam Optional API key for authentication
+     * @param timeoutMsParam Timeout in milliseconds
+     * @param cacheParam Optional cache of userinfo responses by access token
+     */
+    public AuthdogClient(final String baseUrlParam, final String apiKeyParam,
+                        final int timeoutMsParam,
+                        final UserInfoCache cacheParam) {
+        this(builder(baseUrlParam)
+                .apiKey(apiKeyParam)
+                .timeoutMs(timeoutMsParam)
+                .cache(cacheParam));
+    }
+
+    /**
+     * Initialize the Authdog client from a builder.
+     * @param builderParam The client configuration
+     */
+    private AuthdogClient(final Builder builderParam) {
+        String url = builderParam.baseUrl;
+        this.userInfoUrl = (url.endsWith("/")
+                ? url.substring(0, url.length() - 1)
+                : url) + USERINFO_PATH;
+        this.parsedUserInfoUrl = HttpUrl.parse(userInfoUrl);
+        this.apiKey = builderParam.apiKey;
+        this.apiKeyRequest = apiKey != null && parsedUserInfoUrl != null
+                ? newRequest(BEARER + apiKey)
+                : null;
         this.objectMapper = new ObjectMapper();
+        this.userInfoReader = objectMapper.readerFor(UserInfoResponse.class);
+        this.userInfoParser = new UserInfoParser(objectMapper);
+        this.lazyParsing = builderParam.lazyParsing;
+        this.errorResponses = new ErrorResponseReader(
+                objectMapper.getFactory(), builderParam.maxErrorBodyBytes);
+        this.cache = builderParam.cache;
+        this.rejectedTokens = builderParam.rejectedTokens;
+        this.limiter = builderParam.limiter;
+        this.circuitBreaker = builderParam.circuitBreaker;
+        this.hedging = builderParam.hedging;
+        this.retry = builderParam.retry;
+        this.rateLimiter = builderParam.rateLimiter;
+        this.bulkhead = builderParam.bulkhead;
+        this.partitions = builderParam.bulkhead != null
+                ? new PartitionResolver(builderParam.partitioner)
+                : null;
+        this.virtualThreads = builderParam.virtualThreads
+                && VirtualThreads.isAvailable();
+        this.httpClient = builderParam.buildHttpClient(virtualThreads);
+        Dispatcher dispatcher = httpClient.dispatcher();
+        this.batchConcurrency = dispatcher.getMaxRequestsPerHost();
+        if (limiter != null) {
+            // An admitted request must run at once: while queued in the
+            // dispatcher it would hold a permit and inflate the RTT sample
+            int maxLimit = limiter.getMaxLimit();
+            dispatcher.setMaxRequests(Math.max(maxLimit,
+                    dispatcher.getMaxRequests()));
+            dispatcher.setMaxRequestsPerHost(Math.max(maxLimit,
+                    batchConcurrency));
+        }
+        this.jwtVerifier = builderParam.jwksUrl != null
+                ? new JwtVerifier(httpClient, builderParam.jwksUrl,
+                        builderParam.audience, builderParam.jwksRefreshMs)
+                : null;
+    }
 
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(timeoutMsParam, TimeUnit.MILLISECONDS)
-                .readTimeout(timeoutMsParam, TimeUnit.MILLISECONDS)
-                .writeTimeout(timeoutMsParam, TimeUnit.MILLISECONDS)
-                .build();
+    /**
+     * Create a builder for a client with custom connection settings.
+     * @param baseUrlParam The base URL of the Authdog API
+     * @return A builder with default settings
+     */
+    public static Builder builder(final String baseUrlParam) {
+        return new Builder(baseUrlParam);
     }
+
     /**
      * Get user information using an access token.
+     *
+     * <p>When a cache is configured, a cached response for the same access
+     * token is returned without contacting the API, and with a
+     * {@link RejectedTokenCache}, so is a recent rejection. Concurrent calls
+     * for the same access token share a single request.</p>
+     *
+     * <p>With a cache that refreshes ahead, such as an
+     * {@link com.authdog.cache.InMemoryUserInfoCache} with a
+     * {@link com.authdog.cache.RefreshAheadPolicy}, a cached response past
+     * its refresh point is returned at once while it is refetched in the
+     * background. If refetching an expired response fails with an
+     * {@link ApiException}, the response is returned within its grace
+     * window instead; an {@link AuthenticationException} drops it.</p>
      * @param accessTokenParam The access token for authentication
      * @return UserInfoResponse containing user information
      * @throws AuthenticationException When authentication fails
@@ -102,74 +413,1559 @@ public class AuthdogClient implements AutoCloseable {
      */
     public UserInfoResponse getUserInfo(final String accessTokenParam)
             throws AuthenticationException, ApiException {
-        String url = baseUrl + "/v1/userinfo";
+        UserInfoResponse cached = lookupLocally(accessTokenParam);
+        if (cached != null) {
+            return cached;
+        }
+        verifyLocally(accessTokenParam);
+        return inFlight.execute(accessTokenParam,
+                () -> fetchUserInfo(accessTokenParam, null, true));
+    }
 
-        Request.Builder requestBuilder = new Request.Builder()
-                .url(url)
-                .addHeader("Content-Type", "application/json")
-                .addHeader("User-Agent", "authdog-java-sdk/0.1.0");
+    /**
+     * Get user information using an access token, reporting failures in
+     * the result instead of throwing them.
+     *
+     * <p>Behaves like {@link #getUserInfo(String)}. Rejected tokens and
+     * requests shed locally, which can be frequent, are answered without
+     * the cost of a stack trace; check {@link UserInfoResult#isSuccess()}
+     * and {@link UserInfoResult#isUnauthorized()} before reading the
+     * response.</p>
+     * @param accessTokenParam The access token for authentication
+     * @return The response, or the reason the lookup failed
+     */
+    public UserInfoResult tryGetUserInfo(final String accessTokenParam) {
+        try {
+            return UserInfoResult.success(getUserInfo(accessTokenParam));
+        } catch (AuthdogException e) {
+            return UserInfoResult.failure(e);
+        }
+    }
 
-        // Use API key if provided, otherwise use access token
-        if (apiKey != null) {
-            requestBuilder.header("Authorization", "Bearer " + apiKey);
-        } else {
-            requestBuilder.header("Authorization",
-                    "Bearer " + accessTokenParam);
+    /**
+     * Verify an access token, locally when possible.
+     *
+     * <p>With local verification configured, a signed JWT is checked
+     * against the cached key set without contacting the API. Tokens that
+     * cannot be judged locally, such as opaque tokens or tokens seen before
+     * the key set was first fetched, are resolved through the userinfo
+     * endpoint, decoding only the user's identity and session. The fallback
+     * always asks the API, never the cache, so the expiry is computed from
+     * the session's current remaining life.</p>
+     * @param accessTokenParam The access token for authentication
+     * @return The token's subject, environment id and expiry
+     * @throws AuthenticationException When the token is invalid or expired
+     * @throws ApiException When the userinfo fallback fails
+     */
+    public JwtClaims verifyToken(final String accessTokenParam)
+            throws AuthenticationException, ApiException {
+        checkRejected(accessTokenParam);
+        JwtClaims claims = verifyLocally(accessTokenParam);
+        if (claims != null) {
+            return claims;
+        }
+        UserInfoResponse response = fetchUserInfo(accessTokenParam,
+                VERIFY_FIELDS, false);
+        String subject = null;
+        String environmentId = null;
+        if (response.getUser() != null) {
+            subject = response.getUser().getId();
+            environmentId = response.getUser().getEnvironmentId();
+        }
+        long remainingSeconds = response.getSession() != null
+                ? response.getSession().getRemainingSeconds()
+                : 0;
+        return new JwtClaims(subject, environmentId,
+                TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis())
+                        + remainingSeconds);
+    }
+
+    /**
+     * Get only the requested parts of a user's information.
+     *
+     * <p>Parts that are not requested are skipped while parsing and left
+     * null in the response, which saves decoding work for callers that need
+     * little more than a user's identity, for example
+     * {@code getUserInfo(token, UserFields.SESSION, UserFields.IDENTITY)}.
+     * A cached full response is returned as is. Projected responses are not
+     * cached, and are not shared with concurrent calls for the same access
+     * token.</p>
+     * @param accessTokenParam The access token for authentication
+     * @param fieldsParam The parts of the response to decode
+     * @return UserInfoResponse containing the requested parts
+     * @throws AuthenticationException When authentication fails
+     * @throws ApiException When API request fails
+     */
+    public UserInfoResponse getUserInfo(final String accessTokenParam,
+                                        final UserFields... fieldsParam)
+            throws AuthenticationException, ApiException {
+        Set<UserFields> fields = EnumSet.noneOf(UserFields.class);
+        for (UserFields field : fieldsParam) {
+            if (field == null) {
+                throw new IllegalArgumentException(
+                        "Fields must not be null");
+            }
+            fields.add(field);
+        }
+        if (fields.size() == UserFields.values().length) {
+            return getUserInfo(accessTokenParam);
         }
+        UserInfoResponse cached = lookupLocally(accessTokenParam);
+        if (cached != null) {
+            return cached;
+        }
+        verifyLocally(accessTokenParam);
+        return fetchUserInfo(accessTokenParam, fields, true);
+    }
 
-        Request request = requestBuilder.build();
+    /**
+     * Get user information using an access token without blocking.
+     *
+     * <p>The request is executed on the HTTP client's dispatcher. The
+     * returned future completes exceptionally with the same exception types
+     * thrown by {@link #getUserInfo(String)}. Concurrent calls for the same
+     * access token share a single request, which is cancelled once every
+     * caller has cancelled its future.</p>
+     * @param accessTokenParam The access token for authentication
+     * @return Future completed with the user information
+     */
+    public CompletableFuture<UserInfoResponse> getUserInfoAsync(
+            final String accessTokenParam) {
+        return lookupAsync(accessTokenParam, 0);
+    }
 
-        try (Response response = httpClient.newCall(request).execute()) {
-            ResponseBody body = response.body();
-            String responseBody = body != null ? body.string() : "";
+    /**
+     * Get user information without blocking, within a deadline.
+     *
+     * <p>As {@link #getUserInfoAsync(String)}, but the future completes by
+     * the deadline. A request started by this call stops retrying at the
+     * earlier of this deadline and the retry policy's, and each HTTP call's
+     * timeout is cut to the time left. A call that shares another caller's
+     * request stops waiting for it at its own deadline. When the deadline
+     * passes first, the future completes with an {@link ApiException}, or
+     * with a stale cached response within its grace window.</p>
+     * @param accessTokenParam The access token for authentication
+     * @param deadlineMsParam Time allowed for the call in milliseconds
+     * @return Future completed with the user information
+     */
+    public CompletableFuture<UserInfoResponse> getUserInfoAsync(
+            final String accessTokenParam, final long deadlineMsParam) {
+        if (deadlineMsParam <= 0) {
+            throw new IllegalArgumentException("deadlineMs must be positive");
+        }
+        return lookupAsync(accessTokenParam, deadlineMsParam);
+    }
 
-            if (response.code() == HTTP_UNAUTHORIZED) {
-                throw new AuthenticationException(
-                        "Unauthorized - invalid or expired token");
+    /**
+     * Get user information without blocking, from the cache or the API.
+     * @param accessTokenParam The access token for authentication
+     * @param deadlineMsParam Time allowed for the call in milliseconds, 0
+     *                        for none
+     * @return Future completed with the user information
+     */
+    private CompletableFuture<UserInfoResponse> lookupAsync(
+            final String accessTokenParam, final long deadlineMsParam) {
+        UserInfoResponse cached;
+        try {
+            cached = lookupLocally(accessTokenParam);
+            if (cached == null) {
+                verifyLocally(accessTokenParam);
             }
-
-            if (response.code() == HTTP_INTERNAL_SERVER_ERROR) {
-                try {
-                    // Try to parse error response
-                    var errorNode = objectMapper.readTree(responseBody);
-                    if (errorNode.has("error")) {
-                        String errorMessage = errorNode.get("error").asText();
-                        if ("GraphQL query failed".equals(errorMessage)) {
-                            throw new ApiException("GraphQL query failed");
-                        } else if ("Failed to fetch user info"
-                                .equals(errorMessage)) {
-                            throw new ApiException("Failed to fetch user info");
+        } catch (AuthenticationException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        if (deadlineMsParam == 0) {
+            return inFlight.executeAsync(accessTokenParam,
+                    () -> fetchUserInfoAsync(accessTokenParam, null, true, 0));
+        }
+        long deadlineNanos = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(deadlineMsParam);
+        CompletableFuture<UserInfoResponse> shared = inFlight.executeAsync(
+                accessTokenParam, () -> fetchUserInfoAsync(accessTokenParam,
+                        null, true, deadlineNanos));
+        CompletableFuture<UserInfoResponse> future = new CompletableFuture<>();
+        shared.whenComplete((result, error) -> {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        });
+        future.whenComplete((result, error) -> shared.cancel(false));
+        CompletableFuture.delayedExecutor(deadlineMsParam,
+                TimeUnit.MILLISECONDS).execute(() -> {
+                    if (!future.isDone()) {
+                        UserInfoResponse stale =
+                                staleResponse(accessTokenParam);
+                        if (stale != null) {
+                            future.complete(stale);
+                        } else {
+                            future.completeExceptionally(
+                                    new ApiException(DEADLINE_PASSED));
                         }
                     }
-                } catch (IOException e) {
-                    // Ignore JSON parsing errors for error responses
+                });
+        return future;
+    }
+
+    /**
+     * Get user information for many access tokens.
+     *
+     * <p>At most as many lookups as the HTTP client allows per host run at
+     * once. See {@link #getUserInfoBatch(Collection, int)}.</p>
+     * @param accessTokensParam The access tokens to resolve
+     * @return A result per distinct access token, in first-seen order
+     * @throws ApiException When the calling thread is interrupted
+     */
+    public Map<String, UserInfoResult> getUserInfoBatch(
+            final Collection<String> accessTokensParam) throws ApiException {
+        return getUserInfoBatch(accessTokensParam, batchConcurrency);
+    }
+
+    /**
+     * Get user information for many access tokens with bounded concurrency.
+     *
+     * <p>Identical access tokens are looked up once. Lookups share the
+     * client's connection pool, cache and in-flight requests. A failed lookup
+     * is reported in its token's result and does not abort the batch.</p>
+     * @param accessTokensParam The access tokens to resolve
+     * @param maxConcurrencyParam Maximum number of lookups in flight
+     * @return A result per distinct access token, in first-seen order
+     * @throws ApiException When the calling thread is interrupted
+     */
+    public Map<String, UserInfoResult> getUserInfoBatch(
+            final Collection<String> accessTokensParam,
+            final int maxConcurrencyParam) throws ApiException {
+        UserInfoBatch batch = new UserInfoBatch(accessTokensParam,
+                maxConcurrencyParam, this::getUserInfoAsync);
+        try {
+            return batch.start().get();
+        } catch (InterruptedException e) {
+            batch.cancel();
+            Thread.currentThread().interrupt();
+            throw new ApiException("Batch interrupted", e);
+        } catch (ExecutionException e) {
+            throw new ApiException("Batch failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Create a processor that resolves a stream of access tokens.
+     *
+     * <p>The processor subscribes to a token publisher and publishes a
+     * {@link UserInfoResult} per token to a single subscriber. Tokens are
+     * requested from upstream only as the subscriber asks for results, and
+     * at most {@code maxConcurrency} are being looked up or waiting to be
+     * delivered at once, so nothing is buffered without bound and no thread
+     * blocks per token. Lookups share the client's connection pool, cache
+     * and in-flight requests; a failed lookup is delivered as a failed
+     * result. Upstream completion or failure is passed on once every
+     * received token has been delivered.</p>
+     * @param maxConcurrencyParam Maximum number of tokens in flight
+     * @param orderedParam True to deliver results in token order, false to
+     *                     deliver them as lookups complete
+     * @return A new processor
+     */
+    public Flow.Processor<String, UserInfoResult> userInfoProcessor(
+            final int maxConcurrencyParam, final boolean orderedParam) {
+        return new UserInfoProcessor(maxConcurrencyParam, orderedParam,
+                this::getUserInfoAsync);
+    }
+
+    /**
+     * Get the number of calls that shared an in-flight request made for the
+     * same access token instead of issuing their own.
+     * @return Coalesced call count
+     */
+    public long getCoalescedCallCount() {
+        return inFlight.getCoalescedCount();
+    }
+
+    /**
+     * Get a snapshot of the client's userinfo metrics.
+     *
+     * <p>Latencies are recorded per request sent to the API, by outcome,
+     * from just before the request is sent until its response is read.
+     * Cache hits and coalesced calls send no request and are not
+     * recorded.</p>
+     * @return The metrics snapshot
+     */
+    public MetricsSnapshot getMetrics() {
+        return metrics.snapshot(httpClient, inFlight.getCoalescedCount());
+    }
+
+    /**
+     * Check whether async and batch calls run on virtual threads.
+     * @return True when virtual threads were requested and are available
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Fetch user information from the API and cache full responses.
+     * @param accessTokenParam The access token for authentication
+     * @param fieldsParam Parts of the response to decode, null for all
+     * @param staleParam Whether a stale cached response may be returned
+     *                   when the request fails
+     * @return UserInfoResponse containing user information
+     * @throws AuthenticationException When authentication fails
+     * @throws ApiException When API request fails
+     */
+    private UserInfoResponse fetchUserInfo(final String accessTokenParam,
+                                           final Set<UserFields> fieldsParam,
+                                           final boolean staleParam)
+            throws AuthenticationException, ApiException {
+        if (hedging != null || retry != null || bulkhead != null) {
+            return await(fetchUserInfoAsync(accessTokenParam, fieldsParam,
+                    staleParam, 0));
+        }
+        Request request = buildRequest(accessTokenParam);
+        RequestAttempt attempt;
+        try {
+            attempt = admit();
+        } catch (ApiException e) {
+            return staleOrThrow(accessTokenParam, staleParam, e);
+        }
+
+        Call call = httpClient.newCall(request);
+        Response response;
+        try {
+            response = call.execute();
+        } catch (IOException e) {
+            finish(failureOf(call), attempt);
+            return staleOrThrow(accessTokenParam, staleParam,
+                    new ApiException("Request failed: " + e.getMessage(), e));
+        } catch (RuntimeException e) {
+            finish(Outcome.IO_ERROR, attempt);
+            throw e;
+        }
+        try (response) {
+            UserInfoResponse result = recordResponse(call, response,
+                    fieldsParam, attempt);
+            if (cache != null && fieldsParam == null) {
+                cache.put(accessTokenParam, result);
+            }
+            return result;
+        } catch (AuthenticationException e) {
+            rememberRejection(accessTokenParam);
+            throw e;
+        } catch (ApiException e) {
+            return staleOrThrow(accessTokenParam, staleParam, e);
+        } catch (IOException e) {
+            return staleOrThrow(accessTokenParam, staleParam,
+                    new ApiException("Request failed: " + e.getMessage(), e));
+        }
+    }
+
+    /**
+     * Wait for a hedged or retried fetch on the calling thread.
+     * @param futureParam The fetch
+     * @return UserInfoResponse containing user information
+     * @throws AuthenticationException When authentication fails
+     * @throws ApiException When API request fails or the calling thread is
+     *         interrupted
+     */
+    private static UserInfoResponse await(
+            final CompletableFuture<UserInfoResponse> futureParam)
+            throws AuthenticationException, ApiException {
+        try {
+            return futureParam.get();
+        } catch (InterruptedException e) {
+            futureParam.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new ApiException("Request interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ApiException("Request failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Answer a lookup without contacting the API, when possible.
+     * @param accessTokenParam The access token for authentication
+     * @return The cached response, or null when the API must be called
+     * @throws AuthenticationException When the API rejected the access
+     *         token recently
+     */
+    private UserInfoResponse lookupLocally(final String accessTokenParam)
+            throws AuthenticationException {
+        checkRejected(accessTokenParam);
+        if (cache == null) {
+            return null;
+        }
+        UserInfoResponse cached = cache.get(accessTokenParam);
+        if (cached != null && cache.isRefreshDue(accessTokenParam)) {
+            refreshAhead(accessTokenParam);
+        }
+        return cached;
+    }
+
+    /**
+     * Refetch a cached response in the background, unless a refresh for the
+     * same access token is already running. The refreshed response replaces
+     * the cached one; a rejection removes it.
+     * @param accessTokenParam The access token for authentication
+     */
+    private void refreshAhead(final String accessTokenParam) {
+        if (!refreshing.add(accessTokenParam)) {
+            return;
+        }
+        try {
+            inFlight.executeAsync(accessTokenParam,
+                    () -> fetchUserInfoAsync(accessTokenParam, null, true, 0))
+                    .whenComplete((result, error) ->
+                            refreshing.remove(accessTokenParam));
+        } catch (RuntimeException e) {
+            refreshing.remove(accessTokenParam);
+            throw e;
+        }
+    }
+
+    /**
+     * Fall back to a stale cached response after a failed refetch.
+     * @param accessTokenParam The access token for authentication
+     * @param staleParam Whether a stale response may be returned
+     * @param errorParam The refetch failure
+     * @return The stale response, when still within its grace window
+     * @throws ApiException The refetch failure, when no stale response may
+     *         be served
+     */
+    private UserInfoResponse staleOrThrow(final String accessTokenParam,
+                                          final boolean staleParam,
+                                          final ApiException errorParam)
+            throws ApiException {
+        UserInfoResponse stale = staleParam
+                ? staleResponse(accessTokenParam)
+                : null;
+        if (stale == null) {
+            throw errorParam;
+        }
+        return stale;
+    }
+
+    /**
+     * Get an expired cached response that is still within its grace window.
+     * @param accessTokenParam The access token for authentication
+     * @return The stale response, or null when none may be served
+     */
+    private UserInfoResponse staleResponse(final String accessTokenParam) {
+        return cache != null ? cache.getStale(accessTokenParam) : null;
+    }
+
+    /**
+     * Fail fast for an access token the API rejected recently.
+     * @param accessTokenParam The access token for authentication
+     * @throws AuthenticationException When the token was rejected recently
+     */
+    private void checkRejected(final String accessTokenParam)
+            throws AuthenticationException {
+        if (rejectedTokens != null
+                && rejectedTokens.isRejected(accessTokenParam)) {
+            throw new AuthenticationException(UNAUTHORIZED, null, false);
+        }
+    }
+
+    /**
+     * Verify an access token against the cached key set, when configured.
+     * @param accessTokenParam The access token for authentication
+     * @return The token's claims, or null when the API must decide
+     * @throws AuthenticationException When the token is a JWT that fails
+     *         verification
+     */
+    private JwtClaims verifyLocally(final String accessTokenParam)
+            throws AuthenticationException {
+        return jwtVerifier != null
+                ? jwtVerifier.verify(accessTokenParam)
+                : null;
+    }
+
+    /**
+     * Remember that the API rejected an access token, and drop any cached
+     * response for it so that it is not served stale. Only tokens sent as
+     * the credential are remembered as rejected; with an API key, a 401 is
+     * about the key.
+     * @param accessTokenParam The rejected access token
+     */
+    private void rememberRejection(final String accessTokenParam) {
+        if (cache != null) {
+            cache.invalidate(accessTokenParam);
+        }
+        if (rejectedTokens != null && apiKey == null) {
+            rejectedTokens.reject(accessTokenParam);
+        }
+    }
+
+    /**
+     * Fetch user information from the API without blocking and cache full
+     * responses, retrying and hedging the request when policies are
+     * configured. Each attempt waits for a slot in the request's bulkhead
+     * partition, resolved once per call.
+     * @param accessTokenParam The access token for authentication
+     * @param fieldsParam Parts of the response to decode, null for all
+     * @param staleParam Whether a stale cached response may be returned
+     *                   when the request fails
+     * @param deadlineNanosParam Deadline of the caller in
+     *                           {@link System#nanoTime()} units, 0 for
+     *                           none; limits the retry policy's deadline
+     * @return Future completed with the user information; cancelling it
+     *         cancels the HTTP calls
+     */
+    private CompletableFuture<UserInfoResponse> fetchUserInfoAsync(
+            final String accessTokenParam,
+            final Set<UserFields> fieldsParam,
+            final boolean staleParam,
+            final long deadlineNanosParam) {
+        String partition = partitions != null
+                ? partitions.resolve(accessTokenParam)
+                : null;
+        CompletableFuture<UserInfoResponse> sent = retry != null
+                ? RetryingRequest.start(deadlineNanos -> attempt(
+                        accessTokenParam, fieldsParam, deadlineNanos,
+                        partition), retry, deadlineNanosParam,
+                        AuthdogClient::isTransient)
+                : attempt(accessTokenParam, fieldsParam, deadlineNanosParam,
+                        partition);
+        CompletableFuture<UserInfoResponse> future = new CompletableFuture<>();
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                sent.cancel(false);
+            }
+        });
+        sent.whenComplete((result, error) -> {
+            if (error == null) {
+                if (cache != null && fieldsParam == null) {
+                    cache.put(accessTokenParam, result);
+                }
+                if (partitions != null) {
+                    partitions.learn(accessTokenParam, result);
+                }
+                future.complete(result);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException
+                    && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof AuthenticationException) {
+                rememberRejection(accessTokenParam);
+            } else if (cause instanceof ApiException && staleParam) {
+                UserInfoResponse stale = staleResponse(accessTokenParam);
+                if (stale != null) {
+                    future.complete(stale);
+                    return;
                 }
-                throw new ApiException("HTTP error 500: " + responseBody);
             }
+            future.completeExceptionally(cause);
+        });
+        return future;
+    }
+
+    /**
+     * Make one attempt at a userinfo request, hedged when a policy is
+     * configured.
+     * @param accessTokenParam The access token for authentication
+     * @param fieldsParam Parts of the response to decode, null for all
+     * @param deadlineNanosParam Deadline in {@link System#nanoTime()}
+     *                           units, 0 for none
+     * @param partitionParam Bulkhead partition, null without a bulkhead
+     * @return Future completed with the response, or with the failure;
+     *         cancelling it cancels the HTTP calls
+     */
+    private CompletableFuture<UserInfoResponse> attempt(
+            final String accessTokenParam,
+            final Set<UserFields> fieldsParam,
+            final long deadlineNanosParam,
+            final String partitionParam) {
+        if (hedging == null) {
+            return send(accessTokenParam, fieldsParam, deadlineNanosParam,
+                    partitionParam);
+        }
+        return HedgedRequest.start(() -> send(accessTokenParam, fieldsParam,
+                        deadlineNanosParam, partitionParam), hedging,
+                AuthenticationException.class::isInstance);
+    }
+
+    /**
+     * Check whether a failure is worth retrying: a connection or timeout
+     * failure, or a 502, 503 or 504 response. Malformed responses,
+     * rejected credentials and requests shed locally are not retried.
+     * @param errorParam The failure
+     * @return True when the request may succeed if sent again
+     */
+    private static boolean isTransient(final Throwable errorParam) {
+        if (!(errorParam instanceof ApiException)) {
+            return false;
+        }
+        int status = ((ApiException) errorParam).getStatusCode();
+        if (status == HTTP_BAD_GATEWAY || status == HTTP_SERVICE_UNAVAILABLE
+                || status == HTTP_GATEWAY_TIMEOUT) {
+            return true;
+        }
+        Throwable cause = errorParam.getCause();
+        return cause instanceof IOException
+                && !(cause instanceof JsonProcessingException);
+    }
 
-            if (response.code() != HTTP_OK) {
-                throw new ApiException("HTTP error " + response.code()
-                        + ": " + responseBody);
+    /**
+     * Send one userinfo request without blocking, once its bulkhead
+     * partition has a free slot when a bulkhead is configured.
+     * @param accessTokenParam The access token for authentication
+     * @param fieldsParam Parts of the response to decode, null for all
+     * @param deadlineNanosParam Deadline in {@link System#nanoTime()}
+     *                           units, 0 for none
+     * @param partitionParam Bulkhead partition, null without a bulkhead
+     * @return Future completed with the response, or with the failure
+     *         without stale fallback; cancelling it cancels the HTTP call or
+     *         gives up its place in the partition's queue
+     */
+    private CompletableFuture<UserInfoResponse> send(
+            final String accessTokenParam,
+            final Set<UserFields> fieldsParam,
+            final long deadlineNanosParam,
+            final String partitionParam) {
+        if (bulkhead == null) {
+            return dispatch(accessTokenParam, fieldsParam,
+                    deadlineNanosParam);
+        }
+        CompletableFuture<Void> slot = bulkhead.acquire(partitionParam);
+        CompletableFuture<UserInfoResponse> future = new CompletableFuture<>();
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                slot.cancel(false);
+            }
+        });
+        slot.whenComplete((granted, refusal) -> {
+            if (refusal != null) {
+                future.completeExceptionally(refusal);
+                return;
             }
+            CompletableFuture<UserInfoResponse> sent = dispatch(
+                    accessTokenParam, fieldsParam, deadlineNanosParam);
+            sent.whenComplete((result, error) -> {
+                bulkhead.release(partitionParam);
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(result);
+                }
+            });
+            future.whenComplete((result, error) -> {
+                if (future.isCancelled()) {
+                    sent.cancel(false);
+                }
+            });
+        });
+        return future;
+    }
 
-            try {
-                return objectMapper.readValue(responseBody,
-                        UserInfoResponse.class);
-            } catch (Exception e) {
-                throw new ApiException("Failed to parse response: "
-                        + e.getMessage(), e);
+    /**
+     * Send one userinfo request without blocking.
+     * @param accessTokenParam The access token for authentication
+     * @param fieldsParam Parts of the response to decode, null for all
+     * @param deadlineNanosParam Deadline in {@link System#nanoTime()}
+     *                           units, 0 for none; the call timeout is cut
+     *                           to the time left
+     * @return Future completed with the response, or with the failure
+     *         without stale fallback; cancelling it cancels the HTTP call
+     */
+    private CompletableFuture<UserInfoResponse> dispatch(
+            final String accessTokenParam,
+            final Set<UserFields> fieldsParam,
+            final long deadlineNanosParam) {
+        Call call = httpClient.newCall(buildRequest(accessTokenParam));
+        if (deadlineNanosParam != 0) {
+            long remaining = deadlineNanosParam - System.nanoTime();
+            if (remaining <= 0) {
+                return CompletableFuture.failedFuture(
+                        new ApiException(DEADLINE_EXCEEDED));
+            }
+            long callTimeout = TimeUnit.MILLISECONDS.toNanos(
+                    httpClient.callTimeoutMillis());
+            call.timeout().timeout(callTimeout > 0
+                    ? Math.min(callTimeout, remaining)
+                    : remaining, TimeUnit.NANOSECONDS);
+        }
+        RequestAttempt attempt;
+        try {
+            attempt = admit();
+        } catch (ApiException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<UserInfoResponse> future = new CompletableFuture<>();
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                call.cancel();
             }
+        });
+        call.enqueue(new UserInfoCallback(future, fieldsParam, attempt));
+        return future;
+    }
+
+    /**
+     * Let a request through the circuit breaker, the rate limiter and the
+     * concurrency limiter, when configured, and start timing it.
+     * @return The attempt to pass to {@link #finish(Outcome, RequestAttempt)}
+     * @throws ApiException Explaining why the request was rejected
+     */
+    private RequestAttempt admit() throws ApiException {
+        long circuitPermit = 0;
+        if (circuitBreaker != null) {
+            circuitPermit = circuitBreaker.tryAcquire();
+            if (circuitPermit == CircuitBreaker.NOT_PERMITTED) {
+                throw new CircuitOpenException(CIRCUIT_OPEN, false);
+            }
+        }
+        if (rateLimiter != null && !rateLimiter.tryAcquire()) {
+            if (circuitBreaker != null) {
+                circuitBreaker.onIgnored(circuitPermit);
+            }
+            throw new LimitExceededException(RATE_EXCEEDED, false);
+        }
+        if (limiter != null && !limiter.tryAcquire()) {
+            if (circuitBreaker != null) {
+                circuitBreaker.onIgnored(circuitPermit);
+            }
+            throw new LimitExceededException(LIMIT_EXCEEDED, false);
+        }
+        return new RequestAttempt(circuitPermit, metrics.start());
+    }
+
+    /**
+     * Build the userinfo request. In API-key mode the request built with
+     * the client is returned on every call; otherwise only the Authorization
+     * header is new.
+     * @param accessTokenParam The access token for authentication
+     * @return The request
+     */
+    Request buildRequest(final String accessTokenParam) {
+        // Use API key if provided, otherwise use access token
+        if (apiKeyRequest != null) {
+            return apiKeyRequest;
+        }
+        return newRequest(BEARER + (apiKey != null
+                ? apiKey
+                : accessTokenParam));
+    }
 
+    /**
+     * Build a userinfo request from the precomputed URL and headers.
+     * @param authorizationParam Value of the Authorization header
+     * @return The request
+     */
+    private Request newRequest(final String authorizationParam) {
+        Request.Builder requestBuilder = new Request.Builder()
+                .headers(BASE_HEADERS)
+                .header("Authorization", authorizationParam);
+        if (parsedUserInfoUrl != null) {
+            requestBuilder.url(parsedUserInfoUrl);
+        } else {
+            requestBuilder.url(userInfoUrl);
+        }
+        return requestBuilder.build();
+    }
+
+    /**
+     * Map a userinfo response to its result and record its outcome. Every
+     * failure is recorded before it is thrown, so the request's circuit
+     * breaker and concurrency limiter permits are always released; one that
+     * is not an SDK exception counts as an I/O failure, or as a cancellation
+     * when the call was cancelled.
+     * @param call The call the response belongs to
+     * @param response The HTTP response
+     * @param fieldsParam Parts of the response to decode, null for all
+     * @param attemptParam The request's attempt
+     * @return UserInfoResponse containing user information
+     * @throws IOException When the response body cannot be read
+     * @throws AuthenticationException When authentication fails
+     * @throws ApiException When API request fails
+     */
+    private UserInfoResponse recordResponse(final Call call,
+                                            final Response response,
+                                            final Set<UserFields> fieldsParam,
+                                            final RequestAttempt attemptParam)
+            throws IOException, AuthenticationException, ApiException {
+        UserInfoResponse result;
+        try {
+            result = readResponse(response, fieldsParam);
+        } catch (AuthenticationException | ApiException e) {
+            Outcome outcome = outcomeOf(response.code(), e);
+            finish(outcome == Outcome.IO_ERROR ? failureOf(call) : outcome,
+                    attemptParam);
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            finish(failureOf(call), attemptParam);
+            throw e;
+        }
+        finish(Outcome.SUCCESS, attemptParam);
+        return result;
+    }
+
+    /**
+     * Classify an I/O failure of a call.
+     * @param call The call
+     * @return {@link Outcome#CANCELLED} when the call was cancelled, such as
+     *         a hedge that lost or a future cancelled by its caller,
+     *         otherwise {@link Outcome#IO_ERROR}
+     */
+    private static Outcome failureOf(final Call call) {
+        return call.isCanceled() ? Outcome.CANCELLED : Outcome.IO_ERROR;
+    }
+
+    /**
+     * Record the end of a request in the metrics, the circuit breaker and
+     * the concurrency limiter. I/O failures, including timeouts, count as
+     * dropped requests; any response is an RTT sample. Server errors and
+     * I/O failures count as circuit breaker failures, while rejected
+     * credentials and malformed bodies do not. A cancelled request says
+     * nothing about the API and only releases its permits.
+     * @param outcomeParam Outcome of the request
+     * @param attemptParam The request's attempt
+     */
+    private void finish(final Outcome outcomeParam,
+                        final RequestAttempt attemptParam) {
+        metrics.record(outcomeParam, attemptParam.getStartNanos());
+        if (outcomeParam == Outcome.CANCELLED) {
+            if (circuitBreaker != null) {
+                circuitBreaker.onIgnored(attemptParam.getCircuitPermit());
+            }
+            if (limiter != null) {
+                limiter.onIgnored();
+            }
+            return;
+        }
+        long elapsedNanos = System.nanoTime() - attemptParam.getStartNanos();
+        if (circuitBreaker != null) {
+            switch (outcomeParam) {
+                case IO_ERROR:
+                case HTTP_ERROR:
+                case GRAPHQL_ERROR:
+                case FETCH_ERROR:
+                    circuitBreaker.onFailure(attemptParam.getCircuitPermit(),
+                            elapsedNanos);
+                    break;
+                default:
+                    circuitBreaker.onSuccess(attemptParam.getCircuitPermit(),
+                            elapsedNanos);
+                    break;
+            }
+        }
+        if (limiter == null) {
+            return;
+        }
+        if (outcomeParam == Outcome.IO_ERROR) {
+            limiter.onDropped();
+        } else {
+            limiter.onSuccess(elapsedNanos);
+        }
+    }
+
+    /**
+     * Classify a failed response. A successful response whose body could
+     * not be read counts as an I/O failure.
+     * @param statusCodeParam HTTP status code
+     * @param errorParam The error the response was mapped to
+     * @return The outcome
+     */
+    private static Outcome outcomeOf(final int statusCodeParam,
+                                     final AuthdogException errorParam) {
+        if (statusCodeParam == HTTP_UNAUTHORIZED) {
+            return Outcome.UNAUTHORIZED;
+        }
+        if (statusCodeParam == HTTP_OK) {
+            return isTransient(errorParam)
+                    ? Outcome.IO_ERROR
+                    : Outcome.INVALID_RESPONSE;
+        }
+        ApiErrorCategory category = errorParam instanceof ApiException
+                ? ((ApiException) errorParam).getCategory()
+                : ApiErrorCategory.OTHER;
+        switch (category) {
+            case GRAPHQL_FAILURE:
+                return Outcome.GRAPHQL_ERROR;
+            case FETCH_FAILURE:
+                return Outcome.FETCH_ERROR;
+            default:
+                return Outcome.HTTP_ERROR;
+        }
+    }
+
+    /**
+     * Map a userinfo response to its result.
+     *
+     * <p>Successful responses are parsed straight from the response stream;
+     * error bodies are read up to the configured limit.</p>
+     * @param response The HTTP response
+     * @param fieldsParam Parts of the response to decode, null for all
+     * @return UserInfoResponse containing user information
+     * @throws IOException When an error response body cannot be read
+     * @throws AuthenticationException When authentication fails
+     * @throws ApiException When API request fails, or a successful
+     *         response cannot be read or decoded
+     */
+    private UserInfoResponse readResponse(final Response response,
+                                          final Set<UserFields> fieldsParam)
+            throws IOException, AuthenticationException, ApiException {
+        ResponseBody body = response.body();
+
+        if (response.code() == HTTP_UNAUTHORIZED) {
+            throw new AuthenticationException(UNAUTHORIZED, null, false);
+        }
+
+        if (response.code() != HTTP_OK) {
+            throw errorResponses.read(response.code(), body);
+        }
+
+        if (body == null) {
+            throw new ApiException("Failed to parse response: empty body");
+        }
+        try {
+            if (lazyParsing) {
+                return fieldsParam == null
+                        ? userInfoParser.parseLazily(body.bytes())
+                        : userInfoParser.parseLazily(body.bytes(), fieldsParam);
+            }
+            if (fieldsParam != null) {
+                return userInfoParser.parse(body.byteStream(), fieldsParam);
+            }
+            return userInfoReader.readValue(body.byteStream());
+        } catch (JsonProcessingException | RuntimeException e) {
+            throw new ApiException("Failed to parse response: "
+                    + e.getMessage(), e);
         } catch (IOException e) {
             throw new ApiException("Request failed: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Completes a future from an asynchronous userinfo call.
+     */
+    private final class UserInfoCallback implements Callback {
+        /**
+         * The future to complete.
+         */
+        private final CompletableFuture<UserInfoResponse> future;
+
+        /**
+         * Parts of the response to decode, null for all.
+         */
+        private final Set<UserFields> fields;
+
+        /**
+         * The call's attempt.
+         */
+        private final RequestAttempt attempt;
+
+        /**
+         * Constructor with parameters.
+         * @param futureParam The future to complete
+         * @param fieldsParam Parts of the response to decode, null for all
+         * @param attemptParam The call's attempt
+         */
+        UserInfoCallback(final CompletableFuture<UserInfoResponse>
+                                 futureParam,
+                         final Set<UserFields> fieldsParam,
+                         final RequestAttempt attemptParam) {
+            this.future = futureParam;
+            this.fields = fieldsParam;
+            this.attempt = attemptParam;
+        }
+
+        @Override
+        public void onFailure(final Call call, final IOException e) {
+            finish(failureOf(call), attempt);
+            future.completeExceptionally(
+                    new ApiException("Request failed: " + e.getMessage(), e));
+        }
+
+        @Override
+        public void onResponse(final Call call, final Response response) {
+            try (response) {
+                future.complete(recordResponse(call, response, fields,
+                        attempt));
+            } catch (IOException e) {
+                future.completeExceptionally(new ApiException(
+                        "Request failed: " + e.getMessage(), e));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
     /**
      * Close the HTTP client.
      */
     @Override
     public void close() {
+        if (jwtVerifier != null) {
+            jwtVerifier.close();
+        }
         httpClient.dispatcher().executorService().shutdown();
         httpClient.connectionPool().evictAll();
     }
+
+    /**
+     * Builder for {@link AuthdogClient}.
+     *
+     * <p>Unset values keep the defaults of the public constructors: a
+     * 10 second connect, read and write timeout, no
+     * call timeout, and OkHttp's default connection pool, dispatcher limits
+     * and protocols.</p>
+     */
+    public static final class Builder {
+        /**
+         * Default maximum number of idle pooled connections.
+         */
+        private static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+
+        /**
+         * Default keep-alive of idle pooled connections in milliseconds.
+         */
+        private static final long DEFAULT_KEEP_ALIVE_MS =
+                TimeUnit.MINUTES.toMillis(5);
+
+        /**
+         * Base URL.
+         */
+        private final String baseUrl;
+
+        /**
+         * API key.
+         */
+        private String apiKey;
+
+        /**
+         * Userinfo cache.
+         */
+        private UserInfoCache cache;
+
+        /**
+         * Cache of rejected access tokens.
+         */
+        private RejectedTokenCache rejectedTokens;
+
+        /**
+         * Limiter of requests in flight.
+         */
+        private AdaptiveConcurrencyLimiter limiter;
+
+        /**
+         * Circuit breaker.
+         */
+        private CircuitBreaker circuitBreaker;
+
+        /**
+         * Hedging policy.
+         */
+        private HedgingPolicy hedging;
+
+        /**
+         * Retry policy.
+         */
+        private RetryPolicy retry;
+
+        /**
+         * Rate limiter.
+         */
+        private RateLimiter rateLimiter;
+
+        /**
+         * Partitioned concurrency limits.
+         */
+        private Bulkhead bulkhead;
+
+        /**
+         * Maps an access token to its bulkhead partition key.
+         */
+        private Function<String, String> partitioner;
+
+        /**
+         * Connect timeout in milliseconds.
+         */
+        private long connectTimeoutMs = DEFAULT_TIMEOUT_MS;
+
+        /**
+         * Read timeout in milliseconds.
+         */
+        private long readTimeoutMs = DEFAULT_TIMEOUT_MS;
+
+        /**
+         * Write timeout in milliseconds.
+         */
+        private long writeTimeoutMs = DEFAULT_TIMEOUT_MS;
+
+        /**
+         * Call timeout in milliseconds, 0 for none.
+         */
+        private long callTimeoutMs;
+
+        /**
+         * Maximum number of idle pooled connections.
+         */
+        private int maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+
+        /**
+         * Keep-alive of idle pooled connections in milliseconds.
+         */
+        private long keepAliveMs = DEFAULT_KEEP_ALIVE_MS;
+
+        /**
+         * Maximum number of concurrent async requests, 0 for the default.
+         */
+        private int maxRequests;
+
+        /**
+         * Maximum number of concurrent async requests per host, 0 for the
+         * default.
+         */
+        private int maxRequestsPerHost;
+
+        /**
+         * Protocols in order of preference, null for the default.
+         */
+        private List<Protocol> protocols;
+
+        /**
+         * Whether to run async calls on virtual threads when available.
+         */
+        private boolean virtualThreads;
+
+        /**
+         * Whether to defer decoding of nested user fields.
+         */
+        private boolean lazyParsing;
+
+        /**
+         * Maximum number of error response bytes read.
+         */
+        private int maxErrorBodyBytes = DEFAULT_MAX_ERROR_BODY_BYTES;
+
+        /**
+         * URL of the JSON Web Key Set, null when local verification is
+         * disabled.
+         */
+        private String jwksUrl;
+
+        /**
+         * Expected audience of locally verified tokens.
+         */
+        private String audience;
+
+        /**
+         * JWKS refresh interval in milliseconds.
+         */
+        private long jwksRefreshMs = DEFAULT_JWKS_REFRESH_MS;
+
+        /**
+         * Constructor with parameters.
+         * @param baseUrlParam The base URL of the Authdog API
+         */
+        private Builder(final String baseUrlParam) {
+            if (baseUrlParam == null) {
+                throw new IllegalArgumentException(
+                        "baseUrl must not be null");
+            }
+            this.baseUrl = baseUrlParam;
+        }
+
+        /**
+         * Set the API key, used instead of access tokens when present.
+         * @param apiKeyParam Optional API key for authentication
+         * @return This builder
+         */
+        public Builder apiKey(final String apiKeyParam) {
+            this.apiKey = apiKeyParam;
+            return this;
+        }
+
+        /**
+         * Set the userinfo cache.
+         * @param cacheParam Optional cache of userinfo responses by access
+         *                   token
+         * @return This builder
+         */
+        public Builder cache(final UserInfoCache cacheParam) {
+            this.cache = cacheParam;
+            return this;
+        }
+
+        /**
+         * Set the cache of rejected access tokens. Lookups of a token the API
+         * answered with 401 within the cache's time to live fail with an
+         * {@link AuthenticationException} without contacting the API. Not
+         * used with an API key, where a 401 rejects the key rather than the
+         * token.
+         * @param rejectedTokensParam Optional cache of rejected access
+         *                            tokens
+         * @return This builder
+         */
+        public Builder rejectedTokenCache(
+                final RejectedTokenCache rejectedTokensParam) {
+            this.rejectedTokens = rejectedTokensParam;
+            return this;
+        }
+
+        /**
+         * Set the limiter of userinfo requests in flight. Requests sent to
+         * the API, sync or async, take a slot; requests over the limit fail
+         * at once with a {@link LimitExceededException}, or get a stale
+         * cached response within its grace window. Cache hits and calls
+         * coalesced onto an in-flight request take no slot.
+         *
+         * <p>A request takes its slot and starts its RTT sample before it
+         * is handed to the HTTP client, so the dispatcher's
+         * {@link #maxRequests(int)} and {@link #maxRequestsPerHost(int)}
+         * are raised to at least the limiter's maximum: otherwise admitted
+         * requests would wait in the dispatcher's queue while holding a
+         * slot. The default batch concurrency is not raised.</p>
+         * @param limiterParam Optional concurrency limiter
+         * @return This builder
+         */
+        public Builder concurrencyLimiter(
+                final AdaptiveConcurrencyLimiter limiterParam) {
+            this.limiter = limiterParam;
+            return this;
+        }
+
+        /**
+         * Set the circuit breaker in front of the userinfo endpoint. While
+         * it is open, requests that would reach the API, sync or async, fail
+         * at once with a {@link CircuitOpenException}, or get a stale cached
+         * response within its grace window; cache hits are still served.
+         * @param circuitBreakerParam Optional circuit breaker
+         * @return This builder
+         */
+        public Builder circuitBreaker(
+                final CircuitBreaker circuitBreakerParam) {
+            this.circuitBreaker = circuitBreakerParam;
+            return this;
+        }
+
+        /**
+         * Set the hedging policy of userinfo requests. A request that has
+         * not answered within the policy's delay is sent a second time on
+         * another connection, within the policy's budget; the first
+         * successful response wins and the other request is cancelled.
+         * Hedged sync calls run on the HTTP client's dispatcher. Each
+         * attempt is recorded in the metrics and takes its own concurrency
+         * limiter slot and circuit breaker permission.
+         * @param hedgingParam Optional hedging policy
+         * @return This builder
+         */
+        public Builder hedging(final HedgingPolicy hedgingParam) {
+            this.hedging = hedgingParam;
+            return this;
+        }
+
+        /**
+         * Set the retry policy of userinfo requests. Connection failures,
+         * timeouts and 502, 503 and 504 responses are retried with
+         * jittered exponential backoff, within the policy's deadline and
+         * retry budget; the last failure is reported, or a stale cached
+         * response served, once no retry is left. Retried sync calls run
+         * on the HTTP client's dispatcher. Each attempt is recorded in the
+         * metrics and, when hedging is configured, hedged on its own.
+         * @param retryParam Optional retry policy
+         * @return This builder
+         */
+        public Builder retry(final RetryPolicy retryParam) {
+            this.retry = retryParam;
+            return this;
+        }
+
+        /**
+         * Set the limit on the rate of userinfo requests sent to the API.
+         * Requests over the rate, sync or async, fail at once with a
+         * {@link LimitExceededException}, or get a stale cached response
+         * within its grace window. Each retry and hedge takes a permit.
+         * @param rateLimiterParam Optional rate limiter
+         * @return This builder
+         */
+        public Builder rateLimiter(final RateLimiter rateLimiterParam) {
+            this.rateLimiter = rateLimiterParam;
+            return this;
+        }
+
+        /**
+         * Set partitioned concurrency limits on userinfo requests, so a
+         * burst from one tenant only queues and sheds its own requests.
+         * A request's partition is the key returned by the partitioner,
+         * or else the environment id of an earlier response for the same
+         * token, or else {@code "default"}. Requests wait in their
+         * partition's queue without blocking, and fail with a
+         * {@link LimitExceededException} when it is full. Calls through a
+         * bulkhead run on the HTTP client's dispatcher.
+         * @param bulkheadParam Optional bulkhead
+         * @param partitionerParam Maps an access token to its partition
+         *                         key, null to partition by the learned
+         *                         environment id only
+         * @return This builder
+         */
+        public Builder bulkhead(final Bulkhead bulkheadParam,
+                                final Function<String, String>
+                                        partitionerParam) {
+            this.bulkhead = bulkheadParam;
+            this.partitioner = partitionerParam;
+            return this;
+        }
+
+        /**
+         * Set the connect, read and write timeouts.
+         * @param timeoutMsParam Timeout in milliseconds
+         * @return This builder
+         */
+        public Builder timeoutMs(final long timeoutMsParam) {
+            return connectTimeoutMs(timeoutMsParam)
+                    .readTimeoutMs(timeoutMsParam)
+                    .writeTimeoutMs(timeoutMsParam);
+        }
+
+        /**
+         * Set the connect timeout.
+         * @param connectTimeoutMsParam Timeout in milliseconds, 0 for none
+         * @return This builder
+         */
+        public Builder connectTimeoutMs(final long connectTimeoutMsParam) {
+            this.connectTimeoutMs = requireNonNegative(
+                    connectTimeoutMsParam, "connectTimeoutMs");
+            return this;
+        }
+
+        /**
+         * Set the read timeout.
+         * @param readTimeoutMsParam Timeout in milliseconds, 0 for none
+         * @return This builder
+         */
+        public Builder readTimeoutMs(final long readTimeoutMsParam) {
+            this.readTimeoutMs = requireNonNegative(
+                    readTimeoutMsParam, "readTimeoutMs");
+            return this;
+        }
+
+        /**
+         * Set the write timeout.
+         * @param writeTimeoutMsParam Timeout in milliseconds, 0 for none
+         * @return This builder
+         */
+        public Builder writeTimeoutMs(final long writeTimeoutMsParam) {
+            this.writeTimeoutMs = requireNonNegative(
+                    writeTimeoutMsParam, "writeTimeoutMs");
+            return this;
+        }
+
+        /**
+         * Set the timeout for a complete call, including DNS, connecting,
+         * writing the request and reading the response.
+         * @param callTimeoutMsParam Timeout in milliseconds, 0 for none
+         * @return This builder
+         */
+        public Builder callTimeoutMs(final long callTimeoutMsParam) {
+            this.callTimeoutMs = requireNonNegative(
+                    callTimeoutMsParam, "callTimeoutMs");
+            return this;
+        }
+
+        /**
+         * Set the connection pool size and keep-alive.
+         * @param maxIdleConnectionsParam Maximum number of idle connections
+         * @param keepAliveMsParam Keep-alive of idle connections in
+         *                         milliseconds
+         * @return This builder
+         */
+        public Builder connectionPool(final int maxIdleConnectionsParam,
+                                      final long keepAliveMsParam) {
+            this.maxIdleConnections = (int) requirePositive(
+                    maxIdleConnectionsParam, "maxIdleConnections");
+            this.keepAliveMs = requirePositive(keepAliveMsParam,
+                    "keepAliveMs");
+            return this;
+        }
+
+        /**
+         * Set the maximum number of concurrent async requests.
+         * @param maxRequestsParam Maximum number of requests
+         * @return This builder
+         */
+        public Builder maxRequests(final int maxRequestsParam) {
+            this.maxRequests = (int) requirePositive(maxRequestsParam,
+                    "maxRequests");
+            return this;
+        }
+
+        /**
+         * Set the maximum number of concurrent async requests to the API
+         * host. This also bounds the default batch concurrency.
+         * @param maxRequestsPerHostParam Maximum number of requests
+         * @return This builder
+         */
+        public Builder maxRequestsPerHost(final int maxRequestsPerHostParam) {
+            this.maxRequestsPerHost = (int) requirePositive(
+                    maxRequestsPerHostParam, "maxRequestsPerHost");
+            return this;
+        }
+
+        /**
+         * Set the protocols to use, in order of preference. Use
+         * {@link Protocol#H2_PRIOR_KNOWLEDGE} alone for cleartext HTTP/2
+         * servers.
+         * @param protocolsParam Protocols in order of preference
+         * @return This builder
+         */
+        public Builder protocols(final List<Protocol> protocolsParam) {
+            this.protocols = new ArrayList<>(protocolsParam);
+            return this;
+        }
+
+        /**
+         * Run async and batch calls on a virtual-thread-per-task executor
+         * when the runtime supports virtual threads (Java 21 and later).
+         * Older runtimes keep the default platform-thread dispatcher. The
+         * dispatcher's request limits still apply, so raise
+         * {@link #maxRequests(int)} and {@link #maxRequestsPerHost(int)} to
+         * benefit from many concurrent calls.
+         * @param virtualThreadsParam Whether to use virtual threads
+         * @return This builder
+         */
+        public Builder virtualThreads(final boolean virtualThreadsParam) {
+            this.virtualThreads = virtualThreadsParam;
+            return this;
+        }
+
+        /**
+         * Decode nested user fields (names, photos, phone numbers,
+         * addresses, emails and verifications) on first access instead of
+         * up front. Scalar fields such as the user ID are always decoded
+         * eagerly. A nested field that turns out to be malformed fails on
+         * access with an {@link java.io.UncheckedIOException}.
+         * @param lazyParsingParam Whether to defer nested user fields
+         * @return This builder
+         */
+        public Builder lazyParsing(final boolean lazyParsingParam) {
+            this.lazyParsing = lazyParsingParam;
+            return this;
+        }
+
+        /**
+         * Set how much of an error response is read. The rest of the body
+         * is discarded with the connection, and what was read is quoted in
+         * the {@link ApiException} message, so a large error page from a
+         * proxy costs neither memory nor log space.
+         * @param maxErrorBodyBytesParam Maximum number of bytes, 0 to skip
+         *                               error bodies
+         * @return This builder
+         */
+        public Builder maxErrorBodyBytes(final int maxErrorBodyBytesParam) {
+            this.maxErrorBodyBytes = (int) requireNonNegative(
+                    maxErrorBodyBytesParam, "maxErrorBodyBytes");
+            return this;
+        }
+
+        /**
+         * Verify signed JWT access tokens locally against the tenant's JSON
+         * Web Key Set. The key set is fetched when the client is built,
+         * cached by key id, refreshed in the background, and refetched when
+         * a token names an unknown key id. Tokens that fail signature,
+         * {@code exp}, {@code nbf} or audience checks are rejected without
+         * contacting the API; {@link AuthdogClient#verifyToken(String)}
+         * answers valid tokens locally, while userinfo lookups still call
+         * the API for the full profile.
+         * @param jwksUrlParam URL of the JSON Web Key Set
+         * @param audienceParam Expected {@code aud} claim
+         * @return This builder
+         */
+        public Builder localVerification(final String jwksUrlParam,
+                                         final String audienceParam) {
+            if (jwksUrlParam == null || audienceParam == null) {
+                throw new IllegalArgumentException(
+                        "jwksUrl and audience must not be null");
+            }
+            this.jwksUrl = jwksUrlParam;
+            this.audience = audienceParam;
+            return this;
+        }
+
+        /**
+         * Set how often the key set used for local verification is
+         * refreshed in the background. Defaults to 10 minutes.
+         * @param jwksRefreshMsParam Refresh interval in milliseconds
+         * @return This builder
+         */
+        public Builder jwksRefreshMs(final long jwksRefreshMsParam) {
+            this.jwksRefreshMs = requirePositive(jwksRefreshMsParam,
+                    "jwksRefreshMs");
+            return this;
+        }
+
+        /**
+         * Build the client.
+         * @return The client
+         */
+        public AuthdogClient build() {
+            return new AuthdogClient(this);
+        }
+
+        /**
+         * Build the HTTP client for this configuration.
+         * @param useVirtualThreadsParam Whether the dispatcher runs calls on
+         *                               virtual threads
+         * @return The HTTP client
+         */
+        private OkHttpClient buildHttpClient(
+                final boolean useVirtualThreadsParam) {
+            Dispatcher dispatcher = useVirtualThreadsParam
+                    ? new Dispatcher(VirtualThreads.newThreadPerTaskExecutor())
+                    : new Dispatcher();
+            if (maxRequests > 0) {
+                dispatcher.setMaxRequests(maxRequests);
+            }
+            if (maxRequestsPerHost > 0) {
+                dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+            }
+            OkHttpClient.Builder http = new OkHttpClient.Builder()
+                    .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                    .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                    .writeTimeout(writeTimeoutMs, TimeUnit.MILLISECONDS)
+                    .callTimeout(callTimeoutMs, TimeUnit.MILLISECONDS)
+                    .connectionPool(new ConnectionPool(maxIdleConnections,
+                            keepAliveMs, TimeUnit.MILLISECONDS))
+                    .dispatcher(dispatcher);
+            if (protocols != null) {
+                http.protocols(protocols);
+            }
+            return http.build();
+        }
+
+        /**
+         * Validate a non-negative setting.
+         * @param valueParam The value
+         * @param nameParam The setting name
+         * @return The value
+         */
+        private static long requireNonNegative(final long valueParam,
+                                               final String nameParam) {
+            if (valueParam < 0) {
+                throw new IllegalArgumentException(
+                        nameParam + " must not be negative");
+            }
+            return valueParam;
+        }
+
+        /**
+         * Validate a positive setting.
+         * @param valueParam The value
+         * @param nameParam The setting name
+         * @return The value
+         */
+        private static long requirePositive(final long valueParam,
+                                            final String nameParam) {
+            if (valueParam <= 0) {
+                throw new IllegalArgumentException(
+                        nameParam + " must be positive");
+            }
+            return valueParam;
+        }
+    }
 }
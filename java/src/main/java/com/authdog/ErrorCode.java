@@ -0,0 +1,41 @@
+package com.authdog;
+
+/**
+ * Reason a userinfo lookup failed, as reported by {@link UserInfoResult}.
+ */
+public enum ErrorCode {
+    /**
+     * The access token or API key was rejected, by the API or locally.
+     */
+    UNAUTHORIZED,
+
+    /**
+     * The API answered with an error status other than 401.
+     */
+    HTTP_ERROR,
+
+    /**
+     * The API answered with a body that is not a userinfo response.
+     */
+    INVALID_RESPONSE,
+
+    /**
+     * The request or response failed at the I/O level, including timeouts.
+     */
+    IO_ERROR,
+
+    /**
+     * The request was rejected locally because the circuit breaker is open.
+     */
+    CIRCUIT_OPEN,
+
+    /**
+     * The request was shed locally by a concurrency or rate limit.
+     */
+    LIMIT_EXCEEDED,
+
+    /**
+     * Any other failure, such as an interrupted or expired call.
+     */
+    UNKNOWN
+}
@@ -0,0 +1,127 @@
+package com.authdog;
+
+import com.authdog.exceptions.ApiErrorCategory;
+import com.authdog.exceptions.ApiException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Maps userinfo error responses to their exception, reading a bounded
+ * prefix of the body.
+ */
+final class ErrorResponseReader {
+    /**
+     * Suffix of an error response body cut at the read limit.
+     */
+    private static final String TRUNCATED = "...";
+
+    /**
+     * HTTP 500 status code.
+     */
+    private static final int HTTP_INTERNAL_SERVER_ERROR = 500;
+
+    /**
+     * Error reported by the API when its GraphQL query fails.
+     */
+    private static final String GRAPHQL_QUERY_FAILED = "GraphQL query failed";
+
+    /**
+     * Error reported by the API when user info cannot be fetched.
+     */
+    private static final String FETCH_FAILED = "Failed to fetch user info";
+
+    /**
+     * Factory of the parsers scanning error bodies.
+     */
+    private final JsonFactory jsonFactory;
+
+    /**
+     * Maximum number of error response bytes read.
+     */
+    private final int maxBodyBytes;
+
+    /**
+     * Constructor with parameters.
+     * @param jsonFactoryParam Factory of the parsers scanning error bodies
+     * @param maxBodyBytesParam Maximum number of error response bytes read,
+     *                          0 to skip the body
+     */
+    ErrorResponseReader(final JsonFactory jsonFactoryParam,
+                        final int maxBodyBytesParam) {
+        this.jsonFactory = jsonFactoryParam;
+        this.maxBodyBytes = maxBodyBytesParam;
+    }
+
+    /**
+     * Map an error response to its exception, reading at most
+     * {@link #maxBodyBytes} of its body.
+     * @param statusCodeParam HTTP status code
+     * @param body The response body, or null
+     * @return The exception
+     * @throws IOException When the response body cannot be read
+     */
+    ApiException read(final int statusCodeParam, final ResponseBody body)
+            throws IOException {
+        byte[] bytes = new byte[0];
+        boolean truncated = false;
+        if (body != null && maxBodyBytes > 0) {
+            BufferedSource source = body.source();
+            truncated = source.request(maxBodyBytes + 1L);
+            bytes = source.getBuffer().readByteArray(Math.min(
+                    source.getBuffer().size(), maxBodyBytes));
+        }
+        if (statusCodeParam == HTTP_INTERNAL_SERVER_ERROR) {
+            ApiErrorCategory category = category(bytes);
+            if (category == ApiErrorCategory.GRAPHQL_FAILURE) {
+                return new ApiException(GRAPHQL_QUERY_FAILED,
+                        statusCodeParam, category);
+            } else if (category == ApiErrorCategory.FETCH_FAILURE) {
+                return new ApiException(FETCH_FAILED,
+                        statusCodeParam, category);
+            }
+        }
+        return new ApiException("HTTP error " + statusCodeParam + ": "
+                + new String(bytes, StandardCharsets.UTF_8)
+                + (truncated ? TRUNCATED : ""), statusCodeParam);
+    }
+
+    /**
+     * Find the category of the {@code error} field of an error body with a
+     * token scan, stopping at the field. A body that is not JSON, or is cut
+     * off before the field, has no known category.
+     * @param bodyParam The error body, possibly truncated
+     * @return The category
+     */
+    private ApiErrorCategory category(final byte[] bodyParam) {
+        try (JsonParser parser = jsonFactory.createParser(bodyParam)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return ApiErrorCategory.OTHER;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("error".equals(name)) {
+                    String error = value == JsonToken.VALUE_STRING
+                            ? parser.getText()
+                            : null;
+                    if (GRAPHQL_QUERY_FAILED.equals(error)) {
+                        return ApiErrorCategory.GRAPHQL_FAILURE;
+                    }
+                    return FETCH_FAILED.equals(error)
+                            ? ApiErrorCategory.FETCH_FAILURE
+                            : ApiErrorCategory.OTHER;
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            // Not JSON, or cut off before the error field
+        }
+        return ApiErrorCategory.OTHER;
+    }
+}
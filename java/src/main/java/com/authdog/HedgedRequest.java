@@ -0,0 +1,191 @@
+package com.authdog;
+
+import com.authdog.hedge.HedgingPolicy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Runs an asynchronous request with at most one hedge.
+ *
+ * <p>The first attempt starts at once. If it is still running after the
+ * policy's delay and the budget allows, a second attempt starts. The first
+ * attempt to succeed, or to fail with a decisive error such as a rejected
+ * token, settles the request and the other attempt is cancelled. Other
+ * failures only settle it once no attempt is left running.</p>
+ *
+ * @param <T> Result type
+ */
+final class HedgedRequest<T> {
+    /**
+     * Starts one attempt; cancelling its future must abort it.
+     */
+    private final Supplier<CompletableFuture<T>> attempt;
+
+    /**
+     * The hedging policy.
+     */
+    private final HedgingPolicy policy;
+
+    /**
+     * Failures that settle the request even while another attempt runs.
+     */
+    private final Predicate<Throwable> decisive;
+
+    /**
+     * Outcome of the request.
+     */
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+
+    /**
+     * Attempts started, guarded by this.
+     */
+    private final List<CompletableFuture<T>> attempts = new ArrayList<>(2);
+
+    /**
+     * Attempts still running, guarded by this.
+     */
+    private int running;
+
+    /**
+     * Whether an attempt has settled the request, guarded by this.
+     */
+    private boolean settled;
+
+    /**
+     * Constructor with parameters.
+     * @param attemptParam Starts one attempt
+     * @param policyParam The hedging policy
+     * @param decisiveParam Failures that settle the request at once
+     */
+    private HedgedRequest(final Supplier<CompletableFuture<T>> attemptParam,
+                          final HedgingPolicy policyParam,
+                          final Predicate<Throwable> decisiveParam) {
+        this.attempt = attemptParam;
+        this.policy = policyParam;
+        this.decisive = decisiveParam;
+    }
+
+    /**
+     * Start a hedged request.
+     * @param attemptParam Starts one attempt; cancelling its future must
+     *                     abort it
+     * @param policyParam The hedging policy
+     * @param decisiveParam Failures that settle the request even while
+     *                      another attempt runs
+     * @param <T> Result type
+     * @return Future completed with the winning outcome; cancelling it
+     *         cancels every attempt
+     */
+    static <T> CompletableFuture<T> start(
+            final Supplier<CompletableFuture<T>> attemptParam,
+            final HedgingPolicy policyParam,
+            final Predicate<Throwable> decisiveParam) {
+        HedgedRequest<T> request = new HedgedRequest<>(attemptParam,
+                policyParam, decisiveParam);
+        policyParam.onRequest();
+        request.result.whenComplete((value, error) -> request.cancelAll());
+        request.send(false);
+        long delayNanos = policyParam.getDelayNanos();
+        if (delayNanos >= 0 && !request.result.isDone()) {
+            CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS)
+                    .execute(request::hedge);
+        }
+        return request.result;
+    }
+
+    /**
+     * Send the hedge, unless the request is settled or over budget.
+     */
+    private void hedge() {
+        if (!result.isDone() && policy.tryHedge()) {
+            send(true);
+        }
+    }
+
+    /**
+     * Start an attempt.
+     * @param hedgeParam Whether the attempt is the hedge
+     */
+    private void send(final boolean hedgeParam) {
+        synchronized (this) {
+            if (result.isDone()) {
+                return;
+            }
+            running++;
+        }
+        long startNanos = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = attempt.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        synchronized (this) {
+            attempts.add(future);
+        }
+        if (result.isDone()) {
+            future.cancel(false);
+        }
+        future.whenComplete((value, error) ->
+                settle(value, error, startNanos, hedgeParam));
+    }
+
+    /**
+     * Handle the outcome of an attempt.
+     * @param valueParam The result, when the attempt succeeded
+     * @param errorParam The failure, or null on success
+     * @param startNanosParam Start time of the attempt
+     * @param hedgeParam Whether the attempt is the hedge
+     */
+    private void settle(final T valueParam, final Throwable errorParam,
+                        final long startNanosParam,
+                        final boolean hedgeParam) {
+        if (errorParam == null) {
+            policy.recordLatency(System.nanoTime() - startNanosParam);
+            synchronized (this) {
+                if (settled || result.isDone()) {
+                    return;
+                }
+                settled = true;
+            }
+            if (hedgeParam) {
+                policy.onHedgeWon();
+            }
+            result.complete(valueParam);
+            return;
+        }
+        Throwable cause = errorParam;
+        while (cause instanceof CompletionException
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        synchronized (this) {
+            boolean last = --running == 0;
+            if (settled || !(last || decisive.test(cause))) {
+                return;
+            }
+            settled = true;
+        }
+        result.completeExceptionally(cause);
+    }
+
+    /**
+     * Cancel every attempt once the request is settled. Attempts that
+     * already completed are unaffected.
+     */
+    private void cancelAll() {
+        List<CompletableFuture<T>> started;
+        synchronized (this) {
+            started = new ArrayList<>(attempts);
+        }
+        for (CompletableFuture<T> future : started) {
+            future.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.authdog;
+
+import com.authdog.types.UserInfoResponse;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Picks the bulkhead partition of a userinfo request.
+ *
+ * <p>The caller's partitioner is asked first. When it returns null, or
+ * none is configured, the environment id seen in an earlier response for
+ * the same access token is used, and requests for tokens not seen before
+ * share the {@link #DEFAULT_PARTITION}.</p>
+ */
+final class PartitionResolver {
+    /**
+     * Partition of requests with no known key.
+     */
+    static final String DEFAULT_PARTITION = "default";
+
+    /**
+     * Maximum number of remembered environment ids.
+     */
+    static final int MAX_LEARNED = 10_000;
+
+    /**
+     * Fraction of the remembered ids dropped when full, as a divisor.
+     */
+    private static final int EVICTION_BATCH_DIVISOR = 16;
+
+    /**
+     * Caller-supplied partitioner, or null.
+     */
+    private final Function<String, String> partitioner;
+
+    /**
+     * Environment ids learned from responses, by access token.
+     */
+    private final ConcurrentHashMap<String, String> environments =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Constructor with parameters.
+     * @param partitionerParam Maps an access token to its partition key,
+     *                         null or returning null to use the learned
+     *                         environment id
+     */
+    PartitionResolver(final Function<String, String> partitionerParam) {
+        this.partitioner = partitionerParam;
+    }
+
+    /**
+     * Get the partition of a request.
+     * @param accessTokenParam The access token of the request
+     * @return The partition key
+     */
+    String resolve(final String accessTokenParam) {
+        String key = partitioner != null
+                ? partitioner.apply(accessTokenParam)
+                : null;
+        if (key == null) {
+            key = environments.get(accessTokenParam);
+        }
+        return key != null ? key : DEFAULT_PARTITION;
+    }
+
+    /**
+     * Remember the environment id of a response for later requests with
+     * the same access token. Arbitrary entries are dropped when full.
+     * @param accessTokenParam The access token of the request
+     * @param responseParam The response
+     */
+    void learn(final String accessTokenParam,
+               final UserInfoResponse responseParam) {
+        if (responseParam.getUser() == null
+                || responseParam.getUser().getEnvironmentId() == null) {
+            return;
+        }
+        if (environments.size() >= MAX_LEARNED) {
+            Iterator<String> tokens = environments.keySet().iterator();
+            for (int i = 0; i < MAX_LEARNED / EVICTION_BATCH_DIVISOR
+                    && tokens.hasNext(); i++) {
+                tokens.next();
+                tokens.remove();
+            }
+        }
+        environments.put(accessTokenParam,
+                responseParam.getUser().getEnvironmentId());
+    }
+}
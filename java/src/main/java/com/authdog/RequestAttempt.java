@@ -0,0 +1,44 @@
+package com.authdog;
+
+/**
+ * Circuit breaker permit and start time of one userinfo request sent to
+ * the API, taken when the request is admitted and handed back when its
+ * outcome is recorded.
+ */
+final class RequestAttempt {
+    /**
+     * Circuit breaker permit, 0 when no breaker is configured.
+     */
+    private final long circuitPermit;
+
+    /**
+     * Start time of the request.
+     */
+    private final long startNanos;
+
+    /**
+     * Constructor with parameters.
+     * @param circuitPermitParam Circuit breaker permit
+     * @param startNanosParam Start time of the request
+     */
+    RequestAttempt(final long circuitPermitParam, final long startNanosParam) {
+        this.circuitPermit = circuitPermitParam;
+        this.startNanos = startNanosParam;
+    }
+
+    /**
+     * Get the circuit breaker permit.
+     * @return The permit, 0 when no breaker is configured
+     */
+    long getCircuitPermit() {
+        return circuitPermit;
+    }
+
+    /**
+     * Get the start time of the request.
+     * @return Start time in {@link System#nanoTime()} units
+     */
+    long getStartNanos() {
+        return startNanos;
+    }
+}
@@ -0,0 +1,82 @@
+package com.authdog;
+
+import com.authdog.metrics.HistogramSnapshot;
+import com.authdog.metrics.LatencyHistogram;
+import com.authdog.metrics.MetricsSnapshot;
+import com.authdog.metrics.Outcome;
+import okhttp3.OkHttpClient;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the latency and outcome of userinfo requests.
+ *
+ * <p>Every request is bracketed by {@link #start()} and exactly one
+ * {@link #record(Outcome, long)}, which keeps the in-flight gauge
+ * balanced.</p>
+ */
+final class RequestMetrics {
+    /**
+     * Latency histograms by outcome.
+     */
+    private final Map<Outcome, LatencyHistogram> latencies =
+            new EnumMap<>(Outcome.class);
+
+    /**
+     * Number of requests started but not recorded.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Constructor.
+     */
+    RequestMetrics() {
+        for (Outcome outcome : Outcome.values()) {
+            latencies.put(outcome, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Mark the start of a request.
+     * @return Start time to pass to {@link #record(Outcome, long)}
+     */
+    long start() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Mark the end of a request.
+     * @param outcomeParam Outcome of the request
+     * @param startNanosParam Start time returned by {@link #start()}
+     */
+    void record(final Outcome outcomeParam, final long startNanosParam) {
+        latencies.get(outcomeParam).record(System.nanoTime() - startNanosParam);
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Take a snapshot of the metrics.
+     * @param httpClientParam HTTP client to read dispatcher and connection
+     *        pool gauges from
+     * @param coalescedCallsParam Number of coalesced calls
+     * @return The snapshot
+     */
+    MetricsSnapshot snapshot(final OkHttpClient httpClientParam,
+                             final long coalescedCallsParam) {
+        Map<Outcome, HistogramSnapshot> histograms =
+                new EnumMap<>(Outcome.class);
+        for (Map.Entry<Outcome, LatencyHistogram> entry
+                : latencies.entrySet()) {
+            histograms.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return new MetricsSnapshot(histograms, inFlight.get(),
+                coalescedCallsParam,
+                httpClientParam.dispatcher().runningCallsCount(),
+                httpClientParam.dispatcher().queuedCallsCount(),
+                httpClientParam.connectionPool().connectionCount(),
+                httpClientParam.connectionPool().idleConnectionCount());
+    }
+}
@@ -0,0 +1,171 @@
+package com.authdog;
+
+import com.authdog.retry.RetryPolicy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+
+/**
+ * Runs an asynchronous request, retrying transient failures.
+ *
+ * <p>Each attempt is given the call's deadline: the earlier of the
+ * policy's deadline and the caller's own, if any. After a retryable failure,
+ * the next attempt is scheduled after the policy's backoff, unless
+ * attempts, budget or time have run out, in which case the request fails
+ * with the last attempt's failure.</p>
+ *
+ * @param <T> Result type
+ */
+final class RetryingRequest<T> {
+    /**
+     * Starts one attempt given the deadline in {@link System#nanoTime()}
+     * units, 0 for none; cancelling its future must abort it.
+     */
+    private final LongFunction<CompletableFuture<T>> attempt;
+
+    /**
+     * The retry policy.
+     */
+    private final RetryPolicy policy;
+
+    /**
+     * Failures worth retrying.
+     */
+    private final Predicate<Throwable> retryable;
+
+    /**
+     * Deadline of the call in {@link System#nanoTime()} units, 0 for none.
+     */
+    private final long deadlineNanos;
+
+    /**
+     * Outcome of the request.
+     */
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+
+    /**
+     * The running attempt.
+     */
+    private volatile CompletableFuture<T> current;
+
+    /**
+     * Constructor with parameters.
+     * @param attemptParam Starts one attempt
+     * @param policyParam The retry policy
+     * @param callDeadlineNanosParam Deadline of the caller in
+     *                               {@link System#nanoTime()} units, 0 for
+     *                               none
+     * @param retryableParam Failures worth retrying
+     */
+    private RetryingRequest(
+            final LongFunction<CompletableFuture<T>> attemptParam,
+            final RetryPolicy policyParam,
+            final long callDeadlineNanosParam,
+            final Predicate<Throwable> retryableParam) {
+        this.attempt = attemptParam;
+        this.policy = policyParam;
+        this.retryable = retryableParam;
+        long deadlineMs = policyParam.getDeadlineMs();
+        long policyDeadline = deadlineMs > 0
+                ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs)
+                : 0;
+        boolean policyFirst = policyDeadline != 0
+                && policyDeadline - callDeadlineNanosParam < 0;
+        this.deadlineNanos = callDeadlineNanosParam == 0 || policyFirst
+                ? policyDeadline
+                : callDeadlineNanosParam;
+    }
+
+    /**
+     * Start a retrying request.
+     * @param attemptParam Starts one attempt given the deadline in
+     *                     {@link System#nanoTime()} units, 0 for none;
+     *                     cancelling its future must abort it
+     * @param policyParam The retry policy
+     * @param callDeadlineNanosParam Deadline of the caller in
+     *                               {@link System#nanoTime()} units, 0 for
+     *                               none; limits the policy's deadline
+     * @param retryableParam Failures worth retrying
+     * @param <T> Result type
+     * @return Future completed with the outcome of the last attempt;
+     *         cancelling it cancels the running attempt
+     */
+    static <T> CompletableFuture<T> start(
+            final LongFunction<CompletableFuture<T>> attemptParam,
+            final RetryPolicy policyParam,
+            final long callDeadlineNanosParam,
+            final Predicate<Throwable> retryableParam) {
+        RetryingRequest<T> request = new RetryingRequest<>(attemptParam,
+                policyParam, callDeadlineNanosParam, retryableParam);
+        policyParam.onRequest();
+        request.result.whenComplete((value, error) -> {
+            CompletableFuture<T> running = request.current;
+            if (request.result.isCancelled() && running != null) {
+                running.cancel(false);
+            }
+        });
+        request.run(1);
+        return request.result;
+    }
+
+    /**
+     * Start an attempt, unless the request was cancelled meanwhile.
+     * @param attemptNumberParam Number of the attempt, from 1
+     */
+    private void run(final int attemptNumberParam) {
+        if (result.isDone()) {
+            return;
+        }
+        CompletableFuture<T> future;
+        try {
+            future = attempt.apply(deadlineNanos);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        current = future;
+        if (result.isCancelled()) {
+            future.cancel(false);
+        }
+        future.whenComplete((value, error) ->
+                settle(attemptNumberParam, value, error));
+    }
+
+    /**
+     * Complete the request with an attempt's outcome, or schedule a retry.
+     * @param attemptNumberParam Number of the attempt, from 1
+     * @param valueParam The result, when the attempt succeeded
+     * @param errorParam The failure, or null on success
+     */
+    private void settle(final int attemptNumberParam, final T valueParam,
+                        final Throwable errorParam) {
+        if (errorParam == null) {
+            result.complete(valueParam);
+            return;
+        }
+        Throwable cause = errorParam;
+        while (cause instanceof CompletionException
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (result.isDone() || !retryable.test(cause)
+                || attemptNumberParam >= policy.getMaxAttempts()) {
+            result.completeExceptionally(cause);
+            return;
+        }
+        long delayMs = policy.backoffMs(attemptNumberParam);
+        if (deadlineNanos != 0 && System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(delayMs) >= deadlineNanos) {
+            result.completeExceptionally(cause);
+            return;
+        }
+        if (!policy.tryRetry()) {
+            result.completeExceptionally(cause);
+            return;
+        }
+        CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS)
+                .execute(() -> run(attemptNumberParam + 1));
+    }
+}
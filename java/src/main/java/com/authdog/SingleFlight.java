@@ -0,0 +1,245 @@
+package com.authdog;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key into one in-flight call.
+ *
+ * <p>The first caller for a key runs the load; callers arriving while it
+ * is in flight share its result or exception. The key is released as soon
+ * as the load completes. An asynchronous load is cancelled only once every
+ * caller waiting on it has cancelled.</p>
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+final class SingleFlight<K, V> {
+    /**
+     * In-flight loads by key.
+     */
+    private final ConcurrentHashMap<K, Flight<V>> inFlight =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Number of calls that joined a load started by another caller.
+     */
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Load a value, blocking until it is available.
+     * @param keyParam Key to coalesce on
+     * @param loaderParam Blocking load, run on the calling thread
+     * @return The loaded value
+     */
+    V execute(final K keyParam, final Supplier<V> loaderParam) {
+        while (true) {
+            Flight<V> flight = new Flight<>();
+            Flight<V> existing = inFlight.putIfAbsent(keyParam, flight);
+            if (existing == null) {
+                try {
+                    V value = loaderParam.get();
+                    flight.promise.complete(value);
+                    return value;
+                } catch (RuntimeException | Error e) {
+                    flight.promise.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    inFlight.remove(keyParam, flight);
+                }
+            }
+            if (existing.join()) {
+                coalesced.increment();
+                return await(existing.promise);
+            }
+            inFlight.remove(keyParam, existing);
+        }
+    }
+
+    /**
+     * Load a value asynchronously.
+     * @param keyParam Key to coalesce on
+     * @param loaderParam Asynchronous load; cancelling its future must abort
+     *                    the underlying work
+     * @return Future completed with the loaded value, private to the caller
+     */
+    CompletableFuture<V> executeAsync(
+            final K keyParam,
+            final Supplier<CompletableFuture<V>> loaderParam) {
+        while (true) {
+            Flight<V> flight = new Flight<>();
+            Flight<V> existing = inFlight.putIfAbsent(keyParam, flight);
+            if (existing == null) {
+                flight.promise.whenComplete(
+                        (value, error) -> inFlight.remove(keyParam, flight));
+                start(flight, loaderParam);
+                return subscribe(flight);
+            }
+            if (existing.join()) {
+                coalesced.increment();
+                return subscribe(existing);
+            }
+            inFlight.remove(keyParam, existing);
+        }
+    }
+
+    /**
+     * Get the number of calls that shared another caller's load.
+     * @return Coalesced call count
+     */
+    long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Get the number of keys currently being loaded.
+     * @return In-flight key count
+     */
+    int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Start an asynchronous load and forward its outcome to the flight.
+     * @param flightParam The flight owning the load
+     * @param loaderParam Asynchronous load
+     */
+    private void start(final Flight<V> flightParam,
+                       final Supplier<CompletableFuture<V>> loaderParam) {
+        CompletableFuture<V> source;
+        try {
+            source = loaderParam.get();
+        } catch (RuntimeException | Error e) {
+            flightParam.promise.completeExceptionally(e);
+            return;
+        }
+        flightParam.source = source;
+        if (flightParam.promise.isCancelled()
+                || flightParam.promise.isCompletedExceptionally()) {
+            source.cancel(true);
+            return;
+        }
+        source.whenComplete((value, error) -> {
+            if (error != null) {
+                flightParam.promise.completeExceptionally(unwrap(error));
+            } else {
+                flightParam.promise.complete(value);
+            }
+        });
+    }
+
+    /**
+     * Create a caller-private view of a flight.
+     * @param flightParam The flight to wait on
+     * @return Future completed with the flight's outcome
+     */
+    private CompletableFuture<V> subscribe(final Flight<V> flightParam) {
+        CompletableFuture<V> child = new CompletableFuture<>();
+        flightParam.promise.whenComplete((value, error) -> {
+            if (error != null) {
+                child.completeExceptionally(unwrap(error));
+            } else {
+                child.complete(value);
+            }
+        });
+        child.whenComplete((value, error) -> {
+            if (child.isCancelled()) {
+                flightParam.leave();
+            }
+        });
+        return child;
+    }
+
+    /**
+     * Wait for a shared load, rethrowing its exception unwrapped.
+     * @param promiseParam The shared outcome
+     * @param <T> Value type
+     * @return The loaded value
+     */
+    private static <T> T await(final CompletableFuture<T> promiseParam) {
+        try {
+            return promiseParam.join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Strip completion wrappers from a failure.
+     * @param errorParam The failure
+     * @return The underlying cause
+     */
+    private static Throwable unwrap(final Throwable errorParam) {
+        Throwable error = errorParam;
+        while (error instanceof CompletionException
+                && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * One in-flight load.
+     *
+     * @param <V> Value type
+     */
+    private static final class Flight<V> {
+        /**
+         * Shared outcome of the load.
+         */
+        private final CompletableFuture<V> promise = new CompletableFuture<>();
+
+        /**
+         * Callers still waiting; zero once every caller has cancelled.
+         */
+        private final AtomicInteger waiters = new AtomicInteger(1);
+
+        /**
+         * Future of the asynchronous load, null for blocking loads.
+         */
+        private volatile CompletableFuture<V> source;
+
+        /**
+         * Register another waiter.
+         * @return False when the flight was already abandoned
+         */
+        boolean join() {
+            while (true) {
+                int current = waiters.get();
+                if (current == 0) {
+                    return false;
+                }
+                if (waiters.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Unregister a cancelled waiter, abandoning the load with the last.
+         */
+        void leave() {
+            if (waiters.decrementAndGet() != 0) {
+                return;
+            }
+            CompletableFuture<V> pending = source;
+            if (pending != null) {
+                pending.cancel(true);
+            }
+            promise.completeExceptionally(
+                    new CancellationException("All callers cancelled"));
+        }
+    }
+}
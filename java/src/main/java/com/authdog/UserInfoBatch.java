@@ -0,0 +1,226 @@
+package com.authdog;
+
+import com.authdog.exceptions.ApiException;
+import com.authdog.exceptions.AuthdogException;
+import com.authdog.types.UserInfoResponse;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Resolves a set of access tokens with a bounded number of lookups in
+ * flight.
+ *
+ * <p>Lookups are started from the completion of earlier ones rather than
+ * from dedicated threads. A failed lookup is recorded against its token and
+ * does not stop the rest of the batch.</p>
+ */
+final class UserInfoBatch {
+    /**
+     * Distinct tokens in first-seen order.
+     */
+    private final List<String> tokens;
+
+    /**
+     * Maximum number of lookups in flight.
+     */
+    private final int maxConcurrency;
+
+    /**
+     * Asynchronous lookup for one token.
+     */
+    private final Function<String, CompletableFuture<UserInfoResponse>> loader;
+
+    /**
+     * Results by token position.
+     */
+    private final AtomicReferenceArray<UserInfoResult> results;
+
+    /**
+     * Started lookups, by token position.
+     */
+    private final AtomicReferenceArray<CompletableFuture<UserInfoResponse>>
+            started;
+
+    /**
+     * Position of the next token to look up.
+     */
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Number of lookups in flight.
+     */
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * Number of lookups not yet completed.
+     */
+    private final AtomicInteger remaining;
+
+    /**
+     * Pending drain requests; non-zero while a thread is draining.
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /**
+     * Completed with the results once every lookup has finished.
+     */
+    private final CompletableFuture<Map<String, UserInfoResult>> done =
+            new CompletableFuture<>();
+
+    /**
+     * Constructor with parameters.
+     * @param tokensParam Access tokens, duplicates are looked up once
+     * @param maxConcurrencyParam Maximum number of lookups in flight
+     * @param loaderParam Asynchronous lookup for one token
+     */
+    UserInfoBatch(final Collection<String> tokensParam,
+                  final int maxConcurrencyParam,
+                  final Function<String, CompletableFuture<UserInfoResponse>>
+                          loaderParam) {
+        if (maxConcurrencyParam <= 0) {
+            throw new IllegalArgumentException(
+                    "maxConcurrency must be positive");
+        }
+        for (String token : tokensParam) {
+            if (token == null) {
+                throw new IllegalArgumentException(
+                        "Access tokens must not be null");
+            }
+        }
+        this.tokens = new ArrayList<>(new LinkedHashSet<>(tokensParam));
+        this.maxConcurrency = maxConcurrencyParam;
+        this.loader = loaderParam;
+        this.results = new AtomicReferenceArray<>(tokens.size());
+        this.started = new AtomicReferenceArray<>(tokens.size());
+        this.remaining = new AtomicInteger(tokens.size());
+    }
+
+    /**
+     * Start the batch.
+     * @return Future completed with a result per distinct token, in
+     *         first-seen order
+     */
+    CompletableFuture<Map<String, UserInfoResult>> start() {
+        if (tokens.isEmpty()) {
+            done.complete(new LinkedHashMap<>());
+        } else {
+            drain();
+        }
+        return done;
+    }
+
+    /**
+     * Cancel every lookup still in flight.
+     */
+    void cancel() {
+        for (int i = 0; i < started.length(); i++) {
+            CompletableFuture<UserInfoResponse> future = started.get(i);
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Start lookups while below the concurrency limit. Re-entrant calls,
+     * such as from lookups that complete immediately, are folded into the
+     * loop of the thread already draining. An {@link Error} thrown by the
+     * loader is rethrown once the loop has finished, so the batch itself
+     * still completes.
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        Error error = null;
+        do {
+            while (active.get() < maxConcurrency) {
+                int index = next.getAndIncrement();
+                if (index >= tokens.size()) {
+                    break;
+                }
+                Error thrown = launch(index);
+                if (error == null) {
+                    error = thrown;
+                }
+            }
+        } while (wip.decrementAndGet() != 0);
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Start the lookup for one token. Anything the loader throws fails
+     * that token's result.
+     * @param indexParam Token position
+     * @return The error the loader threw, to be rethrown by the caller,
+     *         or null
+     */
+    private Error launch(final int indexParam) {
+        active.incrementAndGet();
+        CompletableFuture<UserInfoResponse> future;
+        Error fatal = null;
+        try {
+            future = loader.apply(tokens.get(indexParam));
+        } catch (Throwable e) {
+            future = CompletableFuture.failedFuture(e);
+            if (e instanceof Error) {
+                fatal = (Error) e;
+            }
+        }
+        started.set(indexParam, future);
+        future.whenComplete((response, error) -> {
+            results.set(indexParam, error == null
+                    ? UserInfoResult.success(response)
+                    : UserInfoResult.failure(toAuthdogException(error)));
+            active.decrementAndGet();
+            if (remaining.decrementAndGet() == 0) {
+                done.complete(collect());
+            } else {
+                drain();
+            }
+        });
+        return fatal;
+    }
+
+    /**
+     * Gather the results in token order.
+     * @return Results by token
+     */
+    private Map<String, UserInfoResult> collect() {
+        Map<String, UserInfoResult> map = new LinkedHashMap<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            map.put(tokens.get(i), results.get(i));
+        }
+        return map;
+    }
+
+    /**
+     * Normalize a lookup failure to an SDK exception.
+     * @param errorParam The failure
+     * @return The SDK exception
+     */
+    static AuthdogException toAuthdogException(
+            final Throwable errorParam) {
+        Throwable error = errorParam;
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof AuthdogException) {
+            return (AuthdogException) error;
+        }
+        return new ApiException("Request failed: " + error.getMessage(),
+                error);
+    }
+}
@@ -0,0 +1,434 @@
+package com.authdog;
+
+import com.authdog.types.UserInfoResponse;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Resolves a stream of access tokens into a stream of results.
+ *
+ * <p>Tokens are only requested from upstream when the subscriber has asked
+ * for results and fewer than {@code maxConcurrency} tokens are being
+ * resolved or waiting to be delivered, so no more than that many lookups
+ * are in flight and no more than that many results are ever buffered.
+ * Lookups run asynchronously and are started from the completion of
+ * earlier ones rather than from dedicated threads.</p>
+ *
+ * <p>Results are delivered in token order when ordering is requested, and
+ * as lookups complete otherwise. A failed lookup is delivered as a failed
+ * result and does not end the stream. Completion or an error from upstream
+ * is passed on once every received token has been delivered. Only one
+ * subscriber is supported.</p>
+ */
+final class UserInfoProcessor
+        implements Flow.Processor<String, UserInfoResult> {
+    /**
+     * Maximum number of tokens resolving or waiting to be delivered.
+     */
+    private final int maxConcurrency;
+
+    /**
+     * Whether results are delivered in token order.
+     */
+    private final boolean ordered;
+
+    /**
+     * Asynchronous lookup for one token.
+     */
+    private final Function<String, CompletableFuture<UserInfoResponse>> loader;
+
+    /**
+     * Tokens not yet delivered: every token in arrival order when ordered,
+     * otherwise only the resolved ones in completion order. Guarded by
+     * this, like the rest of the state below.
+     */
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+
+    /**
+     * Lookups in flight.
+     */
+    private final List<CompletableFuture<UserInfoResponse>> running =
+            new ArrayList<>();
+
+    /**
+     * Pending drain requests; non-zero while a thread is draining.
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /**
+     * Subscription to the token source, null until subscribed.
+     */
+    private Flow.Subscription upstream;
+
+    /**
+     * Subscriber of the results, null until subscribed.
+     */
+    private Flow.Subscriber<? super UserInfoResult> downstream;
+
+    /**
+     * Whether the subscriber has been handed its subscription, and may be
+     * signalled.
+     */
+    private boolean subscribed;
+
+    /**
+     * Results requested by the subscriber and not yet delivered.
+     */
+    private long requested;
+
+    /**
+     * Tokens requested from upstream and not yet received.
+     */
+    private long upstreamRequested;
+
+    /**
+     * Tokens received and not yet delivered.
+     */
+    private int inFlight;
+
+    /**
+     * Whether upstream has completed or failed.
+     */
+    private boolean upstreamDone;
+
+    /**
+     * Upstream failure, null unless it failed.
+     */
+    private Throwable upstreamError;
+
+    /**
+     * Failure to report instead of the upstream outcome, such as a
+     * non-positive request.
+     */
+    private Throwable protocolError;
+
+    /**
+     * Whether the subscriber cancelled or the stream has terminated.
+     */
+    private boolean done;
+
+    /**
+     * Constructor with parameters.
+     * @param maxConcurrencyParam Maximum number of lookups in flight
+     * @param orderedParam Whether results are delivered in token order
+     * @param loaderParam Asynchronous lookup for one token
+     */
+    UserInfoProcessor(final int maxConcurrencyParam,
+                      final boolean orderedParam,
+                      final Function<String,
+                              CompletableFuture<UserInfoResponse>>
+                              loaderParam) {
+        if (maxConcurrencyParam <= 0) {
+            throw new IllegalArgumentException(
+                    "maxConcurrency must be positive");
+        }
+        this.maxConcurrency = maxConcurrencyParam;
+        this.ordered = orderedParam;
+        this.loader = loaderParam;
+    }
+
+    /**
+     * Subscribe to the results. A second subscriber is rejected.
+     * @param subscriberParam The subscriber
+     */
+    @Override
+    public void subscribe(
+            final Flow.Subscriber<? super UserInfoResult> subscriberParam) {
+        if (subscriberParam == null) {
+            throw new NullPointerException("subscriber must not be null");
+        }
+        boolean accepted;
+        synchronized (this) {
+            accepted = downstream == null;
+            if (accepted) {
+                downstream = subscriberParam;
+            }
+        }
+        if (!accepted) {
+            subscriberParam.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(final long nParam) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriberParam.onError(new IllegalStateException(
+                    "Only one subscriber is supported"));
+            return;
+        }
+        subscriberParam.onSubscribe(new ResultSubscription());
+        synchronized (this) {
+            subscribed = true;
+        }
+        drain();
+    }
+
+    /**
+     * Receive the subscription to the token source. A second subscription
+     * is cancelled.
+     * @param subscriptionParam The subscription
+     */
+    @Override
+    public void onSubscribe(final Flow.Subscription subscriptionParam) {
+        boolean accepted;
+        synchronized (this) {
+            accepted = upstream == null && !done;
+            if (accepted) {
+                upstream = subscriptionParam;
+            }
+        }
+        if (!accepted) {
+            subscriptionParam.cancel();
+            return;
+        }
+        drain();
+    }
+
+    /**
+     * Start resolving a token. Anything the lookup throws fails that
+     * token's result; an {@link Error} is rethrown once the result is in
+     * place.
+     * @param tokenParam The access token
+     */
+    @Override
+    public void onNext(final String tokenParam) {
+        if (tokenParam == null) {
+            throw new NullPointerException("token must not be null");
+        }
+        Pending pending = new Pending();
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+            upstreamRequested--;
+            inFlight++;
+            if (ordered) {
+                queue.add(pending);
+            }
+        }
+        CompletableFuture<UserInfoResponse> future;
+        Error fatal = null;
+        try {
+            future = loader.apply(tokenParam);
+        } catch (Throwable e) {
+            future = CompletableFuture.failedFuture(e);
+            if (e instanceof Error) {
+                fatal = (Error) e;
+            }
+        }
+        boolean cancelled;
+        synchronized (this) {
+            cancelled = done;
+            if (!cancelled && !future.isDone()) {
+                running.add(future);
+            }
+        }
+        if (cancelled) {
+            future.cancel(true);
+            return;
+        }
+        CompletableFuture<UserInfoResponse> lookup = future;
+        future.whenComplete((response, error) -> {
+            synchronized (this) {
+                running.remove(lookup);
+                pending.result = error == null
+                        ? UserInfoResult.success(response)
+                        : UserInfoResult.failure(
+                                UserInfoBatch.toAuthdogException(error));
+                if (!ordered) {
+                    queue.add(pending);
+                }
+            }
+            drain();
+        });
+        if (fatal != null) {
+            throw fatal;
+        }
+    }
+
+    /**
+     * Fail the stream once every received token has been delivered.
+     * @param errorParam The upstream failure
+     */
+    @Override
+    public void onError(final Throwable errorParam) {
+        synchronized (this) {
+            upstreamDone = true;
+            upstreamError = errorParam;
+        }
+        drain();
+    }
+
+    /**
+     * Complete the stream once every received token has been delivered.
+     */
+    @Override
+    public void onComplete() {
+        synchronized (this) {
+            upstreamDone = true;
+        }
+        drain();
+    }
+
+    /**
+     * Deliver resolved results while the subscriber has demand, request
+     * tokens while below the concurrency limit, and pass on termination.
+     * Re-entrant calls, such as from lookups that complete immediately or
+     * a subscriber requesting from {@code onNext}, are folded into the loop
+     * of the thread already draining.
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            boolean progress = true;
+            while (progress) {
+                progress = step();
+            }
+        } while (wip.decrementAndGet() != 0);
+    }
+
+    /**
+     * Take one step of the drain loop.
+     * @return True when the step made progress and another may follow
+     */
+    private boolean step() {
+        Flow.Subscriber<? super UserInfoResult> subscriber;
+        Flow.Subscription subscription;
+        UserInfoResult next = null;
+        Throwable error = null;
+        boolean terminate = false;
+        boolean protocolFailure = false;
+        long request = 0;
+        synchronized (this) {
+            subscriber = downstream;
+            subscription = upstream;
+            if (done || !subscribed) {
+                return false;
+            }
+            Pending head = queue.peek();
+            if (protocolError != null) {
+                done = true;
+                terminate = true;
+                protocolFailure = true;
+                error = protocolError;
+            } else if (requested > 0 && head != null && head.result != null) {
+                queue.poll();
+                requested--;
+                inFlight--;
+                next = head.result;
+            } else if (upstreamDone && inFlight == 0) {
+                done = true;
+                terminate = true;
+                error = upstreamError;
+            } else if (subscription != null && !upstreamDone) {
+                request = Math.min(maxConcurrency, requested)
+                        - inFlight - upstreamRequested;
+                if (request > 0) {
+                    upstreamRequested += request;
+                }
+            }
+        }
+        if (next != null) {
+            subscriber.onNext(next);
+            return true;
+        }
+        if (terminate) {
+            if (protocolFailure) {
+                cancelAll();
+            }
+            if (error != null) {
+                subscriber.onError(error);
+            } else {
+                subscriber.onComplete();
+            }
+            return false;
+        }
+        if (request > 0) {
+            subscription.request(request);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stop the stream: cancel upstream and every lookup in flight, and
+     * drop undelivered results. Called once the stream is done, without
+     * holding this.
+     */
+    private void cancelAll() {
+        Flow.Subscription subscription;
+        List<CompletableFuture<UserInfoResponse>> futures;
+        synchronized (this) {
+            subscription = upstream;
+            futures = new ArrayList<>(running);
+            running.clear();
+            queue.clear();
+        }
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        for (CompletableFuture<UserInfoResponse> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * A token being resolved or waiting to be delivered.
+     */
+    private static final class Pending {
+        /**
+         * The result, null until the lookup completes. Guarded by the
+         * processor.
+         */
+        private UserInfoResult result;
+    }
+
+    /**
+     * The subscriber's handle on the results.
+     */
+    private final class ResultSubscription implements Flow.Subscription {
+        /**
+         * Ask for more results.
+         * @param nParam Number of results, must be positive
+         */
+        @Override
+        public void request(final long nParam) {
+            synchronized (UserInfoProcessor.this) {
+                if (nParam <= 0) {
+                    protocolError = new IllegalArgumentException(
+                            "request must be positive, was " + nParam);
+                } else {
+                    requested = requested + nParam < 0
+                            ? Long.MAX_VALUE
+                            : requested + nParam;
+                }
+            }
+            drain();
+        }
+
+        /**
+         * Stop receiving results and cancel the lookups in flight.
+         */
+        @Override
+        public void cancel() {
+            boolean first;
+            synchronized (UserInfoProcessor.this) {
+                first = !done;
+                done = true;
+            }
+            if (first) {
+                cancelAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.authdog;
+
+import com.authdog.exceptions.ApiException;
+import com.authdog.exceptions.AuthdogException;
+import com.authdog.exceptions.AuthenticationException;
+import com.authdog.exceptions.CircuitOpenException;
+import com.authdog.exceptions.LimitExceededException;
+import com.authdog.types.UserInfoResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.IOException;
+
+/**
+ * Outcome of a userinfo lookup: a response, an unauthorized token, or a
+ * failure with its error code, HTTP status and message.
+ */
+public final class UserInfoResult {
+    /**
+     * HTTP 401 status code.
+     */
+    private static final int HTTP_UNAUTHORIZED = 401;
+
+    /**
+     * User information, null on failure.
+     */
+    private final UserInfoResponse response;
+
+    /**
+     * Failure, null on success.
+     */
+    private final AuthdogException error;
+
+    /**
+     * Reason of the failure, null on success.
+     */
+    private final ErrorCode errorCode;
+
+    /**
+     * Constructor with parameters.
+     * @param responseParam User information
+     * @param errorParam Failure
+     */
+    private UserInfoResult(final UserInfoResponse responseParam,
+                           final AuthdogException errorParam) {
+        this.response = responseParam;
+        this.error = errorParam;
+        this.errorCode = errorParam != null ? classify(errorParam) : null;
+    }
+
+    /**
+     * Create a successful result.
+     * @param responseParam User information
+     * @return The result
+     */
+    public static UserInfoResult success(
+            final UserInfoResponse responseParam) {
+        return new UserInfoResult(responseParam, null);
+    }
+
+    /**
+     * Create a failed result.
+     * @param errorParam The failure
+     * @return The result
+     */
+    public static UserInfoResult failure(final AuthdogException errorParam) {
+        if (errorParam == null) {
+            throw new IllegalArgumentException("error must not be null");
+        }
+        return new UserInfoResult(null, errorParam);
+    }
+
+    /**
+     * Check whether the lookup succeeded.
+     * @return True on success
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * Check whether the lookup failed because the access token or API key
+     * was rejected.
+     * @return True when unauthorized
+     */
+    public boolean isUnauthorized() {
+        return errorCode == ErrorCode.UNAUTHORIZED;
+    }
+
+    /**
+     * Get the reason of the failure.
+     * @return The error code, or null when the lookup succeeded
+     */
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * Get the HTTP status of the failure.
+     * @return 401 when unauthorized, the status of the failed response, or
+     *         0 on success or when the request failed without a response
+     */
+    public int getStatusCode() {
+        if (errorCode == ErrorCode.UNAUTHORIZED) {
+            return HTTP_UNAUTHORIZED;
+        }
+        return error instanceof ApiException
+                ? ((ApiException) error).getStatusCode()
+                : 0;
+    }
+
+    /**
+     * Get the message of the failure.
+     * @return The message, or null when the lookup succeeded
+     */
+    public String getMessage() {
+        return error != null ? error.getMessage() : null;
+    }
+
+    /**
+     * Get user information.
+     * @return User information, or null when the lookup failed
+     */
+    public UserInfoResponse getResponse() {
+        return response;
+    }
+
+    /**
+     * Get the failure.
+     * @return The failure, or null when the lookup succeeded
+     */
+    public AuthdogException getError() {
+        return error;
+    }
+
+    /**
+     * Get the reason of a failure.
+     * @param errorParam The failure
+     * @return The error code
+     */
+    private static ErrorCode classify(final AuthdogException errorParam) {
+        if (errorParam instanceof AuthenticationException) {
+            return ErrorCode.UNAUTHORIZED;
+        }
+        if (errorParam instanceof CircuitOpenException) {
+            return ErrorCode.CIRCUIT_OPEN;
+        }
+        if (errorParam instanceof LimitExceededException) {
+            return ErrorCode.LIMIT_EXCEEDED;
+        }
+        if (errorParam instanceof ApiException
+                && ((ApiException) errorParam).getStatusCode() != 0) {
+            return ErrorCode.HTTP_ERROR;
+        }
+        Throwable cause = errorParam.getCause();
+        if (cause instanceof JsonProcessingException) {
+            return ErrorCode.INVALID_RESPONSE;
+        }
+        if (cause instanceof IOException) {
+            return ErrorCode.IO_ERROR;
+        }
+        return ErrorCode.UNKNOWN;
+    }
+}
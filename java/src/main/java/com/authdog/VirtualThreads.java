@@ -0,0 +1,70 @@
+package com.authdog;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to JDK 21 virtual threads from code compiled for Java 11.
+ *
+ * <p>The virtual-thread executor factory is resolved once at class load, so
+ * the same class file uses virtual threads on Java 21 and later and reports
+ * them as unavailable on older runtimes.</p>
+ */
+final class VirtualThreads {
+    /**
+     * Handle to {@code Executors.newVirtualThreadPerTaskExecutor()}, null
+     * when the runtime has no virtual threads.
+     */
+    private static final MethodHandle NEW_EXECUTOR = findExecutorFactory();
+
+    /**
+     * Not instantiable.
+     */
+    private VirtualThreads() {
+    }
+
+    /**
+     * Check whether the runtime supports virtual threads.
+     * @return True on Java 21 and later
+     */
+    static boolean isAvailable() {
+        return NEW_EXECUTOR != null;
+    }
+
+    /**
+     * Create an executor that starts a new virtual thread for each task.
+     * @return The executor
+     * @throws UnsupportedOperationException When virtual threads are not
+     *         available
+     */
+    static ExecutorService newThreadPerTaskExecutor() {
+        if (NEW_EXECUTOR == null) {
+            throw new UnsupportedOperationException(
+                    "Virtual threads require Java 21 or later");
+        }
+        try {
+            return (ExecutorService) NEW_EXECUTOR.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Resolve the virtual-thread executor factory.
+     * @return The factory handle, or null when unavailable
+     */
+    private static MethodHandle findExecutorFactory() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class,
+                    "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.authdog.cache;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collection;
+
+/**
+ * Memory-mapped snapshot file of cached userinfo responses.
+ *
+ * <p>The file holds a header followed by one record per entry: the access
+ * token, the absolute expiry and session end in epoch milliseconds, and the
+ * response encoded as UTF-8 JSON. Files are written to a temporary sibling
+ * and moved into place, so a crash never leaves a truncated snapshot behind.
+ * Large snapshots are mapped in windows of {@link #WINDOW_SIZE} bytes.</p>
+ */
+final class CacheSnapshot {
+    /**
+     * File magic, "ADUC".
+     */
+    private static final int MAGIC = 0x41445543;
+
+    /**
+     * File format version.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Size of the header: magic, version and record count.
+     */
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * Fixed size of a record: two lengths and two timestamps.
+     */
+    private static final int RECORD_OVERHEAD = 24;
+
+    /**
+     * Size of one mapped window.
+     */
+    static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Hidden constructor.
+     */
+    private CacheSnapshot() {
+    }
+
+    /**
+     * Write a snapshot, replacing any existing file.
+     * @param pathParam The snapshot file
+     * @param recordsParam The records to write
+     * @throws IOException When the file cannot be written
+     */
+    static void write(final Path pathParam,
+                      final Collection<Record> recordsParam)
+            throws IOException {
+        long size = HEADER_SIZE;
+        for (Record record : recordsParam) {
+            size += RECORD_OVERHEAD + record.token.length
+                    + record.response.length;
+        }
+        Path absolute = pathParam.toAbsolutePath();
+        Path temp = absolute.resolveSibling(
+                absolute.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        createPrivateFile(temp);
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Output out = new Output(channel);
+            out.ensure(HEADER_SIZE);
+            out.buffer.putInt(MAGIC);
+            out.buffer.putInt(VERSION);
+            out.buffer.putLong(recordsParam.size());
+            for (Record record : recordsParam) {
+                out.ensure(RECORD_OVERHEAD + record.token.length
+                        + record.response.length);
+                out.buffer.putLong(record.expiresAtMillis);
+                out.buffer.putLong(record.sessionEndsAtMillis);
+                out.buffer.putInt(record.token.length);
+                out.buffer.put(record.token);
+                out.buffer.putInt(record.response.length);
+                out.buffer.put(record.response);
+            }
+            out.finish();
+            if (out.position != size) {
+                throw new IOException("Snapshot size mismatch");
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a snapshot, skipping records that expired before a given time.
+     * @param pathParam The snapshot file
+     * @param nowParam Current time in epoch milliseconds
+     * @param sinkParam Receives each live record
+     * @return Number of live records accepted by the sink
+     * @throws IOException When the file cannot be read or is malformed
+     */
+    static int read(final Path pathParam, final long nowParam,
+                    final RecordSink sinkParam) throws IOException {
+        try (FileChannel channel = FileChannel.open(pathParam,
+                StandardOpenOption.READ)) {
+            Input in = new Input(channel);
+            in.ensure(HEADER_SIZE);
+            if (in.buffer.getInt() != MAGIC
+                    || in.buffer.getInt() != VERSION) {
+                throw new IOException("Not a userinfo cache snapshot");
+            }
+            long count = in.buffer.getLong();
+            int live = 0;
+            for (long i = 0; i < count; i++) {
+                in.ensure(2 * Long.BYTES + Integer.BYTES);
+                long expiresAt = in.buffer.getLong();
+                long sessionEndsAt = in.buffer.getLong();
+                byte[] token = in.bytes();
+                byte[] response = in.bytes();
+                if (nowParam < expiresAt && sinkParam.accept(
+                        new String(token, StandardCharsets.UTF_8), response,
+                        expiresAt, sessionEndsAt)) {
+                    live++;
+                }
+            }
+            return live;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Truncated userinfo cache snapshot", e);
+        }
+    }
+
+    /**
+     * Create an empty file readable only by its owner where supported,
+     * since snapshots contain access tokens.
+     * @param pathParam The file
+     * @throws IOException When the file cannot be created
+     */
+    private static void createPrivateFile(final Path pathParam)
+            throws IOException {
+        try {
+            Files.createFile(pathParam, PosixFilePermissions.asFileAttribute(
+                    PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(pathParam);
+        } catch (FileAlreadyExistsException e) {
+            throw new IOException("Snapshot temporary file in use", e);
+        }
+    }
+
+    /**
+     * Receives the live records of a snapshot.
+     */
+    @FunctionalInterface
+    interface RecordSink {
+        /**
+         * Accept a record.
+         * @param tokenParam The access token
+         * @param responseParam The response encoded as UTF-8 JSON
+         * @param expiresAtMillisParam Expiry in epoch milliseconds
+         * @param sessionEndsAtMillisParam Session end in epoch milliseconds
+         * @return False when the record was skipped
+         */
+        boolean accept(String tokenParam, byte[] responseParam,
+                       long expiresAtMillisParam,
+                       long sessionEndsAtMillisParam);
+    }
+
+    /**
+     * A cached response to write.
+     */
+    static final class Record {
+        /**
+         * The access token in UTF-8.
+         */
+        private final byte[] token;
+
+        /**
+         * The response encoded as UTF-8 JSON.
+         */
+        private final byte[] response;
+
+        /**
+         * Expiry in epoch milliseconds.
+         */
+        private final long expiresAtMillis;
+
+        /**
+         * Session end in epoch milliseconds.
+         */
+        private final long sessionEndsAtMillis;
+
+        /**
+         * Constructor with parameters.
+         * @param tokenParam The access token
+         * @param responseParam The response encoded as UTF-8 JSON
+         * @param expiresAtMillisParam Expiry in epoch milliseconds
+         * @param sessionEndsAtMillisParam Session end in epoch milliseconds
+         */
+        Record(final String tokenParam, final byte[] responseParam,
+               final long expiresAtMillisParam,
+               final long sessionEndsAtMillisParam) {
+            this(tokenParam.getBytes(StandardCharsets.UTF_8), responseParam,
+                    expiresAtMillisParam, sessionEndsAtMillisParam);
+        }
+
+        /**
+         * Constructor with an access token already encoded.
+         * @param tokenParam The access token in UTF-8
+         * @param responseParam The response encoded as UTF-8 JSON
+         * @param expiresAtMillisParam Expiry in epoch milliseconds
+         * @param sessionEndsAtMillisParam Session end in epoch milliseconds
+         */
+        Record(final byte[] tokenParam, final byte[] responseParam,
+               final long expiresAtMillisParam,
+               final long sessionEndsAtMillisParam) {
+            this.token = tokenParam;
+            this.response = responseParam;
+            this.expiresAtMillis = expiresAtMillisParam;
+            this.sessionEndsAtMillis = sessionEndsAtMillisParam;
+        }
+    }
+
+    /**
+     * Sequential writer over mapped windows of a file.
+     */
+    private static final class Output {
+        /**
+         * The file.
+         */
+        private final FileChannel channel;
+
+        /**
+         * Current window, or null before the first write.
+         */
+        private MappedByteBuffer buffer;
+
+        /**
+         * File offset of the current window.
+         */
+        private long windowStart;
+
+        /**
+         * Bytes written before the current window.
+         */
+        private long position;
+
+        /**
+         * Constructor with parameters.
+         * @param channelParam The file
+         */
+        Output(final FileChannel channelParam) {
+            this.channel = channelParam;
+        }
+
+        /**
+         * Make sure the current window has room for a number of bytes.
+         * @param lengthParam Bytes about to be written
+         * @throws IOException When the file cannot be mapped
+         */
+        void ensure(final int lengthParam) throws IOException {
+            if (buffer != null && buffer.remaining() >= lengthParam) {
+                return;
+            }
+            finish();
+            windowStart = position;
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE,
+                    windowStart, Math.max(WINDOW_SIZE, lengthParam));
+        }
+
+        /**
+         * Flush the current window and trim the file to the bytes written.
+         * @throws IOException When the file cannot be written
+         */
+        void finish() throws IOException {
+            if (buffer == null) {
+                return;
+            }
+            buffer.force();
+            position = windowStart + buffer.position();
+            buffer = null;
+            channel.truncate(position);
+        }
+    }
+
+    /**
+     * Sequential reader over mapped windows of a file.
+     */
+    private static final class Input {
+        /**
+         * The file.
+         */
+        private final FileChannel channel;
+
+        /**
+         * Size of the file.
+         */
+        private final long size;
+
+        /**
+         * Current window, or null before the first read.
+         */
+        private MappedByteBuffer buffer;
+
+        /**
+         * File offset of the current window.
+         */
+        private long windowStart;
+
+        /**
+         * Constructor with parameters.
+         * @param channelParam The file
+         * @throws IOException When the file size cannot be read
+         */
+        Input(final FileChannel channelParam) throws IOException {
+            this.channel = channelParam;
+            this.size = channelParam.size();
+        }
+
+        /**
+         * Make sure the current window holds a number of unread bytes.
+         * @param lengthParam Bytes about to be read
+         * @throws IOException When the file is too short or cannot be
+         *         mapped
+         */
+        void ensure(final int lengthParam) throws IOException {
+            if (buffer != null && buffer.remaining() >= lengthParam) {
+                return;
+            }
+            long start = buffer != null
+                    ? windowStart + buffer.position()
+                    : 0;
+            if (lengthParam < 0 || start + lengthParam > size) {
+                throw new IOException("Truncated userinfo cache snapshot");
+            }
+            windowStart = start;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                    Math.min(size - start,
+                            Math.max(WINDOW_SIZE, lengthParam)));
+        }
+
+        /**
+         * Read a length-prefixed byte array.
+         * @return The bytes
+         * @throws IOException When the file is truncated
+         */
+        byte[] bytes() throws IOException {
+            ensure(Integer.BYTES);
+            int length = buffer.getInt();
+            ensure(length);
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return bytes;
+        }
+    }
+}
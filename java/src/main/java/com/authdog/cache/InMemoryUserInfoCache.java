@@ -0,0 +1,404 @@
+package com.authdog.cache;
+
+import com.authdog.types.Session;
+import com.authdog.types.UserInfoResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded in-process {@link UserInfoCache}.
+ *
+ * <p>Entries expire at the earlier of the configured maximum time to live
+ * and the remaining life of the session returned by the server. A hit
+ * returns a shallow copy of the cached response whose session reports its
+ * remaining life at that time. When the cache is full, expired entries are
+ * evicted first and then arbitrary entries until a small batch of room is
+ * free again.</p>
+ *
+ * <p>With a {@link RefreshAheadPolicy}, entries report when they are due
+ * for a background refresh and are kept past expiry for the policy's grace
+ * window, bounded by the session, to be served if the refresh fails.</p>
+ */
+public final class InMemoryUserInfoCache implements UserInfoCache {
+    /**
+     * Fraction of the capacity freed by one eviction pass, as a divisor, so
+     * that the full sweep is amortized over many insertions.
+     */
+    private static final int EVICTION_BATCH_DIVISOR = 16;
+
+    /**
+     * Maximum number of entries.
+     */
+    private final int maxEntries;
+
+    /**
+     * Maximum time to live in milliseconds.
+     */
+    private final long maxTtlMillis;
+
+    /**
+     * Clock used to compute expiry.
+     */
+    private final Clock clock;
+
+    /**
+     * Refresh-ahead policy, or null when entries are not refreshed ahead.
+     */
+    private final RefreshAheadPolicy refreshAhead;
+
+    /**
+     * Cached entries by access token.
+     */
+    private final ConcurrentHashMap<String, Entry> entries;
+
+    /**
+     * Initialize the cache.
+     * @param maxEntriesParam Maximum number of entries
+     * @param maxTtlMillisParam Maximum time to live in milliseconds
+     */
+    public InMemoryUserInfoCache(final int maxEntriesParam,
+                                 final long maxTtlMillisParam) {
+        this(maxEntriesParam, maxTtlMillisParam, null, Clock.systemUTC());
+    }
+
+    /**
+     * Initialize the cache with a refresh-ahead policy.
+     * @param maxEntriesParam Maximum number of entries
+     * @param maxTtlMillisParam Maximum time to live in milliseconds
+     * @param refreshAheadParam Refresh-ahead policy
+     */
+    public InMemoryUserInfoCache(final int maxEntriesParam,
+                                 final long maxTtlMillisParam,
+                                 final RefreshAheadPolicy refreshAheadParam) {
+        this(maxEntriesParam, maxTtlMillisParam, refreshAheadParam,
+                Clock.systemUTC());
+    }
+
+    /**
+     * Initialize the cache with a custom clock.
+     * @param maxEntriesParam Maximum number of entries
+     * @param maxTtlMillisParam Maximum time to live in milliseconds
+     * @param clockParam Clock used to compute expiry
+     */
+    public InMemoryUserInfoCache(final int maxEntriesParam,
+                                 final long maxTtlMillisParam,
+                                 final Clock clockParam) {
+        this(maxEntriesParam, maxTtlMillisParam, null, clockParam);
+    }
+
+    /**
+     * Initialize the cache with a refresh-ahead policy and a custom clock.
+     * @param maxEntriesParam Maximum number of entries
+     * @param maxTtlMillisParam Maximum time to live in milliseconds
+     * @param refreshAheadParam Refresh-ahead policy, or null for none
+     * @param clockParam Clock used to compute expiry
+     */
+    public InMemoryUserInfoCache(final int maxEntriesParam,
+                                 final long maxTtlMillisParam,
+                                 final RefreshAheadPolicy refreshAheadParam,
+                                 final Clock clockParam) {
+        if (maxEntriesParam <= 0) {
+            throw new IllegalArgumentException(
+                    "maxEntries must be positive");
+        }
+        if (maxTtlMillisParam <= 0) {
+            throw new IllegalArgumentException(
+                    "maxTtlMillis must be positive");
+        }
+        this.maxEntries = maxEntriesParam;
+        this.maxTtlMillis = maxTtlMillisParam;
+        this.clock = clockParam;
+        this.refreshAhead = refreshAheadParam;
+        this.entries = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public UserInfoResponse get(final String accessTokenParam) {
+        Entry entry = entries.get(accessTokenParam);
+        if (entry == null) {
+            return null;
+        }
+        long now = clock.millis();
+        if (entry.isExpired(now)) {
+            if (entry.isDiscardable(now)) {
+                entries.remove(accessTokenParam, entry);
+            }
+            return null;
+        }
+        return entry.serve(now);
+    }
+
+    @Override
+    public boolean isRefreshDue(final String accessTokenParam) {
+        Entry entry = entries.get(accessTokenParam);
+        if (entry == null) {
+            return false;
+        }
+        return entry.claimRefresh(clock.millis());
+    }
+
+    @Override
+    public UserInfoResponse getStale(final String accessTokenParam) {
+        Entry entry = entries.get(accessTokenParam);
+        if (entry == null) {
+            return null;
+        }
+        long now = clock.millis();
+        if (entry.isDiscardable(now)) {
+            entries.remove(accessTokenParam, entry);
+            return null;
+        }
+        return entry.isExpired(now) ? entry.serve(now) : null;
+    }
+
+    @Override
+    public void put(final String accessTokenParam,
+                    final UserInfoResponse responseParam) {
+        long ttl = UserInfoCache.ttlMillis(responseParam, maxTtlMillis);
+        if (ttl <= 0) {
+            return;
+        }
+        long now = clock.millis();
+        if (entries.size() >= maxEntries
+                && !entries.containsKey(accessTokenParam)) {
+            evict(now);
+        }
+        long sessionEndsAt = now + TimeUnit.SECONDS.toMillis(
+                responseParam.getSession().getRemainingSeconds());
+        entries.put(accessTokenParam,
+                newEntry(responseParam, now, now + ttl, sessionEndsAt));
+    }
+
+    /**
+     * Write the live entries to a memory-mapped snapshot file, replacing any
+     * existing file. Each entry is stored with its absolute expiry. The file
+     * contains access tokens and is created readable by its owner only
+     * where the file system supports it.
+     * @param pathParam The snapshot file
+     * @return Number of entries written
+     * @throws IOException When the file cannot be written
+     */
+    public int snapshot(final Path pathParam) throws IOException {
+        ObjectWriter writer = new ObjectMapper()
+                .writerFor(UserInfoResponse.class);
+        long now = clock.millis();
+        List<CacheSnapshot.Record> records = new ArrayList<>();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            Entry entry = e.getValue();
+            if (!entry.isExpired(now)) {
+                records.add(new CacheSnapshot.Record(e.getKey(),
+                        writer.writeValueAsBytes(entry.getValue()),
+                        entry.expiresAtMillis, entry.sessionEndsAtMillis));
+            }
+        }
+        CacheSnapshot.write(pathParam, records);
+        return records.size();
+    }
+
+    /**
+     * Load the entries of a snapshot file written by {@link #snapshot(Path)}
+     * or {@link OffHeapUserInfoCache#snapshot(Path)}. Entries that expired
+     * since are dropped, and the others keep their absolute expiry, bounded
+     * by this cache's maximum time to live.
+     * @param pathParam The snapshot file
+     * @return Number of entries loaded
+     * @throws IOException When the file cannot be read or is malformed
+     */
+    public int restore(final Path pathParam) throws IOException {
+        ObjectReader reader = new ObjectMapper()
+                .readerFor(UserInfoResponse.class);
+        long now = clock.millis();
+        return CacheSnapshot.read(pathParam, now,
+                (token, bytes, expiresAt, sessionEndsAt) -> {
+                    UserInfoResponse response;
+                    try {
+                        response = reader.readValue(bytes);
+                    } catch (IOException e) {
+                        return false;
+                    }
+                    if (entries.size() >= maxEntries
+                            && !entries.containsKey(token)) {
+                        evict(now);
+                    }
+                    entries.put(token, newEntry(response, now,
+                            Math.min(expiresAt, now + maxTtlMillis),
+                            sessionEndsAt));
+                    return true;
+                });
+    }
+
+    @Override
+    public void invalidate(final String accessTokenParam) {
+        entries.remove(accessTokenParam);
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Create an entry, applying the refresh-ahead policy if any.
+     * @param responseParam The response to cache
+     * @param nowParam Current time in epoch milliseconds
+     * @param expiresAtParam Expiry in epoch milliseconds
+     * @param sessionEndsAtParam Session end in epoch milliseconds
+     * @return The entry
+     */
+    private Entry newEntry(final UserInfoResponse responseParam,
+                           final long nowParam, final long expiresAtParam,
+                           final long sessionEndsAtParam) {
+        if (refreshAhead == null) {
+            return new Entry(responseParam, expiresAtParam, expiresAtParam,
+                    expiresAtParam, sessionEndsAtParam);
+        }
+        long refreshAt = nowParam + (long) ((expiresAtParam - nowParam)
+                * refreshAhead.getRefreshFraction());
+        long staleUntil = Math.min(sessionEndsAtParam,
+                expiresAtParam + refreshAhead.getStaleGraceMillis());
+        return new Entry(responseParam, refreshAt, expiresAtParam,
+                staleUntil, sessionEndsAtParam);
+    }
+
+    /**
+     * Make room for a batch of entries.
+     * @param nowParam Current time in epoch milliseconds
+     */
+    private void evict(final long nowParam) {
+        entries.values().removeIf(entry -> entry.isDiscardable(nowParam));
+        int target = maxEntries
+                - Math.max(1, maxEntries / EVICTION_BATCH_DIVISOR);
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * Cached response with its expiry.
+     */
+    private static final class Entry {
+        /**
+         * Cached response.
+         */
+        private final UserInfoResponse value;
+
+        /**
+         * Time from which the entry is due for refresh, in epoch
+         * milliseconds.
+         */
+        private final long refreshAtMillis;
+
+        /**
+         * Expiry in epoch milliseconds.
+         */
+        private final long expiresAtMillis;
+
+        /**
+         * End of the grace window in epoch milliseconds.
+         */
+        private final long staleUntilMillis;
+
+        /**
+         * Session end in epoch milliseconds.
+         */
+        private final long sessionEndsAtMillis;
+
+        /**
+         * Whether a caller has taken on refreshing this entry.
+         */
+        private final AtomicBoolean refreshClaimed = new AtomicBoolean();
+
+        /**
+         * Constructor with parameters.
+         * @param valueParam Cached response
+         * @param refreshAtMillisParam Refresh point in epoch milliseconds
+         * @param expiresAtMillisParam Expiry in epoch milliseconds
+         * @param staleUntilMillisParam End of the grace window in epoch
+         *                              milliseconds
+         * @param sessionEndsAtMillisParam Session end in epoch milliseconds
+         */
+        Entry(final UserInfoResponse valueParam,
+              final long refreshAtMillisParam,
+              final long expiresAtMillisParam,
+              final long staleUntilMillisParam,
+              final long sessionEndsAtMillisParam) {
+            this.value = valueParam;
+            this.refreshAtMillis = refreshAtMillisParam;
+            this.expiresAtMillis = expiresAtMillisParam;
+            this.staleUntilMillis = staleUntilMillisParam;
+            this.sessionEndsAtMillis = sessionEndsAtMillisParam;
+        }
+
+        /**
+         * Get the cached response.
+         * @return Cached response
+         */
+        UserInfoResponse getValue() {
+            return value;
+        }
+
+        /**
+         * Get a copy of the cached response to return to a caller, sharing
+         * its metadata and user, with the session's remaining life as of
+         * now. The cached response is never modified.
+         * @param nowParam Current time in epoch milliseconds
+         * @return The response to serve
+         */
+        UserInfoResponse serve(final long nowParam) {
+            UserInfoResponse response = new UserInfoResponse();
+            response.setMeta(value.getMeta());
+            response.setUser(value.getUser());
+            response.setSession(new Session(UserInfoCache.remainingSeconds(
+                    sessionEndsAtMillis, nowParam)));
+            return response;
+        }
+
+        /**
+         * Check whether the entry has expired.
+         * @param nowParam Current time in epoch milliseconds
+         * @return True when expired
+         */
+        boolean isExpired(final long nowParam) {
+            return nowParam >= expiresAtMillis;
+        }
+
+        /**
+         * Claim the refresh of an entry that is live but past its refresh
+         * point. Only the first caller succeeds.
+         * @param nowParam Current time in epoch milliseconds
+         * @return True when due for refresh and not claimed before
+         */
+        boolean claimRefresh(final long nowParam) {
+            return nowParam >= refreshAtMillis && !isExpired(nowParam)
+                    && refreshClaimed.compareAndSet(false, true);
+        }
+
+        /**
+         * Check whether the entry has left its grace window.
+         * @param nowParam Current time in epoch milliseconds
+         * @return True when it may no longer be served at all
+         */
+        boolean isDiscardable(final long nowParam) {
+            return nowParam >= staleUntilMillis;
+        }
+    }
+}
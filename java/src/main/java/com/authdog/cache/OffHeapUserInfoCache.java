@@ -0,0 +1,1265 @@
+package com.authdog.cache;
+
+import com.authdog.types.UserInfoResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UserInfoCache} that keeps responses outside the Java heap.
+ *
+ * <p>Responses are serialized to compact UTF-8 JSON and stored in direct
+ * {@link ByteBuffer} slabs of {@link #SLAB_SIZE} bytes, so that millions of
+ * cached sessions do not become millions of small objects in the old
+ * generation. The access token is stored in the slab next to its response.
+ * The heap only holds an index of primitive arrays: an open-addressing
+ * table keyed by a 64-bit hash of the token, whose matches are confirmed
+ * against the stored token, and the chunk and expiry of each entry. A
+ * response is decoded into a new {@link UserInfoResponse} on every hit,
+ * with its session's remaining life as of the hit.</p>
+ *
+ * <p>Storage is managed by a slab allocator: each slab is carved into
+ * chunks of one power-of-two size class, and an entry takes the smallest
+ * chunk it fits in. Slabs are allocated on demand up to the configured
+ * capacity and keep their size class for the life of the cache. When a
+ * size class has no free chunk and no slab is left, entries past their
+ * grace window are dropped first, found through a heap ordered by the end
+ * of their grace window, and then a batch of the class's chunks is
+ * reclaimed in round-robin order. Entries larger than a slab are not
+ * cached.</p>
+ *
+ * <p>Expiry and the optional {@link RefreshAheadPolicy} behave as in
+ * {@link InMemoryUserInfoCache}. The cache is split into up to 16
+ * segments picked by the high bits of the token hash, each with its own
+ * slabs, index and lock, so that lookups of different tokens rarely wait on
+ * each other; only the copy to and from the slab happens under a segment's
+ * lock. Caches smaller than 64 slabs per segment use fewer segments, so
+ * that every segment can hold several size classes at once.</p>
+ */
+public final class OffHeapUserInfoCache implements UserInfoCache {
+    /**
+     * Size of one slab in bytes, which is also the largest cacheable entry.
+     */
+    public static final int SLAB_SIZE = 1024 * 1024;
+
+    /**
+     * Size of the smallest chunk in bytes.
+     */
+    private static final int MIN_CHUNK_SIZE = 64;
+
+    /**
+     * Fraction of a size class reclaimed by one eviction pass, as a divisor.
+     */
+    private static final int EVICTION_BATCH_DIVISOR = 16;
+
+    /**
+     * Bytes before the token in a chunk: the token length and the response
+     * length.
+     */
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    /**
+     * Initial number of hash table slots, twice the initial number of
+     * entries.
+     */
+    private static final int INITIAL_SLOTS = 16;
+
+    /**
+     * Heap bytes per entry number in the per-entry arrays: the hash and
+     * four timestamps, the slab, chunk, version, heap position, heap slot
+     * and free-list slot, and the refresh claim.
+     */
+    private static final int ENTRY_HEAP_BYTES = 5 * Long.BYTES
+            + 6 * Integer.BYTES + 1;
+
+    /**
+     * Heap bytes per chunk for the owner and free-list arrays.
+     */
+    private static final int CHUNK_HEAP_BYTES = 2 * Integer.BYTES;
+
+    /**
+     * FNV-1a 64-bit offset basis.
+     */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    /**
+     * FNV-1a 64-bit prime.
+     */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * First multiplier of the 64-bit finalizer of MurmurHash3.
+     */
+    private static final long MIX_MULTIPLIER_1 = 0xff51afd7ed558ccdL;
+
+    /**
+     * Second multiplier of the 64-bit finalizer of MurmurHash3.
+     */
+    private static final long MIX_MULTIPLIER_2 = 0xc4ceb9fe1a85ec53L;
+
+    /**
+     * Shift of the 64-bit finalizer of MurmurHash3.
+     */
+    private static final int MIX_SHIFT = 33;
+
+    /**
+     * Mask of the low byte.
+     */
+    private static final int BYTE_MASK = 0xff;
+
+    /**
+     * Number of bits of the token hash that select a segment.
+     */
+    private static final int SEGMENT_BITS = 4;
+
+    /**
+     * Minimum number of slabs per segment, so that each segment can hold
+     * several size classes at once.
+     */
+    private static final int MIN_SEGMENT_SLABS = 64;
+
+    /**
+     * Maximum time to live in milliseconds.
+     */
+    private final long maxTtlMillis;
+
+    /**
+     * Refresh-ahead policy, or null when entries are not refreshed ahead.
+     */
+    private final RefreshAheadPolicy refreshAhead;
+
+    /**
+     * Clock used to compute expiry.
+     */
+    private final Clock clock;
+
+    /**
+     * Writer that encodes responses.
+     */
+    private final ObjectWriter writer;
+
+    /**
+     * Reader that decodes responses.
+     */
+    private final ObjectReader reader;
+
+    /**
+     * Segments, each owning its slabs and index under its own lock,
+     * selected by the high bits of the token hash.
+     */
+    private final Segment[] segments;
+
+    /**
+     * Initialize the cache.
+     * @param capacityBytesParam Maximum off-heap memory in bytes, at least
+     *                           one slab
+     * @param maxTtlMillisParam Maximum time to live in milliseconds
+     */
+    public OffHeapUserInfoCache(final long capacityBytesParam,
+                                final long maxTtlMillisParam) {
+        this(capacityBytesParam, maxTtlMillisParam, null, Clock.systemUTC());
+    }
+
+    /**
+     * Initialize the cache with a refresh-ahead policy.
+     * @param capacityBytesParam Maximum off-heap memory in bytes, at least
+     *                           one slab
+     * @param maxTtlMillisParam Maximum time to live in milliseconds
+     * @param refreshAheadParam Refresh-ahead policy
+     */
+    public OffHeapUserInfoCache(final long capacityBytesParam,
+                                final long maxTtlMillisParam,
+                                final RefreshAheadPolicy refreshAheadParam) {
+        this(capacityBytesParam, maxTtlMillisParam, refreshAheadParam,
+                Clock.systemUTC());
+    }
+
+    /**
+     * Initialize the cache with a refresh-ahead policy and a custom clock.
+     * @param capacityBytesParam Maximum off-heap memory in bytes, at least
+     *                           one slab
+     * @param maxTtlMillisParam Maximum time to live in milliseconds
+     * @param refreshAheadParam Refresh-ahead policy, or null for none
+     * @param clockParam Clock used to compute expiry
+     */
+    public OffHeapUserInfoCache(final long capacityBytesParam,
+                                final long maxTtlMillisParam,
+                                final RefreshAheadPolicy refreshAheadParam,
+                                final Clock clockParam) {
+        if (capacityBytesParam < SLAB_SIZE) {
+            throw new IllegalArgumentException(
+                    "capacityBytes must be at least " + SLAB_SIZE);
+        }
+        if (maxTtlMillisParam <= 0) {
+            throw new IllegalArgumentException(
+                    "maxTtlMillis must be positive");
+        }
+        int maxSlabs = (int) Math.min(Integer.MAX_VALUE,
+                capacityBytesParam / SLAB_SIZE);
+        this.maxTtlMillis = maxTtlMillisParam;
+        this.refreshAhead = refreshAheadParam;
+        this.clock = clockParam;
+        ObjectMapper mapper = new ObjectMapper();
+        this.writer = mapper.writerFor(UserInfoResponse.class);
+        this.reader = mapper.readerFor(UserInfoResponse.class);
+        int segmentCount = Math.min(1 << SEGMENT_BITS, Integer.highestOneBit(
+                Math.max(1, maxSlabs / MIN_SEGMENT_SLABS)));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(maxSlabs / segmentCount
+                    + (i < maxSlabs % segmentCount ? 1 : 0));
+        }
+    }
+
+    @Override
+    public UserInfoResponse get(final String accessTokenParam) {
+        return decode(read(accessTokenParam, false));
+    }
+
+    @Override
+    public boolean isRefreshDue(final String accessTokenParam) {
+        byte[] token = encodeToken(accessTokenParam);
+        long hash = hash(token);
+        return segmentFor(hash).isRefreshDue(token, hash);
+    }
+
+    @Override
+    public UserInfoResponse getStale(final String accessTokenParam) {
+        return decode(read(accessTokenParam, true));
+    }
+
+    @Override
+    public void put(final String accessTokenParam,
+                    final UserInfoResponse responseParam) {
+        long ttl = UserInfoCache.ttlMillis(responseParam, maxTtlMillis);
+        if (ttl <= 0) {
+            return;
+        }
+        byte[] bytes;
+        try {
+            bytes = writer.writeValueAsBytes(responseParam);
+        } catch (JsonProcessingException e) {
+            return;
+        }
+        long now = clock.millis();
+        long sessionEndsAt = now + TimeUnit.SECONDS.toMillis(
+                responseParam.getSession().getRemainingSeconds());
+        store(accessTokenParam, bytes, now, now + ttl, sessionEndsAt);
+    }
+
+    /**
+     * Write the live entries to a memory-mapped snapshot file, replacing any
+     * existing file. Entries are copied in their encoded form with their
+     * absolute expiry. The file contains access tokens and is created
+     * readable by its owner only where the file system supports it.
+     * @param pathParam The snapshot file
+     * @return Number of entries written
+     * @throws IOException When the file cannot be written
+     */
+    public int snapshot(final Path pathParam) throws IOException {
+        List<CacheSnapshot.Record> records = new ArrayList<>();
+        long now = clock.millis();
+        for (Segment segment : segments) {
+            segment.collect(records, now);
+        }
+        CacheSnapshot.write(pathParam, records);
+        return records.size();
+    }
+
+    /**
+     * Load the entries of a snapshot file written by {@link #snapshot(Path)}
+     * or {@link InMemoryUserInfoCache#snapshot(Path)}. Entries that expired
+     * since are dropped, and the others keep their absolute expiry, bounded
+     * by this cache's maximum time to live. Responses are stored without
+     * being decoded.
+     * @param pathParam The snapshot file
+     * @return Number of entries loaded
+     * @throws IOException When the file cannot be read or is malformed
+     */
+    public int restore(final Path pathParam) throws IOException {
+        long now = clock.millis();
+        return CacheSnapshot.read(pathParam, now,
+                (token, bytes, expiresAt, sessionEndsAt) -> store(
+                        token, bytes, now,
+                        Math.min(expiresAt, now + maxTtlMillis),
+                        sessionEndsAt));
+    }
+
+    @Override
+    public void invalidate(final String accessTokenParam) {
+        byte[] token = encodeToken(accessTokenParam);
+        long hash = hash(token);
+        segmentFor(hash).invalidate(token, hash);
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Get the off-heap memory reserved by allocated slabs.
+     * @return Reserved direct memory in bytes
+     */
+    public long getOffHeapBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.getOffHeapBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Get the size of the entries stored off-heap, access tokens included,
+     * excluding unused space at the end of their chunks.
+     * @return Stored bytes
+     */
+    public long getOffHeapUsedBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.getOffHeapUsedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Get the heap memory used by the index and the slab bookkeeping
+     * arrays, excluding object headers. The index grows in powers of two
+     * and is not shrunk when entries are removed.
+     * @return Heap bytes
+     */
+    public long getHeapBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.getHeapBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Encode an access token to the bytes stored with its entry.
+     * @param accessTokenParam The access token
+     * @return The token in UTF-8
+     */
+    private static byte[] encodeToken(final String accessTokenParam) {
+        return accessTokenParam.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Hash a token with FNV-1a, mixed with the MurmurHash3 finalizer so
+     * that the high bits used to pick a segment and the low bits used to
+     * pick a slot depend on every byte.
+     * @param tokenParam The token in UTF-8
+     * @return The 64-bit hash
+     */
+    private static long hash(final byte[] tokenParam) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : tokenParam) {
+            hash ^= b & BYTE_MASK;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> MIX_SHIFT;
+        hash *= MIX_MULTIPLIER_1;
+        hash ^= hash >>> MIX_SHIFT;
+        hash *= MIX_MULTIPLIER_2;
+        hash ^= hash >>> MIX_SHIFT;
+        return hash;
+    }
+
+    /**
+     * Find the segment of a token.
+     * @param hashParam The token hash
+     * @return The segment
+     */
+    private Segment segmentFor(final long hashParam) {
+        return segments[(int) (hashParam >>> (Long.SIZE - SEGMENT_BITS))
+                & (segments.length - 1)];
+    }
+
+    /**
+     * Copy an entry's encoded response out of its segment.
+     * @param accessTokenParam The access token
+     * @param staleParam Whether to read an expired entry within its grace
+     *                   window instead of a live one
+     * @return The encoded response, or null when there is none to serve
+     */
+    private Hit read(final String accessTokenParam,
+                     final boolean staleParam) {
+        byte[] token = encodeToken(accessTokenParam);
+        long hash = hash(token);
+        return segmentFor(hash).read(token, hash, staleParam);
+    }
+
+    /**
+     * Decode an encoded response, dropping entries that cannot be decoded.
+     * The session's remaining life is brought up to date.
+     * @param hitParam The encoded response, or null
+     * @return The response, or null
+     */
+    private UserInfoResponse decode(final Hit hitParam) {
+        if (hitParam == null) {
+            return null;
+        }
+        UserInfoResponse response;
+        try {
+            response = reader.readValue(hitParam.bytes);
+        } catch (IOException e) {
+            hitParam.segment.discard(hitParam);
+            return null;
+        }
+        if (response != null && response.getSession() != null) {
+            response.getSession().setRemainingSeconds(
+                    UserInfoCache.remainingSeconds(
+                            hitParam.sessionEndsAtMillis, clock.millis()));
+        }
+        return response;
+    }
+
+    /**
+     * Store an encoded response in its segment, replacing any entry for the
+     * same token.
+     * @param accessTokenParam The access token
+     * @param bytesParam The encoded response
+     * @param nowParam Current time in epoch milliseconds
+     * @param expiresAtParam Expiry in epoch milliseconds
+     * @param sessionEndsAtParam Session end in epoch milliseconds
+     * @return False when the entry is larger than a slab and was not stored
+     */
+    private boolean store(final String accessTokenParam,
+                          final byte[] bytesParam, final long nowParam,
+                          final long expiresAtParam,
+                          final long sessionEndsAtParam) {
+        byte[] token = encodeToken(accessTokenParam);
+        long hash = hash(token);
+        return segmentFor(hash).store(token, hash, bytesParam, nowParam,
+                expiresAtParam, sessionEndsAtParam);
+    }
+
+    /**
+     * Part of the cache with its own slabs, index and lock. The index
+     * arrays are indexed by entry number.
+     */
+    private final class Segment {
+        /**
+         * Maximum number of slabs of this segment.
+         */
+        private final int maxSlabs;
+
+        /**
+         * Size classes, smallest chunk size first.
+         */
+        private final SizeClass[] sizeClasses;
+
+        /**
+         * Allocated slabs by slab number.
+         */
+        private final List<Slab> slabs = new ArrayList<>();
+
+        /**
+         * Open-addressing hash table of entry numbers plus one, with 0 marking
+         * an empty slot, probed linearly from the low bits of the token hash.
+         */
+        private int[] table = new int[0];
+
+        /**
+         * Token hash per entry number.
+         */
+        private long[] hashes = new long[0];
+
+        /**
+         * Slab number per entry number.
+         */
+        private int[] slabNumbers = new int[0];
+
+        /**
+         * Chunk number within its slab per entry number.
+         */
+        private int[] chunks = new int[0];
+
+        /**
+         * Refresh point in epoch milliseconds per entry number.
+         */
+        private long[] refreshAtMillis = new long[0];
+
+        /**
+         * Expiry in epoch milliseconds per entry number.
+         */
+        private long[] expiresAtMillis = new long[0];
+
+        /**
+         * End of the grace window in epoch milliseconds per entry number.
+         */
+        private long[] staleUntilMillis = new long[0];
+
+        /**
+         * Session end in epoch milliseconds per entry number.
+         */
+        private long[] sessionEndsAtMillis = new long[0];
+
+        /**
+         * Version per entry number, bumped when the number is released so that
+         * a hit read before can tell its entry is gone.
+         */
+        private int[] versions = new int[0];
+
+        /**
+         * Whether a caller has taken on refreshing the entry, per entry number.
+         */
+        private boolean[] refreshClaimed = new boolean[0];
+
+        /**
+         * Binary min-heap of entry numbers ordered by the end of their grace
+         * window, so that discardable entries are found without a scan.
+         */
+        private int[] expiryHeap = new int[0];
+
+        /**
+         * Position in {@link #expiryHeap} per entry number.
+         */
+        private int[] heapPositions = new int[0];
+
+        /**
+         * Stack of unused entry numbers.
+         */
+        private int[] freeEntries = new int[0];
+
+        /**
+         * Number of unused entry numbers.
+         */
+        private int freeEntryCount;
+
+        /**
+         * Number of entries.
+         */
+        private int count;
+
+        /**
+         * Bytes of entries stored off-heap.
+         */
+        private long storedBytes;
+
+        /**
+         * Constructor with parameters.
+         * @param maxSlabsParam Maximum number of slabs of this segment
+         */
+        Segment(final int maxSlabsParam) {
+            this.maxSlabs = maxSlabsParam;
+            int classes = Integer.numberOfTrailingZeros(
+                    SLAB_SIZE / MIN_CHUNK_SIZE) + 1;
+            this.sizeClasses = new SizeClass[classes];
+            for (int i = 0; i < classes; i++) {
+                sizeClasses[i] = new SizeClass(MIN_CHUNK_SIZE << i);
+            }
+        }
+
+        /**
+         * Claim the refresh of an entry when it is due.
+         * @param tokenParam The token in UTF-8
+         * @param hashParam The token hash
+         * @return True when the caller owns the refresh
+         */
+        synchronized boolean isRefreshDue(final byte[] tokenParam,
+                                          final long hashParam) {
+            int entry = find(tokenParam, hashParam);
+            if (entry < 0) {
+                return false;
+            }
+            long now = clock.millis();
+            if (refreshClaimed[entry] || now < refreshAtMillis[entry]
+                    || now >= expiresAtMillis[entry]) {
+                return false;
+            }
+            refreshClaimed[entry] = true;
+            return true;
+        }
+
+        /**
+         * Add the live entries to a snapshot.
+         * @param recordsParam Receives the records
+         * @param nowParam Current time in epoch milliseconds
+         */
+        synchronized void collect(final List<CacheSnapshot.Record> recordsParam,
+                                  final long nowParam) {
+            for (int slot = 0; slot < table.length; slot++) {
+                int entry = table[slot] - 1;
+                if (entry >= 0 && nowParam < expiresAtMillis[entry]) {
+                    recordsParam.add(new CacheSnapshot.Record(copyToken(entry),
+                            copyResponse(entry), expiresAtMillis[entry],
+                            sessionEndsAtMillis[entry]));
+                }
+            }
+        }
+
+        /**
+         * Remove the entry for a token.
+         * @param tokenParam The token in UTF-8
+         * @param hashParam The token hash
+         */
+        synchronized void invalidate(final byte[] tokenParam,
+                                     final long hashParam) {
+            int entry = find(tokenParam, hashParam);
+            if (entry >= 0) {
+                remove(entry);
+            }
+        }
+
+        /**
+         * Remove all entries.
+         */
+        synchronized void clear() {
+            while (count > 0) {
+                remove(expiryHeap[0]);
+            }
+        }
+
+        /**
+         * Get the number of entries.
+         * @return Number of entries
+         */
+        synchronized int size() {
+            return count;
+        }
+
+        /**
+         * Get the off-heap memory reserved by allocated slabs.
+         * @return Reserved direct memory in bytes
+         */
+        synchronized long getOffHeapBytes() {
+            return (long) slabs.size() * SLAB_SIZE;
+        }
+
+        /**
+         * Get the size of the entries stored off-heap.
+         * @return Stored bytes
+         */
+        synchronized long getOffHeapUsedBytes() {
+            return storedBytes;
+        }
+
+        /**
+         * Get the heap memory used by the index and the slab bookkeeping
+         * arrays.
+         * @return Heap bytes
+         */
+        synchronized long getHeapBytes() {
+            long bytes = (long) table.length * Integer.BYTES
+                    + (long) hashes.length * ENTRY_HEAP_BYTES;
+            for (Slab slab : slabs) {
+                bytes += (long) slab.owners.length * CHUNK_HEAP_BYTES;
+            }
+            return bytes;
+        }
+
+        /**
+         * Copy an entry's encoded response out of its slab.
+         * @param tokenParam The token in UTF-8
+         * @param hashParam The token hash
+         * @param staleParam Whether to read an expired entry within its grace
+         *                   window instead of a live one
+         * @return The encoded response, or null when there is none to serve
+         */
+        synchronized Hit read(final byte[] tokenParam, final long hashParam,
+                              final boolean staleParam) {
+            int entry = find(tokenParam, hashParam);
+            if (entry < 0) {
+                return null;
+            }
+            long now = clock.millis();
+            if (now >= staleUntilMillis[entry]) {
+                remove(entry);
+                return null;
+            }
+            if ((now >= expiresAtMillis[entry]) != staleParam) {
+                return null;
+            }
+            return new Hit(this, entry, versions[entry], copyResponse(entry),
+                    sessionEndsAtMillis[entry]);
+        }
+
+        /**
+         * Remove an entry that could not be decoded, unless it was replaced or
+         * removed since it was read.
+         * @param hitParam The hit read from the entry
+         */
+        synchronized void discard(final Hit hitParam) {
+            if (versions[hitParam.entry] == hitParam.version) {
+                remove(hitParam.entry);
+            }
+        }
+
+        /**
+         * Store an encoded response, replacing any entry for the same token.
+         * @param tokenParam The token in UTF-8
+         * @param hashParam The token hash
+         * @param bytesParam The encoded response
+         * @param nowParam Current time in epoch milliseconds
+         * @param expiresAtParam Expiry in epoch milliseconds
+         * @param sessionEndsAtParam Session end in epoch milliseconds
+         * @return False when the entry is larger than a slab and was not stored
+         */
+        synchronized boolean store(final byte[] tokenParam,
+                                   final long hashParam,
+                                   final byte[] bytesParam,
+                                   final long nowParam,
+                                   final long expiresAtParam,
+                                   final long sessionEndsAtParam) {
+            int existing = find(tokenParam, hashParam);
+            if (existing >= 0) {
+                remove(existing);
+            }
+            long length = (long) HEADER_SIZE + tokenParam.length
+                    + bytesParam.length;
+            if (length > SLAB_SIZE) {
+                return false;
+            }
+            SizeClass sizeClass = sizeClassFor((int) length);
+            Slab slab = allocate(sizeClass);
+            int chunk = slab.free[--slab.freeCount];
+            ByteBuffer buffer = slab.buffer;
+            buffer.position(chunk * sizeClass.chunkSize);
+            buffer.putInt(tokenParam.length);
+            buffer.putInt(bytesParam.length);
+            buffer.put(tokenParam);
+            buffer.put(bytesParam);
+            int entry = newEntry();
+            slab.owners[chunk] = entry + 1;
+            hashes[entry] = hashParam;
+            slabNumbers[entry] = slab.number;
+            chunks[entry] = chunk;
+            expiresAtMillis[entry] = expiresAtParam;
+            sessionEndsAtMillis[entry] = sessionEndsAtParam;
+            refreshClaimed[entry] = false;
+            if (refreshAhead == null) {
+                refreshAtMillis[entry] = expiresAtParam;
+                staleUntilMillis[entry] = expiresAtParam;
+            } else {
+                refreshAtMillis[entry] = nowParam
+                        + (long) ((expiresAtParam - nowParam)
+                                * refreshAhead.getRefreshFraction());
+                staleUntilMillis[entry] = Math.min(sessionEndsAtParam,
+                        expiresAtParam + refreshAhead.getStaleGraceMillis());
+            }
+            insert(entry);
+            heapPositions[entry] = count;
+            expiryHeap[count] = entry;
+            count++;
+            siftUp(heapPositions[entry]);
+            storedBytes += length;
+            return true;
+        }
+
+        /**
+         * Find the entry for a token, comparing the stored token of every
+         * entry with the same hash.
+         * @param tokenParam The token in UTF-8
+         * @param hashParam The token hash
+         * @return The entry number, or -1 when absent
+         */
+        private int find(final byte[] tokenParam, final long hashParam) {
+            if (count == 0) {
+                return -1;
+            }
+            int mask = table.length - 1;
+            for (int slot = (int) hashParam & mask; table[slot] != 0;
+                 slot = (slot + 1) & mask) {
+                int entry = table[slot] - 1;
+                if (hashes[entry] == hashParam
+                        && tokenEquals(entry, tokenParam)) {
+                    return entry;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Compare the token stored with an entry.
+         * @param entryParam The entry number
+         * @param tokenParam The token in UTF-8
+         * @return True when the stored token is the same
+         */
+        private boolean tokenEquals(final int entryParam,
+                                    final byte[] tokenParam) {
+            Slab slab = slabs.get(slabNumbers[entryParam]);
+            int offset = chunks[entryParam] * slab.chunkSize;
+            if (slab.buffer.getInt(offset) != tokenParam.length) {
+                return false;
+            }
+            offset += HEADER_SIZE;
+            for (int i = 0; i < tokenParam.length; i++) {
+                if (slab.buffer.get(offset + i) != tokenParam[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Copy the token stored with an entry out of its slab.
+         * @param entryParam The entry number
+         * @return The token in UTF-8
+         */
+        private byte[] copyToken(final int entryParam) {
+            Slab slab = slabs.get(slabNumbers[entryParam]);
+            ByteBuffer buffer = slab.buffer;
+            int offset = chunks[entryParam] * slab.chunkSize;
+            byte[] token = new byte[buffer.getInt(offset)];
+            buffer.position(offset + HEADER_SIZE);
+            buffer.get(token);
+            return token;
+        }
+
+        /**
+         * Copy an entry's encoded response out of its slab.
+         * @param entryParam The entry number
+         * @return The encoded response
+         */
+        private byte[] copyResponse(final int entryParam) {
+            Slab slab = slabs.get(slabNumbers[entryParam]);
+            ByteBuffer buffer = slab.buffer;
+            int offset = chunks[entryParam] * slab.chunkSize;
+            int tokenLength = buffer.getInt(offset);
+            byte[] bytes = new byte[buffer.getInt(offset + Integer.BYTES)];
+            buffer.position(offset + HEADER_SIZE + tokenLength);
+            buffer.get(bytes);
+            return bytes;
+        }
+
+        /**
+         * Take an unused entry number, growing the per-entry arrays and the
+         * hash table when needed.
+         * @return The entry number
+         */
+        private int newEntry() {
+            if (freeEntryCount == 0) {
+                growEntries();
+            }
+            if (2 * (count + 1) > table.length) {
+                rehash(Math.max(INITIAL_SLOTS, 2 * table.length));
+            }
+            return freeEntries[--freeEntryCount];
+        }
+
+        /**
+         * Double the capacity of the per-entry arrays and push the new entry
+         * numbers on the free stack, which is empty.
+         */
+        private void growEntries() {
+            int capacity = hashes.length;
+            int grown = Math.max(INITIAL_SLOTS / 2, 2 * capacity);
+            hashes = Arrays.copyOf(hashes, grown);
+            slabNumbers = Arrays.copyOf(slabNumbers, grown);
+            chunks = Arrays.copyOf(chunks, grown);
+            refreshAtMillis = Arrays.copyOf(refreshAtMillis, grown);
+            expiresAtMillis = Arrays.copyOf(expiresAtMillis, grown);
+            staleUntilMillis = Arrays.copyOf(staleUntilMillis, grown);
+            sessionEndsAtMillis = Arrays.copyOf(sessionEndsAtMillis, grown);
+            versions = Arrays.copyOf(versions, grown);
+            refreshClaimed = Arrays.copyOf(refreshClaimed, grown);
+            expiryHeap = Arrays.copyOf(expiryHeap, grown);
+            heapPositions = Arrays.copyOf(heapPositions, grown);
+            freeEntries = new int[grown];
+            for (int entry = grown - 1; entry >= capacity; entry--) {
+                freeEntries[freeEntryCount++] = entry;
+            }
+        }
+
+        /**
+         * Rebuild the hash table with more slots.
+         * @param slotsParam Number of slots, a power of two
+         */
+        private void rehash(final int slotsParam) {
+            int[] old = table;
+            table = new int[slotsParam];
+            for (int slot : old) {
+                if (slot != 0) {
+                    insert(slot - 1);
+                }
+            }
+        }
+
+        /**
+         * Put an entry in the first empty slot from its hash.
+         * @param entryParam The entry number
+         */
+        private void insert(final int entryParam) {
+            int mask = table.length - 1;
+            int slot = (int) hashes[entryParam] & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = entryParam + 1;
+        }
+
+        /**
+         * Take an entry out of the hash table, shifting the entries probed
+         * after it back so that no tombstone is left.
+         * @param entryParam The entry number
+         */
+        private void unlink(final int entryParam) {
+            int mask = table.length - 1;
+            int hole = (int) hashes[entryParam] & mask;
+            while (table[hole] != entryParam + 1) {
+                hole = (hole + 1) & mask;
+            }
+            table[hole] = 0;
+            for (int slot = (hole + 1) & mask; table[slot] != 0;
+                 slot = (slot + 1) & mask) {
+                int home = (int) hashes[table[slot] - 1] & mask;
+                if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                    table[hole] = table[slot];
+                    table[slot] = 0;
+                    hole = slot;
+                }
+            }
+        }
+
+        /**
+         * Move an entry up the expiry heap until its parent ends its grace
+         * window no later.
+         * @param positionParam Position of the entry in the heap
+         */
+        private void siftUp(final int positionParam) {
+            int position = positionParam;
+            int entry = expiryHeap[position];
+            while (position > 0) {
+                int parent = (position - 1) / 2;
+                if (staleUntilMillis[expiryHeap[parent]]
+                        <= staleUntilMillis[entry]) {
+                    break;
+                }
+                placeInHeap(expiryHeap[parent], position);
+                position = parent;
+            }
+            placeInHeap(entry, position);
+        }
+
+        /**
+         * Move an entry down the expiry heap until its children end their
+         * grace window no earlier.
+         * @param positionParam Position of the entry in the heap
+         */
+        private void siftDown(final int positionParam) {
+            int position = positionParam;
+            int entry = expiryHeap[position];
+            while (2 * position + 1 < count) {
+                int child = 2 * position + 1;
+                if (child + 1 < count && staleUntilMillis[expiryHeap[child + 1]]
+                        < staleUntilMillis[expiryHeap[child]]) {
+                    child++;
+                }
+                if (staleUntilMillis[entry]
+                        <= staleUntilMillis[expiryHeap[child]]) {
+                    break;
+                }
+                placeInHeap(expiryHeap[child], position);
+                position = child;
+            }
+            placeInHeap(entry, position);
+        }
+
+        /**
+         * Put an entry at a position of the expiry heap.
+         * @param entryParam The entry number
+         * @param positionParam Position in the heap
+         */
+        private void placeInHeap(final int entryParam,
+                                 final int positionParam) {
+            expiryHeap[positionParam] = entryParam;
+            heapPositions[entryParam] = positionParam;
+        }
+
+        /**
+         * Find the smallest size class that fits an entry.
+         * @param lengthParam Entry length in bytes
+         * @return The size class
+         */
+        private SizeClass sizeClassFor(final int lengthParam) {
+            int i = 0;
+            while (sizeClasses[i].chunkSize < lengthParam) {
+                i++;
+            }
+            return sizeClasses[i];
+        }
+
+        /**
+         * Find a slab with a free chunk in a size class, allocating a slab or
+         * evicting entries when needed.
+         * @param sizeClassParam The size class
+         * @return A slab with at least one free chunk
+         */
+        private Slab allocate(final SizeClass sizeClassParam) {
+            Slab slab = sizeClassParam.slabWithFreeChunk();
+            if (slab != null) {
+                return slab;
+            }
+            if (slabs.size() < maxSlabs) {
+                slab = new Slab(ByteBuffer.allocateDirect(SLAB_SIZE),
+                        slabs.size(), sizeClassParam.chunkSize);
+                slabs.add(slab);
+                sizeClassParam.slabs.add(slab);
+                return slab;
+            }
+            removeDiscardable(clock.millis());
+            slab = sizeClassParam.slabWithFreeChunk();
+            if (slab != null) {
+                return slab;
+            }
+            if (sizeClassParam.slabs.isEmpty()) {
+                // Every slab belongs to other size classes; take one over
+                SizeClass donor = largestSizeClass();
+                Slab taken = donor.slabs.remove(donor.slabs.size() - 1);
+                for (int owner : taken.owners) {
+                    if (owner != 0) {
+                        remove(owner - 1);
+                    }
+                }
+                slab = new Slab(taken.buffer, taken.number,
+                        sizeClassParam.chunkSize);
+                slabs.set(taken.number, slab);
+                sizeClassParam.slabs.add(slab);
+                return slab;
+            }
+            evictBatch(sizeClassParam);
+            return sizeClassParam.slabWithFreeChunk();
+        }
+
+        /**
+         * Remove the entries past their grace window, earliest first, in time
+         * proportional to the number removed.
+         * @param nowParam Current time in epoch milliseconds
+         */
+        private void removeDiscardable(final long nowParam) {
+            while (count > 0 && nowParam >= staleUntilMillis[expiryHeap[0]]) {
+                remove(expiryHeap[0]);
+            }
+        }
+
+        /**
+         * Reclaim a batch of chunks in a size class, continuing round-robin
+         * from where the previous batch stopped.
+         * @param sizeClassParam The size class
+         */
+        private void evictBatch(final SizeClass sizeClassParam) {
+            int chunksPerSlab = SLAB_SIZE / sizeClassParam.chunkSize;
+            int total = sizeClassParam.slabs.size() * chunksPerSlab;
+            int batch = Math.max(1, total / EVICTION_BATCH_DIVISOR);
+            for (int i = 0; i < batch; i++) {
+                int position = sizeClassParam.hand++ % total;
+                Slab slab = sizeClassParam.slabs.get(position / chunksPerSlab);
+                int owner = slab.owners[position % chunksPerSlab];
+                if (owner != 0) {
+                    remove(owner - 1);
+                }
+            }
+            sizeClassParam.hand %= total;
+        }
+
+        /**
+         * Find the size class with the most slabs.
+         * @return The size class
+         */
+        private SizeClass largestSizeClass() {
+            SizeClass largest = sizeClasses[0];
+            for (SizeClass sizeClass : sizeClasses) {
+                if (sizeClass.slabs.size() > largest.slabs.size()) {
+                    largest = sizeClass;
+                }
+            }
+            return largest;
+        }
+
+        /**
+         * Remove an entry from the index, free its chunk and release its
+         * number.
+         * @param entryParam The entry number
+         */
+        private void remove(final int entryParam) {
+            unlink(entryParam);
+            int position = heapPositions[entryParam];
+            count--;
+            if (position < count) {
+                int moved = expiryHeap[count];
+                placeInHeap(moved, position);
+                siftDown(position);
+                siftUp(heapPositions[moved]);
+            }
+            Slab slab = slabs.get(slabNumbers[entryParam]);
+            int chunk = chunks[entryParam];
+            int offset = chunk * slab.chunkSize;
+            storedBytes -= HEADER_SIZE + slab.buffer.getInt(offset)
+                    + slab.buffer.getInt(offset + Integer.BYTES);
+            slab.owners[chunk] = 0;
+            slab.free[slab.freeCount++] = chunk;
+            versions[entryParam]++;
+            freeEntries[freeEntryCount++] = entryParam;
+        }
+    }
+
+    /**
+     * Slabs of one chunk size.
+     */
+    private static final class SizeClass {
+        /**
+         * Chunk size in bytes.
+         */
+        private final int chunkSize;
+
+        /**
+         * Slabs of this class.
+         */
+        private final List<Slab> slabs = new ArrayList<>();
+
+        /**
+         * Next chunk position to reclaim on eviction.
+         */
+        private int hand;
+
+        /**
+         * Constructor with parameters.
+         * @param chunkSizeParam Chunk size in bytes
+         */
+        SizeClass(final int chunkSizeParam) {
+            this.chunkSize = chunkSizeParam;
+        }
+
+        /**
+         * Find a slab with a free chunk.
+         * @return The slab, or null when every chunk is in use
+         */
+        Slab slabWithFreeChunk() {
+            for (int i = slabs.size() - 1; i >= 0; i--) {
+                if (slabs.get(i).freeCount > 0) {
+                    return slabs.get(i);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A direct buffer carved into equal chunks. Each chunk holds the token
+     * length, the response length, the token and the response.
+     */
+    private static final class Slab {
+        /**
+         * The direct buffer.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * Slab number within its segment.
+         */
+        private final int number;
+
+        /**
+         * Chunk size in bytes.
+         */
+        private final int chunkSize;
+
+        /**
+         * Entry number plus one stored in each chunk, or 0 when free.
+         */
+        private final int[] owners;
+
+        /**
+         * Stack of free chunk numbers.
+         */
+        private final int[] free;
+
+        /**
+         * Number of free chunks.
+         */
+        private int freeCount;
+
+        /**
+         * Carve a buffer into chunks.
+         * @param bufferParam Direct buffer of {@link #SLAB_SIZE} bytes
+         * @param numberParam Slab number within its segment
+         * @param chunkSizeParam Chunk size in bytes
+         */
+        Slab(final ByteBuffer bufferParam, final int numberParam,
+             final int chunkSizeParam) {
+            this.buffer = bufferParam;
+            this.number = numberParam;
+            this.chunkSize = chunkSizeParam;
+            int chunkCount = SLAB_SIZE / chunkSizeParam;
+            this.owners = new int[chunkCount];
+            this.free = new int[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                free[i] = chunkCount - 1 - i;
+            }
+            this.freeCount = chunkCount;
+        }
+    }
+
+    /**
+     * Encoded response copied out of the cache, with the entry it was read
+     * from.
+     */
+    private static final class Hit {
+        /**
+         * Segment of the entry that was read.
+         */
+        private final Segment segment;
+
+        /**
+         * Number of the entry that was read.
+         */
+        private final int entry;
+
+        /**
+         * Version of the entry number when it was read.
+         */
+        private final int version;
+
+        /**
+         * The encoded response.
+         */
+        private final byte[] bytes;
+
+        /**
+         * Session end in epoch milliseconds.
+         */
+        private final long sessionEndsAtMillis;
+
+        /**
+         * Constructor with parameters.
+         * @param segmentParam Segment of the entry that was read
+         * @param entryParam Number of the entry that was read
+         * @param versionParam Version of the entry number
+         * @param bytesParam The encoded response
+         * @param sessionEndsAtMillisParam Session end in epoch milliseconds
+         */
+        Hit(final Segment segmentParam, final int entryParam,
+            final int versionParam, final byte[] bytesParam,
+            final long sessionEndsAtMillisParam) {
+            this.segment = segmentParam;
+            this.entry = entryParam;
+            this.version = versionParam;
+            this.bytes = bytesParam;
+            this.sessionEndsAtMillis = sessionEndsAtMillisParam;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.authdog.cache;
+
+/**
+ * When a cached userinfo response is refreshed ahead of its expiry, and how
+ * long it may still be served if that refresh fails.
+ *
+ * <p>Once an entry has lived for {@link #getRefreshFraction()} of its time
+ * to live, readers keep getting it while the client refetches it in the
+ * background. After expiry, the entry is kept for
+ * {@link #getStaleGraceMillis()} so that a refetch failing with an
+ * {@link com.authdog.exceptions.ApiException} can fall back to it. The
+ * grace window never extends past the end of the session.</p>
+ */
+public final class RefreshAheadPolicy {
+    /**
+     * Fraction of the time to live after which an entry is refreshed.
+     */
+    private final double refreshFraction;
+
+    /**
+     * Time an expired entry may still be served on refresh failure, in
+     * milliseconds.
+     */
+    private final long staleGraceMillis;
+
+    /**
+     * Constructor with parameters.
+     * @param refreshFractionParam Fraction of the time to live after which
+     *                             an entry is refreshed, between 0 and 1
+     *                             exclusive
+     * @param staleGraceMillisParam Time an expired entry may still be served
+     *                              on refresh failure, in milliseconds
+     */
+    public RefreshAheadPolicy(final double refreshFractionParam,
+                              final long staleGraceMillisParam) {
+        if (!(refreshFractionParam > 0 && refreshFractionParam < 1)) {
+            throw new IllegalArgumentException(
+                    "refreshFraction must be between 0 and 1");
+        }
+        if (staleGraceMillisParam < 0) {
+            throw new IllegalArgumentException(
+                    "staleGraceMillis must not be negative");
+        }
+        this.refreshFraction = refreshFractionParam;
+        this.staleGraceMillis = staleGraceMillisParam;
+    }
+
+    /**
+     * Get the fraction of the time to live after which an entry is
+     * refreshed.
+     * @return Fraction between 0 and 1 exclusive
+     */
+    public double getRefreshFraction() {
+        return refreshFraction;
+    }
+
+    /**
+     * Get the time an expired entry may still be served on refresh failure.
+     * @return Grace window in milliseconds
+     */
+    public long getStaleGraceMillis() {
+        return staleGraceMillis;
+    }
+}
@@ -0,0 +1,161 @@
+package com.authdog.cache;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded in-process cache of access tokens recently rejected by the API.
+ *
+ * <p>Lets a client answer repeated lookups of a rejected token locally, so
+ * that a caller retrying an invalid token does not forward every attempt.
+ * Entries expire after a short fixed time to live. When the cache is full,
+ * expired entries are evicted first and then arbitrary entries until a small
+ * batch of room is free again.</p>
+ */
+public final class RejectedTokenCache {
+    /**
+     * Fraction of the capacity freed by one eviction pass, as a divisor, so
+     * that the full sweep is amortized over many insertions.
+     */
+    private static final int EVICTION_BATCH_DIVISOR = 16;
+
+    /**
+     * Maximum number of entries.
+     */
+    private final int maxEntries;
+
+    /**
+     * Time to live in milliseconds.
+     */
+    private final long ttlMillis;
+
+    /**
+     * Clock used to compute expiry.
+     */
+    private final Clock clock;
+
+    /**
+     * Expiry in epoch milliseconds by access token.
+     */
+    private final ConcurrentHashMap<String, Long> entries;
+
+    /**
+     * Number of lookups answered from the cache.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Initialize the cache.
+     * @param maxEntriesParam Maximum number of entries
+     * @param ttlMillisParam Time to live in milliseconds
+     */
+    public RejectedTokenCache(final int maxEntriesParam,
+                              final long ttlMillisParam) {
+        this(maxEntriesParam, ttlMillisParam, Clock.systemUTC());
+    }
+
+    /**
+     * Initialize the cache with a custom clock.
+     * @param maxEntriesParam Maximum number of entries
+     * @param ttlMillisParam Time to live in milliseconds
+     * @param clockParam Clock used to compute expiry
+     */
+    public RejectedTokenCache(final int maxEntriesParam,
+                              final long ttlMillisParam,
+                              final Clock clockParam) {
+        if (maxEntriesParam <= 0) {
+            throw new IllegalArgumentException(
+                    "maxEntries must be positive");
+        }
+        if (ttlMillisParam <= 0) {
+            throw new IllegalArgumentException(
+                    "ttlMillis must be positive");
+        }
+        this.maxEntries = maxEntriesParam;
+        this.ttlMillis = ttlMillisParam;
+        this.clock = clockParam;
+        this.entries = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Check whether an access token was rejected recently. A positive
+     * answer counts as a saved call.
+     * @param accessTokenParam The access token
+     * @return True when the token was rejected within the time to live
+     */
+    public boolean isRejected(final String accessTokenParam) {
+        Long expiresAt = entries.get(accessTokenParam);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (clock.millis() >= expiresAt) {
+            entries.remove(accessTokenParam, expiresAt);
+            return false;
+        }
+        hits.increment();
+        return true;
+    }
+
+    /**
+     * Remember that the API rejected an access token.
+     * @param accessTokenParam The rejected access token
+     */
+    public void reject(final String accessTokenParam) {
+        long now = clock.millis();
+        if (entries.size() >= maxEntries
+                && !entries.containsKey(accessTokenParam)) {
+            evict(now);
+        }
+        entries.put(accessTokenParam, now + ttlMillis);
+    }
+
+    /**
+     * Forget a rejected access token.
+     * @param accessTokenParam The access token
+     */
+    public void invalidate(final String accessTokenParam) {
+        entries.remove(accessTokenParam);
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Get the number of entries, including expired ones not yet evicted.
+     * @return Number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the number of lookups answered locally instead of calling the
+     * API.
+     * @return Saved call count
+     */
+    public long getSavedCallCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Make room for a batch of entries.
+     * @param nowParam Current time in epoch milliseconds
+     */
+    private void evict(final long nowParam) {
+        entries.values().removeIf(expiresAt -> nowParam >= expiresAt);
+        int target = maxEntries
+                - Math.max(1, maxEntries / EVICTION_BATCH_DIVISOR);
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (entries.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.authdog.cache;
+
+import com.authdog.types.Session;
+import com.authdog.types.UserInfoResponse;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of userinfo responses keyed by access token.
+ *
+ * <p>Implementations must be thread-safe and must never return an entry
+ * past its expiry. The session of a returned response reports its
+ * remaining life at the time it is returned, not when it was fetched.</p>
+ */
+public interface UserInfoCache {
+
+    /**
+     * Get a cached response.
+     * @param accessTokenParam The access token the response was fetched with
+     * @return The cached response, or null when absent or expired
+     */
+    UserInfoResponse get(String accessTokenParam);
+
+    /**
+     * Cache a response. Responses without a live session are ignored.
+     * @param accessTokenParam The access token the response was fetched with
+     * @param responseParam The response to cache
+     */
+    void put(String accessTokenParam, UserInfoResponse responseParam);
+
+    /**
+     * Check whether a cached response should be refreshed in the background
+     * while it is still being served. Returns true at most once per cached
+     * response: the caller that sees true owns the refresh, and a refresh
+     * that fails is not retried until the response is replaced.
+     * @param accessTokenParam The access token the response was fetched with
+     * @return True when a live entry is past its refresh point and its
+     *         refresh has not been claimed yet
+     */
+    default boolean isRefreshDue(final String accessTokenParam) {
+        return false;
+    }
+
+    /**
+     * Get an expired response that is still within its grace window, for
+     * use when refetching it failed.
+     * @param accessTokenParam The access token the response was fetched with
+     * @return The stale response, or null when none may be served
+     */
+    default UserInfoResponse getStale(final String accessTokenParam) {
+        return null;
+    }
+
+    /**
+     * Remove the entry for an access token.
+     * @param accessTokenParam The access token to invalidate
+     */
+    void invalidate(String accessTokenParam);
+
+    /**
+     * Remove all entries.
+     */
+    void clear();
+
+    /**
+     * Get the number of entries, including expired ones not yet evicted.
+     * @return Number of entries
+     */
+    int size();
+
+    /**
+     * Compute how long a response may be cached: the earlier of the
+     * configured maximum and the remaining life of its session.
+     * @param responseParam The response to cache
+     * @param maxTtlMillisParam Maximum time to live in milliseconds
+     * @return Time to live in milliseconds, or 0 when it must not be cached
+     */
+    static long ttlMillis(final UserInfoResponse responseParam,
+                          final long maxTtlMillisParam) {
+        Session session = responseParam.getSession();
+        if (session == null || session.getRemainingSeconds() <= 0) {
+            return 0;
+        }
+        return Math.min(maxTtlMillisParam,
+                TimeUnit.SECONDS.toMillis(session.getRemainingSeconds()));
+    }
+
+    /**
+     * Compute the remaining life of a cached session.
+     * @param sessionEndsAtMillisParam Session end in epoch milliseconds,
+     *                                 recorded when the response was cached
+     * @param nowParam Current time in epoch milliseconds
+     * @return Whole seconds left in the session, at least 0
+     */
+    static int remainingSeconds(final long sessionEndsAtMillisParam,
+                                final long nowParam) {
+        return (int) TimeUnit.MILLISECONDS.toSeconds(
+                Math.max(0, sessionEndsAtMillisParam - nowParam));
+    }
+}
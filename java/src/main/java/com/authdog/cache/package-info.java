@@ -0,0 +1,12 @@
+/**
+ * Caching support for the Authdog SDK.
+ *
+ * <p>This package contains the cache abstraction used by
+ * {@link com.authdog.AuthdogClient} to avoid repeated calls to the
+ * userinfo endpoint for the same access token, along with the built-in
+ * cache implementations and a cache of recently rejected tokens.</p>
+ *
+ * @author Authdog Team
+ * @version 0.1.0
+ */
+package com.authdog.cache;
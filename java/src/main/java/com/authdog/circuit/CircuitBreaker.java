@@ -0,0 +1,589 @@
+package com.authdog.circuit;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker driven by the failure and slow-call rates of recent
+ * requests.
+ *
+ * <p>While {@link CircuitState#CLOSED closed}, the outcomes of the last
+ * {@link Builder#windowSize(int)} requests are kept in a sliding window.
+ * Once it holds at least {@link Builder#minimumCalls(int)} outcomes and
+ * either the failure rate or the rate of calls slower than
+ * {@link Builder#slowCallDurationMs(long)} reaches its threshold, the
+ * circuit {@link CircuitState#OPEN opens} and rejects every request for
+ * {@link Builder#openDurationMs(long)}. The next request then moves it to
+ * {@link CircuitState#HALF_OPEN half-open}, where only
+ * {@link Builder#probeCalls(int)} probe requests are let through. When all
+ * probes have completed, the circuit closes with an empty window if their
+ * rates are below the thresholds, and opens again otherwise.</p>
+ *
+ * <p>Every permit returned by {@link #tryAcquire()} must be passed back to
+ * exactly one of {@link #onSuccess(long, long)},
+ * {@link #onFailure(long, long)} or {@link #onIgnored(long)}. A permit
+ * belongs to the state it was granted in: the outcome of a request sent
+ * before the last change of state is dropped, so a slow request admitted
+ * while closed cannot take the place of a half-open probe.</p>
+ */
+public final class CircuitBreaker {
+    /**
+     * Default size of the sliding window.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 100;
+
+    /**
+     * Default number of outcomes needed before the rates are evaluated.
+     */
+    public static final int DEFAULT_MINIMUM_CALLS = 20;
+
+    /**
+     * Default failure rate that opens the circuit.
+     */
+    public static final double DEFAULT_FAILURE_RATE_THRESHOLD = 0.5;
+
+    /**
+     * Default slow-call rate that opens the circuit.
+     */
+    public static final double DEFAULT_SLOW_CALL_RATE_THRESHOLD = 0.8;
+
+    /**
+     * Default duration above which a call is slow, in milliseconds.
+     */
+    public static final long DEFAULT_SLOW_CALL_DURATION_MS = 2_000;
+
+    /**
+     * Default time the circuit stays open, in milliseconds.
+     */
+    public static final long DEFAULT_OPEN_DURATION_MS = 30_000;
+
+    /**
+     * Default number of probe calls while half-open.
+     */
+    public static final int DEFAULT_PROBE_CALLS = 5;
+
+    /**
+     * Value returned by {@link #tryAcquire()} when the request is rejected.
+     */
+    public static final long NOT_PERMITTED = -1;
+
+    /**
+     * Window flag of a failed call.
+     */
+    private static final byte FAILED = 1;
+
+    /**
+     * Window flag of a slow call.
+     */
+    private static final byte SLOW = 2;
+
+    /**
+     * Number of outcomes needed before the rates are evaluated.
+     */
+    private final int minimumCalls;
+
+    /**
+     * Failure rate that opens the circuit.
+     */
+    private final double failureRateThreshold;
+
+    /**
+     * Slow-call rate that opens the circuit.
+     */
+    private final double slowCallRateThreshold;
+
+    /**
+     * Duration above which a call is slow, in nanoseconds.
+     */
+    private final long slowCallNanos;
+
+    /**
+     * Time the circuit stays open, in milliseconds.
+     */
+    private final long openDurationMillis;
+
+    /**
+     * Number of probe calls while half-open.
+     */
+    private final int probeCalls;
+
+    /**
+     * Optional listener of state transitions, null when none.
+     */
+    private final CircuitBreakerListener listener;
+
+    /**
+     * Clock used to time the open state.
+     */
+    private final Clock clock;
+
+    /**
+     * Ring buffer of recent outcome flags.
+     */
+    private final byte[] window;
+
+    /**
+     * Next slot of the ring buffer.
+     */
+    private int next;
+
+    /**
+     * Outcomes held in the window.
+     */
+    private int calls;
+
+    /**
+     * Failed outcomes held in the window.
+     */
+    private int failures;
+
+    /**
+     * Slow outcomes held in the window.
+     */
+    private int slowCalls;
+
+    /**
+     * Current state.
+     */
+    private CircuitState state = CircuitState.CLOSED;
+
+    /**
+     * Time at which an open circuit lets probes through, in epoch
+     * milliseconds.
+     */
+    private long openUntilMillis;
+
+    /**
+     * Probe calls let through since the circuit became half-open.
+     */
+    private int probesStarted;
+
+    /**
+     * Number of changes of state so far, stamped on every permit.
+     */
+    private long generation;
+
+    /**
+     * Requests rejected while the circuit was not closed.
+     */
+    private long notPermitted;
+
+    /**
+     * Constructor with a builder.
+     * @param builderParam The builder
+     */
+    private CircuitBreaker(final Builder builderParam) {
+        this.minimumCalls = builderParam.minimumCalls;
+        this.failureRateThreshold = builderParam.failureRateThreshold;
+        this.slowCallRateThreshold = builderParam.slowCallRateThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(
+                builderParam.slowCallDurationMs);
+        this.openDurationMillis = builderParam.openDurationMs;
+        this.probeCalls = builderParam.probeCalls;
+        this.listener = builderParam.listener;
+        this.clock = builderParam.clock;
+        this.window = new byte[builderParam.windowSize];
+    }
+
+    /**
+     * Create a circuit breaker with the default settings.
+     * @return The circuit breaker
+     */
+    public static CircuitBreaker ofDefaults() {
+        return builder().build();
+    }
+
+    /**
+     * Create a builder.
+     * @return A new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Ask to send a request.
+     * @return The permit to report the outcome with when the request may
+     *         proceed, {@link #NOT_PERMITTED} when the circuit is open or
+     *         all half-open probes are taken
+     */
+    public long tryAcquire() {
+        CircuitState before;
+        CircuitState after;
+        long permit;
+        synchronized (this) {
+            before = state;
+            if (state == CircuitState.OPEN
+                    && clock.millis() >= openUntilMillis) {
+                transition(CircuitState.HALF_OPEN);
+            }
+            if (state == CircuitState.CLOSED) {
+                permit = generation;
+            } else if (state == CircuitState.HALF_OPEN
+                    && probesStarted < probeCalls) {
+                probesStarted++;
+                permit = generation;
+            } else {
+                notPermitted++;
+                permit = NOT_PERMITTED;
+            }
+            after = state;
+        }
+        fire(before, after);
+        return permit;
+    }
+
+    /**
+     * Record a request that got a usable answer.
+     * @param permitParam Permit the request was sent with
+     * @param durationNanosParam Duration of the request in nanoseconds
+     */
+    public void onSuccess(final long permitParam,
+                          final long durationNanosParam) {
+        record(permitParam, durationNanosParam >= slowCallNanos ? SLOW : 0);
+    }
+
+    /**
+     * Record a request that failed because of the API, such as a 5xx
+     * response, a timeout or an I/O error.
+     * @param permitParam Permit the request was sent with
+     * @param durationNanosParam Duration of the request in nanoseconds
+     */
+    public void onFailure(final long permitParam,
+                          final long durationNanosParam) {
+        record(permitParam, (byte) (FAILED
+                | (durationNanosParam >= slowCallNanos ? SLOW : 0)));
+    }
+
+    /**
+     * Release a permitted request without recording an outcome, for
+     * example after it was cancelled by its caller or shed by another
+     * limit.
+     * @param permitParam Permit the request was sent with
+     */
+    public synchronized void onIgnored(final long permitParam) {
+        if (permitParam == generation && state == CircuitState.HALF_OPEN
+                && probesStarted > 0) {
+            probesStarted--;
+        }
+    }
+
+    /**
+     * Get the current state. An open circuit whose open duration has
+     * elapsed is reported as open until the next request.
+     * @return The state
+     */
+    public synchronized CircuitState getState() {
+        return state;
+    }
+
+    /**
+     * Get the failure rate of the outcomes in the window.
+     * @return Rate between 0 and 1, or 0 when the window is empty
+     */
+    public synchronized double getFailureRate() {
+        return calls == 0 ? 0 : (double) failures / calls;
+    }
+
+    /**
+     * Get the slow-call rate of the outcomes in the window.
+     * @return Rate between 0 and 1, or 0 when the window is empty
+     */
+    public synchronized double getSlowCallRate() {
+        return calls == 0 ? 0 : (double) slowCalls / calls;
+    }
+
+    /**
+     * Get the number of requests rejected because the circuit was not
+     * closed.
+     * @return Rejected request count
+     */
+    public synchronized long getNotPermittedCount() {
+        return notPermitted;
+    }
+
+    /**
+     * Record an outcome and open or close the circuit when due. Outcomes of
+     * requests sent before the last change of state are dropped; no permit
+     * is granted while open, so nothing is recorded then either.
+     * @param permitParam Permit the request was sent with
+     * @param flagsParam Outcome flags
+     */
+    private void record(final long permitParam, final byte flagsParam) {
+        CircuitState before;
+        CircuitState after;
+        synchronized (this) {
+            before = state;
+            if (permitParam == generation) {
+                add(flagsParam);
+                evaluate();
+            }
+            after = state;
+        }
+        fire(before, after);
+    }
+
+    /**
+     * Add an outcome to the window, evicting the oldest when full. While
+     * half-open, the window only holds probe outcomes.
+     * @param flagsParam Outcome flags
+     */
+    private void add(final byte flagsParam) {
+        if (calls == window.length) {
+            byte evicted = window[next];
+            failures -= evicted & FAILED;
+            slowCalls -= (evicted & SLOW) >> 1;
+        } else {
+            calls++;
+        }
+        window[next] = flagsParam;
+        next = (next + 1) % window.length;
+        failures += flagsParam & FAILED;
+        slowCalls += (flagsParam & SLOW) >> 1;
+    }
+
+    /**
+     * Open or close the circuit according to the window.
+     */
+    private void evaluate() {
+        boolean tripped = (double) failures / calls >= failureRateThreshold
+                || (double) slowCalls / calls >= slowCallRateThreshold;
+        if (state == CircuitState.HALF_OPEN) {
+            if (calls >= probeCalls) {
+                transition(tripped ? CircuitState.OPEN : CircuitState.CLOSED);
+            }
+        } else if (calls >= minimumCalls && tripped) {
+            transition(CircuitState.OPEN);
+        }
+    }
+
+    /**
+     * Change state, reset the window and retire the permits granted so far.
+     * @param stateParam The new state
+     */
+    private void transition(final CircuitState stateParam) {
+        state = stateParam;
+        generation++;
+        next = 0;
+        calls = 0;
+        failures = 0;
+        slowCalls = 0;
+        probesStarted = 0;
+        if (stateParam == CircuitState.OPEN) {
+            openUntilMillis = clock.millis() + openDurationMillis;
+        }
+    }
+
+    /**
+     * Notify the listener of a change of state, outside of the lock. A
+     * listener failure is dropped: it must not stop the caller from using
+     * or releasing the permit it was just granted, or a half-open probe
+     * would never report back and the circuit would stay half-open.
+     * @param beforeParam State before the change
+     * @param afterParam State after the change
+     */
+    private void fire(final CircuitState beforeParam,
+                      final CircuitState afterParam) {
+        if (listener == null || beforeParam == afterParam) {
+            return;
+        }
+        try {
+            listener.onStateTransition(beforeParam, afterParam);
+        } catch (RuntimeException e) {
+            return;
+        }
+    }
+
+    /**
+     * Builder of {@link CircuitBreaker}.
+     */
+    public static final class Builder {
+        /**
+         * Size of the sliding window.
+         */
+        private int windowSize = DEFAULT_WINDOW_SIZE;
+
+        /**
+         * Number of outcomes needed before the rates are evaluated.
+         */
+        private int minimumCalls = DEFAULT_MINIMUM_CALLS;
+
+        /**
+         * Failure rate that opens the circuit.
+         */
+        private double failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+
+        /**
+         * Slow-call rate that opens the circuit.
+         */
+        private double slowCallRateThreshold =
+                DEFAULT_SLOW_CALL_RATE_THRESHOLD;
+
+        /**
+         * Duration above which a call is slow, in milliseconds.
+         */
+        private long slowCallDurationMs = DEFAULT_SLOW_CALL_DURATION_MS;
+
+        /**
+         * Time the circuit stays open, in milliseconds.
+         */
+        private long openDurationMs = DEFAULT_OPEN_DURATION_MS;
+
+        /**
+         * Number of probe calls while half-open.
+         */
+        private int probeCalls = DEFAULT_PROBE_CALLS;
+
+        /**
+         * Optional listener of state transitions.
+         */
+        private CircuitBreakerListener listener;
+
+        /**
+         * Clock used to time the open state.
+         */
+        private Clock clock = Clock.systemUTC();
+
+        /**
+         * Hidden constructor, use {@link CircuitBreaker#builder()}.
+         */
+        private Builder() {
+        }
+
+        /**
+         * Set the number of recent outcomes the rates are computed over.
+         * @param windowSizeParam Size of the sliding window
+         * @return This builder
+         */
+        public Builder windowSize(final int windowSizeParam) {
+            this.windowSize = windowSizeParam;
+            return this;
+        }
+
+        /**
+         * Set the number of outcomes needed before the circuit may open.
+         * @param minimumCallsParam Minimum number of outcomes, at most the
+         *                          window size
+         * @return This builder
+         */
+        public Builder minimumCalls(final int minimumCallsParam) {
+            this.minimumCalls = minimumCallsParam;
+            return this;
+        }
+
+        /**
+         * Set the failure rate that opens the circuit.
+         * @param failureRateThresholdParam Rate between 0 exclusive and 1
+         * @return This builder
+         */
+        public Builder failureRateThreshold(
+                final double failureRateThresholdParam) {
+            this.failureRateThreshold = failureRateThresholdParam;
+            return this;
+        }
+
+        /**
+         * Set the slow-call rate that opens the circuit.
+         * @param slowCallRateThresholdParam Rate between 0 exclusive and 1
+         * @return This builder
+         */
+        public Builder slowCallRateThreshold(
+                final double slowCallRateThresholdParam) {
+            this.slowCallRateThreshold = slowCallRateThresholdParam;
+            return this;
+        }
+
+        /**
+         * Set the duration above which a call counts as slow.
+         * @param slowCallDurationMsParam Duration in milliseconds
+         * @return This builder
+         */
+        public Builder slowCallDurationMs(final long slowCallDurationMsParam) {
+            this.slowCallDurationMs = slowCallDurationMsParam;
+            return this;
+        }
+
+        /**
+         * Set the time the circuit stays open before probing the API.
+         * @param openDurationMsParam Duration in milliseconds
+         * @return This builder
+         */
+        public Builder openDurationMs(final long openDurationMsParam) {
+            this.openDurationMs = openDurationMsParam;
+            return this;
+        }
+
+        /**
+         * Set the number of probe calls let through while half-open.
+         * @param probeCallsParam Number of probe calls
+         * @return This builder
+         */
+        public Builder probeCalls(final int probeCallsParam) {
+            this.probeCalls = probeCallsParam;
+            return this;
+        }
+
+        /**
+         * Set the listener of state transitions.
+         * @param listenerParam Optional listener
+         * @return This builder
+         */
+        public Builder listener(final CircuitBreakerListener listenerParam) {
+            this.listener = listenerParam;
+            return this;
+        }
+
+        /**
+         * Set the clock used to time the open state.
+         * @param clockParam The clock
+         * @return This builder
+         */
+        public Builder clock(final Clock clockParam) {
+            if (clockParam == null) {
+                throw new IllegalArgumentException("clock must not be null");
+            }
+            this.clock = clockParam;
+            return this;
+        }
+
+        /**
+         * Build the circuit breaker.
+         * @return The circuit breaker
+         */
+        public CircuitBreaker build() {
+            if (windowSize <= 0 || probeCalls <= 0) {
+                throw new IllegalArgumentException(
+                        "windowSize and probeCalls must be positive");
+            }
+            if (minimumCalls <= 0 || minimumCalls > windowSize) {
+                throw new IllegalArgumentException(
+                        "minimumCalls must be between 1 and windowSize");
+            }
+            if (probeCalls > windowSize) {
+                throw new IllegalArgumentException(
+                        "probeCalls must not exceed windowSize");
+            }
+            requireRate(failureRateThreshold, "failureRateThreshold");
+            requireRate(slowCallRateThreshold, "slowCallRateThreshold");
+            if (slowCallDurationMs <= 0 || openDurationMs <= 0) {
+                throw new IllegalArgumentException(
+                        "slowCallDurationMs and openDurationMs must be "
+                                + "positive");
+            }
+            return new CircuitBreaker(this);
+        }
+
+        /**
+         * Validate a rate threshold.
+         * @param valueParam The rate
+         * @param nameParam Name of the setting
+         */
+        private static void requireRate(final double valueParam,
+                                        final String nameParam) {
+            if (!(valueParam > 0 && valueParam <= 1)) {
+                throw new IllegalArgumentException(
+                        nameParam + " must be between 0 and 1");
+            }
+        }
+    }
+}
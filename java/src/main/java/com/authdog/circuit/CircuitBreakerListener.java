@@ -0,0 +1,16 @@
+package com.authdog.circuit;
+
+/**
+ * Observer of {@link CircuitBreaker} state transitions.
+ */
+@FunctionalInterface
+public interface CircuitBreakerListener {
+    /**
+     * Called after the circuit changed state, on the thread whose request
+     * or outcome caused the transition. Implementations must not block;
+     * exceptions they throw are ignored.
+     * @param fromParam The previous state
+     * @param toParam The new state
+     */
+    void onStateTransition(CircuitState fromParam, CircuitState toParam);
+}
@@ -0,0 +1,21 @@
+package com.authdog.circuit;
+
+/**
+ * State of a {@link CircuitBreaker}.
+ */
+public enum CircuitState {
+    /**
+     * Requests flow and their outcomes are recorded.
+     */
+    CLOSED,
+
+    /**
+     * Requests are rejected until the open duration has elapsed.
+     */
+    OPEN,
+
+    /**
+     * A limited number of probe requests decide whether to close or reopen.
+     */
+    HALF_OPEN
+}
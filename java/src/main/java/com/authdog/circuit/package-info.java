@@ -0,0 +1,12 @@
+/**
+ * Circuit breaking for the Authdog SDK.
+ *
+ * <p>This package contains the circuit breaker that
+ * {@link com.authdog.AuthdogClient} can put in front of its userinfo
+ * requests, so that calls fail fast while the API is erroring or timing out
+ * instead of each one waiting for its own timeout.</p>
+ *
+ * @author Authdog Team
+ * @version 0.1.0
+ */
+package com.authdog.circuit;
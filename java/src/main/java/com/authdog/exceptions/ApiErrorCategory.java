@@ -0,0 +1,22 @@
+package com.authdog.exceptions;
+
+/**
+ * Category of the error reported by a failed API response, taken from its
+ * {@code error} field.
+ */
+public enum ApiErrorCategory {
+    /**
+     * The API's GraphQL query failed.
+     */
+    GRAPHQL_FAILURE,
+
+    /**
+     * The API could not fetch the user's information.
+     */
+    FETCH_FAILURE,
+
+    /**
+     * Any other failure, including failures without a response.
+     */
+    OTHER
+}
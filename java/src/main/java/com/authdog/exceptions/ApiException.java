@@ -5,12 +5,24 @@ package com.authdog.exceptions;
  */
 public class ApiException extends AuthdogException {
 
+    /**
+     * HTTP status code of the failed response, 0 when there was none.
+     */
+    private final int statusCode;
+
+    /**
+     * Category of the error reported by the API.
+     */
+    private final ApiErrorCategory category;
+
     /**
      * Constructor with message.
      * @param messageParam Error message
      */
     public ApiException(final String messageParam) {
         super(messageParam);
+        this.statusCode = 0;
+        this.category = ApiErrorCategory.OTHER;
     }
 
     /**
@@ -20,5 +32,64 @@ public class ApiException extends AuthdogException {
      */
     public ApiException(final String messageParam, final Throwable causeParam) {
         super(messageParam, causeParam);
+        this.statusCode = 0;
+        this.category = ApiErrorCategory.OTHER;
+    }
+
+    /**
+     * Constructor with message and the status code of the failed response.
+     * @param messageParam Error message
+     * @param statusCodeParam HTTP status code
+     */
+    public ApiException(final String messageParam, final int statusCodeParam) {
+        super(messageParam);
+        this.statusCode = statusCodeParam;
+        this.category = ApiErrorCategory.OTHER;
+    }
+
+    /**
+     * Constructor with message, the status code of the failed response and
+     * the category of the error it reported.
+     * @param messageParam Error message
+     * @param statusCodeParam HTTP status code
+     * @param categoryParam Category of the error
+     */
+    public ApiException(final String messageParam, final int statusCodeParam,
+                        final ApiErrorCategory categoryParam) {
+        super(messageParam);
+        this.statusCode = statusCodeParam;
+        this.category = categoryParam;
+    }
+
+    /**
+     * Constructor with every detail, optionally without a stack trace.
+     * @param messageParam Error message
+     * @param causeParam Cause of the exception, may be null
+     * @param statusCodeParam HTTP status code, 0 when there was no response
+     * @param stackTraceParam False to skip filling in the stack trace
+     */
+    public ApiException(final String messageParam, final Throwable causeParam,
+                        final int statusCodeParam,
+                        final boolean stackTraceParam) {
+        super(messageParam, causeParam, stackTraceParam);
+        this.statusCode = statusCodeParam;
+        this.category = ApiErrorCategory.OTHER;
+    }
+
+    /**
+     * Get the HTTP status code of the failed response.
+     * @return Status code, or 0 when the request failed without a response
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Get the category of the error reported by the API.
+     * @return The category, {@link ApiErrorCategory#OTHER} when the API did
+     *         not report a known error
+     */
+    public ApiErrorCategory getCategory() {
+        return category;
     }
 }
@@ -2,6 +2,11 @@ package com.authdog.exceptions;
 
 /**
  * Base exception class for all Authdog SDK errors.
+ *
+ * <p>Exceptions for expected outcomes that can occur at a high rate, such as
+ * rejected tokens and requests shed locally, are created by the SDK without
+ * a stack trace, since filling one in dominates their cost and it would only
+ * point into the SDK.</p>
  */
 public class AuthdogException extends RuntimeException {
 
@@ -22,4 +27,17 @@ public class AuthdogException extends RuntimeException {
                             final Throwable causeParam) {
         super(messageParam, causeParam);
     }
+
+    /**
+     * Constructor with message and cause, optionally without a stack
+     * trace.
+     * @param messageParam Error message
+     * @param causeParam Cause of the exception, may be null
+     * @param stackTraceParam False to skip filling in the stack trace
+     */
+    public AuthdogException(final String messageParam,
+                            final Throwable causeParam,
+                            final boolean stackTraceParam) {
+        super(messageParam, causeParam, true, stackTraceParam);
+    }
 }
@@ -22,4 +22,17 @@ public class AuthenticationException extends AuthdogException {
                                    final Throwable causeParam) {
         super(messageParam, causeParam);
     }
+
+    /**
+     * Constructor with message and cause, optionally without a stack
+     * trace.
+     * @param messageParam Error message
+     * @param causeParam Cause of the exception, may be null
+     * @param stackTraceParam False to skip filling in the stack trace
+     */
+    public AuthenticationException(final String messageParam,
+                                   final Throwable causeParam,
+                                   final boolean stackTraceParam) {
+        super(messageParam, causeParam, stackTraceParam);
+    }
 }
@@ -0,0 +1,26 @@
+package com.authdog.exceptions;
+
+/**
+ * Exception thrown when a request is rejected locally because the circuit
+ * breaker in front of the API is open.
+ */
+public class CircuitOpenException extends ApiException {
+
+    /**
+     * Constructor with message.
+     * @param messageParam Error message
+     */
+    public CircuitOpenException(final String messageParam) {
+        super(messageParam);
+    }
+
+    /**
+     * Constructor with message, optionally without a stack trace.
+     * @param messageParam Error message
+     * @param stackTraceParam False to skip filling in the stack trace
+     */
+    public CircuitOpenException(final String messageParam,
+                                final boolean stackTraceParam) {
+        super(messageParam, null, 0, stackTraceParam);
+    }
+}
@@ -0,0 +1,26 @@
+package com.authdog.exceptions;
+
+/**
+ * Exception thrown when a request is rejected locally because too many
+ * requests are already in flight.
+ */
+public class LimitExceededException extends ApiException {
+
+    /**
+     * Constructor with message.
+     * @param messageParam Error message
+     */
+    public LimitExceededException(final String messageParam) {
+        super(messageParam);
+    }
+
+    /**
+     * Constructor with message, optionally without a stack trace.
+     * @param messageParam Error message
+     * @param stackTraceParam False to skip filling in the stack trace
+     */
+    public LimitExceededException(final String messageParam,
+                                  final boolean stackTraceParam) {
+        super(messageParam, null, 0, stackTraceParam);
+    }
+}
@@ -0,0 +1,227 @@
+package com.authdog.hedge;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When to send a second, identical request for a slow userinfo call.
+ *
+ * <p>If the first attempt has not answered within the hedge delay, a hedge
+ * is sent; the first successful response wins and the other attempt is
+ * cancelled. The delay is either fixed, or tracks a percentile of the
+ * latencies of recent successful attempts, recomputed every
+ * {@link #WINDOW_SIZE} samples.</p>
+ *
+ * <p>A budget caps the extra load: every request earns
+ * {@code budgetRatio} of a hedge, and a hedge is only sent when a whole one
+ * has been earned, so hedges never exceed that fraction of requests. Up to
+ * {@link #MAX_BURST} unused hedges are saved for bursts of slow calls.</p>
+ */
+public final class HedgingPolicy {
+    /**
+     * Number of latency samples a percentile delay is computed over.
+     */
+    public static final int WINDOW_SIZE = 100;
+
+    /**
+     * Maximum number of earned hedges kept for later.
+     */
+    public static final int MAX_BURST = 10;
+
+    /**
+     * Maximum percentile.
+     */
+    private static final double MAX_PERCENTILE = 100;
+
+    /**
+     * Percentile the delay tracks, or 0 for a fixed delay.
+     */
+    private final double percentile;
+
+    /**
+     * Fixed delay, or lowest tracked delay, in nanoseconds.
+     */
+    private final long minDelayNanos;
+
+    /**
+     * Hedges earned per request.
+     */
+    private final double budgetRatio;
+
+    /**
+     * Latency samples of the current window.
+     */
+    private final long[] samples;
+
+    /**
+     * Samples held in the current window.
+     */
+    private int sampleCount;
+
+    /**
+     * Current delay in nanoseconds, negative while no delay is known.
+     */
+    private volatile long delayNanos;
+
+    /**
+     * Hedges earned and not yet sent.
+     */
+    private double budget;
+
+    /**
+     * Requests seen.
+     */
+    private long requests;
+
+    /**
+     * Hedges sent.
+     */
+    private long hedges;
+
+    /**
+     * Hedges whose response won.
+     */
+    private long hedgeWins;
+
+    /**
+     * Constructor with parameters.
+     * @param percentileParam Percentile the delay tracks, or 0 for a fixed
+     *                        delay
+     * @param minDelayMsParam Fixed delay, or lowest tracked delay, in
+     *                        milliseconds
+     * @param budgetRatioParam Hedges allowed per request
+     */
+    private HedgingPolicy(final double percentileParam,
+                          final long minDelayMsParam,
+                          final double budgetRatioParam) {
+        if (minDelayMsParam < 0) {
+            throw new IllegalArgumentException(
+                    "delayMs must not be negative");
+        }
+        if (!(budgetRatioParam > 0 && budgetRatioParam <= 1)) {
+            throw new IllegalArgumentException(
+                    "budgetRatio must be between 0 and 1");
+        }
+        this.percentile = percentileParam;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMsParam);
+        this.budgetRatio = budgetRatioParam;
+        this.samples = percentileParam > 0 ? new long[WINDOW_SIZE] : null;
+        this.delayNanos = percentileParam > 0 ? -1 : minDelayNanos;
+    }
+
+    /**
+     * Create a policy that hedges after a fixed delay.
+     * @param delayMsParam Delay before the hedge is sent, in milliseconds
+     * @param budgetRatioParam Hedges allowed per request, between 0
+     *                         exclusive and 1, for example 0.05 for 5%
+     * @return The policy
+     */
+    public static HedgingPolicy fixedDelay(final long delayMsParam,
+                                           final double budgetRatioParam) {
+        return new HedgingPolicy(0, delayMsParam, budgetRatioParam);
+    }
+
+    /**
+     * Create a policy that hedges after a percentile of recent latencies.
+     * No hedge is sent until the first {@link #WINDOW_SIZE} latencies have
+     * been observed.
+     * @param percentileParam Percentile to track, for example 95
+     * @param minDelayMsParam Lowest delay, in milliseconds
+     * @param budgetRatioParam Hedges allowed per request, between 0
+     *                         exclusive and 1, for example 0.05 for 5%
+     * @return The policy
+     */
+    public static HedgingPolicy percentileDelay(final double percentileParam,
+                                                final long minDelayMsParam,
+                                                final double budgetRatioParam) {
+        if (!(percentileParam > 0 && percentileParam < MAX_PERCENTILE)) {
+            throw new IllegalArgumentException(
+                    "percentile must be between 0 and 100");
+        }
+        return new HedgingPolicy(percentileParam, minDelayMsParam,
+                budgetRatioParam);
+    }
+
+    /**
+     * Get the delay after which a hedge is sent.
+     * @return Delay in nanoseconds, negative while a percentile delay has
+     *         no samples yet
+     */
+    public long getDelayNanos() {
+        return delayNanos;
+    }
+
+    /**
+     * Count a request towards the hedge budget.
+     */
+    public synchronized void onRequest() {
+        requests++;
+        budget = Math.min(MAX_BURST, budget + budgetRatio);
+    }
+
+    /**
+     * Take a hedge from the budget.
+     * @return True when a hedge may be sent
+     */
+    public synchronized boolean tryHedge() {
+        if (budget < 1) {
+            return false;
+        }
+        budget -= 1;
+        hedges++;
+        return true;
+    }
+
+    /**
+     * Count a hedge whose response won.
+     */
+    public synchronized void onHedgeWon() {
+        hedgeWins++;
+    }
+
+    /**
+     * Record the latency of a successful attempt. A percentile delay is
+     * recomputed once a window of samples is complete.
+     * @param nanosParam Latency in nanoseconds
+     */
+    public void recordLatency(final long nanosParam) {
+        if (samples == null) {
+            return;
+        }
+        synchronized (samples) {
+            samples[sampleCount++] = nanosParam;
+            if (sampleCount < WINDOW_SIZE) {
+                return;
+            }
+            Arrays.sort(samples);
+            int rank = (int) Math.ceil(
+                    percentile / MAX_PERCENTILE * WINDOW_SIZE);
+            delayNanos = Math.max(minDelayNanos, samples[rank - 1]);
+            sampleCount = 0;
+        }
+    }
+
+    /**
+     * Get the number of requests seen.
+     * @return Request count
+     */
+    public synchronized long getRequestCount() {
+        return requests;
+    }
+
+    /**
+     * Get the number of hedges sent.
+     * @return Hedge count
+     */
+    public synchronized long getHedgeCount() {
+        return hedges;
+    }
+
+    /**
+     * Get the number of hedges whose response won.
+     * @return Hedge win count
+     */
+    public synchronized long getHedgeWinCount() {
+        return hedgeWins;
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * Request hedging for the Authdog SDK.
+ *
+ * <p>This package contains the hedging policy that
+ * {@link com.authdog.AuthdogClient} can apply to its userinfo requests, so
+ * that a slow connection or backend does not set the tail latency: a
+ * second request is sent when the first is slow, within a budget of extra
+ * load.</p>
+ *
+ * @author Authdog Team
+ * @version 0.1.0
+ */
+package com.authdog.hedge;
@@ -0,0 +1,183 @@
+package com.authdog.jwt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parses JSON Web Key Sets into public keys indexed by key id.
+ */
+final class JsonWebKey {
+    /**
+     * Decoder for unpadded base64url values.
+     */
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    /**
+     * Key id to use when a key has no {@code kid}.
+     */
+    static final String NO_KID = "";
+
+    /**
+     * Hidden constructor.
+     */
+    private JsonWebKey() {
+    }
+
+    /**
+     * Parse a key set. Keys that are not signature keys, or that cannot be
+     * parsed, are skipped.
+     * @param jwksParam The parsed {@code {"keys": [...]}} document
+     * @return Immutable map of verification keys by key id
+     */
+    static Map<String, VerificationKey> parseKeySet(final JsonNode jwksParam) {
+        Map<String, VerificationKey> keys = new HashMap<>();
+        for (JsonNode jwk : jwksParam.path("keys")) {
+            String use = jwk.path("use").asText("sig");
+            if (!"sig".equals(use)) {
+                continue;
+            }
+            PublicKey key = parseKey(jwk);
+            if (key == null) {
+                continue;
+            }
+            JwsAlgorithm algorithm = null;
+            if (jwk.hasNonNull("alg")) {
+                algorithm = JwsAlgorithm.of(jwk.get("alg").asText());
+                if (algorithm == null) {
+                    continue;
+                }
+            }
+            keys.put(jwk.path("kid").asText(NO_KID),
+                    new VerificationKey(key, algorithm));
+        }
+        return Collections.unmodifiableMap(keys);
+    }
+
+    /**
+     * Parse one RSA or EC public key.
+     * @param jwkParam The key
+     * @return The public key, or null when unsupported or malformed
+     */
+    private static PublicKey parseKey(final JsonNode jwkParam) {
+        try {
+            switch (jwkParam.path("kty").asText()) {
+                case "RSA":
+                    return KeyFactory.getInstance("RSA").generatePublic(
+                            new RSAPublicKeySpec(
+                                    integer(jwkParam, "n"),
+                                    integer(jwkParam, "e")));
+                case "EC":
+                    return parseEcKey(jwkParam);
+                default:
+                    return null;
+            }
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parse an EC public key on a NIST curve.
+     * @param jwkParam The key
+     * @return The public key, or null when the curve is unsupported
+     * @throws GeneralSecurityException If the key is invalid
+     */
+    private static PublicKey parseEcKey(final JsonNode jwkParam)
+            throws GeneralSecurityException {
+        String curve;
+        switch (jwkParam.path("crv").asText()) {
+            case "P-256":
+                curve = "secp256r1";
+                break;
+            case "P-384":
+                curve = "secp384r1";
+                break;
+            case "P-521":
+                curve = "secp521r1";
+                break;
+            default:
+                return null;
+        }
+        AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+        parameters.init(new ECGenParameterSpec(curve));
+        ECParameterSpec spec = parameters.getParameterSpec(
+                ECParameterSpec.class);
+        ECPoint point = new ECPoint(
+                integer(jwkParam, "x"), integer(jwkParam, "y"));
+        return KeyFactory.getInstance("EC").generatePublic(
+                new ECPublicKeySpec(point, spec));
+    }
+
+    /**
+     * Decode a base64url unsigned big-endian integer member.
+     * @param jwkParam The key
+     * @param nameParam The member name
+     * @return The integer
+     */
+    private static BigInteger integer(final JsonNode jwkParam,
+                                      final String nameParam) {
+        JsonNode value = jwkParam.get(nameParam);
+        if (value == null || !value.isTextual()) {
+            throw new IllegalArgumentException("Missing " + nameParam);
+        }
+        return new BigInteger(1, DECODER.decode(value.asText()));
+    }
+
+    /**
+     * A parsed public key and the algorithm it is restricted to, if any.
+     */
+    static final class VerificationKey {
+        /**
+         * The public key.
+         */
+        private final PublicKey key;
+
+        /**
+         * Algorithm declared by the key set, or null when unrestricted.
+         */
+        private final JwsAlgorithm algorithm;
+
+        /**
+         * Constructor with parameters.
+         * @param keyParam The public key
+         * @param algorithmParam The declared algorithm, or null
+         */
+        VerificationKey(final PublicKey keyParam,
+                        final JwsAlgorithm algorithmParam) {
+            this.key = keyParam;
+            this.algorithm = algorithmParam;
+        }
+
+        /**
+         * Get the public key.
+         * @return The public key
+         */
+        PublicKey getKey() {
+            return key;
+        }
+
+        /**
+         * Check whether a token algorithm may be used with this key.
+         * @param algorithmParam The token's algorithm
+         * @return True when the key type and declared algorithm match
+         */
+        boolean accepts(final JwsAlgorithm algorithmParam) {
+            return algorithmParam.accepts(key)
+                    && (algorithm == null || algorithm == algorithmParam);
+        }
+    }
+}
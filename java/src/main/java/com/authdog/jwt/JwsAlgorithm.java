@@ -0,0 +1,111 @@
+package com.authdog.jwt;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+
+/**
+ * JWS signature algorithms that can be verified with a public key.
+ *
+ * <p>Each algorithm keeps one {@link Signature} per thread, so verification
+ * does not look up or allocate a signature engine per token.</p>
+ */
+enum JwsAlgorithm {
+    /**
+     * RSASSA-PKCS1-v1_5 using SHA-256.
+     */
+    RS256("SHA256withRSA", "RSA"),
+
+    /**
+     * RSASSA-PKCS1-v1_5 using SHA-384.
+     */
+    RS384("SHA384withRSA", "RSA"),
+
+    /**
+     * RSASSA-PKCS1-v1_5 using SHA-512.
+     */
+    RS512("SHA512withRSA", "RSA"),
+
+    /**
+     * ECDSA using P-256 and SHA-256.
+     */
+    ES256("SHA256withECDSAinP1363Format", "EC"),
+
+    /**
+     * ECDSA using P-384 and SHA-384.
+     */
+    ES384("SHA384withECDSAinP1363Format", "EC"),
+
+    /**
+     * ECDSA using P-521 and SHA-512.
+     */
+    ES512("SHA512withECDSAinP1363Format", "EC");
+
+    /**
+     * Signature engine per thread.
+     */
+    private final ThreadLocal<Signature> signatures;
+
+    /**
+     * Algorithm of the keys this algorithm verifies with.
+     */
+    private final String keyAlgorithm;
+
+    /**
+     * Constructor with parameters.
+     * @param jcaNameParam JCA signature algorithm name
+     * @param keyAlgorithmParam JCA key algorithm name
+     */
+    JwsAlgorithm(final String jcaNameParam, final String keyAlgorithmParam) {
+        this.signatures = ThreadLocal.withInitial(() -> {
+            try {
+                return Signature.getInstance(jcaNameParam);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        this.keyAlgorithm = keyAlgorithmParam;
+    }
+
+    /**
+     * Find an algorithm by its JWS name.
+     * @param nameParam The {@code alg} header value
+     * @return The algorithm, or null when not supported
+     */
+    static JwsAlgorithm of(final String nameParam) {
+        for (JwsAlgorithm algorithm : values()) {
+            if (algorithm.name().equals(nameParam)) {
+                return algorithm;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check whether a key can be used with this algorithm.
+     * @param keyParam The public key
+     * @return True when the key type matches
+     */
+    boolean accepts(final PublicKey keyParam) {
+        return keyAlgorithm.equals(keyParam.getAlgorithm());
+    }
+
+    /**
+     * Verify a signature.
+     * @param keyParam The public key
+     * @param dataParam The signed data
+     * @param signatureParam The signature
+     * @return True when the signature is valid
+     */
+    boolean verify(final PublicKey keyParam, final byte[] dataParam,
+                   final byte[] signatureParam) {
+        Signature signature = signatures.get();
+        try {
+            signature.initVerify(keyParam);
+            signature.update(dataParam);
+            return signature.verify(signatureParam);
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+}
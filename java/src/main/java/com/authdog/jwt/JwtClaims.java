@@ -0,0 +1,59 @@
+package com.authdog.jwt;
+
+/**
+ * Claims of a locally verified access token.
+ */
+public final class JwtClaims {
+    /**
+     * Subject ({@code sub}) claim.
+     */
+    private final String subject;
+
+    /**
+     * Environment id claim, or null when absent.
+     */
+    private final String environmentId;
+
+    /**
+     * Expiry ({@code exp}) in epoch seconds.
+     */
+    private final long expiresAtSeconds;
+
+    /**
+     * Constructor with parameters.
+     * @param subjectParam Subject claim
+     * @param environmentIdParam Environment id claim, or null
+     * @param expiresAtSecondsParam Expiry in epoch seconds
+     */
+    public JwtClaims(final String subjectParam,
+                     final String environmentIdParam,
+                     final long expiresAtSecondsParam) {
+        this.subject = subjectParam;
+        this.environmentId = environmentIdParam;
+        this.expiresAtSeconds = expiresAtSecondsParam;
+    }
+
+    /**
+     * Get the subject claim.
+     * @return The subject, or null when absent
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * Get the environment id claim.
+     * @return The environment id, or null when absent
+     */
+    public String getEnvironmentId() {
+        return environmentId;
+    }
+
+    /**
+     * Get the expiry.
+     * @return Expiry in epoch seconds
+     */
+    public long getExpiresAtSeconds() {
+        return expiresAtSeconds;
+    }
+}
@@ -0,0 +1,383 @@
+package com.authdog.jwt;
+
+import com.authdog.exceptions.AuthenticationException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies signed JWT access tokens against a cached JSON Web Key Set.
+ *
+ * <p>The key set is fetched once, parsed into public keys indexed by key id,
+ * and refreshed in the background at a fixed interval. A token signed with
+ * a key id that is not in the cache triggers a background refetch, at most
+ * once per {@link #MIN_REFETCH_INTERVAL_MS}, so rotated keys are picked up
+ * without letting unknown key ids hammer the JWKS endpoint. Fetches only
+ * run on the refresh thread, so verification never waits for one.</p>
+ *
+ * <p>{@link #verify(String)} returns null for tokens it cannot judge
+ * locally, such as opaque tokens, unsupported algorithms, or unknown key
+ * ids, and callers then fall back to the userinfo endpoint. Tokens it can
+ * judge are either accepted or rejected with an
+ * {@link AuthenticationException}.</p>
+ */
+public final class JwtVerifier implements AutoCloseable {
+    /**
+     * Minimum time between two refetches triggered by an unknown key id.
+     */
+    public static final long MIN_REFETCH_INTERVAL_MS = 10_000;
+
+    /**
+     * Clock skew tolerated when checking {@code exp} and {@code nbf}.
+     */
+    public static final long LEEWAY_SECONDS = 30;
+
+    /**
+     * Name of the claim holding the environment id.
+     */
+    public static final String ENVIRONMENT_ID_CLAIM = "environmentId";
+
+    /**
+     * Rejection message for tokens that fail verification.
+     */
+    private static final String INVALID_TOKEN = "Invalid token";
+
+    /**
+     * Milliseconds per second.
+     */
+    private static final long MILLIS_PER_SECOND = 1000;
+
+    /**
+     * HTTP OK status code.
+     */
+    private static final int HTTP_OK = 200;
+
+    /**
+     * Decoder for unpadded base64url values.
+     */
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    /**
+     * HTTP client used to fetch the key set.
+     */
+    private final OkHttpClient httpClient;
+
+    /**
+     * Request for the key set.
+     */
+    private final Request jwksRequest;
+
+    /**
+     * Expected audience.
+     */
+    private final String audience;
+
+    /**
+     * Clock used for claims and refetch rate limiting.
+     */
+    private final Clock clock;
+
+    /**
+     * JSON parser for the key set, headers and claims.
+     */
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Guards the refetch bookkeeping. Never held across I/O.
+     */
+    private final Object refreshLock = new Object();
+
+    /**
+     * Runs the background refresh and every key set fetch.
+     */
+    private final ScheduledExecutorService refresher;
+
+    /**
+     * Current keys by key id, or null until the first successful fetch.
+     */
+    private volatile Map<String, JsonWebKey.VerificationKey> keys;
+
+    /**
+     * Time of the last fetch attempt in epoch milliseconds. Guarded by
+     * {@link #refreshLock}.
+     */
+    private long lastFetchMillis = Long.MIN_VALUE / 2;
+
+    /**
+     * Whether a refetch for an unknown key id is scheduled or running.
+     * Guarded by {@link #refreshLock}.
+     */
+    private boolean refetchPending;
+
+    /**
+     * Initialize the verifier and start refreshing the key set.
+     * @param httpClientParam HTTP client used to fetch the key set
+     * @param jwksUrlParam URL of the JSON Web Key Set
+     * @param audienceParam Expected {@code aud} claim
+     * @param refreshIntervalMsParam Background refresh interval in
+     *                               milliseconds
+     */
+    public JwtVerifier(final OkHttpClient httpClientParam,
+                       final String jwksUrlParam,
+                       final String audienceParam,
+                       final long refreshIntervalMsParam) {
+        this(httpClientParam, jwksUrlParam, audienceParam,
+                refreshIntervalMsParam, Clock.systemUTC());
+    }
+
+    /**
+     * Initialize the verifier with a custom clock and start refreshing the
+     * key set.
+     * @param httpClientParam HTTP client used to fetch the key set
+     * @param jwksUrlParam URL of the JSON Web Key Set
+     * @param audienceParam Expected {@code aud} claim
+     * @param refreshIntervalMsParam Background refresh interval in
+     *                               milliseconds
+     * @param clockParam Clock used for claims and rate limiting
+     */
+    public JwtVerifier(final OkHttpClient httpClientParam,
+                       final String jwksUrlParam,
+                       final String audienceParam,
+                       final long refreshIntervalMsParam,
+                       final Clock clockParam) {
+        if (jwksUrlParam == null || audienceParam == null) {
+            throw new IllegalArgumentException(
+                    "jwksUrl and audience must not be null");
+        }
+        if (refreshIntervalMsParam <= 0) {
+            throw new IllegalArgumentException(
+                    "refreshIntervalMs must be positive");
+        }
+        this.httpClient = httpClientParam;
+        this.jwksRequest = new Request.Builder().url(jwksUrlParam).build();
+        this.audience = audienceParam;
+        this.clock = clockParam;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "authdog-jwks-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, 0,
+                refreshIntervalMsParam, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Verify an access token locally.
+     * @param accessTokenParam The access token
+     * @return The token's claims, or null when the token cannot be verified
+     *         locally and the userinfo endpoint must decide
+     * @throws AuthenticationException When the token is a JWT that fails
+     *         signature or claims validation
+     */
+    public JwtClaims verify(final String accessTokenParam)
+            throws AuthenticationException {
+        int firstDot = accessTokenParam.indexOf('.');
+        int secondDot = accessTokenParam.indexOf('.', firstDot + 1);
+        if (firstDot <= 0 || secondDot < 0
+                || accessTokenParam.indexOf('.', secondDot + 1) >= 0) {
+            return null;
+        }
+        JsonNode header = decodeJson(accessTokenParam.substring(0, firstDot));
+        if (header == null || !header.path("alg").isTextual()) {
+            return null;
+        }
+        JwsAlgorithm algorithm = JwsAlgorithm.of(header.get("alg").asText());
+        if (algorithm == null) {
+            return null;
+        }
+        String kid = header.path("kid").asText(JsonWebKey.NO_KID);
+        Map<String, JsonWebKey.VerificationKey> current = keys;
+        JsonWebKey.VerificationKey key = current != null
+                ? current.get(kid)
+                : null;
+        if (key == null) {
+            requestRefetch();
+            return null;
+        }
+        if (!key.accepts(algorithm)) {
+            throw invalid("algorithm does not match key", null);
+        }
+        byte[] signature;
+        try {
+            signature = DECODER.decode(
+                    accessTokenParam.substring(secondDot + 1));
+        } catch (IllegalArgumentException e) {
+            throw invalid(null, e);
+        }
+        byte[] signingInput = accessTokenParam.substring(0, secondDot)
+                .getBytes(StandardCharsets.US_ASCII);
+        if (!algorithm.verify(key.getKey(), signingInput, signature)) {
+            throw invalid("bad signature", null);
+        }
+        JsonNode claims = decodeJson(
+                accessTokenParam.substring(firstDot + 1, secondDot));
+        if (claims == null || !claims.isObject()) {
+            throw invalid(null, null);
+        }
+        return checkClaims(claims);
+    }
+
+    /**
+     * Check whether a key set has been fetched successfully.
+     * @return True once keys are available
+     */
+    public boolean hasKeys() {
+        return keys != null;
+    }
+
+    /**
+     * Stop refreshing the key set.
+     */
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Validate the time and audience claims.
+     * @param claimsParam The claims
+     * @return The accepted claims
+     * @throws AuthenticationException When a claim is missing or invalid
+     */
+    private JwtClaims checkClaims(final JsonNode claimsParam)
+            throws AuthenticationException {
+        long now = clock.millis() / MILLIS_PER_SECOND;
+        JsonNode exp = claimsParam.get("exp");
+        if (exp == null || !exp.isNumber()) {
+            throw invalid("missing exp", null);
+        }
+        if (now - LEEWAY_SECONDS >= exp.asLong()) {
+            throw invalid("expired", null);
+        }
+        JsonNode nbf = claimsParam.get("nbf");
+        if (nbf != null && (!nbf.isNumber()
+                || now + LEEWAY_SECONDS < nbf.asLong())) {
+            throw invalid("not yet valid", null);
+        }
+        if (!hasAudience(claimsParam.get("aud"))) {
+            throw invalid("wrong audience", null);
+        }
+        return new JwtClaims(
+                text(claimsParam.get("sub")),
+                text(claimsParam.get(ENVIRONMENT_ID_CLAIM)),
+                exp.asLong());
+    }
+
+    /**
+     * Check the audience claim, which is a string or an array of strings.
+     * @param audParam The {@code aud} claim, or null
+     * @return True when the expected audience is present
+     */
+    private boolean hasAudience(final JsonNode audParam) {
+        if (audParam == null) {
+            return false;
+        }
+        if (audParam.isTextual()) {
+            return audience.equals(audParam.asText());
+        }
+        for (JsonNode value : audParam) {
+            if (value.isTextual() && audience.equals(value.asText())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ask for the key set to be refetched in the background because a key
+     * id is unknown, unless a refetch is pending or the last fetch was too
+     * recent.
+     */
+    private void requestRefetch() {
+        synchronized (refreshLock) {
+            if (refetchPending || clock.millis() - lastFetchMillis
+                    < MIN_REFETCH_INTERVAL_MS) {
+                return;
+            }
+            refetchPending = true;
+            lastFetchMillis = clock.millis();
+        }
+        try {
+            refresher.execute(this::refresh);
+        } catch (RejectedExecutionException e) {
+            synchronized (refreshLock) {
+                refetchPending = false;
+            }
+        }
+    }
+
+    /**
+     * Fetch the key set and replace the cached keys. Failures keep the
+     * previous keys. Only runs on the refresh thread, which serializes
+     * fetches.
+     */
+    private void refresh() {
+        synchronized (refreshLock) {
+            lastFetchMillis = clock.millis();
+        }
+        try (Response response = httpClient.newCall(jwksRequest).execute()) {
+            ResponseBody body = response.body();
+            if (response.code() == HTTP_OK && body != null) {
+                keys = JsonWebKey.parseKeySet(
+                        objectMapper.readTree(body.byteStream()));
+            }
+        } catch (IOException | RuntimeException e) {
+            // Keep the previous keys until the next attempt succeeds
+        } finally {
+            synchronized (refreshLock) {
+                refetchPending = false;
+            }
+        }
+    }
+
+    /**
+     * Decode a base64url JSON segment.
+     * @param segmentParam The segment
+     * @return The parsed JSON, or null when malformed
+     */
+    private JsonNode decodeJson(final String segmentParam) {
+        try {
+            return objectMapper.readTree(DECODER.decode(segmentParam));
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get a claim as text.
+     * @param valueParam The claim, or null
+     * @return The text, or null when absent or not a string
+     */
+    private static String text(final JsonNode valueParam) {
+        return valueParam != null && valueParam.isTextual()
+                ? valueParam.asText()
+                : null;
+    }
+
+    /**
+     * Create the rejection of a token. Rejections are expected at a high
+     * rate, so they carry no stack trace.
+     * @param reasonParam Why the token is invalid, or null
+     * @param causeParam Cause of the rejection, or null
+     * @return The exception
+     */
+    private static AuthenticationException invalid(final String reasonParam,
+                                                   final Throwable causeParam) {
+        return new AuthenticationException(reasonParam != null
+                ? INVALID_TOKEN + ": " + reasonParam
+                : INVALID_TOKEN, causeParam, false);
+    }
+}
@@ -0,0 +1,12 @@
+/**
+ * Local verification of JWT access tokens for the Authdog SDK.
+ *
+ * <p>This package contains the verifier used by
+ * {@link com.authdog.AuthdogClient} to check the signature and claims of
+ * signed access tokens against the tenant's cached JSON Web Key Set instead
+ * of calling the userinfo endpoint.</p>
+ *
+ * @author Authdog Team
+ * @version 0.1.0
+ */
+package com.authdog.jwt;
@@ -0,0 +1,239 @@
+package com.authdog.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adaptive limit on the number of requests in flight.
+ *
+ * <p>The limit follows a gradient algorithm driven by measured round-trip
+ * times. A slowly moving average of the RTT serves as the no-load baseline;
+ * each sample moves the limit by the ratio of that baseline (with some
+ * tolerance) to the sample RTT, plus a small allowance that lets it probe
+ * upwards. When the API slows down, the ratio drops below 1 and the limit
+ * shrinks; when it recovers, the limit grows back. Requests that time out
+ * or fail at the I/O level cut the limit multiplicatively, as in AIMD. The
+ * limit only grows while at least half of it is in use.</p>
+ *
+ * <p>Every {@link #tryAcquire()} that returns true must be followed by
+ * exactly one of {@link #onSuccess(long)}, {@link #onDropped()} or
+ * {@link #onIgnored()}.</p>
+ */
+public final class AdaptiveConcurrencyLimiter {
+    /**
+     * Default initial limit.
+     */
+    public static final int DEFAULT_INITIAL_LIMIT = 20;
+
+    /**
+     * Default minimum limit.
+     */
+    public static final int DEFAULT_MIN_LIMIT = 1;
+
+    /**
+     * Default maximum limit.
+     */
+    public static final int DEFAULT_MAX_LIMIT = 200;
+
+    /**
+     * RTT increase over the baseline tolerated before the limit shrinks.
+     */
+    private static final double RTT_TOLERANCE = 1.5;
+
+    /**
+     * Lowest gradient applied by one sample.
+     */
+    private static final double MIN_GRADIENT = 0.5;
+
+    /**
+     * Weight of a new limit estimate.
+     */
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * Weight of a sample in the baseline RTT, about 1 / 300 samples.
+     */
+    private static final double BASELINE_WEIGHT = 2.0 / 301;
+
+    /**
+     * Ratio of baseline to sample RTT above which the baseline is assumed
+     * to be inflated by sustained overload and decays.
+     */
+    private static final double BASELINE_DRIFT_RATIO = 2.0;
+
+    /**
+     * Decay applied to an inflated baseline per sample.
+     */
+    private static final double BASELINE_DECAY = 0.95;
+
+    /**
+     * Multiplicative decrease on a dropped request.
+     */
+    private static final double BACKOFF_RATIO = 0.9;
+
+    /**
+     * Minimum limit.
+     */
+    private final int minLimit;
+
+    /**
+     * Maximum limit.
+     */
+    private final int maxLimit;
+
+    /**
+     * Requests in flight.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Requests rejected because the limit was reached.
+     */
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Current limit estimate.
+     */
+    private volatile double limit;
+
+    /**
+     * Baseline RTT in nanoseconds, 0 before the first sample.
+     */
+    private double baselineRttNanos;
+
+    /**
+     * Initialize the limiter with the default limits.
+     */
+    public AdaptiveConcurrencyLimiter() {
+        this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT);
+    }
+
+    /**
+     * Initialize the limiter.
+     * @param initialLimitParam Limit before any RTT is measured
+     * @param minLimitParam Lowest limit
+     * @param maxLimitParam Highest limit
+     */
+    public AdaptiveConcurrencyLimiter(final int initialLimitParam,
+                                      final int minLimitParam,
+                                      final int maxLimitParam) {
+        if (minLimitParam <= 0 || maxLimitParam < minLimitParam) {
+            throw new IllegalArgumentException(
+                    "limits must satisfy 0 < minLimit <= maxLimit");
+        }
+        if (initialLimitParam < minLimitParam
+                || initialLimitParam > maxLimitParam) {
+            throw new IllegalArgumentException(
+                    "initialLimit must be between minLimit and maxLimit");
+        }
+        this.minLimit = minLimitParam;
+        this.maxLimit = maxLimitParam;
+        this.limit = initialLimitParam;
+    }
+
+    /**
+     * Take a slot for a request.
+     * @return True when the request may proceed, false when the limit is
+     *         reached and the request must be rejected
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Release a slot after a response and adjust the limit to its RTT.
+     * @param rttNanosParam Round-trip time of the request in nanoseconds
+     */
+    public void onSuccess(final long rttNanosParam) {
+        int current = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (baselineRttNanos == 0) {
+                baselineRttNanos = rttNanosParam;
+            } else {
+                baselineRttNanos += BASELINE_WEIGHT
+                        * (rttNanosParam - baselineRttNanos);
+                if (baselineRttNanos > BASELINE_DRIFT_RATIO * rttNanosParam) {
+                    baselineRttNanos *= BASELINE_DECAY;
+                }
+            }
+            double estimate = limit;
+            double gradient = Math.max(MIN_GRADIENT, Math.min(1.0,
+                    RTT_TOLERANCE * baselineRttNanos
+                            / Math.max(1, rttNanosParam)));
+            double next = estimate * gradient;
+            if (current >= estimate / 2) {
+                next += Math.sqrt(estimate);
+            }
+            limit = clamp(estimate * (1 - SMOOTHING) + next * SMOOTHING);
+        }
+    }
+
+    /**
+     * Release a slot after a request timed out or failed at the I/O level,
+     * and cut the limit.
+     */
+    public void onDropped() {
+        inFlight.decrementAndGet();
+        synchronized (this) {
+            limit = clamp(limit * BACKOFF_RATIO);
+        }
+    }
+
+    /**
+     * Release a slot without adjusting the limit, for example after a
+     * request was cancelled by its caller.
+     */
+    public void onIgnored() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Get the current limit.
+     * @return Maximum number of requests in flight
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Get the highest limit.
+     * @return Highest number of requests in flight the limit can reach
+     */
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * Get the number of requests in flight.
+     * @return Requests holding a slot
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Get the number of requests rejected because the limit was reached.
+     * @return Rejected request count
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Bound a limit estimate.
+     * @param valueParam The estimate
+     * @return The estimate within the minimum and maximum limits
+     */
+    private double clamp(final double valueParam) {
+        return Math.max(minLimit, Math.min(maxLimit, valueParam));
+    }
+}
@@ -0,0 +1,202 @@
+package com.authdog.limit;
+
+import com.authdog.exceptions.LimitExceededException;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limits partitioned by key, such as a tenant or an
+ * environment.
+ *
+ * <p>Each partition lets at most {@code maxConcurrent} requests run at once
+ * and queues up to {@code maxQueued} more in arrival order; requests beyond
+ * that are rejected with a {@link LimitExceededException}. A burst in one
+ * partition therefore only queues and sheds its own requests. Partitions
+ * are created on first use and dropped once idle.</p>
+ *
+ * <p>Every slot granted by {@link #acquire(String)} must be returned with
+ * exactly one {@link #release(String)}.</p>
+ */
+public final class Bulkhead {
+    /**
+     * Maximum number of running requests per partition.
+     */
+    private final int maxConcurrent;
+
+    /**
+     * Maximum number of queued requests per partition.
+     */
+    private final int maxQueued;
+
+    /**
+     * Partitions by key.
+     */
+    private final ConcurrentHashMap<String, Partition> partitions =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Requests rejected because their partition's queue was full.
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Initialize the bulkhead.
+     * @param maxConcurrentParam Maximum number of running requests per
+     *                           partition
+     * @param maxQueuedParam Maximum number of queued requests per
+     *                       partition, 0 to reject instead of queueing
+     */
+    public Bulkhead(final int maxConcurrentParam, final int maxQueuedParam) {
+        if (maxConcurrentParam <= 0) {
+            throw new IllegalArgumentException(
+                    "maxConcurrent must be positive");
+        }
+        if (maxQueuedParam < 0) {
+            throw new IllegalArgumentException(
+                    "maxQueued must not be negative");
+        }
+        this.maxConcurrent = maxConcurrentParam;
+        this.maxQueued = maxQueuedParam;
+    }
+
+    /**
+     * Ask for a slot in a partition.
+     * @param keyParam The partition key
+     * @return Future completed once the slot is granted, at once when the
+     *         partition has room; completed with a
+     *         {@link LimitExceededException} when its queue is full.
+     *         Cancelling a queued future gives up its place.
+     */
+    public CompletableFuture<Void> acquire(final String keyParam) {
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        boolean[] queued = new boolean[1];
+        boolean[] granted = new boolean[1];
+        partitions.compute(keyParam, (key, existing) -> {
+            Partition partition = existing != null
+                    ? existing
+                    : new Partition();
+            if (partition.running < maxConcurrent) {
+                partition.running++;
+                granted[0] = true;
+            } else if (partition.waiters.size() < maxQueued) {
+                partition.waiters.add(waiter);
+                queued[0] = true;
+            }
+            return partition;
+        });
+        if (granted[0]) {
+            waiter.complete(null);
+        } else if (queued[0]) {
+            waiter.whenComplete((value, error) -> {
+                if (waiter.isCancelled()) {
+                    leave(keyParam, waiter);
+                }
+            });
+        } else {
+            rejected.increment();
+            waiter.completeExceptionally(new LimitExceededException(
+                    "Too many userinfo requests for partition " + keyParam,
+                    false));
+        }
+        return waiter;
+    }
+
+    /**
+     * Return a slot, handing it to the next queued request of the
+     * partition if any.
+     * @param keyParam The partition key
+     */
+    public void release(final String keyParam) {
+        AtomicReference<CompletableFuture<Void>> next =
+                new AtomicReference<>();
+        do {
+            next.set(null);
+            partitions.computeIfPresent(keyParam, (key, partition) -> {
+                next.set(partition.waiters.poll());
+                if (next.get() != null) {
+                    return partition;
+                }
+                partition.running--;
+                return partition.running == 0 ? null : partition;
+            });
+        } while (next.get() != null && !next.get().complete(null));
+    }
+
+    /**
+     * Get the number of running requests in a partition.
+     * @param keyParam The partition key
+     * @return Running request count
+     */
+    public int getRunning(final String keyParam) {
+        int[] running = new int[1];
+        partitions.computeIfPresent(keyParam, (key, partition) -> {
+            running[0] = partition.running;
+            return partition;
+        });
+        return running[0];
+    }
+
+    /**
+     * Get the number of queued requests in a partition.
+     * @param keyParam The partition key
+     * @return Queued request count
+     */
+    public int getQueued(final String keyParam) {
+        int[] queued = new int[1];
+        partitions.computeIfPresent(keyParam, (key, partition) -> {
+            queued[0] = partition.waiters.size();
+            return partition;
+        });
+        return queued[0];
+    }
+
+    /**
+     * Get the number of partitions with running or queued requests.
+     * @return Active partition count
+     */
+    public int getPartitionCount() {
+        return partitions.size();
+    }
+
+    /**
+     * Get the number of requests rejected because their partition's queue
+     * was full.
+     * @return Rejected request count
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Remove a cancelled request from its partition's queue.
+     * @param keyParam The partition key
+     * @param waiterParam The cancelled request
+     */
+    private void leave(final String keyParam,
+                       final CompletableFuture<Void> waiterParam) {
+        partitions.computeIfPresent(keyParam, (key, partition) -> {
+            partition.waiters.remove(waiterParam);
+            return partition;
+        });
+    }
+
+    /**
+     * State of one partition, only changed while its map entry is locked.
+     */
+    private static final class Partition {
+        /**
+         * Requests waiting for a slot, in arrival order.
+         */
+        private final ArrayDeque<CompletableFuture<Void>> waiters =
+                new ArrayDeque<>();
+
+        /**
+         * Requests holding a slot.
+         */
+        private int running;
+    }
+}
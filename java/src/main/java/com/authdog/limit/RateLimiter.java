@@ -0,0 +1,124 @@
+package com.authdog.limit;
+
+import java.time.Clock;
+
+/**
+ * Token-bucket limit on the rate of outbound requests.
+ *
+ * <p>The bucket holds up to {@code burst} permits and refills continuously
+ * at {@code permitsPerSecond}. A request takes one permit; when none is
+ * left it is rejected at once rather than delayed, so callers are never
+ * blocked by the limiter.</p>
+ */
+public final class RateLimiter {
+    /**
+     * Milliseconds per second.
+     */
+    private static final double MILLIS_PER_SECOND = 1000.0;
+
+    /**
+     * Permits added per millisecond.
+     */
+    private final double permitsPerMilli;
+
+    /**
+     * Maximum number of stored permits.
+     */
+    private final int burst;
+
+    /**
+     * Clock used to refill the bucket.
+     */
+    private final Clock clock;
+
+    /**
+     * Permits available.
+     */
+    private double permits;
+
+    /**
+     * Time of the last refill in epoch milliseconds.
+     */
+    private long refilledAtMillis;
+
+    /**
+     * Requests rejected because no permit was left.
+     */
+    private long rejected;
+
+    /**
+     * Initialize the limiter with a full bucket.
+     * @param permitsPerSecondParam Sustained request rate
+     * @param burstParam Maximum number of requests sent at once after an
+     *                   idle period
+     */
+    public RateLimiter(final double permitsPerSecondParam,
+                       final int burstParam) {
+        this(permitsPerSecondParam, burstParam, Clock.systemUTC());
+    }
+
+    /**
+     * Initialize the limiter with a full bucket and a custom clock.
+     * @param permitsPerSecondParam Sustained request rate
+     * @param burstParam Maximum number of requests sent at once after an
+     *                   idle period
+     * @param clockParam Clock used to refill the bucket
+     */
+    public RateLimiter(final double permitsPerSecondParam,
+                       final int burstParam,
+                       final Clock clockParam) {
+        if (!(permitsPerSecondParam > 0) || burstParam <= 0) {
+            throw new IllegalArgumentException(
+                    "permitsPerSecond and burst must be positive");
+        }
+        this.permitsPerMilli = permitsPerSecondParam / MILLIS_PER_SECOND;
+        this.burst = burstParam;
+        this.clock = clockParam;
+        this.permits = burstParam;
+        this.refilledAtMillis = clockParam.millis();
+    }
+
+    /**
+     * Take a permit for a request.
+     * @return True when the request may proceed, false when the rate is
+     *         exceeded and the request must be rejected
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (permits < 1) {
+            rejected++;
+            return false;
+        }
+        permits -= 1;
+        return true;
+    }
+
+    /**
+     * Get the number of whole permits available.
+     * @return Available permits
+     */
+    public synchronized int getAvailablePermits() {
+        refill();
+        return (int) permits;
+    }
+
+    /**
+     * Get the number of requests rejected because the rate was exceeded.
+     * @return Rejected request count
+     */
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+
+    /**
+     * Add the permits earned since the last refill.
+     */
+    private void refill() {
+        long now = clock.millis();
+        if (now > refilledAtMillis) {
+            permits = Math.min(burst,
+                    permits + (now - refilledAtMillis) * permitsPerMilli);
+            refilledAtMillis = now;
+        }
+    }
+}
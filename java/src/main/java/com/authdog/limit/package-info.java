@@ -0,0 +1,12 @@
+/**
+ * Load shedding for the Authdog SDK.
+ *
+ * <p>This package contains the adaptive concurrency limiter that
+ * {@link com.authdog.AuthdogClient} can apply to its outbound userinfo
+ * requests, so that a slow API sheds load quickly instead of tying up
+ * caller threads until their requests time out.</p>
+ *
+ * @author Authdog Team
+ * @version 0.1.0
+ */
+package com.authdog.limit;
@@ -0,0 +1,129 @@
+package com.authdog.metrics;
+
+/**
+ * Immutable copy of a {@link LatencyHistogram}.
+ *
+ * <p>Percentiles and bucket counts are resolved to the histogram's bucket
+ * boundaries. To export to a metrics system with fixed buckets, such as
+ * Prometheus, query {@link #getCountAtOrBelow(long)} once per bucket
+ * bound.</p>
+ */
+public final class HistogramSnapshot {
+    /**
+     * Maximum percentile.
+     */
+    private static final double MAX_PERCENTILE = 100.0;
+
+    /**
+     * Value counts by bucket.
+     */
+    private final long[] counts;
+
+    /**
+     * Number of recorded values.
+     */
+    private final long count;
+
+    /**
+     * Sum of recorded values in nanoseconds.
+     */
+    private final long totalNanos;
+
+    /**
+     * Largest recorded value in nanoseconds.
+     */
+    private final long maxNanos;
+
+    /**
+     * Constructor with parameters.
+     * @param countsParam Value counts by bucket, owned by the snapshot
+     * @param totalNanosParam Sum of recorded values
+     * @param maxNanosParam Largest recorded value
+     */
+    HistogramSnapshot(final long[] countsParam, final long totalNanosParam,
+                      final long maxNanosParam) {
+        long sum = 0;
+        for (long bucketCount : countsParam) {
+            sum += bucketCount;
+        }
+        this.counts = countsParam;
+        this.count = sum;
+        this.totalNanos = totalNanosParam;
+        this.maxNanos = maxNanosParam;
+    }
+
+    /**
+     * Get the number of recorded values.
+     * @return Value count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the sum of recorded values.
+     * @return Total in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Get the largest recorded value.
+     * @return Maximum in nanoseconds, 0 when empty
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Get the mean of recorded values.
+     * @return Mean in nanoseconds, 0 when empty
+     */
+    public double getMeanNanos() {
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    /**
+     * Get the value below which the given percentage of recorded values
+     * fall.
+     * @param percentileParam Percentile between 0 and 100
+     * @return Value in nanoseconds, at most the recorded maximum; 0 when
+     *         empty
+     */
+    public long getValueAtPercentile(final double percentileParam) {
+        if (percentileParam < 0 || percentileParam > MAX_PERCENTILE) {
+            throw new IllegalArgumentException(
+                    "percentile must be between 0 and 100");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(
+                percentileParam / MAX_PERCENTILE * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.bucketHighestValue(i),
+                        maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    /**
+     * Get the number of recorded values in buckets that lie entirely at or
+     * below a bound.
+     * @param nanosParam Upper bound in nanoseconds
+     * @return Cumulative value count
+     */
+    public long getCountAtOrBelow(final long nanosParam) {
+        long sum = 0;
+        for (int i = 0; i < counts.length
+                && LatencyHistogram.bucketHighestValue(i) <= nanosParam; i++) {
+            sum += counts[i];
+        }
+        return sum;
+    }
+}
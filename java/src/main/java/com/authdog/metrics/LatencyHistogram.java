@@ -0,0 +1,114 @@
+package com.authdog.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds.
+ *
+ * <p>Buckets are log-linear in the style of HdrHistogram: values below 64
+ * are counted exactly, and every power-of-two range above is split into 32
+ * sub-buckets, so a recorded value is reported within about 3% of its true
+ * value. Values up to about 73 minutes are tracked; larger values are
+ * counted in the last bucket. Recording never allocates or blocks.</p>
+ */
+public final class LatencyHistogram {
+    /**
+     * Number of bits of precision kept per power-of-two range.
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * Number of sub-buckets per power-of-two range.
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Values below this limit have a bucket each.
+     */
+    private static final long LINEAR_LIMIT = 2L * SUB_BUCKET_COUNT;
+
+    /**
+     * Number of bits in the largest tracked value.
+     */
+    private static final int MAX_VALUE_BITS = 42;
+
+    /**
+     * Largest tracked value in nanoseconds.
+     */
+    static final long MAX_TRACKABLE_NANOS = (1L << MAX_VALUE_BITS) - 1;
+
+    /**
+     * Number of buckets.
+     */
+    static final int BUCKET_COUNT = bucketIndex(MAX_TRACKABLE_NANOS) + 1;
+
+    /**
+     * Value counts by bucket.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Sum of recorded values.
+     */
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * Largest recorded value.
+     */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Record a latency.
+     * @param nanosParam Latency in nanoseconds, negative values count as 0
+     */
+    public void record(final long nanosParam) {
+        long nanos = Math.max(nanosParam, 0);
+        counts.incrementAndGet(bucketIndex(nanos));
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    /**
+     * Take a snapshot of the recorded latencies. Values recorded while the
+     * snapshot is taken may or may not be included.
+     * @return The snapshot
+     */
+    public HistogramSnapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new HistogramSnapshot(copy, total.sum(), max.get());
+    }
+
+    /**
+     * Find the bucket of a value.
+     * @param valueParam Non-negative value
+     * @return Bucket index
+     */
+    static int bucketIndex(final long valueParam) {
+        long value = Math.min(valueParam, MAX_TRACKABLE_NANOS);
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value)
+                - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    /**
+     * Get the largest value counted in a bucket.
+     * @param indexParam Bucket index
+     * @return Largest value of the bucket
+     */
+    static long bucketHighestValue(final int indexParam) {
+        if (indexParam < LINEAR_LIMIT) {
+            return indexParam;
+        }
+        int shift = indexParam / SUB_BUCKET_COUNT - 1;
+        long subBucket = indexParam % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
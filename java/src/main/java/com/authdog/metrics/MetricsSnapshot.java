@@ -0,0 +1,153 @@
+package com.authdog.metrics;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Point-in-time view of a client's userinfo metrics.
+ *
+ * <p>Latency histograms are cumulative since the client was created.
+ * Gauges reflect the moment the snapshot was taken.</p>
+ */
+public final class MetricsSnapshot {
+    /**
+     * Empty histogram reported for outcomes without a recording.
+     */
+    private static final HistogramSnapshot EMPTY =
+            new LatencyHistogram().snapshot();
+
+    /**
+     * Latency histograms by outcome.
+     */
+    private final Map<Outcome, HistogramSnapshot> latencies;
+
+    /**
+     * Number of userinfo requests in flight.
+     */
+    private final int inFlightRequests;
+
+    /**
+     * Number of calls that shared another call's request.
+     */
+    private final long coalescedCalls;
+
+    /**
+     * Number of async calls running on the dispatcher.
+     */
+    private final int runningCalls;
+
+    /**
+     * Number of async calls waiting for a dispatcher slot.
+     */
+    private final int queuedCalls;
+
+    /**
+     * Number of pooled connections.
+     */
+    private final int connections;
+
+    /**
+     * Number of idle pooled connections.
+     */
+    private final int idleConnections;
+
+    /**
+     * Constructor with parameters.
+     * @param latenciesParam Latency histograms by outcome
+     * @param inFlightRequestsParam Number of userinfo requests in flight
+     * @param coalescedCallsParam Number of calls that shared another call's
+     *        request
+     * @param runningCallsParam Number of async calls running
+     * @param queuedCallsParam Number of async calls waiting to run
+     * @param connectionsParam Number of pooled connections
+     * @param idleConnectionsParam Number of idle pooled connections
+     */
+    public MetricsSnapshot(final Map<Outcome, HistogramSnapshot> latenciesParam,
+                           final int inFlightRequestsParam,
+                           final long coalescedCallsParam,
+                           final int runningCallsParam,
+                           final int queuedCallsParam,
+                           final int connectionsParam,
+                           final int idleConnectionsParam) {
+        Map<Outcome, HistogramSnapshot> copy = new EnumMap<>(Outcome.class);
+        copy.putAll(latenciesParam);
+        this.latencies = Collections.unmodifiableMap(copy);
+        this.inFlightRequests = inFlightRequestsParam;
+        this.coalescedCalls = coalescedCallsParam;
+        this.runningCalls = runningCallsParam;
+        this.queuedCalls = queuedCallsParam;
+        this.connections = connectionsParam;
+        this.idleConnections = idleConnectionsParam;
+    }
+
+    /**
+     * Get the latency histogram of requests with an outcome.
+     * @param outcomeParam The outcome
+     * @return The histogram, empty when no request had the outcome
+     */
+    public HistogramSnapshot getLatency(final Outcome outcomeParam) {
+        return latencies.getOrDefault(outcomeParam, EMPTY);
+    }
+
+    /**
+     * Get the number of completed requests across all outcomes.
+     * @return Request count
+     */
+    public long getRequestCount() {
+        long sum = 0;
+        for (HistogramSnapshot histogram : latencies.values()) {
+            sum += histogram.getCount();
+        }
+        return sum;
+    }
+
+    /**
+     * Get the number of userinfo requests in flight, blocking and async.
+     * @return In-flight request count
+     */
+    public int getInFlightRequests() {
+        return inFlightRequests;
+    }
+
+    /**
+     * Get the number of calls that shared an in-flight request made for the
+     * same access token instead of issuing their own.
+     * @return Coalesced call count
+     */
+    public long getCoalescedCalls() {
+        return coalescedCalls;
+    }
+
+    /**
+     * Get the number of async calls running on the HTTP dispatcher.
+     * @return Running call count
+     */
+    public int getRunningCalls() {
+        return runningCalls;
+    }
+
+    /**
+     * Get the number of async calls waiting for a dispatcher slot.
+     * @return Queued call count
+     */
+    public int getQueuedCalls() {
+        return queuedCalls;
+    }
+
+    /**
+     * Get the number of connections in the pool.
+     * @return Connection count
+     */
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * Get the number of idle connections in the pool.
+     * @return Idle connection count
+     */
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+}
@@ -0,0 +1,48 @@
+package com.authdog.metrics;
+
+/**
+ * Outcome of a userinfo request sent to the API.
+ */
+public enum Outcome {
+    /**
+     * HTTP 200 with a readable userinfo response.
+     */
+    SUCCESS,
+
+    /**
+     * HTTP 401, the access token or API key was rejected.
+     */
+    UNAUTHORIZED,
+
+    /**
+     * HTTP 500 reporting that the GraphQL query failed.
+     */
+    GRAPHQL_ERROR,
+
+    /**
+     * HTTP 500 reporting that user info could not be fetched.
+     */
+    FETCH_ERROR,
+
+    /**
+     * Any other HTTP error status.
+     */
+    HTTP_ERROR,
+
+    /**
+     * HTTP 200 with a body that is not a userinfo response.
+     */
+    INVALID_RESPONSE,
+
+    /**
+     * The request or response failed at the I/O level, including timeouts.
+     */
+    IO_ERROR,
+
+    /**
+     * The request was cancelled by the client, such as a hedged request
+     * that lost to another or a future cancelled by its caller. It counts
+     * as neither a success nor a failure of the API.
+     */
+    CANCELLED
+}
@@ -0,0 +1,12 @@
+/**
+ * Metrics support for the Authdog SDK.
+ *
+ * <p>This package contains the latency histograms and point-in-time
+ * snapshots exposed by {@link com.authdog.AuthdogClient#getMetrics()}. The
+ * types have no dependencies, so they can be bridged to any metrics library
+ * by polling the snapshot.</p>
+ *
+ * @author Authdog Team
+ * @version 0.1.0
+ */
+package com.authdog.metrics;
@@ -0,0 +1,318 @@
+package com.authdog.retry;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * When and how often to retry a userinfo request after a transient
+ * failure.
+ *
+ * <p>A request is tried at most {@link Builder#maxAttempts(int)} times.
+ * Before retry {@code n}, the client waits a random delay between 0 and
+ * {@code min(maxDelay, baseDelay * 2^(n - 1))}, which is exponential
+ * backoff with full jitter. A retry is skipped when that delay would run
+ * past the call's deadline, and each attempt's call timeout is cut to the
+ * time left.</p>
+ *
+ * <p>Retries are drawn from a token bucket: it starts with
+ * {@link Builder#budgetBurst(int)} retries, every request earns
+ * {@link Builder#budgetRatio(double)} of a retry, and every retry spends a
+ * whole one. During an outage the bucket drains and retries fall to that
+ * ratio of requests, so they cannot amplify the outage into a retry
+ * storm.</p>
+ */
+public final class RetryPolicy {
+    /**
+     * Default maximum number of attempts, including the first.
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    /**
+     * Default backoff before the first retry, in milliseconds.
+     */
+    public static final long DEFAULT_BASE_DELAY_MS = 50;
+
+    /**
+     * Default cap on the backoff, in milliseconds.
+     */
+    public static final long DEFAULT_MAX_DELAY_MS = 1_000;
+
+    /**
+     * Default retries earned per request.
+     */
+    public static final double DEFAULT_BUDGET_RATIO = 0.1;
+
+    /**
+     * Default number of retries the bucket holds.
+     */
+    public static final int DEFAULT_BUDGET_BURST = 10;
+
+    /**
+     * Maximum number of attempts, including the first.
+     */
+    private final int maxAttempts;
+
+    /**
+     * Backoff before the first retry, in milliseconds.
+     */
+    private final long baseDelayMs;
+
+    /**
+     * Cap on the backoff, in milliseconds.
+     */
+    private final long maxDelayMs;
+
+    /**
+     * Time a call may take across all attempts, in milliseconds, 0 for
+     * none.
+     */
+    private final long deadlineMs;
+
+    /**
+     * Retries earned per request.
+     */
+    private final double budgetRatio;
+
+    /**
+     * Number of retries the bucket holds.
+     */
+    private final int budgetBurst;
+
+    /**
+     * Retries left in the bucket.
+     */
+    private double budget;
+
+    /**
+     * Retries sent.
+     */
+    private long retries;
+
+    /**
+     * Retries denied because the bucket was empty.
+     */
+    private long budgetExhausted;
+
+    /**
+     * Constructor with a builder.
+     * @param builderParam The builder
+     */
+    private RetryPolicy(final Builder builderParam) {
+        this.maxAttempts = builderParam.maxAttempts;
+        this.baseDelayMs = builderParam.baseDelayMs;
+        this.maxDelayMs = builderParam.maxDelayMs;
+        this.deadlineMs = builderParam.deadlineMs;
+        this.budgetRatio = builderParam.budgetRatio;
+        this.budgetBurst = builderParam.budgetBurst;
+        this.budget = builderParam.budgetBurst;
+    }
+
+    /**
+     * Create a retry policy with the default settings.
+     * @return The retry policy
+     */
+    public static RetryPolicy ofDefaults() {
+        return builder().build();
+    }
+
+    /**
+     * Create a builder.
+     * @return A new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Get the maximum number of attempts.
+     * @return Attempts, including the first
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Get the time a call may take across all attempts.
+     * @return Deadline in milliseconds, 0 for none
+     */
+    public long getDeadlineMs() {
+        return deadlineMs;
+    }
+
+    /**
+     * Draw the backoff before a retry.
+     * @param attemptParam Number of the attempt that failed, from 1
+     * @return Delay in milliseconds
+     */
+    public long backoffMs(final int attemptParam) {
+        int shift = Math.min(attemptParam - 1, Long.SIZE - 2);
+        long ceiling = baseDelayMs > maxDelayMs >> shift
+                ? maxDelayMs
+                : baseDelayMs << shift;
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Count a request towards the retry budget.
+     */
+    public synchronized void onRequest() {
+        budget = Math.min(budgetBurst, budget + budgetRatio);
+    }
+
+    /**
+     * Take a retry from the budget.
+     * @return True when a retry may be sent
+     */
+    public synchronized boolean tryRetry() {
+        if (budget < 1) {
+            budgetExhausted++;
+            return false;
+        }
+        budget -= 1;
+        retries++;
+        return true;
+    }
+
+    /**
+     * Get the number of retries sent.
+     * @return Retry count
+     */
+    public synchronized long getRetryCount() {
+        return retries;
+    }
+
+    /**
+     * Get the number of retries denied because the budget was spent.
+     * @return Denied retry count
+     */
+    public synchronized long getBudgetExhaustedCount() {
+        return budgetExhausted;
+    }
+
+    /**
+     * Builder of {@link RetryPolicy}.
+     */
+    public static final class Builder {
+        /**
+         * Maximum number of attempts, including the first.
+         */
+        private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+        /**
+         * Backoff before the first retry, in milliseconds.
+         */
+        private long baseDelayMs = DEFAULT_BASE_DELAY_MS;
+
+        /**
+         * Cap on the backoff, in milliseconds.
+         */
+        private long maxDelayMs = DEFAULT_MAX_DELAY_MS;
+
+        /**
+         * Time a call may take across all attempts, 0 for none.
+         */
+        private long deadlineMs;
+
+        /**
+         * Retries earned per request.
+         */
+        private double budgetRatio = DEFAULT_BUDGET_RATIO;
+
+        /**
+         * Number of retries the bucket holds.
+         */
+        private int budgetBurst = DEFAULT_BUDGET_BURST;
+
+        /**
+         * Hidden constructor, use {@link RetryPolicy#builder()}.
+         */
+        private Builder() {
+        }
+
+        /**
+         * Set the maximum number of attempts.
+         * @param maxAttemptsParam Attempts, including the first
+         * @return This builder
+         */
+        public Builder maxAttempts(final int maxAttemptsParam) {
+            this.maxAttempts = maxAttemptsParam;
+            return this;
+        }
+
+        /**
+         * Set the backoff ceiling before the first retry; it doubles with
+         * every further retry.
+         * @param baseDelayMsParam Delay in milliseconds
+         * @return This builder
+         */
+        public Builder baseDelayMs(final long baseDelayMsParam) {
+            this.baseDelayMs = baseDelayMsParam;
+            return this;
+        }
+
+        /**
+         * Set the cap on the backoff ceiling.
+         * @param maxDelayMsParam Delay in milliseconds
+         * @return This builder
+         */
+        public Builder maxDelayMs(final long maxDelayMsParam) {
+            this.maxDelayMs = maxDelayMsParam;
+            return this;
+        }
+
+        /**
+         * Set the time a call may take across all attempts and backoffs.
+         * @param deadlineMsParam Deadline in milliseconds, 0 for none
+         * @return This builder
+         */
+        public Builder deadlineMs(final long deadlineMsParam) {
+            this.deadlineMs = deadlineMsParam;
+            return this;
+        }
+
+        /**
+         * Set the share of requests that may be retried once the bucket is
+         * drained.
+         * @param budgetRatioParam Retries earned per request, between 0
+         *                         exclusive and 1
+         * @return This builder
+         */
+        public Builder budgetRatio(final double budgetRatioParam) {
+            this.budgetRatio = budgetRatioParam;
+            return this;
+        }
+
+        /**
+         * Set the number of retries the bucket holds, and starts with.
+         * @param budgetBurstParam Number of retries
+         * @return This builder
+         */
+        public Builder budgetBurst(final int budgetBurstParam) {
+            this.budgetBurst = budgetBurstParam;
+            return this;
+        }
+
+        /**
+         * Build the retry policy.
+         * @return The retry policy
+         */
+        public RetryPolicy build() {
+            if (maxAttempts <= 0 || budgetBurst <= 0) {
+                throw new IllegalArgumentException(
+                        "maxAttempts and budgetBurst must be positive");
+            }
+            if (baseDelayMs < 0 || maxDelayMs < baseDelayMs) {
+                throw new IllegalArgumentException(
+                        "delays must satisfy 0 <= baseDelayMs <= maxDelayMs");
+            }
+            if (deadlineMs < 0) {
+                throw new IllegalArgumentException(
+                        "deadlineMs must not be negative");
+            }
+            if (!(budgetRatio > 0 && budgetRatio <= 1)) {
+                throw new IllegalArgumentException(
+                        "budgetRatio must be between 0 and 1");
+            }
+            return new RetryPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * Retries for the Authdog SDK.
+ *
+ * <p>This package contains the retry policy that
+ * {@link com.authdog.AuthdogClient} can apply to its userinfo requests, so
+ * that connection resets, gateway errors and timeouts are retried with
+ * jittered backoff, within a deadline and a budget that keeps retries from
+ * piling onto an outage.</p>
+ *
+ * @author Authdog Team
+ * @version 0.1.0
+ */
+package com.authdog.retry;
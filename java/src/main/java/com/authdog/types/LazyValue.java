@@ -0,0 +1,67 @@
+package com.authdog.types;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Raw JSON decoded on first access.
+ *
+ * <p>The JSON is released once decoded. Safe to share between threads; the
+ * value is decoded at most once.</p>
+ * @param <T> Decoded type
+ */
+final class LazyValue<T> {
+    /**
+     * Reader for the decoded type.
+     */
+    private final ObjectReader reader;
+
+    /**
+     * Raw JSON, null once decoded.
+     */
+    private byte[] json;
+
+    /**
+     * Decoded value, valid once {@link #decoded} is set.
+     */
+    private T value;
+
+    /**
+     * Whether the JSON has been decoded.
+     */
+    private volatile boolean decoded;
+
+    /**
+     * Constructor with parameters.
+     * @param readerParam Reader for the decoded type
+     * @param jsonParam Raw JSON, owned by this value
+     */
+    LazyValue(final ObjectReader readerParam, final byte[] jsonParam) {
+        this.reader = readerParam;
+        this.json = jsonParam;
+    }
+
+    /**
+     * Get the value, decoding it on the first call.
+     * @return The decoded value
+     * @throws UncheckedIOException When the JSON does not match the type
+     */
+    T get() {
+        if (!decoded) {
+            synchronized (this) {
+                if (!decoded) {
+                    try {
+                        value = reader.readValue(json);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    json = null;
+                    decoded = true;
+                }
+            }
+        }
+        return value;
+    }
+}
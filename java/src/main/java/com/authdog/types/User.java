@@ -141,6 +141,36 @@ public final class User {
     @JsonProperty("environmentId")
     private String environmentId;
 
+    /**
+     * Name information not yet decoded, null when eager.
+     */
+    private LazyValue<Names> lazyNames;
+
+    /**
+     * User photos not yet decoded, null when eager.
+     */
+    private LazyValue<List<Photo>> lazyPhotos;
+
+    /**
+     * Phone numbers not yet decoded, null when eager.
+     */
+    private LazyValue<List<Object>> lazyPhoneNumbers;
+
+    /**
+     * Addresses not yet decoded, null when eager.
+     */
+    private LazyValue<List<Object>> lazyAddresses;
+
+    /**
+     * Email addresses not yet decoded, null when eager.
+     */
+    private LazyValue<List<Email>> lazyEmails;
+
+    /**
+     * Verification status not yet decoded, null when eager.
+     */
+    private LazyValue<List<Verification>> lazyVerifications;
+
     /**
      * Default constructor.
      */
@@ -343,7 +373,7 @@ public final class User {
      * @return Name information
      */
     public Names getNames() {
-        return names;
+        return lazyNames != null ? lazyNames.get() : names;
     }
 
     /**
@@ -352,6 +382,7 @@ public final class User {
      */
     public void setNames(final Names namesParam) {
         this.names = namesParam;
+        this.lazyNames = null;
     }
 
     /**
@@ -359,7 +390,8 @@ public final class User {
      * @return User photos
      */
     public List<Photo> getPhotos() {
-        return photos != null ? Collections.unmodifiableList(photos) : null;
+        List<Photo> value = lazyPhotos != null ? lazyPhotos.get() : photos;
+        return value != null ? Collections.unmodifiableList(value) : null;
     }
 
     /**
@@ -368,6 +400,7 @@ public final class User {
      */
     public void setPhotos(final List<Photo> photosParam) {
         this.photos = photosParam != null ? new ArrayList<>(photosParam) : null;
+        this.lazyPhotos = null;
     }
 
     /**
@@ -375,8 +408,9 @@ public final class User {
      * @return Phone numbers
      */
     public List<Object> getPhoneNumbers() {
-        return phoneNumbers != null
-            ? Collections.unmodifiableList(phoneNumbers) : null;
+        List<Object> value = lazyPhoneNumbers != null
+            ? lazyPhoneNumbers.get() : phoneNumbers;
+        return value != null ? Collections.unmodifiableList(value) : null;
     }
 
     /**
@@ -386,6 +420,7 @@ public final class User {
     public void setPhoneNumbers(final List<Object> phoneNumbersParam) {
         this.phoneNumbers = phoneNumbersParam != null
             ? new ArrayList<>(phoneNumbersParam) : null;
+        this.lazyPhoneNumbers = null;
     }
 
     /**
@@ -393,8 +428,9 @@ public final class User {
      * @return Addresses
      */
     public List<Object> getAddresses() {
-        return addresses != null
-            ? Collections.unmodifiableList(addresses) : null;
+        List<Object> value = lazyAddresses != null
+            ? lazyAddresses.get() : addresses;
+        return value != null ? Collections.unmodifiableList(value) : null;
     }
 
     /**
@@ -404,6 +440,7 @@ public final class User {
     public void setAddresses(final List<Object> addressesParam) {
         this.addresses = addressesParam != null
             ? new ArrayList<>(addressesParam) : null;
+        this.lazyAddresses = null;
     }
 
     /**
@@ -411,7 +448,8 @@ public final class User {
      * @return Email addresses
      */
     public List<Email> getEmails() {
-        return emails != null ? Collections.unmodifiableList(emails) : null;
+        List<Email> value = lazyEmails != null ? lazyEmails.get() : emails;
+        return value != null ? Collections.unmodifiableList(value) : null;
     }
 
     /**
@@ -420,6 +458,7 @@ public final class User {
      */
     public void setEmails(final List<Email> emailsParam) {
         this.emails = emailsParam != null ? new ArrayList<>(emailsParam) : null;
+        this.lazyEmails = null;
     }
 
     /**
@@ -427,8 +466,9 @@ public final class User {
      * @return Verification status
      */
     public List<Verification> getVerifications() {
-        return verifications != null
-            ? Collections.unmodifiableList(verifications) : null;
+        List<Verification> value = lazyVerifications != null
+            ? lazyVerifications.get() : verifications;
+        return value != null ? Collections.unmodifiableList(value) : null;
     }
 
     /**
@@ -438,6 +478,7 @@ public final class User {
     public void setVerifications(final List<Verification> verificationsParam) {
         this.verifications = verificationsParam != null
             ? new ArrayList<>(verificationsParam) : null;
+        this.lazyVerifications = null;
     }
 
     /**
@@ -503,4 +544,59 @@ public final class User {
     public void setEnvironmentId(final String environmentIdParam) {
         this.environmentId = environmentIdParam;
     }
+
+    /**
+     * Defer decoding of name information to the first access.
+     * @param namesParam Raw name information
+     */
+    void deferNames(final LazyValue<Names> namesParam) {
+        this.names = null;
+        this.lazyNames = namesParam;
+    }
+
+    /**
+     * Defer decoding of user photos to the first access.
+     * @param photosParam Raw user photos
+     */
+    void deferPhotos(final LazyValue<List<Photo>> photosParam) {
+        this.photos = null;
+        this.lazyPhotos = photosParam;
+    }
+
+    /**
+     * Defer decoding of phone numbers to the first access.
+     * @param phoneNumbersParam Raw phone numbers
+     */
+    void deferPhoneNumbers(final LazyValue<List<Object>> phoneNumbersParam) {
+        this.phoneNumbers = null;
+        this.lazyPhoneNumbers = phoneNumbersParam;
+    }
+
+    /**
+     * Defer decoding of addresses to the first access.
+     * @param addressesParam Raw addresses
+     */
+    void deferAddresses(final LazyValue<List<Object>> addressesParam) {
+        this.addresses = null;
+        this.lazyAddresses = addressesParam;
+    }
+
+    /**
+     * Defer decoding of email addresses to the first access.
+     * @param emailsParam Raw email addresses
+     */
+    void deferEmails(final LazyValue<List<Email>> emailsParam) {
+        this.emails = null;
+        this.lazyEmails = emailsParam;
+    }
+
+    /**
+     * Defer decoding of verification status to the first access.
+     * @param verificationsParam Raw verification status
+     */
+    void deferVerifications(
+            final LazyValue<List<Verification>> verificationsParam) {
+        this.verifications = null;
+        this.lazyVerifications = verificationsParam;
+    }
 }
@@ -0,0 +1,61 @@
+package com.authdog.types;
+
+/**
+ * Parts of a {@link UserInfoResponse} that a caller can ask to decode.
+ *
+ * <p>Parts that are not requested are skipped by the parser and left null
+ * (or false) in the response.</p>
+ */
+public enum UserFields {
+    /**
+     * Response metadata.
+     */
+    META,
+
+    /**
+     * Session information.
+     */
+    SESSION,
+
+    /**
+     * User ID, environment ID and active status.
+     */
+    IDENTITY,
+
+    /**
+     * Remaining scalar user fields: external ID, user name, display name,
+     * nickname, profile URL, title, user type, preferred language, locale,
+     * timezone, provider and timestamps.
+     */
+    PROFILE,
+
+    /**
+     * Name information.
+     */
+    NAMES,
+
+    /**
+     * User photos.
+     */
+    PHOTOS,
+
+    /**
+     * Phone numbers.
+     */
+    PHONE_NUMBERS,
+
+    /**
+     * Addresses.
+     */
+    ADDRESSES,
+
+    /**
+     * Email addresses.
+     */
+    EMAILS,
+
+    /**
+     * Verification status.
+     */
+    VERIFICATIONS
+}
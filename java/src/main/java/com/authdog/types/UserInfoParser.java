@@ -0,0 +1,477 @@
+package com.authdog.types;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streaming parser for userinfo responses that decodes only what callers
+ * need.
+ *
+ * <p>Parsing can be projected onto a set of {@link UserFields}: parts that
+ * are not requested are skipped in the token stream without being decoded.
+ * In lazy mode, requested nested user fields (names, photos, phone numbers,
+ * addresses, emails and verifications) are kept as compact copies of their
+ * raw JSON and decoded on the first call to their getter, which cuts parse
+ * time and retained heap for callers that mostly read a user's identity.
+ * Unknown fields are skipped.</p>
+ *
+ * <p>Instances are immutable and safe to share between threads.</p>
+ */
+public final class UserInfoParser {
+    /**
+     * Every part of the response.
+     */
+    private static final Set<UserFields> ALL_FIELDS =
+            Collections.unmodifiableSet(EnumSet.allOf(UserFields.class));
+
+    /**
+     * Parts of the response that belong to the user.
+     */
+    private static final Set<UserFields> USER_FIELDS =
+            Collections.unmodifiableSet(EnumSet.range(UserFields.IDENTITY,
+                    UserFields.VERIFICATIONS));
+
+    /**
+     * Mapper whose factory creates parsers.
+     */
+    private final ObjectMapper mapper;
+
+    /**
+     * Reader for response metadata.
+     */
+    private final ObjectReader metaReader;
+
+    /**
+     * Reader for session information.
+     */
+    private final ObjectReader sessionReader;
+
+    /**
+     * Reader for name information.
+     */
+    private final ObjectReader namesReader;
+
+    /**
+     * Reader for user photos.
+     */
+    private final ObjectReader photosReader;
+
+    /**
+     * Reader for untyped lists such as phone numbers and addresses.
+     */
+    private final ObjectReader objectsReader;
+
+    /**
+     * Reader for email addresses.
+     */
+    private final ObjectReader emailsReader;
+
+    /**
+     * Reader for verification status.
+     */
+    private final ObjectReader verificationsReader;
+
+    /**
+     * Constructor with parameters.
+     * @param mapperParam Mapper used to decode nested values
+     */
+    public UserInfoParser(final ObjectMapper mapperParam) {
+        this.mapper = mapperParam;
+        this.metaReader = mapperParam.readerFor(Meta.class);
+        this.sessionReader = mapperParam.readerFor(Session.class);
+        this.namesReader = mapperParam.readerFor(Names.class);
+        this.photosReader = mapperParam.readerFor(
+                new TypeReference<List<Photo>>() { });
+        this.objectsReader = mapperParam.readerFor(
+                new TypeReference<List<Object>>() { });
+        this.emailsReader = mapperParam.readerFor(
+                new TypeReference<List<Email>>() { });
+        this.verificationsReader = mapperParam.readerFor(
+                new TypeReference<List<Verification>>() { });
+    }
+
+    /**
+     * Parse the requested parts of a userinfo response.
+     * @param inputParam UTF-8 encoded response body
+     * @param fieldsParam Parts to decode, the rest is skipped
+     * @return The response, or null for a JSON null
+     * @throws IOException When the body cannot be read or is not a valid
+     *         userinfo response
+     */
+    public UserInfoResponse parse(final InputStream inputParam,
+                                  final Set<UserFields> fieldsParam)
+            throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(inputParam)) {
+            return readResponse(parser, null, fieldsParam);
+        }
+    }
+
+    /**
+     * Parse a userinfo response, deferring nested user fields.
+     *
+     * <p>A deferred field that does not match its type fails on first
+     * access with an {@link java.io.UncheckedIOException}.</p>
+     * @param jsonParam UTF-8 encoded response body
+     * @return The response, or null for a JSON null
+     * @throws IOException When the body is not a valid userinfo response
+     */
+    public UserInfoResponse parseLazily(final byte[] jsonParam)
+            throws IOException {
+        return parseLazily(jsonParam, ALL_FIELDS);
+    }
+
+    /**
+     * Parse the requested parts of a userinfo response, deferring nested
+     * user fields.
+     * @param jsonParam UTF-8 encoded response body
+     * @param fieldsParam Parts to decode, the rest is skipped
+     * @return The response, or null for a JSON null
+     * @throws IOException When the body is not a valid userinfo response
+     */
+    public UserInfoResponse parseLazily(final byte[] jsonParam,
+                                        final Set<UserFields> fieldsParam)
+            throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(jsonParam)) {
+            return readResponse(parser, jsonParam, fieldsParam);
+        }
+    }
+
+    /**
+     * Read a userinfo response.
+     * @param parserParam Parser at the start of the body
+     * @param jsonParam Body the parser reads from in lazy mode, null to
+     *        decode nested fields eagerly
+     * @param fieldsParam Parts to decode
+     * @return The response, or null for a JSON null
+     * @throws IOException When the body is not a valid userinfo response
+     */
+    private UserInfoResponse readResponse(final JsonParser parserParam,
+                                          final byte[] jsonParam,
+                                          final Set<UserFields> fieldsParam)
+            throws IOException {
+        JsonToken token = parserParam.nextToken();
+        if (token == null) {
+            throw MismatchedInputException.from(parserParam,
+                    UserInfoResponse.class,
+                    "No content to map due to end-of-input");
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expect(parserParam, JsonToken.START_OBJECT, UserInfoResponse.class);
+        boolean wantsUser = !Collections.disjoint(fieldsParam, USER_FIELDS);
+        UserInfoResponse response = new UserInfoResponse();
+        while (parserParam.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parserParam.currentName();
+            parserParam.nextToken();
+            if ("meta".equals(name)
+                    && fieldsParam.contains(UserFields.META)) {
+                response.setMeta(metaReader.readValue(parserParam));
+            } else if ("session".equals(name)
+                    && fieldsParam.contains(UserFields.SESSION)) {
+                response.setSession(sessionReader.readValue(parserParam));
+            } else if ("user".equals(name) && wantsUser) {
+                response.setUser(readUser(parserParam, jsonParam,
+                        fieldsParam));
+            } else {
+                parserParam.skipChildren();
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Read the user object at the current token.
+     * @param parserParam Parser positioned on the user value
+     * @param jsonParam Body the parser reads from in lazy mode, or null
+     * @param fieldsParam Parts to decode
+     * @return The user, or null for a JSON null
+     * @throws IOException When the user is malformed
+     */
+    private User readUser(final JsonParser parserParam, final byte[] jsonParam,
+                          final Set<UserFields> fieldsParam)
+            throws IOException {
+        if (parserParam.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expect(parserParam, JsonToken.START_OBJECT, User.class);
+        User user = new User();
+        while (parserParam.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parserParam.currentName();
+            parserParam.nextToken();
+            UserFields field = fieldOf(name);
+            if (field == null || !fieldsParam.contains(field)) {
+                parserParam.skipChildren();
+            } else if (!readNested(parserParam, jsonParam, name, user)) {
+                readScalar(parserParam, name, user);
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Find the part of the response a user field belongs to.
+     * @param nameParam Field name
+     * @return The part, or null for an unknown field
+     */
+    private static UserFields fieldOf(final String nameParam) {
+        switch (nameParam) {
+            case "id":
+            case "environmentId":
+            case "active":
+                return UserFields.IDENTITY;
+            case "externalId":
+            case "userName":
+            case "displayName":
+            case "nickName":
+            case "profileUrl":
+            case "title":
+            case "userType":
+            case "preferredLanguage":
+            case "locale":
+            case "timezone":
+            case "provider":
+            case "createdAt":
+            case "updatedAt":
+                return UserFields.PROFILE;
+            case "names":
+                return UserFields.NAMES;
+            case "photos":
+                return UserFields.PHOTOS;
+            case "phoneNumbers":
+                return UserFields.PHONE_NUMBERS;
+            case "addresses":
+                return UserFields.ADDRESSES;
+            case "emails":
+                return UserFields.EMAILS;
+            case "verifications":
+                return UserFields.VERIFICATIONS;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Read or defer a nested user field, if the field is one.
+     * @param parserParam Parser positioned on the field value
+     * @param jsonParam Body the parser reads from in lazy mode, or null
+     * @param nameParam Field name
+     * @param userParam User to set the field on
+     * @return True when the field was a nested one
+     * @throws IOException When the value is not of the field's type
+     */
+    private boolean readNested(final JsonParser parserParam,
+                               final byte[] jsonParam, final String nameParam,
+                               final User userParam) throws IOException {
+        boolean lazy = jsonParam != null;
+        switch (nameParam) {
+            case "names":
+                if (lazy) {
+                    userParam.deferNames(slice(parserParam, jsonParam,
+                            JsonToken.START_OBJECT, namesReader));
+                } else {
+                    userParam.setNames(namesReader.readValue(parserParam));
+                }
+                return true;
+            case "photos":
+                if (lazy) {
+                    userParam.deferPhotos(slice(parserParam, jsonParam,
+                            JsonToken.START_ARRAY, photosReader));
+                } else {
+                    userParam.setPhotos(photosReader.readValue(parserParam));
+                }
+                return true;
+            case "phoneNumbers":
+                if (lazy) {
+                    userParam.deferPhoneNumbers(slice(parserParam, jsonParam,
+                            JsonToken.START_ARRAY, objectsReader));
+                } else {
+                    userParam.setPhoneNumbers(
+                            objectsReader.readValue(parserParam));
+                }
+                return true;
+            case "addresses":
+                if (lazy) {
+                    userParam.deferAddresses(slice(parserParam, jsonParam,
+                            JsonToken.START_ARRAY, objectsReader));
+                } else {
+                    userParam.setAddresses(
+                            objectsReader.readValue(parserParam));
+                }
+                return true;
+            case "emails":
+                if (lazy) {
+                    userParam.deferEmails(slice(parserParam, jsonParam,
+                            JsonToken.START_ARRAY, emailsReader));
+                } else {
+                    userParam.setEmails(emailsReader.readValue(parserParam));
+                }
+                return true;
+            case "verifications":
+                if (lazy) {
+                    userParam.deferVerifications(slice(parserParam, jsonParam,
+                            JsonToken.START_ARRAY, verificationsReader));
+                } else {
+                    userParam.setVerifications(
+                            verificationsReader.readValue(parserParam));
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Read a scalar user field.
+     * @param parserParam Parser positioned on the field value
+     * @param nameParam Field name
+     * @param userParam User to set the field on
+     * @throws IOException When the value is not a scalar
+     */
+    private static void readScalar(final JsonParser parserParam,
+                                   final String nameParam,
+                                   final User userParam) throws IOException {
+        switch (nameParam) {
+            case "id":
+                userParam.setId(text(parserParam));
+                break;
+            case "externalId":
+                userParam.setExternalId(text(parserParam));
+                break;
+            case "userName":
+                userParam.setUserName(text(parserParam));
+                break;
+            case "displayName":
+                userParam.setDisplayName(text(parserParam));
+                break;
+            case "nickName":
+                userParam.setNickName(text(parserParam));
+                break;
+            case "profileUrl":
+                userParam.setProfileUrl(text(parserParam));
+                break;
+            case "title":
+                userParam.setTitle(text(parserParam));
+                break;
+            case "userType":
+                userParam.setUserType(text(parserParam));
+                break;
+            case "preferredLanguage":
+                userParam.setPreferredLanguage(text(parserParam));
+                break;
+            case "locale":
+                userParam.setLocale(text(parserParam));
+                break;
+            case "timezone":
+                userParam.setTimezone(text(parserParam));
+                break;
+            case "active":
+                userParam.setActive(bool(parserParam));
+                break;
+            case "provider":
+                userParam.setProvider(text(parserParam));
+                break;
+            case "createdAt":
+                userParam.setCreatedAt(text(parserParam));
+                break;
+            case "updatedAt":
+                userParam.setUpdatedAt(text(parserParam));
+                break;
+            case "environmentId":
+                userParam.setEnvironmentId(text(parserParam));
+                break;
+            default:
+                parserParam.skipChildren();
+                break;
+        }
+    }
+
+    /**
+     * Copy the raw JSON of the value at the current token.
+     * @param <T> Decoded type
+     * @param parserParam Parser positioned on the value
+     * @param jsonParam Body the parser reads from
+     * @param startParam Token the value must start with
+     * @param readerParam Reader for the decoded type
+     * @return The deferred value, or null for a JSON null
+     * @throws IOException When the value does not start with the token
+     */
+    private static <T> LazyValue<T> slice(final JsonParser parserParam,
+                                          final byte[] jsonParam,
+                                          final JsonToken startParam,
+                                          final ObjectReader readerParam)
+            throws IOException {
+        if (parserParam.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expect(parserParam, startParam, List.class);
+        int start = (int) parserParam.currentTokenLocation().getByteOffset();
+        parserParam.skipChildren();
+        int end = (int) parserParam.currentLocation().getByteOffset();
+        return new LazyValue<>(readerParam,
+                Arrays.copyOfRange(jsonParam, start, end));
+    }
+
+    /**
+     * Read a string value, coercing other scalars to text.
+     * @param parserParam Parser positioned on the value
+     * @return The text, or null for a JSON null
+     * @throws IOException When the value is not a scalar
+     */
+    private static String text(final JsonParser parserParam)
+            throws IOException {
+        JsonToken token = parserParam.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            throw MismatchedInputException.from(parserParam, String.class,
+                    "Expected a string for " + parserParam.currentName());
+        }
+        return parserParam.getText();
+    }
+
+    /**
+     * Read a boolean value, treating null as false.
+     * @param parserParam Parser positioned on the value
+     * @return The boolean
+     * @throws IOException When the value is not a scalar
+     */
+    private static boolean bool(final JsonParser parserParam)
+            throws IOException {
+        if (!parserParam.currentToken().isScalarValue()) {
+            throw MismatchedInputException.from(parserParam, Boolean.class,
+                    "Expected a boolean for " + parserParam.currentName());
+        }
+        return parserParam.getValueAsBoolean();
+    }
+
+    /**
+     * Check the current token.
+     * @param parserParam The parser
+     * @param tokenParam Expected token
+     * @param typeParam Type being read, for the error
+     * @throws IOException When the current token differs
+     */
+    private static void expect(final JsonParser parserParam,
+                               final JsonToken tokenParam,
+                               final Class<?> typeParam) throws IOException {
+        if (parserParam.currentToken() != tokenParam) {
+            throw MismatchedInputException.from(parserParam, typeParam,
+                    "Expected " + tokenParam + " but found "
+                            + parserParam.currentToken());
+        }
+    }
+}
@@ -1,15 +1,37 @@
 package com.authdog;
 
+import com.authdog.cache.InMemoryUserInfoCache;
+import com.authdog.cache.RefreshAheadPolicy;
+import com.authdog.cache.RejectedTokenCache;
+import com.authdog.cache.UserInfoCache;
+import com.authdog.circuit.CircuitBreaker;
+import com.authdog.circuit.CircuitState;
 import com.authdog.exceptions.AuthenticationException;
+import com.authdog.exceptions.ApiErrorCategory;
 import com.authdog.exceptions.ApiException;
+import com.authdog.exceptions.CircuitOpenException;
+import com.authdog.exceptions.LimitExceededException;
+import com.authdog.hedge.HedgingPolicy;
+import com.authdog.jwt.JwtClaims;
+import com.authdog.retry.RetryPolicy;
+import com.authdog.limit.AdaptiveConcurrencyLimiter;
+import com.authdog.limit.Bulkhead;
+import com.authdog.limit.RateLimiter;
+import com.authdog.metrics.MetricsSnapshot;
+import com.authdog.metrics.Outcome;
+import com.authdog.types.UserFields;
+import com.authdog.types.UserInfoParser;
 import com.authdog.types.UserInfoResponse;
 import com.authdog.types.Meta;
+import com.authdog.types.Session;
 import com.authdog.types.User;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.*;
+import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,9 +39,34 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class AuthdogClientTest {
@@ -117,6 +164,67 @@ class AuthdogClientTest {
         assertEquals("Unauthorized - invalid or expired token", exception.getMessage());
     }
 
+    @Test
+    void testTryGetUserInfoReportsOutcomesWithoutThrowing() {
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"user\":{\"id\":\"123\"}}"));
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(401)
+                .setBody("Unauthorized"));
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(503)
+                .setBody("Unavailable"));
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("not json"));
+
+        client = new AuthdogClient(mockServer.url("/").toString());
+
+        UserInfoResult success = client.tryGetUserInfo("token-1");
+        assertTrue(success.isSuccess());
+        assertEquals("123", success.getResponse().getUser().getId());
+        assertNull(success.getErrorCode());
+        assertEquals(0, success.getStatusCode());
+
+        UserInfoResult unauthorized = client.tryGetUserInfo("token-2");
+        assertFalse(unauthorized.isSuccess());
+        assertTrue(unauthorized.isUnauthorized());
+        assertEquals(ErrorCode.UNAUTHORIZED, unauthorized.getErrorCode());
+        assertEquals(401, unauthorized.getStatusCode());
+        assertEquals("Unauthorized - invalid or expired token", unauthorized.getMessage());
+        assertEquals(0, unauthorized.getError().getStackTrace().length);
+
+        UserInfoResult unavailable = client.tryGetUserInfo("token-3");
+        assertFalse(unavailable.isUnauthorized());
+        assertEquals(ErrorCode.HTTP_ERROR, unavailable.getErrorCode());
+        assertEquals(503, unavailable.getStatusCode());
+        assertNull(unavailable.getResponse());
+
+        UserInfoResult invalid = client.tryGetUserInfo("token-4");
+        assertEquals(ErrorCode.INVALID_RESPONSE, invalid.getErrorCode());
+        assertEquals(0, invalid.getStatusCode());
+    }
+
+    @Test
+    void testTryGetUserInfoReportsIoAndLocalRejections() throws Exception {
+        mockServer.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1);
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .readTimeoutMs(200)
+                .concurrencyLimiter(limiter)
+                .build();
+
+        UserInfoResult timedOut = client.tryGetUserInfo("token-1");
+        assertEquals(ErrorCode.IO_ERROR, timedOut.getErrorCode());
+
+        limiter.tryAcquire();
+        UserInfoResult shed = client.tryGetUserInfo("token-2");
+        assertEquals(ErrorCode.LIMIT_EXCEEDED, shed.getErrorCode());
+        assertEquals(0, shed.getError().getStackTrace().length);
+    }
+
     @Test
     void testGetUserInfoGraphQLError() {
         mockServer.enqueue(new MockResponse()
@@ -131,6 +239,7 @@ class AuthdogClientTest {
         });
 
         assertTrue(exception.getMessage().contains("GraphQL query failed"));
+        assertEquals(ApiErrorCategory.GRAPHQL_FAILURE, exception.getCategory());
     }
 
     @Test
@@ -147,6 +256,51 @@ class AuthdogClientTest {
         });
 
         assertTrue(exception.getMessage().contains("Failed to fetch user info"));
+        assertEquals(ApiErrorCategory.FETCH_FAILURE, exception.getCategory());
+    }
+
+    @Test
+    void testLargeErrorBodyIsReadUpToLimit() {
+        String page = "<html>" + "x".repeat(1 << 20) + "</html>";
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(502)
+                .setHeader("Content-Type", "text/html")
+                .setBody(page));
+
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .maxErrorBodyBytes(64)
+                .build();
+
+        ApiException exception = assertThrows(ApiException.class, () -> client.getUserInfo("test-token"));
+
+        assertEquals("HTTP error 502: " + page.substring(0, 64) + "...", exception.getMessage());
+        assertEquals(502, exception.getStatusCode());
+        assertEquals(ApiErrorCategory.OTHER, exception.getCategory());
+    }
+
+    @Test
+    void testErrorCategoryIsFoundInTruncatedBody() {
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(500)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"trace\":[1,{\"a\":2}],\"error\":\"GraphQL query failed\","
+                        + "\"details\":\"" + "x".repeat(100_000) + "\"}"));
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(500)
+                .setBody("{\"details\":\"" + "x".repeat(100) + "\",\"error\":\"GraphQL query failed\"}"));
+
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .maxErrorBodyBytes(64)
+                .build();
+
+        ApiException found = assertThrows(ApiException.class, () -> client.getUserInfo("token-1"));
+        ApiException cutOff = assertThrows(ApiException.class, () -> client.getUserInfo("token-2"));
+
+        assertEquals(ApiErrorCategory.GRAPHQL_FAILURE, found.getCategory());
+        assertEquals("GraphQL query failed", found.getMessage());
+        assertEquals(ApiErrorCategory.OTHER, cutOff.getCategory());
+        assertTrue(cutOff.getMessage().startsWith("HTTP error 500: {\"details\""));
+        assertEquals(1, client.getMetrics().getLatency(Outcome.GRAPHQL_ERROR).getCount());
     }
 
     @Test
@@ -210,6 +364,132 @@ class AuthdogClientTest {
         assertTrue(exception.getMessage().contains("Failed to parse response"));
     }
 
+    @Test
+    void testGetUserInfoDisconnectDuringBody() {
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"meta\":{\"code\":200,\"message\":\"OK\"},\"user\":{\"id\":\"123\"}}")
+                .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+
+        client = new AuthdogClient(mockServer.url("/").toString());
+
+        ApiException exception = assertThrows(ApiException.class, () -> {
+            client.getUserInfo("test-token");
+        });
+
+        assertTrue(exception.getMessage().startsWith("Request failed"));
+    }
+
+    @Test
+    void testGetUserInfoParserRuntimeExceptionIsWrapped() throws Exception {
+        mockServer.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .lazyParsing(true)
+                .build();
+        IllegalStateException failure = new IllegalStateException("boom");
+        replaceParser(client, failure);
+
+        ApiException exception = assertThrows(ApiException.class, () -> client.getUserInfo("test-token"));
+
+        assertTrue(exception.getMessage().startsWith("Failed to parse response"));
+        assertSame(failure, exception.getCause());
+        assertEquals(1, client.getMetrics().getLatency(Outcome.INVALID_RESPONSE).getCount());
+    }
+
+    @Test
+    void testParserRuntimeExceptionReleasesLimiterPermit() throws Exception {
+        mockServer.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+        mockServer.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1);
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .lazyParsing(true)
+                .concurrencyLimiter(limiter)
+                .build();
+        replaceParser(client, new IllegalStateException("boom"));
+
+        assertThrows(ApiException.class, () -> client.getUserInfo("token-1"));
+        assertEquals(0, limiter.getInFlight());
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> client.getUserInfoAsync("token-2").get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ApiException.class, failure.getCause());
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(0, limiter.getRejectedCount());
+    }
+
+    @Test
+    void testAdmittedRequestsDoNotQueueInDispatcher() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        mockServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                release.await(5, TimeUnit.SECONDS);
+                return new MockResponse().setResponseCode(200).setBody("{\"user\":{\"id\":\"123\"}}");
+            }
+        });
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 8);
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .maxRequestsPerHost(2)
+                .concurrencyLimiter(limiter)
+                .build();
+
+        List<CompletableFuture<UserInfoResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(client.getUserInfoAsync("token-" + i));
+        }
+        for (int i = 0; i < 8; i++) {
+            assertNotNull(mockServer.takeRequest(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(0, client.getMetrics().getQueuedCalls());
+        assertEquals(8, limiter.getInFlight());
+        release.countDown();
+        for (CompletableFuture<UserInfoResponse> future : futures) {
+            assertEquals("123", future.get(5, TimeUnit.SECONDS).getUser().getId());
+        }
+    }
+
+    @Test
+    void testHalfOpenProbeReportsBackWhenHandlerThrows() throws Exception {
+        mockServer.enqueue(new MockResponse().setResponseCode(503));
+        mockServer.enqueue(new MockResponse().setResponseCode(503));
+        mockServer.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+        mockServer.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+
+        CircuitBreaker breaker = CircuitBreaker.builder()
+                .windowSize(2)
+                .minimumCalls(2)
+                .probeCalls(1)
+                .openDurationMs(100)
+                .build();
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .lazyParsing(true)
+                .circuitBreaker(breaker)
+                .build();
+        assertThrows(ApiException.class, () -> client.getUserInfo("token-1"));
+        assertThrows(ApiException.class, () -> client.getUserInfo("token-2"));
+        assertEquals(CircuitState.OPEN, breaker.getState());
+        replaceParser(client, new IllegalStateException("boom"));
+
+        Thread.sleep(150);
+        assertThrows(ApiException.class, () -> client.getUserInfo("token-3"));
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> client.getUserInfoAsync("token-4").get(5, TimeUnit.SECONDS));
+        assertFalse(failure.getCause() instanceof CircuitOpenException);
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+        assertEquals(4, mockServer.getRequestCount());
+    }
+
+    private static void replaceParser(AuthdogClient target, RuntimeException failure) throws Exception {
+        UserInfoParser parser = mock(UserInfoParser.class);
+        when(parser.parseLazily(any(byte[].class))).thenThrow(failure);
+        Field field = AuthdogClient.class.getDeclaredField("userInfoParser");
+        field.setAccessible(true);
+        field.set(target, parser);
+    }
+
     @Test
     void testGetUserInfoNetworkError() {
         // Don't enqueue any response to simulate network error
@@ -222,6 +502,58 @@ class AuthdogClientTest {
         assertTrue(exception.getMessage().contains("Invalid URL port"));
     }
 
+    @Test
+    void testApiKeyRequestIsBuiltOnce() {
+        client = new AuthdogClient(mockServer.url("/").toString(), "api-key");
+
+        Request first = client.buildRequest("token-1");
+
+        assertSame(first, client.buildRequest("token-2"));
+        assertEquals("Bearer api-key", first.header("Authorization"));
+        assertEquals("application/json", first.header("Content-Type"));
+        assertEquals("authdog-java-sdk/0.1.0", first.header("User-Agent"));
+        assertEquals(mockServer.url("/v1/userinfo"), first.url());
+    }
+
+    @Test
+    void testRequestBuildingAllocationCeiling() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        AuthdogClient apiKeyClient = new AuthdogClient(mockServer.url("/").toString(), "api-key");
+        client = new AuthdogClient(mockServer.url("/").toString());
+        String token = "token-" + "x".repeat(64);
+
+        try {
+            long apiKeyBytes = allocatedPerCall(threads, () -> apiKeyClient.buildRequest(token));
+            long tokenBytes = allocatedPerCall(threads, () -> client.buildRequest(token));
+
+            assertTrue(apiKeyBytes < 16, "API-key mode allocated " + apiKeyBytes + " B/call");
+            assertTrue(tokenBytes < 1024, "token mode allocated " + tokenBytes + " B/call");
+        } finally {
+            apiKeyClient.close();
+        }
+    }
+
+    private static long allocatedPerCall(com.sun.management.ThreadMXBean threads,
+                                         Supplier<Request> build) {
+        int calls = 10_000;
+        Request last = null;
+        for (int i = 0; i < calls; i++) {
+            last = build.get();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < calls; i++) {
+            last = build.get();
+        }
+        long after = threads.getThreadAllocatedBytes(threadId);
+        assertNotNull(last);
+        return (after - before) / calls;
+    }
+
     @Test
     void testClose() {
         client = new AuthdogClient("https://api.authdog.com");
@@ -238,6 +570,1102 @@ class AuthdogClientTest {
         // Should close automatically without exception
     }
 
+    @Test
+    void testGetUserInfoServedFromCache() throws Exception {
+        UserInfoResponse mockResponse = new UserInfoResponse();
+        mockResponse.setSession(new Session(3600));
+        User user = new User();
+        user.setId("123");
+        mockResponse.setUser(user);
+
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody(objectMapper.writeValueAsString(mockResponse)));
+
+        client = new AuthdogClient(mockServer.url("/").toString(), null, 5000,
+                new InMemoryUserInfoCache(100, 60_000));
+
+        UserInfoResponse first = client.getUserInfo("test-token");
+        UserInfoResponse second = client.getUserInfo("test-token");
+
+        assertEquals("123", first.getUser().getId());
+        assertSame(first.getUser(), second.getUser());
+        assertEquals(1, mockServer.getRequestCount());
+    }
+
+    @Test
+    void testGetUserInfoDoesNotCacheExpiredSession() throws Exception {
+        UserInfoResponse mockResponse = new UserInfoResponse();
+        mockResponse.setSession(new Session(0));
+        String body = objectMapper.writeValueAsString(mockResponse);
+
+        mockServer.enqueue(new MockResponse().setResponseCode(200).setBody(body));
+        mockServer.enqueue(new MockResponse().setResponseCode(200).setBody(body));
+
+        client = new AuthdogClient(mockServer.url("/").toString(), null, 5000,
+                new InMemoryUserInfoCache(100, 60_000));
+
+        client.getUserInfo("test-token");
+        client.getUserInfo("test-token");
+
+        assertEquals(2, mockServer.getRequestCount());
+    }
+
+    @Test
+    void testGetUserInfoAsyncSuccess() throws Exception {
+        UserInfoResponse mockResponse = new UserInfoResponse();
+        User user = new User();
+        user.setId("123");
+        mockResponse.setUser(user);
+
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody(objectMapper.writeValueAsString(mockResponse)));
+
+        client = new AuthdogClient(mockServer.url("/").toString());
+        UserInfoResponse result = client.getUserInfoAsync("test-token").get(5, TimeUnit.SECONDS);
+
+        assertEquals("123", result.getUser().getId());
+        RecordedRequest request = mockServer.takeRequest();
+        assertEquals("Bearer test-token", request.getHeader("Authorization"));
+    }
+
+    @Test
+    void testGetUserInfoAsyncUnauthorized() {
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(401)
+                .setBody("Unauthorized"));
+
+        client = new AuthdogClient(mockServer.url("/").toString());
+        CompletableFuture<UserInfoResponse> future = client.getUserInfoAsync("invalid-token");
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof AuthenticationException);
+        assertEquals("Unauthorized - invalid or expired token", exception.getCause().getMessage());
+    }
+
+    @Test
+    void testGetUserInfoAsyncGraphQLError() {
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(500)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"error\": \"GraphQL query failed\"}"));
+
+        client = new AuthdogClient(mockServer.url("/").toString());
+        CompletableFuture<UserInfoResponse> future = client.getUserInfoAsync("test-token");
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof ApiException);
+        assertEquals("GraphQL query failed", exception.getCause().getMessage());
+    }
+
+    @Test
+    void testGetUserInfoAsyncCancellation() throws Exception {
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{}")
+                .setHeadersDelay(2, TimeUnit.SECONDS));
+
+        client = new AuthdogClient(mockServer.url("/").toString());
+        CompletableFuture<UserInfoResponse> future = client.getUserInfoAsync("test-token");
+        mockServer.takeRequest(5, TimeUnit.SECONDS);
+
+        assertTrue(future.cancel(true));
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    void testConcurrentGetUserInfoCallsAreCoalesced() throws Exception {
+        UserInfoResponse mockResponse = new UserInfoResponse();
+        User user = new User();
+        user.setId("123");
+        mockResponse.setUser(user);
+
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody(objectMapper.writeValueAsString(mockResponse))
+                .setHeadersDelay(1, TimeUnit.SECONDS));
+
+        client = new AuthdogClient(mockServer.url("/").toString());
+        List<CompletableFuture<UserInfoResponse>> results = new ArrayList<>();
+        results.add(client.getUserInfoAsync("test-token"));
+        mockServer.takeRequest(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 9; i++) {
+            results.add(CompletableFuture.supplyAsync(() -> client.getUserInfo("test-token")));
+            results.add(client.getUserInfoAsync("test-token"));
+        }
+
+        for (CompletableFuture<UserInfoResponse> result : results) {
+            assertEquals("123", result.get(5, TimeUnit.SECONDS).getUser().getId());
+        }
+        assertEquals(1, mockServer.getRequestCount());
+        assertEquals(18, client.getCoalescedCallCount());
+    }
+
+    @Test
+    void testGetUserInfoBatchReportsFailuresPerToken() throws Exception {
+        String body = "{\"user\":{\"id\":\"123\"}}";
+        mockServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if ("Bearer bad-token".equals(request.getHeader("Authorization"))) {
+                    return new MockResponse().setResponseCode(401);
+                }
+                return new MockResponse().setResponseCode(200).setBody(body);
+            }
+        });
+
+        client = new AuthdogClient(mockServer.url("/").toString());
+        Map<String, UserInfoResult> results = client.getUserInfoBatch(
+                Arrays.asList("token-a", "bad-token", "token-b", "token-a"));
+
+        assertEquals(Arrays.asList("token-a", "bad-token", "token-b"),
+                new ArrayList<>(results.keySet()));
+        assertTrue(results.get("token-a").isSuccess());
+        assertEquals("123", results.get("token-b").getResponse().getUser().getId());
+        assertFalse(results.get("bad-token").isSuccess());
+        assertTrue(results.get("bad-token").getError() instanceof AuthenticationException);
+        assertEquals(3, mockServer.getRequestCount());
+    }
+
+    @Test
+    void testGetUserInfoBatchBoundsConcurrency() throws Exception {
+        AtomicInteger current = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        mockServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                peak.accumulateAndGet(current.incrementAndGet(), Math::max);
+                Thread.sleep(50);
+                current.decrementAndGet();
+                return new MockResponse().setResponseCode(200).setBody("{}");
+            }
+        });
+
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            tokens.add("token-" + i);
+        }
+
+        client = new AuthdogClient(mockServer.url("/").toString());
+        Map<String, UserInfoResult> results = client.getUserInfoBatch(tokens, 2);
+
+        assertEquals(12, results.size());
+        assertTrue(results.values().stream().allMatch(UserInfoResult::isSuccess));
+        assertEquals(12, mockServer.getRequestCount());
+        assertTrue(peak.get() <= 2, "peak concurrency was " + peak.get());
+    }
+
+    @Test
+    void testBuilderWithHttp2PriorKnowledge() throws Exception {
+        mockServer.shutdown();
+        mockServer = new MockWebServer();
+        mockServer.setProtocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE));
+        mockServer.start();
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"user\":{\"id\":\"123\"}}"));
+
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .protocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE))
+                .connectTimeoutMs(1000)
+                .readTimeoutMs(2000)
+                .writeTimeoutMs(2000)
+                .callTimeoutMs(5000)
+                .build();
+
+        // The server only speaks cleartext HTTP/2, so any response proves the protocol
+        assertEquals("123", client.getUserInfo("test-token").getUser().getId());
+        assertEquals(1, mockServer.getRequestCount());
+    }
+
+    @Test
+    void testBuilderDispatcherLimitsBoundAsyncConcurrency() throws Exception {
+        AtomicInteger current = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        mockServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                peak.accumulateAndGet(current.incrementAndGet(), Math::max);
+                Thread.sleep(50);
+                current.decrementAndGet();
+                return new MockResponse().setResponseCode(200).setBody("{}");
+            }
+        });
+
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .maxRequests(8)
+                .maxRequestsPerHost(1)
+                .connectionPool(2, 30_000)
+                .build();
+
+        List<CompletableFuture<UserInfoResponse>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(client.getUserInfoAsync("token-" + i));
+        }
+        for (CompletableFuture<UserInfoResponse> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(1, peak.get());
+    }
+
+    @Test
+    void testBuilderRejectsInvalidSettings() {
+        AuthdogClient.Builder builder = AuthdogClient.builder("https://api.authdog.com");
+
+        assertThrows(IllegalArgumentException.class, () -> builder.timeoutMs(-1));
+        assertThrows(IllegalArgumentException.class, () -> builder.maxRequests(0));
+        assertThrows(IllegalArgumentException.class, () -> builder.maxRequestsPerHost(0));
+        assertThrows(IllegalArgumentException.class, () -> builder.connectionPool(0, 1000));
+        assertThrows(IllegalArgumentException.class, () -> builder.maxErrorBodyBytes(-1));
+        assertThrows(IllegalArgumentException.class, () -> AuthdogClient.builder(null));
+    }
+
+    @Test
+    void testBuilderVirtualThreads() throws Exception {
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"user\":{\"id\":\"123\"}}")
+                .setHeadersDelay(200, TimeUnit.MILLISECONDS));
+
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .virtualThreads(true)
+                .build();
+        boolean supported = Runtime.version().feature() >= 21;
+        assertEquals(supported, client.usesVirtualThreads());
+
+        Thread callbackThread = client.getUserInfoAsync("test-token")
+                .thenApply(result -> Thread.currentThread())
+                .get(5, TimeUnit.SECONDS);
+
+        if (supported) {
+            assertEquals(Boolean.TRUE, Thread.class.getMethod("isVirtual").invoke(callbackThread));
+        }
+    }
+
+    @Test
+    void testMetricsRecordLatencyByOutcome() throws Exception {
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"user\":{\"id\":\"123\"}}")
+                .setHeadersDelay(50, TimeUnit.MILLISECONDS));
+        mockServer.enqueue(new MockResponse().setResponseCode(401));
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(500)
+                .setBody("{\"error\":\"GraphQL query failed\"}"));
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(500)
+                .setBody("{\"error\":\"Failed to fetch user info\"}"));
+        mockServer.enqueue(new MockResponse().setResponseCode(404));
+        mockServer.enqueue(new MockResponse().setResponseCode(200).setBody("not json"));
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"user\":{\"id\":\"123\"}}")
+                .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"user\":{\"id\":\"123\"}}")
+                .setHeadersDelay(5, TimeUnit.SECONDS));
+
+        client = new AuthdogClient(mockServer.url("/").toString());
+        client.getUserInfo("token-1");
+        for (int i = 2; i <= 6; i++) {
+            String token = "token-" + i;
+            assertThrows(Exception.class, () -> client.getUserInfo(token));
+        }
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> client.getUserInfoAsync("token-7").get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ApiException.class, failure.getCause());
+        CompletableFuture<UserInfoResponse> cancelled = client.getUserInfoAsync("token-8");
+        mockServer.takeRequest(5, TimeUnit.SECONDS);
+        cancelled.cancel(true);
+        awaitNoRequestsInFlight();
+
+        MetricsSnapshot metrics = client.getMetrics();
+        assertEquals(8, metrics.getRequestCount());
+        for (Outcome outcome : Outcome.values()) {
+            assertEquals(1, metrics.getLatency(outcome).getCount(), outcome.name());
+        }
+        long successNanos = metrics.getLatency(Outcome.SUCCESS).getMaxNanos();
+        assertTrue(successNanos >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(0, metrics.getInFlightRequests());
+    }
+
+    @Test
+    void testMetricsReportInFlightRequests() throws Exception {
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"user\":{\"id\":\"123\"}}")
+                .setHeadersDelay(500, TimeUnit.MILLISECONDS));
+
+        client = new AuthdogClient(mockServer.url("/").toString());
+        CompletableFuture<UserInfoResponse> future = client.getUserInfoAsync("test-token");
+        mockServer.takeRequest(5, TimeUnit.SECONDS);
+
+        MetricsSnapshot during = client.getMetrics();
+        assertEquals(1, during.getInFlightRequests());
+        assertEquals(1, during.getRunningCalls());
+        assertEquals(1, during.getConnections());
+        assertEquals(0, during.getIdleConnections());
+        assertEquals(0, during.getRequestCount());
+
+        future.get(5, TimeUnit.SECONDS);
+        MetricsSnapshot after = client.getMetrics();
+        assertEquals(0, after.getInFlightRequests());
+        assertEquals(1, after.getLatency(Outcome.SUCCESS).getCount());
+    }
+
+    @Test
+    void testBuilderLazyParsing() throws Exception {
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"session\":{\"remainingSeconds\":60},\"user\":{\"id\":\"123\","
+                        + "\"active\":true,\"emails\":[{\"value\":\"jane@example.com\"}]}}"));
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"user\":{\"photos\":{}}}"));
+
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .lazyParsing(true)
+                .build();
+
+        UserInfoResponse response = client.getUserInfo("token-1");
+        assertEquals("123", response.getUser().getId());
+        assertTrue(response.getUser().isActive());
+        assertEquals(60, response.getSession().getRemainingSeconds());
+        assertEquals("jane@example.com", response.getUser().getEmails().get(0).getValue());
+
+        ApiException exception = assertThrows(ApiException.class, () -> client.getUserInfo("token-2"));
+        assertTrue(exception.getMessage().startsWith("Failed to parse response"));
+    }
+
+    @Test
+    void testGetUserInfoWithFieldProjection() throws Exception {
+        String body = "{\"meta\":{\"code\":200,\"message\":\"OK\"},\"session\":{\"remainingSeconds\":60},"
+                + "\"user\":{\"id\":\"123\",\"environmentId\":\"env\",\"active\":true,\"displayName\":\"Jane\","
+                + "\"emails\":[{\"value\":\"jane@example.com\"}],\"photos\":[{\"value\":\"p.png\"}]}}";
+        mockServer.enqueue(new MockResponse().setResponseCode(200).setBody(body));
+        mockServer.enqueue(new MockResponse().setResponseCode(200).setBody(body));
+
+        client = new AuthdogClient(mockServer.url("/").toString(), null, 10000,
+                new InMemoryUserInfoCache(10, 60_000));
+
+        UserInfoResponse projected = client.getUserInfo("test-token", UserFields.SESSION, UserFields.IDENTITY);
+        assertEquals(60, projected.getSession().getRemainingSeconds());
+        assertEquals("123", projected.getUser().getId());
+        assertEquals("env", projected.getUser().getEnvironmentId());
+        assertTrue(projected.getUser().isActive());
+        assertNull(projected.getMeta());
+        assertNull(projected.getUser().getDisplayName());
+        assertNull(projected.getUser().getEmails());
+        assertNull(projected.getUser().getPhotos());
+
+        // Projected responses are partial, so they must not be served to full lookups
+        UserInfoResponse full = client.getUserInfo("test-token");
+        assertEquals("Jane", full.getUser().getDisplayName());
+        assertEquals(1, full.getUser().getEmails().size());
+        assertEquals(2, mockServer.getRequestCount());
+
+        // A cached full response satisfies any projection
+        assertSame(full.getUser(), client.getUserInfo("test-token", UserFields.IDENTITY).getUser());
+        assertEquals(2, mockServer.getRequestCount());
+    }
+
+    @Test
+    void testGetUserInfoWithFieldProjectionErrors() {
+        mockServer.enqueue(new MockResponse().setResponseCode(401));
+
+        client = new AuthdogClient(mockServer.url("/").toString());
+
+        assertThrows(AuthenticationException.class,
+                () -> client.getUserInfo("test-token", UserFields.IDENTITY));
+        assertThrows(IllegalArgumentException.class,
+                () -> client.getUserInfo("test-token", UserFields.IDENTITY, null));
+        assertEquals(1, client.getMetrics().getLatency(Outcome.UNAUTHORIZED).getCount());
+    }
+
+    @Test
+    void testRefreshAheadServesCurrentValueWhileRefreshing() throws Exception {
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"session\":{\"remainingSeconds\":3600},\"user\":{\"id\":\"v1\"}}"));
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"session\":{\"remainingSeconds\":3600},\"user\":{\"id\":\"v2\"}}")
+                .setBodyDelay(200, TimeUnit.MILLISECONDS));
+
+        client = new AuthdogClient(mockServer.url("/").toString(), null, 10000,
+                new InMemoryUserInfoCache(10, 10_000, new RefreshAheadPolicy(0.01, 0)));
+
+        assertEquals("v1", client.getUserInfo("token").getUser().getId());
+        Thread.sleep(150);
+
+        // Past the refresh point: served at once, refreshed once in the background
+        for (int i = 0; i < 5; i++) {
+            assertEquals("v1", client.getUserInfo("token").getUser().getId());
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!"v2".equals(client.getUserInfo("token").getUser().getId())) {
+            assertTrue(System.nanoTime() < deadline, "refresh did not complete");
+            Thread.sleep(10);
+        }
+        assertEquals(2, mockServer.getRequestCount());
+    }
+
+    @Test
+    void testFailedRefreshIsNotRetriedForTheSameEntry() throws Exception {
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"session\":{\"remainingSeconds\":3600},\"user\":{\"id\":\"v1\"}}"));
+        mockServer.enqueue(new MockResponse().setResponseCode(503));
+
+        client = new AuthdogClient(mockServer.url("/").toString(), null, 10000,
+                new InMemoryUserInfoCache(10, 10_000, new RefreshAheadPolicy(0.01, 0)));
+
+        assertEquals("v1", client.getUserInfo("token").getUser().getId());
+        Thread.sleep(150);
+        assertEquals("v1", client.getUserInfo("token").getUser().getId());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (mockServer.getRequestCount() < 2) {
+            assertTrue(System.nanoTime() < deadline, "refresh did not start");
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("v1", client.getUserInfo("token").getUser().getId());
+            Thread.sleep(10);
+        }
+        assertEquals(2, mockServer.getRequestCount());
+    }
+
+    @Test
+    void testStaleValueServedOnlyForApiErrors() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockServer.enqueue(new MockResponse()
+                    .setResponseCode(200)
+                    .setBody("{\"session\":{\"remainingSeconds\":3600},\"user\":{\"id\":\"123\"}}"));
+        }
+        mockServer.enqueue(new MockResponse().setResponseCode(503));
+        mockServer.enqueue(new MockResponse().setResponseCode(503));
+        mockServer.enqueue(new MockResponse().setResponseCode(401));
+        mockServer.enqueue(new MockResponse().setResponseCode(503));
+
+        client = new AuthdogClient(mockServer.url("/").toString(), null, 10000,
+                new InMemoryUserInfoCache(10, 50, new RefreshAheadPolicy(0.99, 60_000)));
+
+        client.getUserInfo("token-a");
+        client.getUserInfo("token-b");
+        Thread.sleep(100);
+
+        assertEquals("123", client.getUserInfoAsync("token-a").get(5, TimeUnit.SECONDS).getUser().getId());
+        assertEquals("123", client.getUserInfo("token-b").getUser().getId());
+        // A rejection drops the stale value
+        assertThrows(AuthenticationException.class, () -> client.getUserInfo("token-b"));
+        assertThrows(ApiException.class, () -> client.getUserInfo("token-b"));
+        assertEquals(6, mockServer.getRequestCount());
+    }
+
+    @Test
+    void testConcurrencyLimiterShedsExcessCalls() throws Exception {
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"user\":{\"id\":\"slow\"}}")
+                .setBodyDelay(300, TimeUnit.MILLISECONDS));
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"user\":{\"id\":\"fast\"}}"));
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1);
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .concurrencyLimiter(limiter)
+                .build();
+
+        CompletableFuture<UserInfoResponse> slow = client.getUserInfoAsync("token-1");
+        long start = System.nanoTime();
+        assertThrows(LimitExceededException.class, () -> client.getUserInfo("token-2"));
+        ExecutionException async = assertThrows(ExecutionException.class,
+                () -> client.getUserInfoAsync("token-3").get(5, TimeUnit.SECONDS));
+        assertInstanceOf(LimitExceededException.class, async.getCause());
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(250));
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(2, limiter.getRejectedCount());
+
+        assertEquals("slow", slow.get(5, TimeUnit.SECONDS).getUser().getId());
+        assertEquals("fast", client.getUserInfo("token-2").getUser().getId());
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(2, mockServer.getRequestCount());
+    }
+
+    @Test
+    void testCircuitBreakerFailsFastWhileOpen() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockServer.enqueue(new MockResponse().setResponseCode(503));
+        }
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"user\":{\"id\":\"123\"}}"));
+
+        List<CircuitState> states = new CopyOnWriteArrayList<>();
+        CircuitBreaker breaker = CircuitBreaker.builder()
+                .windowSize(2)
+                .minimumCalls(2)
+                .probeCalls(1)
+                .openDurationMs(200)
+                .listener((from, to) -> states.add(to))
+                .build();
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .circuitBreaker(breaker)
+                .build();
+
+        assertThrows(ApiException.class, () -> client.getUserInfo("token-1"));
+        assertThrows(ApiException.class, () -> client.getUserInfo("token-2"));
+        assertEquals(CircuitState.OPEN, breaker.getState());
+
+        assertThrows(CircuitOpenException.class, () -> client.getUserInfo("token-3"));
+        ExecutionException async = assertThrows(ExecutionException.class,
+                () -> client.getUserInfoAsync("token-4").get(5, TimeUnit.SECONDS));
+        assertInstanceOf(CircuitOpenException.class, async.getCause());
+        assertEquals(2, mockServer.getRequestCount());
+
+        Thread.sleep(250);
+        assertEquals("123", client.getUserInfo("token-5").getUser().getId());
+        assertEquals(List.of(CircuitState.OPEN, CircuitState.HALF_OPEN, CircuitState.CLOSED), states);
+    }
+
+    @Test
+    void testOpenCircuitServesStaleCachedResponse() throws Exception {
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"session\":{\"remainingSeconds\":3600},\"user\":{\"id\":\"123\"}}"));
+        mockServer.enqueue(new MockResponse().setResponseCode(503));
+
+        CircuitBreaker breaker = CircuitBreaker.builder()
+                .windowSize(2)
+                .minimumCalls(2)
+                .probeCalls(1)
+                .build();
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .cache(new InMemoryUserInfoCache(10, 50, new RefreshAheadPolicy(0.99, 60_000)))
+                .circuitBreaker(breaker)
+                .build();
+
+        assertEquals("123", client.getUserInfo("token").getUser().getId());
+        Thread.sleep(100);
+        assertThrows(ApiException.class, () -> client.getUserInfo("other-token"));
+        assertEquals(CircuitState.OPEN, breaker.getState());
+
+        assertEquals("123", client.getUserInfo("token").getUser().getId());
+        assertEquals("123", client.getUserInfoAsync("token").get(5, TimeUnit.SECONDS).getUser().getId());
+        assertEquals(2, mockServer.getRequestCount());
+    }
+
+    @Test
+    void testHedgedRequestBeatsSlowAttempt() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        mockServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                MockResponse response = new MockResponse()
+                        .setResponseCode(200)
+                        .setBody("{\"user\":{\"id\":\"" + requests.get() + "\"}}");
+                if (requests.incrementAndGet() % 2 == 1) {
+                    response.setBodyDelay(2, TimeUnit.SECONDS);
+                }
+                return response;
+            }
+        });
+
+        HedgingPolicy hedging = HedgingPolicy.fixedDelay(50, 1.0);
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .hedging(hedging)
+                .build();
+
+        long start = System.nanoTime();
+        assertEquals("1", client.getUserInfo("token-1").getUser().getId());
+        assertEquals("3", client.getUserInfoAsync("token-2").get(5, TimeUnit.SECONDS).getUser().getId());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+        assertEquals(4, requests.get());
+        assertEquals(2, hedging.getHedgeCount());
+        assertEquals(2, hedging.getHedgeWinCount());
+    }
+
+    @Test
+    void testCancelledHedgeLoserIsNotAFailure() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        mockServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                MockResponse response = new MockResponse()
+                        .setResponseCode(200)
+                        .setBody("{\"user\":{\"id\":\"123\"}}");
+                if (requests.incrementAndGet() == 1) {
+                    response.setBodyDelay(2, TimeUnit.SECONDS);
+                }
+                return response;
+            }
+        });
+        CircuitBreaker breaker = CircuitBreaker.builder()
+                .windowSize(2)
+                .minimumCalls(2)
+                .probeCalls(1)
+                .build();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 10);
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .hedging(HedgingPolicy.fixedDelay(50, 1.0))
+                .circuitBreaker(breaker)
+                .concurrencyLimiter(limiter)
+                .build();
+
+        assertEquals("123", client.getUserInfo("test-token").getUser().getId());
+        awaitNoRequestsInFlight();
+
+        MetricsSnapshot metrics = client.getMetrics();
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+        assertEquals(0.0, breaker.getFailureRate());
+        assertEquals(10, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(0, metrics.getLatency(Outcome.IO_ERROR).getCount());
+        assertEquals(1, metrics.getLatency(Outcome.CANCELLED).getCount());
+        assertEquals(1, metrics.getLatency(Outcome.SUCCESS).getCount());
+    }
+
+    private void awaitNoRequestsInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (client.getMetrics().getInFlightRequests() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, client.getMetrics().getInFlightRequests());
+    }
+
+    @Test
+    void testRetriesTransientFailures() throws Exception {
+        mockServer.enqueue(new MockResponse().setResponseCode(503));
+        mockServer.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"user\":{\"id\":\"123\"}}"));
+        mockServer.enqueue(new MockResponse().setResponseCode(502));
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"user\":{\"id\":\"456\"}}"));
+
+        RetryPolicy retry = RetryPolicy.builder().baseDelayMs(1).maxDelayMs(10).build();
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .readTimeoutMs(200)
+                .retry(retry)
+                .build();
+
+        assertEquals("123", client.getUserInfo("token-1").getUser().getId());
+        assertEquals("456", client.getUserInfoAsync("token-2").get(5, TimeUnit.SECONDS).getUser().getId());
+        assertEquals(5, mockServer.getRequestCount());
+        assertEquals(3, retry.getRetryCount());
+    }
+
+    @Test
+    void testDoesNotRetryPermanentFailures() {
+        mockServer.enqueue(new MockResponse().setResponseCode(500));
+        mockServer.enqueue(new MockResponse().setResponseCode(401));
+        mockServer.enqueue(new MockResponse().setResponseCode(200).setBody("not json"));
+
+        RetryPolicy retry = RetryPolicy.builder().baseDelayMs(1).maxDelayMs(10).build();
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .retry(retry)
+                .build();
+
+        ApiException error = assertThrows(ApiException.class, () -> client.getUserInfo("token-1"));
+        assertEquals(500, error.getStatusCode());
+        assertThrows(AuthenticationException.class, () -> client.getUserInfo("token-2"));
+        assertThrows(ApiException.class, () -> client.getUserInfo("token-3"));
+        assertEquals(3, mockServer.getRequestCount());
+        assertEquals(0, retry.getRetryCount());
+    }
+
+    @Test
+    void testRetriesStopAtDeadline() {
+        for (int i = 0; i < 3; i++) {
+            mockServer.enqueue(new MockResponse()
+                    .setResponseCode(200)
+                    .setBody("{\"user\":{\"id\":\"123\"}}")
+                    .setBodyDelay(2, TimeUnit.SECONDS));
+        }
+
+        RetryPolicy retry = RetryPolicy.builder().baseDelayMs(1).maxDelayMs(10).deadlineMs(300).build();
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .retry(retry)
+                .build();
+
+        long start = System.nanoTime();
+        ApiException error = assertThrows(ApiException.class, () -> client.getUserInfo("token"));
+        long elapsed = System.nanoTime() - start;
+
+        assertInstanceOf(IOException.class, error.getCause());
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(250));
+        assertTrue(elapsed < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void testCallDeadlineLimitsRetryPolicyDeadline() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mockServer.enqueue(new MockResponse()
+                    .setResponseCode(200)
+                    .setBody("{\"user\":{\"id\":\"123\"}}")
+                    .setHeadersDelay(2, TimeUnit.SECONDS));
+        }
+        RetryPolicy retry = RetryPolicy.builder().baseDelayMs(1).maxDelayMs(10).deadlineMs(60_000).build();
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .retry(retry)
+                .build();
+
+        long start = System.nanoTime();
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> client.getUserInfoAsync("token", 300).get(5, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - start;
+
+        assertInstanceOf(ApiException.class, failure.getCause());
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(250));
+        assertTrue(elapsed < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(1, mockServer.getRequestCount());
+        awaitNoRequestsInFlight();
+        assertThrows(IllegalArgumentException.class, () -> client.getUserInfoAsync("token", 0));
+    }
+
+    @Test
+    void testRateLimiterShedsExcessCalls() throws Exception {
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"user\":{\"id\":\"123\"}}"));
+
+        RateLimiter limiter = new RateLimiter(0.001, 1);
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .rateLimiter(limiter)
+                .build();
+
+        assertEquals("123", client.getUserInfo("token-1").getUser().getId());
+        assertThrows(LimitExceededException.class, () -> client.getUserInfo("token-2"));
+        assertEquals(1, mockServer.getRequestCount());
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    void testBulkheadKeepsNoisyPartitionFromStarvingOthers() throws Exception {
+        CountDownLatch unblock = new CountDownLatch(1);
+        mockServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                String token = request.getHeader("Authorization");
+                if (token.contains("noisy")) {
+                    unblock.await(5, TimeUnit.SECONDS);
+                }
+                return new MockResponse().setResponseCode(200)
+                        .setBody("{\"user\":{\"id\":\"" + token.substring(7) + "\"}}");
+            }
+        });
+
+        Bulkhead bulkhead = new Bulkhead(1, 1);
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .bulkhead(bulkhead, token -> token.split("-")[0])
+                .build();
+
+        try {
+            CompletableFuture<UserInfoResponse> running = client.getUserInfoAsync("noisy-1");
+            CompletableFuture<UserInfoResponse> queued = client.getUserInfoAsync("noisy-2");
+            CompletableFuture<UserInfoResponse> shed = client.getUserInfoAsync("noisy-3");
+
+            ExecutionException error = assertThrows(ExecutionException.class,
+                    () -> shed.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(LimitExceededException.class, error.getCause());
+            assertEquals("quiet-1", client.getUserInfo("quiet-1").getUser().getId());
+            assertEquals(1, bulkhead.getRunning("noisy"));
+            assertEquals(1, bulkhead.getQueued("noisy"));
+
+            unblock.countDown();
+            assertEquals("noisy-1", running.get(5, TimeUnit.SECONDS).getUser().getId());
+            assertEquals("noisy-2", queued.get(5, TimeUnit.SECONDS).getUser().getId());
+        } finally {
+            unblock.countDown();
+        }
+        assertEquals(0, bulkhead.getPartitionCount());
+    }
+
+    @Test
+    void testBulkheadPartitionsByLearnedEnvironment() throws Exception {
+        CountDownLatch unblock = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        mockServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (calls.incrementAndGet() > 1) {
+                    unblock.await(5, TimeUnit.SECONDS);
+                }
+                return new MockResponse().setResponseCode(200)
+                        .setBody("{\"user\":{\"id\":\"123\",\"environmentId\":\"env-1\"}}");
+            }
+        });
+
+        Bulkhead bulkhead = new Bulkhead(1, 0);
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .bulkhead(bulkhead, null)
+                .build();
+
+        try {
+            client.getUserInfo("token");
+            CompletableFuture<UserInfoResponse> second = client.getUserInfoAsync("token");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (mockServer.getRequestCount() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(1, bulkhead.getRunning("env-1"));
+            assertEquals(0, bulkhead.getRunning("default"));
+
+            unblock.countDown();
+            assertEquals("123", second.get(5, TimeUnit.SECONDS).getUser().getId());
+        } finally {
+            unblock.countDown();
+        }
+    }
+
+    @Test
+    void testUserInfoProcessorResolvesTokenStream() throws Exception {
+        mockServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String token = request.getHeader("Authorization").substring(7);
+                if (token.startsWith("bad")) {
+                    return new MockResponse().setResponseCode(401);
+                }
+                return new MockResponse().setResponseCode(200)
+                        .setBody("{\"user\":{\"id\":\"" + token + "\"}}");
+            }
+        });
+        client = new AuthdogClient(mockServer.url("/").toString());
+
+        Flow.Processor<String, UserInfoResult> processor = client.userInfoProcessor(2, true);
+        List<UserInfoResult> results = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        processor.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(UserInfoResult item) {
+                results.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(null);
+            }
+        });
+        try (SubmissionPublisher<String> tokens = new SubmissionPublisher<>()) {
+            tokens.subscribe(processor);
+            for (String token : List.of("a", "bad-b", "c", "d")) {
+                tokens.submit(token);
+            }
+        }
+
+        done.get(5, TimeUnit.SECONDS);
+        assertEquals(4, results.size());
+        assertEquals("a", results.get(0).getResponse().getUser().getId());
+        assertTrue(results.get(1).isUnauthorized());
+        assertEquals("c", results.get(2).getResponse().getUser().getId());
+        assertEquals("d", results.get(3).getResponse().getUser().getId());
+    }
+
+    @Test
+    void testRejectedTokensAreAnsweredLocally() throws Exception {
+        mockServer.enqueue(new MockResponse().setResponseCode(401));
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"user\":{\"id\":\"123\"}}"));
+
+        RejectedTokenCache rejected = new RejectedTokenCache(100, 60_000);
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .rejectedTokenCache(rejected)
+                .build();
+
+        assertThrows(AuthenticationException.class, () -> client.getUserInfo("bad-token"));
+        for (int i = 0; i < 10; i++) {
+            assertThrows(AuthenticationException.class, () -> client.getUserInfo("bad-token"));
+        }
+        ExecutionException async = assertThrows(ExecutionException.class,
+                () -> client.getUserInfoAsync("bad-token").get(5, TimeUnit.SECONDS));
+        assertInstanceOf(AuthenticationException.class, async.getCause());
+        assertThrows(AuthenticationException.class,
+                () -> client.getUserInfo("bad-token", UserFields.IDENTITY));
+
+        assertEquals(1, mockServer.getRequestCount());
+        assertEquals(12, rejected.getSavedCallCount());
+
+        // Other tokens are unaffected
+        assertEquals("123", client.getUserInfo("good-token").getUser().getId());
+    }
+
+    @Test
+    void testAsyncRejectionIsRemembered() throws Exception {
+        mockServer.enqueue(new MockResponse().setResponseCode(401));
+
+        RejectedTokenCache rejected = new RejectedTokenCache(100, 60_000);
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .rejectedTokenCache(rejected)
+                .build();
+
+        ExecutionException first = assertThrows(ExecutionException.class,
+                () -> client.getUserInfoAsync("bad-token").get(5, TimeUnit.SECONDS));
+        assertInstanceOf(AuthenticationException.class, first.getCause());
+        assertThrows(AuthenticationException.class, () -> client.getUserInfo("bad-token"));
+
+        assertEquals(1, mockServer.getRequestCount());
+        assertEquals(1, rejected.getSavedCallCount());
+    }
+
+    @Test
+    void testRejectedTokenCacheIgnoredWithApiKey() {
+        mockServer.enqueue(new MockResponse().setResponseCode(401));
+        mockServer.enqueue(new MockResponse().setResponseCode(401));
+
+        RejectedTokenCache rejected = new RejectedTokenCache(100, 60_000);
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .apiKey("bad-key")
+                .rejectedTokenCache(rejected)
+                .build();
+
+        assertThrows(AuthenticationException.class, () -> client.getUserInfo("token"));
+        assertThrows(AuthenticationException.class, () -> client.getUserInfo("token"));
+
+        assertEquals(2, mockServer.getRequestCount());
+        assertEquals(0, rejected.size());
+    }
+
+    @Test
+    void testLocalVerificationAnswersJwtsWithoutUserinfo() throws Exception {
+        KeyPair keyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        String jwks = objectMapper.writeValueAsString(Map.of("keys", List.of(Map.of(
+                "kty", "RSA", "kid", "k1",
+                "n", base64Url(unsigned(publicKey.getModulus())),
+                "e", base64Url(unsigned(publicKey.getPublicExponent()))))));
+        AtomicInteger userInfoCalls = new AtomicInteger();
+        mockServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if ("/jwks".equals(request.getPath())) {
+                    return new MockResponse().setResponseCode(200).setBody(jwks);
+                }
+                userInfoCalls.incrementAndGet();
+                return new MockResponse().setResponseCode(200).setBody(
+                        "{\"session\":{\"remainingSeconds\":60},\"user\":{\"id\":\"opaque-user\"}}");
+            }
+        });
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .localVerification(mockServer.url("/jwks").toString(), "my-app")
+                .build();
+
+        long exp = System.currentTimeMillis() / 1000 + 300;
+        String header = base64Url(objectMapper.writeValueAsBytes(Map.of("alg", "RS256", "kid", "k1")));
+        String payload = base64Url(objectMapper.writeValueAsBytes(Map.of(
+                "sub", "user-1", "aud", "my-app", "exp", exp)));
+        Signature signer = Signature.getInstance("SHA256withRSA");
+        signer.initSign(keyPair.getPrivate());
+        signer.update((header + "." + payload).getBytes(StandardCharsets.US_ASCII));
+        String token = header + "." + payload + "." + base64Url(signer.sign());
+
+        // Until the key set has been fetched in the background, the API decides
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!"user-1".equals(client.verifyToken(token).getSubject()) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        userInfoCalls.set(0);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("user-1", client.verifyToken(token).getSubject());
+        }
+        assertEquals(0, userInfoCalls.get());
+
+        // Tampered tokens are rejected without calling the API
+        String tampered = header + "." + base64Url(objectMapper.writeValueAsBytes(Map.of(
+                "sub", "admin", "aud", "my-app", "exp", exp))) + "." + token.split("\\.")[2];
+        assertThrows(AuthenticationException.class, () -> client.verifyToken(tampered));
+        assertThrows(AuthenticationException.class, () -> client.getUserInfo(tampered));
+        assertEquals(0, userInfoCalls.get());
+
+        // Full profiles and opaque tokens still use the userinfo endpoint
+        assertEquals("opaque-user", client.getUserInfo(token).getUser().getId());
+        assertEquals("opaque-user", client.verifyToken("opaque-token").getSubject());
+        assertEquals(2, userInfoCalls.get());
+    }
+
+    @Test
+    void testRemoteVerificationBypassesCache() {
+        mockServer.enqueue(new MockResponse().setResponseCode(200).setBody(
+                "{\"session\":{\"remainingSeconds\":10},\"user\":{\"id\":\"opaque-user\"}}"));
+        mockServer.enqueue(new MockResponse().setResponseCode(503));
+        Session session = new Session();
+        session.setRemainingSeconds(3600);
+        UserInfoResponse cached = new UserInfoResponse();
+        cached.setSession(session);
+        client = AuthdogClient.builder(mockServer.url("/").toString())
+                .cache(new UserInfoCache() {
+                    @Override
+                    public UserInfoResponse get(String accessToken) {
+                        return cached;
+                    }
+
+                    @Override
+                    public UserInfoResponse getStale(String accessToken) {
+                        return cached;
+                    }
+
+                    @Override
+                    public void put(String accessToken, UserInfoResponse response) {
+                    }
+
+                    @Override
+                    public void invalidate(String accessToken) {
+                    }
+
+                    @Override
+                    public void clear() {
+                    }
+
+                    @Override
+                    public int size() {
+                        return 1;
+                    }
+                })
+                .build();
+
+        long now = System.currentTimeMillis() / 1000;
+        JwtClaims claims = client.verifyToken("opaque-token");
+
+        assertEquals("opaque-user", claims.getSubject());
+        assertTrue(claims.getExpiresAtSeconds() >= now + 10 && claims.getExpiresAtSeconds() <= now + 11);
+        assertThrows(ApiException.class, () -> client.verifyToken("opaque-token"));
+        assertEquals(2, mockServer.getRequestCount());
+    }
+
+    private static byte[] unsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        return bytes[0] == 0 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
     @Test
     void testTimeoutConfiguration() {
         client = new AuthdogClient(mockServer.url("/").toString(), null, 1000);
@@ -0,0 +1,111 @@
+package com.authdog;
+
+import com.authdog.exceptions.ApiException;
+import com.authdog.exceptions.AuthenticationException;
+import com.authdog.hedge.HedgingPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgedRequestTest {
+
+    private final List<CompletableFuture<String>> attempts = new CopyOnWriteArrayList<>();
+
+    private CompletableFuture<String> attempt() {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        attempts.add(future);
+        return future;
+    }
+
+    private void waitForAttempts(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (attempts.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, attempts.size());
+    }
+
+    @Test
+    void testFastAttemptIsNotHedged() throws Exception {
+        HedgingPolicy policy = HedgingPolicy.fixedDelay(50, 1.0);
+        CompletableFuture<String> result = HedgedRequest.start(this::attempt, policy, e -> false);
+
+        attempts.get(0).complete("first");
+        Thread.sleep(100);
+
+        assertEquals("first", result.get());
+        assertEquals(1, attempts.size());
+        assertEquals(0, policy.getHedgeCount());
+    }
+
+    @Test
+    void testHedgeWinsAndCancelsSlowAttempt() throws Exception {
+        HedgingPolicy policy = HedgingPolicy.fixedDelay(10, 1.0);
+        CompletableFuture<String> result = HedgedRequest.start(this::attempt, policy, e -> false);
+
+        waitForAttempts(2);
+        attempts.get(1).complete("hedge");
+
+        assertEquals("hedge", result.get(5, TimeUnit.SECONDS));
+        assertTrue(attempts.get(0).isCancelled());
+        assertEquals(1, policy.getHedgeWinCount());
+    }
+
+    @Test
+    void testFailedAttemptWaitsForTheOther() throws Exception {
+        HedgingPolicy policy = HedgingPolicy.fixedDelay(10, 1.0);
+        CompletableFuture<String> result = HedgedRequest.start(this::attempt, policy, e -> false);
+
+        waitForAttempts(2);
+        attempts.get(1).completeExceptionally(new ApiException("HTTP error 503"));
+        assertFalse(result.isDone());
+        attempts.get(0).complete("first");
+
+        assertEquals("first", result.get(5, TimeUnit.SECONDS));
+        assertEquals(0, policy.getHedgeWinCount());
+    }
+
+    @Test
+    void testDecisiveFailureSettlesAtOnce() throws Exception {
+        HedgingPolicy policy = HedgingPolicy.fixedDelay(10, 1.0);
+        CompletableFuture<String> result = HedgedRequest.start(this::attempt, policy,
+                AuthenticationException.class::isInstance);
+
+        waitForAttempts(2);
+        attempts.get(0).completeExceptionally(new AuthenticationException("Unauthorized"));
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(AuthenticationException.class, error.getCause());
+        assertTrue(attempts.get(1).isCancelled());
+    }
+
+    @Test
+    void testNoHedgeWithoutBudget() throws Exception {
+        HedgingPolicy policy = HedgingPolicy.fixedDelay(10, 0.5);
+        CompletableFuture<String> result = HedgedRequest.start(this::attempt, policy, e -> false);
+
+        Thread.sleep(100);
+        assertEquals(1, attempts.size());
+        attempts.get(0).complete("first");
+        assertEquals("first", result.get());
+    }
+
+    @Test
+    void testCancellingResultCancelsAttempts() throws Exception {
+        HedgingPolicy policy = HedgingPolicy.fixedDelay(10, 1.0);
+        CompletableFuture<String> result = HedgedRequest.start(this::attempt, policy, e -> false);
+        waitForAttempts(2);
+
+        result.cancel(true);
+
+        assertTrue(attempts.get(0).isCancelled());
+        assertTrue(attempts.get(1).isCancelled());
+    }
+}
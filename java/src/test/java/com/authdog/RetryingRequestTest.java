@@ -0,0 +1,130 @@
+package com.authdog;
+
+import com.authdog.exceptions.ApiException;
+import com.authdog.exceptions.AuthenticationException;
+import com.authdog.retry.RetryPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryingRequestTest {
+
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final List<Long> deadlines = new CopyOnWriteArrayList<>();
+
+    private RetryPolicy.Builder policy() {
+        return RetryPolicy.builder().baseDelayMs(1).maxDelayMs(5);
+    }
+
+    private CompletableFuture<String> start(RetryPolicy policy, Object... outcomes) {
+        return startWithin(policy, 0, outcomes);
+    }
+
+    private CompletableFuture<String> startWithin(RetryPolicy policy, long callDeadlineNanos, Object... outcomes) {
+        Queue<Object> queue = new ArrayDeque<>(Arrays.asList(outcomes));
+        return RetryingRequest.start(deadline -> {
+            attempts.incrementAndGet();
+            deadlines.add(deadline);
+            Object outcome = queue.remove();
+            return outcome instanceof Throwable
+                    ? CompletableFuture.failedFuture((Throwable) outcome)
+                    : CompletableFuture.completedFuture((String) outcome);
+        }, policy, callDeadlineNanos, ApiException.class::isInstance);
+    }
+
+    private static Throwable failure(CompletableFuture<String> future) {
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> future.get(5, TimeUnit.SECONDS));
+        return error.getCause();
+    }
+
+    @Test
+    void testRetriesUntilSuccess() throws Exception {
+        RetryPolicy policy = policy().build();
+
+        CompletableFuture<String> result = start(policy,
+                new ApiException("HTTP error 503", 503), new ApiException("HTTP error 503", 503), "ok");
+
+        assertEquals("ok", result.get(5, TimeUnit.SECONDS));
+        assertEquals(3, attempts.get());
+        assertEquals(2, policy.getRetryCount());
+    }
+
+    @Test
+    void testStopsAfterMaxAttempts() {
+        RetryPolicy policy = policy().maxAttempts(2).build();
+
+        CompletableFuture<String> result = start(policy,
+                new ApiException("first", 503), new ApiException("second", 503), "ok");
+
+        assertEquals("second", failure(result).getMessage());
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void testDoesNotRetryPermanentFailure() {
+        CompletableFuture<String> result = start(policy().build(),
+                new AuthenticationException("Unauthorized"), "ok");
+
+        assertInstanceOf(AuthenticationException.class, failure(result));
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void testDoesNotRetryWithoutBudget() {
+        RetryPolicy policy = policy().budgetBurst(1).build();
+        policy.tryRetry();
+
+        CompletableFuture<String> result = start(policy, new ApiException("HTTP error 503", 503), "ok");
+
+        assertInstanceOf(ApiException.class, failure(result));
+        assertEquals(1, attempts.get());
+        assertEquals(1, policy.getBudgetExhaustedCount());
+    }
+
+    @Test
+    void testDoesNotRetryPastDeadline() {
+        RetryPolicy policy = RetryPolicy.builder().baseDelayMs(1_000).maxDelayMs(1_000).deadlineMs(1).build();
+
+        long start = System.nanoTime();
+        CompletableFuture<String> result = start(policy,
+                new ApiException("HTTP error 503", 503), new ApiException("HTTP error 503", 503),
+                new ApiException("HTTP error 503", 503));
+
+        assertInstanceOf(ApiException.class, failure(result));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue(attempts.get() < 3);
+    }
+
+    @Test
+    void testCallDeadlineLimitsPolicyDeadline() {
+        RetryPolicy policy = RetryPolicy.builder().baseDelayMs(1_000).maxDelayMs(1_000).deadlineMs(60_000).build();
+        long callDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+
+        CompletableFuture<String> result = startWithin(policy, callDeadline,
+                new ApiException("HTTP error 503", 503), "ok");
+
+        assertInstanceOf(ApiException.class, failure(result));
+        assertEquals(1, attempts.get());
+        assertEquals(List.of(callDeadline), deadlines);
+    }
+
+    @Test
+    void testPolicyDeadlineLimitsLaterCallDeadline() throws Exception {
+        RetryPolicy policy = policy().deadlineMs(1_000).build();
+        long callDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+
+        assertEquals("ok", startWithin(policy, callDeadline, "ok").get(5, TimeUnit.SECONDS));
+        assertTrue(deadlines.get(0) - callDeadline < 0);
+    }
+}
@@ -0,0 +1,107 @@
+package com.authdog;
+
+import com.authdog.exceptions.ApiException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void testConcurrentBlockingCallsShareOneLoad() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> flight.execute("key", () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "value";
+                })));
+            }
+            waitUntil(() -> flight.getCoalescedCount() == 7);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("value", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(7, flight.getCoalescedCount());
+            assertEquals(0, flight.getInFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testExceptionIsSharedWithWaiters() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CompletableFuture<String> source = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.executeAsync("key", () -> source);
+        CompletableFuture<String> second = flight.executeAsync("key", () -> {
+            throw new AssertionError("load must not run twice");
+        });
+        ApiException failure = new ApiException("boom");
+        source.completeExceptionally(failure);
+
+        assertSame(failure, assertThrows(Exception.class, first::join).getCause());
+        assertSame(failure, assertThrows(Exception.class, second::join).getCause());
+        assertEquals(0, flight.getInFlightCount());
+    }
+
+    @Test
+    void testLoadIsCancelledOnlyWhenAllWaitersCancel() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CompletableFuture<String> source = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.executeAsync("key", () -> source);
+        CompletableFuture<String> second = flight.executeAsync("key", () -> source);
+
+        first.cancel(true);
+        assertFalse(source.isCancelled());
+
+        second.cancel(true);
+        assertTrue(source.isCancelled());
+        assertEquals(0, flight.getInFlightCount());
+    }
+
+    @Test
+    void testKeyIsReleasedAfterCompletion() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+
+        assertEquals("a", flight.execute("key", () -> "a"));
+        assertEquals("b", flight.execute("key", () -> "b"));
+        assertEquals(0, flight.getCoalescedCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(java.util.function.BooleanSupplier condition)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
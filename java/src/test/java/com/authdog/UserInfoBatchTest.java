@@ -0,0 +1,74 @@
+package com.authdog;
+
+import com.authdog.types.UserInfoResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserInfoBatchTest {
+
+    @Test
+    void testImmediateCompletionsDoNotRecurse() {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            tokens.add("token-" + i);
+        }
+        UserInfoResponse response = new UserInfoResponse();
+
+        Map<String, UserInfoResult> results = new UserInfoBatch(tokens, 4,
+                token -> CompletableFuture.completedFuture(response)).start().join();
+
+        assertEquals(tokens.size(), results.size());
+        assertSame(response, results.get("token-99999").getResponse());
+    }
+
+    @Test
+    void testLoaderExceptionIsReportedPerToken() {
+        Map<String, UserInfoResult> results = new UserInfoBatch(List.of("a", "b"), 1, token -> {
+            if ("a".equals(token)) {
+                throw new IllegalStateException("boom");
+            }
+            return CompletableFuture.completedFuture(new UserInfoResponse());
+        }).start().join();
+
+        assertFalse(results.get("a").isSuccess());
+        assertTrue(results.get("a").getError().getMessage().contains("boom"));
+        assertTrue(results.get("b").isSuccess());
+    }
+
+    @Test
+    void testLoaderErrorCompletesTheBatchAndIsRethrown() {
+        UserInfoBatch batch = new UserInfoBatch(List.of("a", "b"), 1, token -> {
+            if ("a".equals(token)) {
+                throw new LinkageError("boom");
+            }
+            return CompletableFuture.completedFuture(new UserInfoResponse());
+        });
+
+        assertThrows(LinkageError.class, batch::start);
+
+        Map<String, UserInfoResult> results = batch.start().join();
+        assertFalse(results.get("a").isSuccess());
+        assertTrue(results.get("a").getError().getMessage().contains("boom"));
+        assertTrue(results.get("b").isSuccess());
+    }
+
+    @Test
+    void testEmptyBatch() {
+        assertTrue(new UserInfoBatch(Collections.emptyList(), 1, token -> {
+            throw new AssertionError();
+        }).start().join().isEmpty());
+    }
+
+    @Test
+    void testRejectsNullToken() {
+        assertThrows(IllegalArgumentException.class, () -> new UserInfoBatch(
+                Collections.singletonList(null), 1, token -> null));
+    }
+}
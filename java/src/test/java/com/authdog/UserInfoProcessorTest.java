@@ -0,0 +1,286 @@
+package com.authdog;
+
+import com.authdog.exceptions.AuthenticationException;
+import com.authdog.types.User;
+import com.authdog.types.UserInfoResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserInfoProcessorTest {
+
+    private final Map<String, CompletableFuture<UserInfoResponse>> lookups = new LinkedHashMap<>();
+
+    private CompletableFuture<UserInfoResponse> lookup(String token) {
+        CompletableFuture<UserInfoResponse> future = new CompletableFuture<>();
+        lookups.put(token, future);
+        return future;
+    }
+
+    private static UserInfoResponse response(String id) {
+        User user = new User();
+        user.setId(id);
+        UserInfoResponse response = new UserInfoResponse();
+        response.setUser(user);
+        return response;
+    }
+
+    @Test
+    void testUpstreamDemandIsBoundedByConcurrencyAndDownstreamDemand() {
+        UserInfoProcessor processor = new UserInfoProcessor(3, false, this::lookup);
+        TestSource source = new TestSource();
+        TestSink sink = new TestSink();
+        processor.subscribe(sink);
+        source.subscribeTo(processor);
+
+        assertEquals(0, source.requested);
+
+        sink.subscription.request(2);
+        assertEquals(2, source.requested);
+
+        sink.subscription.request(100);
+        assertEquals(3, source.requested);
+
+        processor.onNext("a");
+        processor.onNext("b");
+        processor.onNext("c");
+        assertEquals(3, source.requested);
+
+        lookups.get("b").complete(response("b"));
+        assertEquals(List.of("b"), sink.ids());
+        assertEquals(4, source.requested);
+    }
+
+    @Test
+    void testOrderedDeliversInTokenOrder() {
+        UserInfoProcessor processor = new UserInfoProcessor(3, true, this::lookup);
+        TestSource source = new TestSource();
+        TestSink sink = new TestSink();
+        processor.subscribe(sink);
+        source.subscribeTo(processor);
+        sink.subscription.request(Long.MAX_VALUE);
+        processor.onNext("a");
+        processor.onNext("b");
+        processor.onNext("c");
+
+        lookups.get("c").complete(response("c"));
+        lookups.get("b").complete(response("b"));
+        assertTrue(sink.results.isEmpty());
+
+        lookups.get("a").complete(response("a"));
+        assertEquals(List.of("a", "b", "c"), sink.ids());
+    }
+
+    @Test
+    void testUnorderedDeliversAsLookupsComplete() {
+        UserInfoProcessor processor = new UserInfoProcessor(3, false, this::lookup);
+        TestSource source = new TestSource();
+        TestSink sink = new TestSink();
+        processor.subscribe(sink);
+        source.subscribeTo(processor);
+        sink.subscription.request(Long.MAX_VALUE);
+        processor.onNext("a");
+        processor.onNext("b");
+
+        lookups.get("b").complete(response("b"));
+        lookups.get("a").complete(response("a"));
+
+        assertEquals(List.of("b", "a"), sink.ids());
+    }
+
+    @Test
+    void testFailuresAreResultsAndCompletionWaitsForInFlight() {
+        UserInfoProcessor processor = new UserInfoProcessor(2, true, this::lookup);
+        TestSource source = new TestSource();
+        TestSink sink = new TestSink();
+        processor.subscribe(sink);
+        source.subscribeTo(processor);
+        sink.subscription.request(Long.MAX_VALUE);
+        processor.onNext("a");
+        processor.onNext("b");
+        processor.onComplete();
+
+        lookups.get("a").completeExceptionally(new AuthenticationException("Unauthorized"));
+        assertFalse(sink.completed);
+
+        lookups.get("b").completeExceptionally(new IllegalStateException("boom"));
+        assertTrue(sink.completed);
+        assertFalse(source.cancelled);
+        assertTrue(sink.results.get(0).isUnauthorized());
+        assertFalse(sink.results.get(1).isSuccess());
+        assertTrue(sink.results.get(1).getMessage().contains("boom"));
+    }
+
+    @Test
+    void testLookupErrorIsDeliveredAndRethrown() {
+        UserInfoProcessor processor = new UserInfoProcessor(2, false, token -> {
+            throw new LinkageError("boom");
+        });
+        TestSource source = new TestSource();
+        TestSink sink = new TestSink();
+        processor.subscribe(sink);
+        source.subscribeTo(processor);
+        sink.subscription.request(Long.MAX_VALUE);
+
+        assertThrows(LinkageError.class, () -> processor.onNext("a"));
+        processor.onComplete();
+
+        assertEquals(1, sink.results.size());
+        assertTrue(sink.results.get(0).getMessage().contains("boom"));
+        assertTrue(sink.completed);
+    }
+
+    @Test
+    void testUpstreamErrorIsPassedOnAfterResults() {
+        UserInfoProcessor processor = new UserInfoProcessor(2, false, this::lookup);
+        TestSource source = new TestSource();
+        TestSink sink = new TestSink();
+        processor.subscribe(sink);
+        source.subscribeTo(processor);
+        sink.subscription.request(1);
+        processor.onNext("a");
+        IllegalStateException failure = new IllegalStateException("source failed");
+        processor.onError(failure);
+        assertNull(sink.error);
+
+        lookups.get("a").complete(response("a"));
+
+        assertEquals(List.of("a"), sink.ids());
+        assertSame(failure, sink.error);
+    }
+
+    @Test
+    void testCancelStopsUpstreamAndLookups() {
+        UserInfoProcessor processor = new UserInfoProcessor(2, false, this::lookup);
+        TestSource source = new TestSource();
+        TestSink sink = new TestSink();
+        processor.subscribe(sink);
+        source.subscribeTo(processor);
+        sink.subscription.request(Long.MAX_VALUE);
+        processor.onNext("a");
+
+        sink.subscription.cancel();
+
+        assertTrue(source.cancelled);
+        assertTrue(lookups.get("a").isCancelled());
+        assertTrue(sink.results.isEmpty());
+        assertFalse(sink.completed);
+    }
+
+    @Test
+    void testNonPositiveRequestFailsTheStream() {
+        UserInfoProcessor processor = new UserInfoProcessor(2, false, this::lookup);
+        TestSource source = new TestSource();
+        TestSink sink = new TestSink();
+        processor.subscribe(sink);
+        source.subscribeTo(processor);
+
+        sink.subscription.request(0);
+
+        assertInstanceOf(IllegalArgumentException.class, sink.error);
+        assertTrue(source.cancelled);
+    }
+
+    @Test
+    void testSecondSubscriberIsRejected() {
+        UserInfoProcessor processor = new UserInfoProcessor(2, false, this::lookup);
+        processor.subscribe(new TestSink());
+        TestSink second = new TestSink();
+
+        processor.subscribe(second);
+
+        assertInstanceOf(IllegalStateException.class, second.error);
+    }
+
+    @Test
+    void testImmediateCompletionsDoNotRecurse() {
+        UserInfoResponse response = new UserInfoResponse();
+        UserInfoProcessor processor = new UserInfoProcessor(4, true,
+                token -> CompletableFuture.completedFuture(response));
+        TestSink sink = new TestSink();
+        processor.subscribe(sink);
+        processor.onSubscribe(new Flow.Subscription() {
+            private int next;
+
+            @Override
+            public void request(long n) {
+                for (long i = 0; i < n && next < 100_000; i++) {
+                    processor.onNext("token-" + next++);
+                }
+                if (next == 100_000) {
+                    processor.onComplete();
+                }
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+
+        sink.subscription.request(Long.MAX_VALUE);
+
+        assertEquals(100_000, sink.results.size());
+        assertTrue(sink.completed);
+    }
+
+    private static final class TestSource implements Flow.Subscription {
+        private long requested;
+        private boolean cancelled;
+
+        void subscribeTo(Flow.Subscriber<String> subscriber) {
+            subscriber.onSubscribe(this);
+        }
+
+        @Override
+        public void request(long n) {
+            requested += n;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private static final class TestSink implements Flow.Subscriber<UserInfoResult> {
+        private final List<UserInfoResult> results = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        List<String> ids() {
+            List<String> ids = new ArrayList<>();
+            for (UserInfoResult result : results) {
+                ids.add(result.getResponse().getUser().getId());
+            }
+            return ids;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscriptionParam) {
+            subscription = subscriptionParam;
+        }
+
+        @Override
+        public void onNext(UserInfoResult item) {
+            results.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
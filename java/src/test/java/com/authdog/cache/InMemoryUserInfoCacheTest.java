@@ -0,0 +1,235 @@
+package com.authdog.cache;
+
+import com.authdog.types.Session;
+import com.authdog.types.User;
+import com.authdog.types.UserInfoResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryUserInfoCacheTest {
+
+    private static UserInfoResponse response(int remainingSeconds) {
+        UserInfoResponse response = new UserInfoResponse();
+        response.setSession(new Session(remainingSeconds));
+        return response;
+    }
+
+    @Test
+    void testEntryExpiresWithSession() {
+        MutableClock clock = new MutableClock();
+        InMemoryUserInfoCache cache = new InMemoryUserInfoCache(10, 60_000, clock);
+        UserInfoResponse response = response(5);
+
+        cache.put("token", response);
+        assertEquals(5, cache.get("token").getSession().getRemainingSeconds());
+
+        clock.advance(4_999);
+        assertEquals(0, cache.get("token").getSession().getRemainingSeconds());
+
+        clock.advance(1);
+        assertNull(cache.get("token"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testHitsReportRemainingSessionWithoutChangingCachedResponse() {
+        MutableClock clock = new MutableClock();
+        InMemoryUserInfoCache cache = new InMemoryUserInfoCache(10, 60_000, clock);
+        UserInfoResponse response = response(3600);
+        response.setUser(new User());
+        cache.put("token", response);
+
+        clock.advance(10_000);
+        UserInfoResponse hit = cache.get("token");
+
+        assertEquals(3590, hit.getSession().getRemainingSeconds());
+        assertSame(response.getUser(), hit.getUser());
+        assertEquals(3600, response.getSession().getRemainingSeconds());
+    }
+
+    @Test
+    void testEntryExpiresWithMaxTtl() {
+        MutableClock clock = new MutableClock();
+        InMemoryUserInfoCache cache = new InMemoryUserInfoCache(10, 1_000, clock);
+
+        cache.put("token", response(3600));
+        clock.advance(1_000);
+
+        assertNull(cache.get("token"));
+    }
+
+    @Test
+    void testResponseWithoutSessionIsNotCached() {
+        InMemoryUserInfoCache cache = new InMemoryUserInfoCache(10, 1_000);
+
+        cache.put("token", new UserInfoResponse());
+
+        assertNull(cache.get("token"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testCapacityIsBounded() {
+        InMemoryUserInfoCache cache = new InMemoryUserInfoCache(3, 60_000);
+
+        for (int i = 0; i < 10; i++) {
+            cache.put("token-" + i, response(3600));
+        }
+
+        assertTrue(cache.size() <= 3);
+        assertNotNull(cache.get("token-9"));
+    }
+
+    @Test
+    void testInvalidateAndClear() {
+        InMemoryUserInfoCache cache = new InMemoryUserInfoCache(10, 60_000);
+        cache.put("a", response(3600));
+        cache.put("b", response(3600));
+
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testRefreshAheadAndGraceWindow() {
+        MutableClock clock = new MutableClock();
+        InMemoryUserInfoCache cache = new InMemoryUserInfoCache(10, 60_000,
+                new RefreshAheadPolicy(0.5, 10_000), clock);
+        UserInfoResponse response = response(3600);
+        cache.put("token", response);
+
+        assertFalse(cache.isRefreshDue("token"));
+        assertNull(cache.getStale("token"));
+
+        clock.advance(30_000);
+        assertTrue(cache.isRefreshDue("token"));
+        assertFalse(cache.isRefreshDue("token"));
+        assertEquals(3570, cache.get("token").getSession().getRemainingSeconds());
+
+        clock.advance(30_000);
+        assertNull(cache.get("token"));
+        assertFalse(cache.isRefreshDue("token"));
+        assertEquals(3540, cache.getStale("token").getSession().getRemainingSeconds());
+
+        clock.advance(10_000);
+        assertNull(cache.getStale("token"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testReplacedEntryCanBeRefreshedAgain() {
+        MutableClock clock = new MutableClock();
+        InMemoryUserInfoCache cache = new InMemoryUserInfoCache(10, 60_000,
+                new RefreshAheadPolicy(0.5, 10_000), clock);
+        cache.put("token", response(3600));
+        clock.advance(30_000);
+        assertTrue(cache.isRefreshDue("token"));
+
+        cache.put("token", response(3600));
+        assertFalse(cache.isRefreshDue("token"));
+        clock.advance(30_000);
+
+        assertTrue(cache.isRefreshDue("token"));
+        assertFalse(cache.isRefreshDue("token"));
+    }
+
+    @Test
+    void testGraceWindowEndsWithSession() {
+        MutableClock clock = new MutableClock();
+        InMemoryUserInfoCache cache = new InMemoryUserInfoCache(10, 60_000,
+                new RefreshAheadPolicy(0.8, 10_000), clock);
+        cache.put("token", response(5));
+
+        clock.advance(4_000);
+        assertTrue(cache.isRefreshDue("token"));
+
+        clock.advance(1_000);
+        assertNull(cache.get("token"));
+        assertNull(cache.getStale("token"));
+    }
+
+    @Test
+    void testSnapshotRestoresLiveEntriesWithAbsoluteExpiry(@TempDir Path dir) throws Exception {
+        MutableClock clock = new MutableClock();
+        InMemoryUserInfoCache cache = new InMemoryUserInfoCache(10, 60_000, clock);
+        cache.put("short", response(5));
+        cache.put("long", response(3600));
+        cache.put("expired", response(1));
+        clock.advance(1_000);
+
+        Path file = dir.resolve("userinfo.snapshot");
+        assertEquals(2, cache.snapshot(file));
+
+        clock.advance(5_000);
+        InMemoryUserInfoCache restored = new InMemoryUserInfoCache(10, 60_000, clock);
+        assertEquals(1, restored.restore(file));
+        assertNull(restored.get("short"));
+        assertEquals(3594, restored.get("long").getSession().getRemainingSeconds());
+
+        clock.advance(54_000);
+        assertNull(restored.get("long"));
+    }
+
+    @Test
+    void testRestoreRejectsMalformedSnapshot(@TempDir Path dir) throws Exception {
+        InMemoryUserInfoCache cache = new InMemoryUserInfoCache(10, 60_000);
+        Path file = dir.resolve("userinfo.snapshot");
+
+        Files.write(file, new byte[] {1, 2, 3});
+        assertThrows(IOException.class, () -> cache.restore(file));
+
+        Files.write(file, new byte[64]);
+        assertThrows(IOException.class, () -> cache.restore(file));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testRejectsInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new RefreshAheadPolicy(0, 1_000));
+        assertThrows(IllegalArgumentException.class, () -> new RefreshAheadPolicy(1, 1_000));
+        assertThrows(IllegalArgumentException.class, () -> new RefreshAheadPolicy(0.5, -1));
+        assertThrows(IllegalArgumentException.class, () -> new InMemoryUserInfoCache(0, 1_000));
+        assertThrows(IllegalArgumentException.class, () -> new InMemoryUserInfoCache(10, 0));
+    }
+
+    static final class MutableClock extends Clock {
+        private long millis = 1_000_000L;
+
+        void advance(long deltaMillis) {
+            millis += deltaMillis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+    }
+}
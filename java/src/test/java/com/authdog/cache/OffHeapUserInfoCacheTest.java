@@ -0,0 +1,331 @@
+package com.authdog.cache;
+
+import com.authdog.cache.InMemoryUserInfoCacheTest.MutableClock;
+import com.authdog.types.Session;
+import com.authdog.types.UserInfoResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapUserInfoCacheTest {
+
+    private static final String FULL_RESPONSE = "{"
+            + "\"meta\":{\"code\":200,\"message\":\"OK\"},"
+            + "\"session\":{\"remainingSeconds\":3600},"
+            + "\"user\":{"
+            + "\"id\":\"user-1\",\"userName\":\"jane\",\"displayName\":\"Jane Doe\",\"active\":true,"
+            + "\"names\":{\"id\":\"n1\",\"formatted\":\"Jane Doe\",\"givenName\":\"Jane\",\"familyName\":\"Doe\"},"
+            + "\"photos\":[{\"id\":\"p1\",\"value\":\"https://example.com/p1.png\",\"type\":\"photo\"}],"
+            + "\"phoneNumbers\":[{\"value\":\"+33 1 23 45 67 89\"}],"
+            + "\"emails\":[{\"id\":\"e1\",\"value\":\"jane@example.com\",\"type\":\"work\"}],"
+            + "\"verifications\":[{\"id\":\"v1\",\"email\":\"jane@example.com\",\"verified\":true}],"
+            + "\"environmentId\":\"env-1\""
+            + "}}";
+
+    private static final long ONE_SLAB = OffHeapUserInfoCache.SLAB_SIZE;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static UserInfoResponse response(int remainingSeconds) {
+        UserInfoResponse response = new UserInfoResponse();
+        response.setSession(new Session(remainingSeconds));
+        return response;
+    }
+
+    @Test
+    void testRoundTripsFullResponse() throws Exception {
+        OffHeapUserInfoCache cache = new OffHeapUserInfoCache(ONE_SLAB, 60_000, null, new MutableClock());
+        UserInfoResponse response = objectMapper.readValue(FULL_RESPONSE, UserInfoResponse.class);
+
+        cache.put("token", response);
+        UserInfoResponse hit = cache.get("token");
+
+        assertNotSame(response, hit);
+        assertEquals(objectMapper.writeValueAsString(response), objectMapper.writeValueAsString(hit));
+        assertEquals("Jane", hit.getUser().getNames().getGivenName());
+        assertEquals("jane@example.com", hit.getUser().getEmails().get(0).getValue());
+    }
+
+    @Test
+    void testEntryExpiresWithSession() {
+        MutableClock clock = new MutableClock();
+        OffHeapUserInfoCache cache = new OffHeapUserInfoCache(ONE_SLAB, 60_000, null, clock);
+
+        cache.put("token", response(5));
+        clock.advance(4_999);
+        assertNotNull(cache.get("token"));
+
+        clock.advance(1);
+        assertNull(cache.get("token"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getOffHeapUsedBytes());
+    }
+
+    @Test
+    void testRefreshAheadAndGraceWindow() {
+        MutableClock clock = new MutableClock();
+        OffHeapUserInfoCache cache = new OffHeapUserInfoCache(ONE_SLAB, 60_000,
+                new RefreshAheadPolicy(0.5, 10_000), clock);
+        cache.put("token", response(3600));
+
+        clock.advance(30_000);
+        assertTrue(cache.isRefreshDue("token"));
+        assertFalse(cache.isRefreshDue("token"));
+        assertNotNull(cache.get("token"));
+        assertNull(cache.getStale("token"));
+
+        clock.advance(30_000);
+        assertNull(cache.get("token"));
+        assertEquals(3540, cache.getStale("token").getSession().getRemainingSeconds());
+
+        clock.advance(10_000);
+        assertNull(cache.getStale("token"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testCapacityIsBoundedByEviction() {
+        OffHeapUserInfoCache cache = new OffHeapUserInfoCache(ONE_SLAB, 60_000);
+
+        for (int i = 0; i < 100_000; i++) {
+            cache.put("token-" + i, response(3600));
+        }
+
+        assertEquals(ONE_SLAB, cache.getOffHeapBytes());
+        assertTrue(cache.size() < 100_000);
+        assertTrue(cache.getOffHeapUsedBytes() <= ONE_SLAB);
+        assertNotNull(cache.get("token-99999"));
+    }
+
+    @Test
+    void testDiscardableEntriesAreReclaimedBeforeLiveOnes() {
+        MutableClock clock = new MutableClock();
+        OffHeapUserInfoCache cache = new OffHeapUserInfoCache(ONE_SLAB, 60_000, null, clock);
+        int count = 0;
+        do {
+            cache.put("short-" + count, response(1));
+            count++;
+        } while (cache.size() == count);
+        clock.advance(1_000);
+
+        int live = cache.size();
+        for (int i = 0; i < live; i++) {
+            cache.put("long-" + i, response(3600));
+        }
+
+        assertEquals(live, cache.size());
+        for (int i = 0; i < live; i++) {
+            assertNotNull(cache.get("long-" + i));
+        }
+    }
+
+    @Test
+    void testIndexStaysConsistentUnderChurn() {
+        MutableClock clock = new MutableClock();
+        OffHeapUserInfoCache cache = new OffHeapUserInfoCache(16 * ONE_SLAB, 60_000, null, clock);
+        Map<String, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50_000; i++) {
+            String token = "token-" + random.nextInt(5_000);
+            int operation = random.nextInt(10);
+            if (operation < 6) {
+                int remainingSeconds = 1 + random.nextInt(30);
+                cache.put(token, response(remainingSeconds));
+                expected.put(token, remainingSeconds);
+            } else if (operation < 8) {
+                cache.invalidate(token);
+                expected.remove(token);
+            } else {
+                clock.advance(1_000);
+                expected.replaceAll((key, seconds) -> seconds - 1);
+                expected.values().removeIf(seconds -> seconds <= 0);
+            }
+        }
+
+        for (int i = 0; i < 5_000; i++) {
+            String token = "token-" + i;
+            UserInfoResponse hit = cache.get(token);
+            if (expected.containsKey(token)) {
+                assertEquals(expected.get(token), hit.getSession().getRemainingSeconds());
+            } else {
+                assertNull(hit);
+            }
+        }
+        assertEquals(expected.size(), cache.size());
+    }
+
+    @Test
+    void testLargeCacheIsSplitIntoSegments() {
+        OffHeapUserInfoCache cache = new OffHeapUserInfoCache(1024 * ONE_SLAB, 60_000);
+
+        for (int i = 0; i < 1_000; i++) {
+            cache.put("token-" + i, response(3600));
+        }
+
+        assertEquals(16 * ONE_SLAB, cache.getOffHeapBytes());
+        assertEquals(1_000, cache.size());
+        assertNotNull(cache.get("token-999"));
+    }
+
+    @Test
+    void testConcurrentAccessAcrossSegments() throws Exception {
+        OffHeapUserInfoCache cache = new OffHeapUserInfoCache(1024 * ONE_SLAB, 60_000, null, new MutableClock());
+        int threads = 8;
+        int perThread = 10_000;
+        AtomicInteger mismatches = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        String token = "token-" + thread + "-" + (i % 100);
+                        int remainingSeconds = 1_000 + i;
+                        cache.put(token, response(remainingSeconds));
+                        UserInfoResponse hit = cache.get(token);
+                        if (hit == null || hit.getSession().getRemainingSeconds() != remainingSeconds) {
+                            mismatches.incrementAndGet();
+                        }
+                        if (i % 10 == 0) {
+                            cache.invalidate(token);
+                        }
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(0, mismatches.get());
+        assertEquals(threads * 90, cache.size());
+    }
+
+    @Test
+    void testSlabIsReassignedToAnotherSizeClass() throws Exception {
+        OffHeapUserInfoCache cache = new OffHeapUserInfoCache(ONE_SLAB, 60_000);
+        cache.put("small", response(3600));
+
+        cache.put("large", objectMapper.readValue(FULL_RESPONSE, UserInfoResponse.class));
+
+        assertNull(cache.get("small"));
+        assertEquals("user-1", cache.get("large").getUser().getId());
+        assertEquals(ONE_SLAB, cache.getOffHeapBytes());
+    }
+
+    @Test
+    void testReportsFootprint() {
+        OffHeapUserInfoCache cache = new OffHeapUserInfoCache(4 * ONE_SLAB, 60_000);
+        assertEquals(0, cache.getOffHeapBytes());
+        assertEquals(0, cache.getHeapBytes());
+
+        cache.put("token", response(3600));
+        long used = cache.getOffHeapUsedBytes();
+        long heap = cache.getHeapBytes();
+
+        assertTrue(used > 0);
+        assertTrue(heap > 0);
+        assertEquals(ONE_SLAB, cache.getOffHeapBytes());
+
+        cache.put("token", response(1800));
+        assertEquals(1, cache.size());
+        assertEquals(heap, cache.getHeapBytes());
+    }
+
+    @Test
+    void testInvalidateAndClear() {
+        OffHeapUserInfoCache cache = new OffHeapUserInfoCache(ONE_SLAB, 60_000);
+        cache.put("a", response(3600));
+        cache.put("b", response(3600));
+
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getOffHeapUsedBytes());
+    }
+
+    @Test
+    void testSnapshotRoundTripsBetweenBackends(@TempDir Path dir) throws Exception {
+        MutableClock clock = new MutableClock();
+        OffHeapUserInfoCache cache = new OffHeapUserInfoCache(2 * ONE_SLAB, 60_000, null, clock);
+        cache.put("full", objectMapper.readValue(FULL_RESPONSE, UserInfoResponse.class));
+        cache.put("short", response(2));
+
+        Path file = dir.resolve("userinfo.snapshot");
+        assertEquals(2, cache.snapshot(file));
+        clock.advance(2_000);
+
+        OffHeapUserInfoCache offHeap = new OffHeapUserInfoCache(2 * ONE_SLAB, 60_000, null, clock);
+        assertEquals(1, offHeap.restore(file));
+        assertEquals("Jane", offHeap.get("full").getUser().getNames().getGivenName());
+        assertEquals(3598, offHeap.get("full").getSession().getRemainingSeconds());
+        assertNull(offHeap.get("short"));
+
+        InMemoryUserInfoCache inMemory = new InMemoryUserInfoCache(10, 60_000, clock);
+        assertEquals(1, inMemory.restore(file));
+        assertEquals("user-1", inMemory.get("full").getUser().getId());
+        assertEquals(3598, inMemory.get("full").getSession().getRemainingSeconds());
+
+        inMemory.snapshot(file);
+        OffHeapUserInfoCache again = new OffHeapUserInfoCache(ONE_SLAB, 60_000, null, clock);
+        assertEquals(1, again.restore(file));
+        clock.advance(58_000);
+        assertNull(again.get("full"));
+    }
+
+    @Test
+    void testUndecodableEntryIsDropped(@TempDir Path dir) throws Exception {
+        MutableClock clock = new MutableClock();
+        Path file = dir.resolve("userinfo.snapshot");
+        long expiresAt = clock.millis() + 60_000;
+        CacheSnapshot.write(file, List.of(
+                new CacheSnapshot.Record("broken",
+                        "{\"session\":".getBytes(StandardCharsets.UTF_8),
+                        expiresAt, expiresAt),
+                new CacheSnapshot.Record("valid",
+                        "{\"session\":{\"remainingSeconds\":60}}"
+                                .getBytes(StandardCharsets.UTF_8),
+                        expiresAt, expiresAt)));
+        OffHeapUserInfoCache cache = new OffHeapUserInfoCache(ONE_SLAB, 60_000, null, clock);
+        assertEquals(2, cache.restore(file));
+
+        assertNull(cache.get("broken"));
+        assertEquals(1, cache.size());
+        assertEquals(60, cache.get("valid").getSession().getRemainingSeconds());
+
+        cache.put("broken", response(3600));
+        assertEquals(3600, cache.get("broken").getSession().getRemainingSeconds());
+    }
+
+    @Test
+    void testRejectsInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapUserInfoCache(ONE_SLAB - 1, 1_000));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapUserInfoCache(ONE_SLAB, 0));
+    }
+}
@@ -0,0 +1,70 @@
+package com.authdog.cache;
+
+import com.authdog.cache.InMemoryUserInfoCacheTest.MutableClock;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RejectedTokenCacheTest {
+
+    @Test
+    void testRejectionExpires() {
+        MutableClock clock = new MutableClock();
+        RejectedTokenCache cache = new RejectedTokenCache(10, 5_000, clock);
+
+        assertFalse(cache.isRejected("token"));
+        cache.reject("token");
+        assertTrue(cache.isRejected("token"));
+
+        clock.advance(4_999);
+        assertTrue(cache.isRejected("token"));
+
+        clock.advance(1);
+        assertFalse(cache.isRejected("token"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testCountsSavedCalls() {
+        RejectedTokenCache cache = new RejectedTokenCache(10, 60_000);
+        cache.reject("bad");
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(cache.isRejected("bad"));
+        }
+        assertFalse(cache.isRejected("other"));
+
+        assertEquals(5, cache.getSavedCallCount());
+    }
+
+    @Test
+    void testCapacityIsBounded() {
+        RejectedTokenCache cache = new RejectedTokenCache(32, 60_000);
+        for (int i = 0; i < 1000; i++) {
+            cache.reject("token-" + i);
+        }
+
+        assertTrue(cache.size() <= 32);
+        assertTrue(cache.isRejected("token-999"));
+    }
+
+    @Test
+    void testInvalidateAndClear() {
+        RejectedTokenCache cache = new RejectedTokenCache(10, 60_000);
+        cache.reject("a");
+        cache.reject("b");
+
+        cache.invalidate("a");
+        assertFalse(cache.isRejected("a"));
+        assertTrue(cache.isRejected("b"));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testRejectsInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new RejectedTokenCache(0, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new RejectedTokenCache(10, 0));
+    }
+}
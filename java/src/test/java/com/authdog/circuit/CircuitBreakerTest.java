@@ -0,0 +1,245 @@
+package com.authdog.circuit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(3);
+
+    private final MutableClock clock = new MutableClock();
+    private final List<String> transitions = new ArrayList<>();
+
+    private CircuitBreaker.Builder builder() {
+        return CircuitBreaker.builder()
+                .windowSize(10)
+                .minimumCalls(4)
+                .probeCalls(2)
+                .openDurationMs(1_000)
+                .clock(clock)
+                .listener((from, to) -> transitions.add(from + "->" + to));
+    }
+
+    private static long permit(CircuitBreaker breaker) {
+        long permit = breaker.tryAcquire();
+        assertNotEquals(CircuitBreaker.NOT_PERMITTED, permit);
+        return permit;
+    }
+
+    private static void assertRejected(CircuitBreaker breaker) {
+        assertEquals(CircuitBreaker.NOT_PERMITTED, breaker.tryAcquire());
+    }
+
+    private static void call(CircuitBreaker breaker, boolean failed, long durationNanos) {
+        long permit = permit(breaker);
+        if (failed) {
+            breaker.onFailure(permit, durationNanos);
+        } else {
+            breaker.onSuccess(permit, durationNanos);
+        }
+    }
+
+    @Test
+    void testStaysClosedBelowMinimumCalls() {
+        CircuitBreaker breaker = builder().build();
+
+        for (int i = 0; i < 3; i++) {
+            call(breaker, true, FAST);
+        }
+
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+        assertEquals(1.0, breaker.getFailureRate());
+    }
+
+    @Test
+    void testOpensOnFailureRateAndFailsFast() {
+        CircuitBreaker breaker = builder().build();
+        call(breaker, false, FAST);
+        call(breaker, false, FAST);
+        call(breaker, true, FAST);
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+
+        call(breaker, true, FAST);
+
+        assertEquals(CircuitState.OPEN, breaker.getState());
+        assertRejected(breaker);
+        assertRejected(breaker);
+        assertEquals(2, breaker.getNotPermittedCount());
+        assertEquals(List.of("CLOSED->OPEN"), transitions);
+    }
+
+    @Test
+    void testOpensOnSlowCallRate() {
+        CircuitBreaker breaker = builder().slowCallRateThreshold(0.75).build();
+
+        call(breaker, false, FAST);
+        call(breaker, false, SLOW);
+        call(breaker, false, SLOW);
+        call(breaker, false, SLOW);
+
+        assertEquals(CircuitState.OPEN, breaker.getState());
+    }
+
+    @Test
+    void testSlidingWindowForgetsOldFailures() {
+        CircuitBreaker breaker = builder().build();
+        call(breaker, false, FAST);
+        call(breaker, false, FAST);
+        call(breaker, false, FAST);
+        call(breaker, true, FAST);
+        call(breaker, true, FAST);
+        assertEquals(0.4, breaker.getFailureRate());
+        for (int i = 0; i < 10; i++) {
+            call(breaker, false, FAST);
+        }
+
+        assertEquals(0.0, breaker.getFailureRate());
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testProbesCloseCircuitAfterOpenDuration() {
+        CircuitBreaker breaker = builder().build();
+        for (int i = 0; i < 4; i++) {
+            call(breaker, true, FAST);
+        }
+
+        clock.advance(999);
+        assertRejected(breaker);
+        clock.advance(1);
+
+        long first = permit(breaker);
+        long second = permit(breaker);
+        assertRejected(breaker);
+        assertEquals(CircuitState.HALF_OPEN, breaker.getState());
+        breaker.onSuccess(first, FAST);
+        breaker.onSuccess(second, FAST);
+
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+        assertEquals(0.0, breaker.getFailureRate());
+        assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"),
+                transitions);
+    }
+
+    @Test
+    void testFailedProbesReopenCircuit() {
+        CircuitBreaker breaker = builder().build();
+        for (int i = 0; i < 4; i++) {
+            call(breaker, true, FAST);
+        }
+        clock.advance(1_000);
+
+        call(breaker, false, FAST);
+        call(breaker, true, FAST);
+
+        assertEquals(CircuitState.OPEN, breaker.getState());
+        assertRejected(breaker);
+        assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->OPEN"),
+                transitions);
+    }
+
+    @Test
+    void testIgnoredProbeFreesItsSlot() {
+        CircuitBreaker breaker = builder().build();
+        for (int i = 0; i < 4; i++) {
+            call(breaker, true, FAST);
+        }
+        clock.advance(1_000);
+
+        permit(breaker);
+        long ignored = permit(breaker);
+        breaker.onIgnored(ignored);
+
+        permit(breaker);
+    }
+
+    @Test
+    void testOutcomesFromEarlierStateAreDropped() {
+        CircuitBreaker breaker = builder().build();
+        long closedEra = permit(breaker);
+        long ignoredClosedEra = permit(breaker);
+        for (int i = 0; i < 4; i++) {
+            call(breaker, true, FAST);
+        }
+        clock.advance(1_000);
+        long probe = permit(breaker);
+        assertEquals(CircuitState.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess(closedEra, FAST);
+        breaker.onIgnored(ignoredClosedEra);
+
+        assertEquals(CircuitState.HALF_OPEN, breaker.getState());
+        permit(breaker);
+        assertRejected(breaker);
+        breaker.onFailure(probe, FAST);
+        assertEquals(CircuitState.HALF_OPEN, breaker.getState());
+        assertEquals(1.0, breaker.getFailureRate());
+    }
+
+    @Test
+    void testFailingListenerDoesNotStrandProbes() {
+        CircuitBreaker breaker = builder()
+                .listener((from, to) -> {
+                    throw new IllegalStateException("listener failed");
+                })
+                .build();
+        for (int i = 0; i < 4; i++) {
+            call(breaker, true, FAST);
+        }
+        clock.advance(1_000);
+
+        call(breaker, false, FAST);
+        call(breaker, false, FAST);
+
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testRejectsInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> CircuitBreaker.builder().windowSize(0).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> CircuitBreaker.builder().windowSize(10).minimumCalls(11).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> CircuitBreaker.builder().failureRateThreshold(0).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> CircuitBreaker.builder().slowCallRateThreshold(1.5).build());
+        assertThrows(IllegalArgumentException.class, () -> CircuitBreaker.builder().openDurationMs(0).build());
+    }
+
+    static final class MutableClock extends Clock {
+        private long millis = 1_000_000L;
+
+        void advance(long deltaMillis) {
+            millis += deltaMillis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
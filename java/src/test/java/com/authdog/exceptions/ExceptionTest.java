@@ -139,4 +139,57 @@ class ExceptionTest {
         assertNotNull(stackTrace);
         assertTrue(stackTrace.length > 0);
     }
+
+    @Test
+    void testLimitExceededExceptionIsApiException() {
+        LimitExceededException exception = new LimitExceededException("Too many requests");
+
+        assertEquals("Too many requests", exception.getMessage());
+        assertInstanceOf(ApiException.class, exception);
+    }
+
+    @Test
+    void testCircuitOpenExceptionIsApiException() {
+        CircuitOpenException exception = new CircuitOpenException("Circuit open");
+
+        assertEquals("Circuit open", exception.getMessage());
+        assertInstanceOf(ApiException.class, exception);
+    }
+
+    @Test
+    void testApiExceptionWithStatusCode() {
+        assertEquals(503, new ApiException("HTTP error 503", 503).getStatusCode());
+        assertEquals(0, new ApiException("API request failed").getStatusCode());
+    }
+
+    @Test
+    void testApiExceptionCategory() {
+        ApiException graphql = new ApiException("GraphQL query failed", 500,
+                ApiErrorCategory.GRAPHQL_FAILURE);
+
+        assertEquals(ApiErrorCategory.GRAPHQL_FAILURE, graphql.getCategory());
+        assertEquals(500, graphql.getStatusCode());
+        assertEquals(ApiErrorCategory.OTHER, new ApiException("HTTP error 503", 503).getCategory());
+        assertEquals(ApiErrorCategory.OTHER, new LimitExceededException("Too many requests").getCategory());
+    }
+
+    @Test
+    void testStacklessConstruction() {
+        Throwable cause = new RuntimeException("Root cause");
+        AuthdogException[] exceptions = {
+                new AuthdogException("Authdog", cause, false),
+                new AuthenticationException("Unauthorized", null, false),
+                new ApiException("HTTP error 503", null, 503, false),
+                new LimitExceededException("Too many requests", false),
+                new CircuitOpenException("Circuit open", false)
+        };
+
+        for (AuthdogException exception : exceptions) {
+            assertEquals(0, exception.getStackTrace().length, exception.getMessage());
+        }
+        assertSame(cause, exceptions[0].getCause());
+        assertEquals(503, ((ApiException) exceptions[2]).getStatusCode());
+        assertTrue(new AuthenticationException("Unauthorized", null, true)
+                .getStackTrace().length > 0);
+    }
 }
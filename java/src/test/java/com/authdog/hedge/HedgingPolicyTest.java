@@ -0,0 +1,75 @@
+package com.authdog.hedge;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgingPolicyTest {
+
+    @Test
+    void testFixedDelay() {
+        HedgingPolicy policy = HedgingPolicy.fixedDelay(50, 0.1);
+
+        policy.recordLatency(TimeUnit.SECONDS.toNanos(5));
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), policy.getDelayNanos());
+    }
+
+    @Test
+    void testPercentileDelayTracksRecentWindow() {
+        HedgingPolicy policy = HedgingPolicy.percentileDelay(95, 1, 0.1);
+        assertTrue(policy.getDelayNanos() < 0);
+
+        for (int i = 1; i <= HedgingPolicy.WINDOW_SIZE; i++) {
+            policy.recordLatency(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(95), policy.getDelayNanos());
+
+        for (int i = 1; i <= HedgingPolicy.WINDOW_SIZE; i++) {
+            policy.recordLatency(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1), policy.getDelayNanos());
+    }
+
+    @Test
+    void testBudgetCapsHedgesAtRatioOfRequests() {
+        HedgingPolicy policy = HedgingPolicy.fixedDelay(10, 0.05);
+        int hedges = 0;
+
+        for (int i = 0; i < 1_000; i++) {
+            policy.onRequest();
+            if (policy.tryHedge()) {
+                hedges++;
+            }
+        }
+
+        assertEquals(50, hedges);
+        assertEquals(50, policy.getHedgeCount());
+        assertEquals(1_000, policy.getRequestCount());
+    }
+
+    @Test
+    void testBudgetSavesLimitedBurst() {
+        HedgingPolicy policy = HedgingPolicy.fixedDelay(10, 1.0);
+        for (int i = 0; i < 100; i++) {
+            policy.onRequest();
+        }
+
+        int hedges = 0;
+        while (policy.tryHedge()) {
+            hedges++;
+        }
+
+        assertEquals(HedgingPolicy.MAX_BURST, hedges);
+    }
+
+    @Test
+    void testRejectsInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> HedgingPolicy.fixedDelay(-1, 0.1));
+        assertThrows(IllegalArgumentException.class, () -> HedgingPolicy.fixedDelay(10, 0));
+        assertThrows(IllegalArgumentException.class, () -> HedgingPolicy.fixedDelay(10, 1.5));
+        assertThrows(IllegalArgumentException.class, () -> HedgingPolicy.percentileDelay(100, 10, 0.1));
+    }
+}
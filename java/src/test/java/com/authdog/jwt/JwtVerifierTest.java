@@ -0,0 +1,315 @@
+package com.authdog.jwt;
+
+import com.authdog.exceptions.AuthenticationException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtVerifierTest {
+
+    private static final String AUDIENCE = "my-app";
+
+    private static final long NOW_SECONDS = 1_700_000_000L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger jwksRequests = new AtomicInteger();
+    private final List<Map<String, Object>> publishedKeys = new CopyOnWriteArrayList<>();
+    private volatile long jwksDelayMs;
+    private final MutableClock clock = new MutableClock(NOW_SECONDS * 1000);
+
+    private MockWebServer mockServer;
+    private JwtVerifier verifier;
+    private KeyPair rsaKey;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        rsaKey = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        publishedKeys.add(rsaJwk("rsa-1", rsaKey));
+
+        mockServer = new MockWebServer();
+        mockServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                jwksRequests.incrementAndGet();
+                try {
+                    return new MockResponse().setResponseCode(200).setBody(
+                            objectMapper.writeValueAsString(Map.of("keys", publishedKeys)))
+                            .setHeadersDelay(jwksDelayMs, TimeUnit.MILLISECONDS);
+                } catch (IOException e) {
+                    return new MockResponse().setResponseCode(500);
+                }
+            }
+        });
+        mockServer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (verifier != null) {
+            verifier.close();
+        }
+        mockServer.shutdown();
+    }
+
+    @Test
+    void testAcceptsValidRsaToken() throws Exception {
+        verifier = newVerifier();
+
+        JwtClaims claims = verifier.verify(sign("RS256", "rsa-1", rsaKey.getPrivate(), validClaims()));
+
+        assertEquals("user-1", claims.getSubject());
+        assertEquals("env-1", claims.getEnvironmentId());
+        assertEquals(NOW_SECONDS + 300, claims.getExpiresAtSeconds());
+        assertTrue(verifier.hasKeys());
+    }
+
+    @Test
+    void testAcceptsValidEcToken() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair ecKey = generator.generateKeyPair();
+        publishedKeys.add(ecJwk("ec-1", ecKey));
+        verifier = newVerifier();
+
+        JwtClaims claims = verifier.verify(sign("ES256", "ec-1", ecKey.getPrivate(), validClaims()));
+
+        assertEquals("user-1", claims.getSubject());
+    }
+
+    @Test
+    void testRejectsInvalidTokens() throws Exception {
+        verifier = newVerifier();
+        KeyPair otherKey = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+
+        Map<String, Object> expired = validClaims();
+        expired.put("exp", NOW_SECONDS - 60);
+        Map<String, Object> notYetValid = validClaims();
+        notYetValid.put("nbf", NOW_SECONDS + 60);
+        Map<String, Object> wrongAudience = validClaims();
+        wrongAudience.put("aud", List.of("other-app"));
+
+        assertThrows(AuthenticationException.class,
+                () -> verifier.verify(sign("RS256", "rsa-1", otherKey.getPrivate(), validClaims())));
+        assertThrows(AuthenticationException.class,
+                () -> verifier.verify(sign("RS256", "rsa-1", rsaKey.getPrivate(), expired)));
+        assertThrows(AuthenticationException.class,
+                () -> verifier.verify(sign("RS256", "rsa-1", rsaKey.getPrivate(), notYetValid)));
+        assertThrows(AuthenticationException.class,
+                () -> verifier.verify(sign("RS256", "rsa-1", rsaKey.getPrivate(), wrongAudience)));
+        assertThrows(AuthenticationException.class,
+                () -> verifier.verify(sign("ES256", "rsa-1", rsaKey.getPrivate(), validClaims())));
+    }
+
+    @Test
+    void testToleratesClockSkew() throws Exception {
+        verifier = newVerifier();
+        Map<String, Object> justExpired = validClaims();
+        justExpired.put("exp", NOW_SECONDS - JwtVerifier.LEEWAY_SECONDS + 1);
+
+        assertNotNull(verifier.verify(sign("RS256", "rsa-1", rsaKey.getPrivate(), justExpired)));
+    }
+
+    @Test
+    void testLeavesUnjudgeableTokensToTheApi() throws Exception {
+        verifier = newVerifier();
+
+        assertNull(verifier.verify("opaque-token"));
+        assertNull(verifier.verify("a.b.c.d"));
+        assertNull(verifier.verify(encode(Map.of("alg", "HS256")) + ".e30.c2ln"));
+    }
+
+    @Test
+    void testUnknownKeyIdTriggersRateLimitedRefetch() throws Exception {
+        verifier = newVerifier();
+        verifier.verify(sign("RS256", "rsa-1", rsaKey.getPrivate(), validClaims()));
+        int fetchesBefore = jwksRequests.get();
+
+        KeyPair rotated = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        publishedKeys.add(rsaJwk("rsa-2", rotated));
+        clock.advance(JwtVerifier.MIN_REFETCH_INTERVAL_MS);
+
+        String token = sign("RS256", "rsa-2", rotated.getPrivate(), validClaims());
+        assertNotNull(awaitVerified(token));
+        assertEquals(fetchesBefore + 1, jwksRequests.get());
+
+        // Unknown key ids within the interval are left to the API without refetching
+        for (int i = 0; i < 10; i++) {
+            assertNull(verifier.verify(sign("RS256", "missing", rotated.getPrivate(), validClaims())));
+        }
+        assertEquals(fetchesBefore + 1, jwksRequests.get());
+    }
+
+    @Test
+    void testKeyRotatedInsideRefetchWindowIsLeftToTheApi() throws Exception {
+        verifier = newVerifier();
+        KeyPair rotated = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        publishedKeys.add(rsaJwk("rsa-2", rotated));
+        int fetchesBefore = jwksRequests.get();
+        String token = sign("RS256", "rsa-2", rotated.getPrivate(), validClaims());
+
+        assertNull(verifier.verify(token));
+        assertEquals(fetchesBefore, jwksRequests.get());
+
+        clock.advance(JwtVerifier.MIN_REFETCH_INTERVAL_MS);
+        assertEquals("user-1", awaitVerified(token).getSubject());
+        assertEquals(fetchesBefore + 1, jwksRequests.get());
+    }
+
+    @Test
+    void testUnknownKeyIdDoesNotWaitForRefetch() throws Exception {
+        verifier = newVerifier();
+        KeyPair rotated = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        publishedKeys.add(rsaJwk("rsa-2", rotated));
+        jwksDelayMs = 2_000;
+        clock.advance(JwtVerifier.MIN_REFETCH_INTERVAL_MS);
+        String token = sign("RS256", "rsa-2", rotated.getPrivate(), validClaims());
+
+        long start = System.nanoTime();
+        assertNull(verifier.verify(token));
+        assertNull(verifier.verify(token));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1_000));
+
+        assertEquals("user-1", awaitVerified(token).getSubject());
+    }
+
+    @Test
+    void testRejectsInvalidConfiguration() {
+        OkHttpClient http = new OkHttpClient();
+        assertThrows(IllegalArgumentException.class,
+                () -> new JwtVerifier(http, null, AUDIENCE, 1000));
+        assertThrows(IllegalArgumentException.class,
+                () -> new JwtVerifier(http, mockServer.url("/jwks").toString(), AUDIENCE, 0));
+    }
+
+    private JwtVerifier newVerifier() throws InterruptedException {
+        JwtVerifier created = new JwtVerifier(new OkHttpClient(), mockServer.url("/jwks").toString(),
+                AUDIENCE, 60_000, clock);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!created.hasKeys() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(created.hasKeys());
+        return created;
+    }
+
+    private JwtClaims awaitVerified(String token) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        JwtClaims claims = verifier.verify(token);
+        while (claims == null && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+            claims = verifier.verify(token);
+        }
+        return claims;
+    }
+
+    private Map<String, Object> validClaims() {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("sub", "user-1");
+        claims.put(JwtVerifier.ENVIRONMENT_ID_CLAIM, "env-1");
+        claims.put("aud", AUDIENCE);
+        claims.put("nbf", NOW_SECONDS - 10);
+        claims.put("exp", NOW_SECONDS + 300);
+        return claims;
+    }
+
+    private String sign(String alg, String kid, PrivateKey key, Map<String, Object> claims)
+            throws Exception {
+        String signingInput = encode(Map.of("alg", alg, "kid", kid, "typ", "JWT"))
+                + "." + encode(claims);
+        Signature signature = Signature.getInstance("EC".equals(key.getAlgorithm())
+                ? "SHA256withECDSAinP1363Format"
+                : "SHA256withRSA");
+        signature.initSign(key);
+        signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+        return signingInput + "." + base64(signature.sign());
+    }
+
+    private String encode(Map<String, Object> json) throws IOException {
+        return base64(objectMapper.writeValueAsBytes(json));
+    }
+
+    private static Map<String, Object> rsaJwk(String kid, KeyPair keyPair) {
+        RSAPublicKey key = (RSAPublicKey) keyPair.getPublic();
+        return Map.of("kty", "RSA", "kid", kid, "use", "sig", "alg", "RS256",
+                "n", base64(unsigned(key.getModulus())),
+                "e", base64(unsigned(key.getPublicExponent())));
+    }
+
+    private static Map<String, Object> ecJwk(String kid, KeyPair keyPair) {
+        ECPublicKey key = (ECPublicKey) keyPair.getPublic();
+        return Map.of("kty", "EC", "kid", kid, "crv", "P-256",
+                "x", base64(unsigned(key.getW().getAffineX())),
+                "y", base64(unsigned(key.getW().getAffineY())));
+    }
+
+    private static byte[] unsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        return bytes[0] == 0 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+    }
+
+    private static String base64(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    static final class MutableClock extends Clock {
+        private volatile long millis;
+
+        MutableClock(long startMillis) {
+            this.millis = startMillis;
+        }
+
+        void advance(long deltaMillis) {
+            millis += deltaMillis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+    }
+}
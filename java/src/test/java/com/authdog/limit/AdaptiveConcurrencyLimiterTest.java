@@ -0,0 +1,94 @@
+package com.authdog.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(20);
+
+    @Test
+    void testRejectsOverLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getRejectedCount());
+
+        limiter.onIgnored();
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void testGrowsWhileRttIsStableAndLimitIsUsed() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100);
+
+        for (int i = 0; i < 200; i++) {
+            saturateAndComplete(limiter, RTT);
+        }
+
+        assertTrue(limiter.getLimit() > 50, "limit " + limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testDoesNotGrowWhenMostlyIdle() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100);
+
+        for (int i = 0; i < 200; i++) {
+            limiter.tryAcquire();
+            limiter.onSuccess(RTT);
+        }
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void testShrinksWhenRttInflates() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(50, 1, 100);
+        for (int i = 0; i < 50; i++) {
+            saturateAndComplete(limiter, RTT);
+        }
+        int before = limiter.getLimit();
+
+        saturateAndComplete(limiter, RTT * 10);
+
+        assertTrue(limiter.getLimit() < before / 2,
+                "limit " + limiter.getLimit() + " was " + before);
+    }
+
+    @Test
+    void testDropsCutTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, 5, 100);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.onDropped();
+        }
+
+        assertEquals(5, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testRejectsInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(1, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(5, 10, 1));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(20, 1, 10));
+    }
+
+    private static void saturateAndComplete(AdaptiveConcurrencyLimiter limiter, long rttNanos) {
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limiter.onSuccess(rttNanos);
+        }
+    }
+}
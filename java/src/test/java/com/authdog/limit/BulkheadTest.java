@@ -0,0 +1,82 @@
+package com.authdog.limit;
+
+import com.authdog.exceptions.LimitExceededException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadTest {
+
+    @Test
+    void testQueuesThenRejectsWithinPartition() {
+        Bulkhead bulkhead = new Bulkhead(1, 1);
+
+        CompletableFuture<Void> running = bulkhead.acquire("a");
+        CompletableFuture<Void> queued = bulkhead.acquire("a");
+        CompletableFuture<Void> rejected = bulkhead.acquire("a");
+
+        assertTrue(running.isDone());
+        assertFalse(queued.isDone());
+        ExecutionException error = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(LimitExceededException.class, error.getCause());
+        assertEquals(1, bulkhead.getRunning("a"));
+        assertEquals(1, bulkhead.getQueued("a"));
+        assertEquals(1, bulkhead.getRejectedCount());
+    }
+
+    @Test
+    void testPartitionsAreIndependent() {
+        Bulkhead bulkhead = new Bulkhead(1, 0);
+        bulkhead.acquire("noisy");
+
+        assertTrue(bulkhead.acquire("noisy").isCompletedExceptionally());
+        CompletableFuture<Void> quiet = bulkhead.acquire("quiet");
+        assertTrue(quiet.isDone());
+        assertFalse(quiet.isCompletedExceptionally());
+        assertEquals(2, bulkhead.getPartitionCount());
+    }
+
+    @Test
+    void testReleaseHandsSlotToNextInOrder() {
+        Bulkhead bulkhead = new Bulkhead(1, 2);
+        bulkhead.acquire("a");
+        CompletableFuture<Void> first = bulkhead.acquire("a");
+        CompletableFuture<Void> second = bulkhead.acquire("a");
+
+        bulkhead.release("a");
+        assertTrue(first.isDone());
+        assertFalse(second.isDone());
+        assertEquals(1, bulkhead.getRunning("a"));
+
+        bulkhead.release("a");
+        assertTrue(second.isDone());
+
+        bulkhead.release("a");
+        assertEquals(0, bulkhead.getRunning("a"));
+        assertEquals(0, bulkhead.getPartitionCount());
+    }
+
+    @Test
+    void testCancelledWaiterGivesUpItsPlace() {
+        Bulkhead bulkhead = new Bulkhead(1, 1);
+        bulkhead.acquire("a");
+        CompletableFuture<Void> cancelled = bulkhead.acquire("a");
+
+        cancelled.cancel(false);
+        CompletableFuture<Void> next = bulkhead.acquire("a");
+        assertFalse(next.isCompletedExceptionally());
+
+        bulkhead.release("a");
+        assertTrue(next.isDone());
+        assertEquals(1, bulkhead.getRunning("a"));
+    }
+
+    @Test
+    void testRejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new Bulkhead(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new Bulkhead(1, -1));
+    }
+}
@@ -0,0 +1,86 @@
+package com.authdog.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    @Test
+    void testAllowsBurstThenRejects() {
+        RateLimiter limiter = new RateLimiter(10, 3, new MutableClock());
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(0, limiter.getAvailablePermits());
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    void testRefillsAtConfiguredRate() {
+        MutableClock clock = new MutableClock();
+        RateLimiter limiter = new RateLimiter(10, 3, clock);
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire();
+        }
+
+        clock.advance(50);
+        assertFalse(limiter.tryAcquire());
+
+        clock.advance(50);
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    void testRefillIsCappedAtBurst() {
+        MutableClock clock = new MutableClock();
+        RateLimiter limiter = new RateLimiter(10, 3, clock);
+        limiter.tryAcquire();
+
+        clock.advance(60_000);
+
+        assertEquals(3, limiter.getAvailablePermits());
+    }
+
+    @Test
+    void testRejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(Double.NaN, 1));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(1, 0));
+    }
+
+    static final class MutableClock extends Clock {
+        private long millis = 1_000_000L;
+
+        void advance(long deltaMillis) {
+            millis += deltaMillis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.authdog.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testEmptySnapshot() {
+        HistogramSnapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getTotalNanos());
+        assertEquals(0, snapshot.getMaxNanos());
+        assertEquals(0.0, snapshot.getMeanNanos());
+        assertEquals(0, snapshot.getValueAtPercentile(99));
+        assertEquals(0, snapshot.getCountAtOrBelow(Long.MAX_VALUE));
+    }
+
+    @Test
+    void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 50; i++) {
+            histogram.record(i);
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(50, snapshot.getCount());
+        assertEquals(1275, snapshot.getTotalNanos());
+        assertEquals(50, snapshot.getMaxNanos());
+        assertEquals(25.5, snapshot.getMeanNanos());
+        assertEquals(25, snapshot.getValueAtPercentile(50));
+        assertEquals(1, snapshot.getValueAtPercentile(0));
+        assertEquals(50, snapshot.getValueAtPercentile(100));
+        assertEquals(10, snapshot.getCountAtOrBelow(10));
+    }
+
+    @Test
+    void testPercentilesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(10_000, snapshot.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), snapshot.getMaxNanos());
+        for (double percentile : new double[] {50, 90, 99, 99.9}) {
+            double expected = TimeUnit.MICROSECONDS.toNanos((long) (percentile * 100));
+            long actual = snapshot.getValueAtPercentile(percentile);
+            assertTrue(actual >= expected, "p" + percentile);
+            assertTrue(actual <= expected * 1.04, "p" + percentile);
+        }
+    }
+
+    @Test
+    void testBucketsAreContiguous() {
+        long previous = -1;
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            long highest = LatencyHistogram.bucketHighestValue(i);
+            assertEquals(i, LatencyHistogram.bucketIndex(previous + 1));
+            assertEquals(i, LatencyHistogram.bucketIndex(highest));
+            assertTrue(highest > previous);
+            previous = highest;
+        }
+        assertEquals(LatencyHistogram.MAX_TRACKABLE_NANOS, previous);
+    }
+
+    @Test
+    void testOutOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE / 2);
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(2, snapshot.getCount());
+        assertEquals(1, snapshot.getCountAtOrBelow(0));
+        assertEquals(Long.MAX_VALUE / 2, snapshot.getMaxNanos());
+        assertEquals(LatencyHistogram.MAX_TRACKABLE_NANOS, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    void testInvalidPercentile() {
+        HistogramSnapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getValueAtPercentile(-1));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getValueAtPercentile(101));
+    }
+
+    @Test
+    void testConcurrentRecording() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 8;
+        int perThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int t = 0; t < threads; t++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        histogram.record(i);
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals((long) threads * perThread, snapshot.getCount());
+        assertEquals((long) threads * perThread * (perThread - 1) / 2, snapshot.getTotalNanos());
+        assertEquals(perThread - 1, snapshot.getMaxNanos());
+    }
+}
@@ -0,0 +1,55 @@
+package com.authdog.retry;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryPolicyTest {
+
+    @Test
+    void testBackoffIsJitteredBelowExponentialCeiling() {
+        RetryPolicy policy = RetryPolicy.builder().baseDelayMs(100).maxDelayMs(1_000).build();
+
+        long maxFirst = 0;
+        for (int i = 0; i < 1_000; i++) {
+            long first = policy.backoffMs(1);
+            long third = policy.backoffMs(3);
+            assertTrue(first >= 0 && first <= 100);
+            assertTrue(third >= 0 && third <= 400);
+            assertTrue(policy.backoffMs(60) <= 1_000);
+            maxFirst = Math.max(maxFirst, first);
+        }
+
+        assertTrue(maxFirst > 50);
+    }
+
+    @Test
+    void testBudgetStartsWithBurstThenFollowsRatio() {
+        RetryPolicy policy = RetryPolicy.builder().budgetBurst(2).budgetRatio(0.1).build();
+
+        assertTrue(policy.tryRetry());
+        assertTrue(policy.tryRetry());
+        assertFalse(policy.tryRetry());
+
+        int retries = 0;
+        for (int i = 0; i < 100; i++) {
+            policy.onRequest();
+            if (policy.tryRetry()) {
+                retries++;
+            }
+        }
+
+        assertTrue(retries >= 9 && retries <= 10);
+        assertEquals(2 + retries, policy.getRetryCount());
+        assertEquals(101 - retries, policy.getBudgetExhaustedCount());
+    }
+
+    @Test
+    void testRejectsInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> RetryPolicy.builder().maxAttempts(0).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> RetryPolicy.builder().baseDelayMs(100).maxDelayMs(50).build());
+        assertThrows(IllegalArgumentException.class, () -> RetryPolicy.builder().deadlineMs(-1).build());
+        assertThrows(IllegalArgumentException.class, () -> RetryPolicy.builder().budgetRatio(0).build());
+    }
+}
@@ -0,0 +1,195 @@
+package com.authdog.types;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserInfoParserTest {
+
+    private static final String FULL_RESPONSE = "{"
+            + "\"meta\":{\"code\":200,\"message\":\"OK\"},"
+            + "\"session\":{\"remainingSeconds\":3600},"
+            + "\"user\":{"
+            + "\"id\":\"user-1\",\"externalId\":\"ext-1\",\"userName\":\"jane\","
+            + "\"displayName\":\"Jane Doe\",\"nickName\":\"jd\",\"profileUrl\":\"https://example.com/jane\","
+            + "\"title\":\"Engineer\",\"userType\":\"employee\",\"preferredLanguage\":\"en\","
+            + "\"locale\":\"en-US\",\"timezone\":\"Europe/Paris\",\"active\":true,"
+            + "\"names\":{\"id\":\"n1\",\"formatted\":\"Jane Doe\",\"givenName\":\"Jane\",\"familyName\":\"Doe\"},"
+            + "\"photos\":[{\"id\":\"p1\",\"value\":\"https://example.com/p1.png\",\"type\":\"photo\"}],"
+            + "\"phoneNumbers\":[{\"value\":\"+33 1 23 45 67 89\"}],"
+            + "\"addresses\":[],"
+            + "\"emails\":[{\"id\":\"e1\",\"value\":\"jane@example.com\",\"type\":\"work\"},"
+            + "{\"id\":\"e2\",\"value\":\"j.doe@example.com\",\"type\":\"home\"}],"
+            + "\"verifications\":[{\"id\":\"v1\",\"email\":\"jane@example.com\",\"verified\":true,"
+            + "\"createdAt\":\"2024-01-01\",\"updatedAt\":\"2024-01-02\"}],"
+            + "\"provider\":\"google\",\"createdAt\":\"2024-01-01T00:00:00Z\","
+            + "\"updatedAt\":\"2024-06-01T00:00:00Z\",\"environmentId\":\"env-1\""
+            + "}}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final UserInfoParser parser = new UserInfoParser(objectMapper);
+
+    private static byte[] utf8(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testParseLazilyMatchesEagerParsing() throws Exception {
+        UserInfoResponse eager = objectMapper.readValue(FULL_RESPONSE, UserInfoResponse.class);
+        UserInfoResponse lazy = parser.parseLazily(utf8(FULL_RESPONSE));
+
+        assertEquals(objectMapper.writeValueAsString(eager), objectMapper.writeValueAsString(lazy));
+        assertEquals(200, lazy.getMeta().getCode());
+        assertEquals(3600, lazy.getSession().getRemainingSeconds());
+        assertEquals("user-1", lazy.getUser().getId());
+        assertEquals("env-1", lazy.getUser().getEnvironmentId());
+        assertTrue(lazy.getUser().isActive());
+        assertEquals("Jane", lazy.getUser().getNames().getGivenName());
+        assertEquals(2, lazy.getUser().getEmails().size());
+        assertEquals("jane@example.com", lazy.getUser().getEmails().get(0).getValue());
+        assertEquals(List.of(Map.of("value", "+33 1 23 45 67 89")), lazy.getUser().getPhoneNumbers());
+        assertTrue(lazy.getUser().getAddresses().isEmpty());
+    }
+
+    @Test
+    void testNestedFieldsAreDecodedOnFirstAccess() throws Exception {
+        String json = "{\"user\":{\"id\":\"user-1\",\"photos\":[{\"unexpected\":1}]}}";
+
+        UserInfoResponse response = parser.parseLazily(utf8(json));
+
+        assertEquals("user-1", response.getUser().getId());
+        assertThrows(UncheckedIOException.class, () -> response.getUser().getPhotos());
+    }
+
+    @Test
+    void testDecodedFieldsAreReused() throws Exception {
+        User user = parser.parseLazily(utf8(FULL_RESPONSE)).getUser();
+
+        assertSame(user.getNames(), user.getNames());
+        assertEquals(user.getEmails(), user.getEmails());
+    }
+
+    @Test
+    void testSetterReplacesDeferredField() throws Exception {
+        User user = parser.parseLazily(utf8(FULL_RESPONSE)).getUser();
+
+        user.setEmails(null);
+        user.setNames(new Names());
+
+        assertNull(user.getEmails());
+        assertNull(user.getNames().getGivenName());
+    }
+
+    @Test
+    void testNullsAndUnknownFields() throws Exception {
+        String json = "{\"extra\":{\"a\":[1,2]},\"user\":{\"id\":null,\"names\":null,"
+                + "\"photos\":null,\"unknown\":[{\"x\":1}],\"active\":false}}";
+
+        UserInfoResponse response = parser.parseLazily(utf8(json));
+
+        assertNull(response.getMeta());
+        assertNull(response.getUser().getId());
+        assertNull(response.getUser().getNames());
+        assertNull(response.getUser().getPhotos());
+        assertFalse(response.getUser().isActive());
+        assertNull(parser.parseLazily(utf8("{\"user\":null}")).getUser());
+        assertNull(parser.parseLazily(utf8("null")));
+    }
+
+    @Test
+    void testMalformedResponses() {
+        assertThrows(MismatchedInputException.class, () -> parser.parseLazily(new byte[0]));
+        assertThrows(MismatchedInputException.class, () -> parser.parseLazily(utf8("[]")));
+        assertThrows(MismatchedInputException.class,
+                () -> parser.parseLazily(utf8("{\"user\":{\"photos\":\"none\"}}")));
+        assertThrows(MismatchedInputException.class,
+                () -> parser.parseLazily(utf8("{\"user\":{\"id\":{\"nested\":true}}}")));
+        assertThrows(JsonParseException.class,
+                () -> parser.parseLazily(utf8("{\"user\":{\"emails\":[{]}}")));
+    }
+
+    @Test
+    void testParseProjectsRequestedFields() throws Exception {
+        UserInfoResponse response = parser.parse(new ByteArrayInputStream(utf8(FULL_RESPONSE)),
+                EnumSet.of(UserFields.SESSION, UserFields.IDENTITY));
+
+        assertNull(response.getMeta());
+        assertEquals(3600, response.getSession().getRemainingSeconds());
+        User user = response.getUser();
+        assertEquals("user-1", user.getId());
+        assertEquals("env-1", user.getEnvironmentId());
+        assertTrue(user.isActive());
+        assertNull(user.getUserName());
+        assertNull(user.getCreatedAt());
+        assertNull(user.getNames());
+        assertNull(user.getPhotos());
+        assertNull(user.getEmails());
+        assertNull(user.getVerifications());
+        assertNull(user.getPhoneNumbers());
+        assertNull(user.getAddresses());
+    }
+
+    @Test
+    void testParseDecodesRequestedNestedFields() throws Exception {
+        UserInfoResponse response = parser.parse(new ByteArrayInputStream(utf8(FULL_RESPONSE)),
+                EnumSet.of(UserFields.PROFILE, UserFields.EMAILS, UserFields.NAMES));
+
+        assertNull(response.getSession());
+        User user = response.getUser();
+        assertNull(user.getId());
+        assertEquals("jane", user.getUserName());
+        assertEquals("Doe", user.getNames().getFamilyName());
+        assertEquals(2, user.getEmails().size());
+        assertNull(user.getPhotos());
+    }
+
+    @Test
+    void testParseAllFieldsMatchesEagerParsing() throws Exception {
+        UserInfoResponse eager = objectMapper.readValue(FULL_RESPONSE, UserInfoResponse.class);
+        UserInfoResponse projected = parser.parse(new ByteArrayInputStream(utf8(FULL_RESPONSE)),
+                EnumSet.allOf(UserFields.class));
+
+        assertEquals(objectMapper.writeValueAsString(eager), objectMapper.writeValueAsString(projected));
+    }
+
+    @Test
+    void testSkippedFieldsAreNotValidated() throws Exception {
+        String json = "{\"meta\":[1],\"user\":{\"id\":\"user-1\",\"photos\":\"none\",\"names\":[]}}";
+
+        UserInfoResponse response = parser.parse(new ByteArrayInputStream(utf8(json)),
+                EnumSet.of(UserFields.IDENTITY));
+
+        assertEquals("user-1", response.getUser().getId());
+        assertThrows(MismatchedInputException.class, () -> parser.parse(
+                new ByteArrayInputStream(utf8(json)), EnumSet.of(UserFields.PHOTOS)));
+    }
+
+    @Test
+    void testParseWithoutUserFieldsSkipsUser() throws Exception {
+        UserInfoResponse response = parser.parseLazily(utf8(FULL_RESPONSE), EnumSet.of(UserFields.META));
+
+        assertEquals("OK", response.getMeta().getMessage());
+        assertNull(response.getUser());
+        assertNull(response.getSession());
+    }
+
+    @Test
+    void testParseLazilyWithProjection() throws Exception {
+        User user = parser.parseLazily(utf8(FULL_RESPONSE),
+                EnumSet.of(UserFields.IDENTITY, UserFields.VERIFICATIONS)).getUser();
+
+        assertEquals("user-1", user.getId());
+        assertTrue(user.getVerifications().get(0).isVerified());
+        assertNull(user.getEmails());
+    }
+}